@@ -0,0 +1,289 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.eps2pgf.ps.resources.fonts.FontManager;
+
+/**
+ * Converts multiple files on a pool of worker threads. Each file gets its own
+ * interpreter, the font and resource data that is loaded from disk is shared
+ * by all conversions. A failed conversion does not abort the other
+ * conversions, its error is recorded in the result of that file. This also
+ * holds for errors such as a stack overflow or running out of memory.
+ *
+ * @author Paul Wagenaars
+ */
+public class BatchConverter {
+    
+    /** Number of threads. Zero means one thread per available processor. */
+    private int nrThreads;
+    
+    /** Executor shared by all calls of convert(), or null. */
+    private final ExecutorService sharedExecutor;
+    
+    /** Cache with results of earlier conversions, or null. */
+    private ConversionCache cache = null;
+    
+    /**
+     * Creates a new batch converter. Each call of {@link #convert(List)} uses
+     * its own pool of worker threads.
+     * 
+     * @param pNrThreads Number of files that are converted in parallel. Zero
+     * means one thread per available processor.
+     */
+    public BatchConverter(final int pNrThreads) {
+        nrThreads = pNrThreads;
+        sharedExecutor = null;
+    }
+    
+    /**
+     * Creates a new batch converter that runs the conversions of all calls
+     * of {@link #convert(List)} on one executor. The number of files that
+     * are converted in parallel is limited by the executor, also when
+     * several threads call convert() at the same time.
+     * 
+     * @param pExecutor The executor. It is not shut down by this converter.
+     */
+    public BatchConverter(final ExecutorService pExecutor) {
+        nrThreads = 0;
+        sharedExecutor = pExecutor;
+    }
+    
+    /**
+     * Converts all files. Each job describes the conversion of a single file.
+     * 
+     * @param jobs The conversion jobs.
+     * 
+     * @return The results of the jobs, in the same order as the jobs.
+     * 
+     * @throws ProgramError This shouldn't happen, it indicates a bug.
+     */
+    public List<Result> convert(final List<Options> jobs) throws ProgramError {
+        List<Result> results = new ArrayList<Result>(jobs.size());
+        if (jobs.isEmpty()) {
+            return results;
+        }
+        
+        // Load the shared font data before the workers start
+        FontManager.initialize();
+        
+        ExecutorService executor = sharedExecutor;
+        if (executor == null) {
+            int threads = nrThreads;
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            threads = Math.max(1, Math.min(threads, jobs.size()));
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        
+        List<Future<Result>> futures =
+            new ArrayList<Future<Result>>(jobs.size());
+        try {
+            for (final Options job : jobs) {
+                futures.add(executor.submit(new Callable<Result>() {
+                    public Result call() {
+                        return convertJob(job);
+                    }
+                }));
+            }
+            
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ProgramError("Batch conversion was "
+                            + "interrupted.");
+                } catch (ExecutionException e) {
+                    throw new ProgramError("Unexpected error in batch "
+                            + "conversion: " + e.getCause());
+                }
+            }
+        } finally {
+            if (executor != sharedExecutor) {
+                executor.shutdownNow();
+            } else {
+                // Remove the jobs that are left after an interruption
+                for (Future<Result> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Converts a single file and records the time it took.
+     * 
+     * @param job Options describing the conversion.
+     * 
+     * @return The result of the conversion.
+     */
+    private Result convertJob(final Options job) {
+        long start = System.nanoTime();
+        Converter converter = new Converter(job);
+        converter.setCache(cache);
+        Throwable error = null;
+        try {
+            converter.convert();
+        } catch (Throwable e) {
+            // Any error only affects this file
+            error = e;
+        }
+        long time = (System.nanoTime() - start) / 1000000L;
+        
+        return new Result(job, time, error, converter.getErrorName());
+    }
+    
+    /**
+     * Sets the number of threads.
+     * 
+     * @param pNrThreads Number of threads. Zero means one thread per
+     * available processor.
+     */
+    public void setNrThreads(final int pNrThreads) {
+        nrThreads = pNrThreads;
+    }
+    
+    /**
+     * Gets the number of threads.
+     * 
+     * @return Number of threads. Zero means one thread per available
+     * processor.
+     */
+    public int getNrThreads() {
+        return nrThreads;
+    }
+    
+    /**
+     * Sets the cache that is shared by all conversions.
+     * 
+     * @param pCache The cache, or null to disable caching.
+     */
+    public void setCache(final ConversionCache pCache) {
+        cache = pCache;
+    }
+    
+    /**
+     * Gets the conversion cache.
+     * 
+     * @return The cache, or null if caching is disabled.
+     */
+    public ConversionCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Result of the conversion of a single file.
+     */
+    public static final class Result {
+        
+        /** Options describing the conversion. */
+        private final Options opts;
+        
+        /** Time the conversion took, in milliseconds. */
+        private final long time;
+        
+        /** The error that aborted the conversion, or null. */
+        private final Throwable error;
+        
+        /**
+         * Name of the PostScript error that terminated the document, or null.
+         */
+        private final String errorName;
+        
+        /**
+         * Creates a new result.
+         * 
+         * @param pOpts Options describing the conversion.
+         * @param pTime Time the conversion took, in milliseconds.
+         * @param pError The error that aborted the conversion, or null.
+         * @param pErrorName Name of the PostScript error that terminated the
+         * document, or null.
+         */
+        private Result(final Options pOpts, final long pTime,
+                final Throwable pError, final String pErrorName) {
+            opts = pOpts;
+            time = pTime;
+            error = pError;
+            errorName = pErrorName;
+        }
+        
+        /**
+         * @return the options describing the conversion
+         */
+        public Options getOpts() {
+            return opts;
+        }
+        
+        /**
+         * @return the time the conversion took, in milliseconds
+         */
+        public long getTime() {
+            return time;
+        }
+        
+        /**
+         * @return the error that aborted the conversion, or null
+         */
+        public Throwable getError() {
+            return error;
+        }
+        
+        /**
+         * @return the name of the PostScript error that terminated the
+         * document, or null
+         */
+        public String getErrorName() {
+            return errorName;
+        }
+        
+        /**
+         * @return true if the conversion succeeded
+         */
+        public boolean isSuccess() {
+            return (error == null) && (errorName == null);
+        }
+        
+        /**
+         * @return message describing why the conversion failed, or null if
+         * it succeeded
+         */
+        public String getFailureMessage() {
+            if (error != null) {
+                return Converter.getFailureMessage(error);
+            } else if (errorName != null) {
+                return Converter.getFailureMessage(errorName);
+            } else {
+                return null;
+            }
+        }
+    }
+    
+}
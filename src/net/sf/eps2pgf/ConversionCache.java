@@ -0,0 +1,566 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import net.sf.eps2pgf.io.images.EpsImageCreator;
+import net.sf.eps2pgf.ps.Header;
+import net.sf.eps2pgf.ps.resources.outputdevices.PGFDevice;
+
+/**
+ * On-disk cache of conversion results. The key of an entry is a hash of
+ * everything that determines the output: the PostScript section and the name
+ * of the input file, the contents of the text replacements file, the options
+ * that influence the output and the program version. An entry contains the
+ * output file and the files written next to it (bitmap images).
+ * 
+ * The output contains the time of the conversion. When an entry is restored
+ * these header comments are replaced by ones with the current time.
+ * 
+ * Each entry is a directory (named after its key) in the cache directory.
+ * Entries are first written to a temporary directory and then renamed, so
+ * that other conversions never see an incomplete entry. The modification
+ * time of an entry is updated on each hit, entries that have not been used
+ * for the longest time are evicted first.
+ *
+ * @author Paul Wagenaars
+ */
+public class ConversionCache {
+    
+    /** Name of the main output file in an entry. */
+    private static final String MAIN_FILE = "output";
+    
+    /**
+     * Prefix of side files in an entry. The rest of the name is the part of
+     * the original name after the base name of the output file.
+     */
+    private static final String SIDE_PREFIX = "side";
+    
+    /** Prefix of temporary entry directories. */
+    private static final String TMP_PREFIX = "tmp-";
+    
+    /** Size of the buffer used to read and copy files. */
+    private static final int BUFFER_SIZE = 65536;
+    
+    /** Character set used to hash strings. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    /** Character set of the header comments of output files. */
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    
+    /** The log. */
+    private static final Logger LOG
+                                  = Logger.getLogger("net.sourceforge.eps2pgf");
+    
+    /** Cache directory. */
+    private final File dir;
+    
+    /** Maximum total size (in bytes) of all entries, 0 means no limit. */
+    private final long maxSize;
+    
+    /** Maximum age (in ms) of unused entries, 0 means no limit. */
+    private final long maxAge;
+    
+    /** Number of conversions that were found in the cache. */
+    private final AtomicLong hits = new AtomicLong();
+    
+    /** Number of conversions that were not found in the cache. */
+    private final AtomicLong misses = new AtomicLong();
+    
+    /** Number of entries stored. */
+    private final AtomicLong stores = new AtomicLong();
+    
+    /** Number of entries evicted. */
+    private final AtomicLong evictions = new AtomicLong();
+    
+    /**
+     * Creates a new cache. The directory is created if it doesn't exist.
+     * 
+     * @param pDir Cache directory.
+     * @param pMaxSize Maximum total size (in bytes) of all entries, 0 means
+     * no limit.
+     * @param pMaxAge Maximum time (in milliseconds) an entry is kept since
+     * it was last used, 0 means no limit.
+     * 
+     * @throws IOException Unable to create the cache directory.
+     */
+    public ConversionCache(final File pDir, final long pMaxSize,
+            final long pMaxAge) throws IOException {
+        
+        dir = pDir;
+        maxSize = pMaxSize;
+        maxAge = pMaxAge;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create cache directory "
+                    + dir.getPath() + ".");
+        }
+    }
+    
+    /**
+     * Computes the key of a conversion.
+     * 
+     * @param opts Options describing the conversion.
+     * 
+     * @return The key.
+     * 
+     * @throws IOException Unable to read the input or text replacements
+     * file.
+     * @throws ProgramError This shouldn't happen, it indicates a bug.
+     */
+    public String getKey(final Options opts) throws IOException,
+            ProgramError {
+        
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ProgramError("SHA-256 message digest is not available.");
+        }
+        
+        update(digest, Main.getNameVersion());
+        update(digest, opts.getOutputType().name());
+        update(digest, opts.getTextmode().name());
+        
+        // The names of the image files are derived from the output file name,
+        // and the name of the input file ends up in the output as well (job
+        // name and title).
+        update(digest, opts.getOutputFile().getName());
+        update(digest, opts.getInputFile().getName());
+        
+        File textReplace = opts.getTextreplacefile();
+        if (textReplace != null) {
+            update(digest, textReplace, 0, textReplace.length());
+        } else {
+            update(digest, "");
+        }
+        
+        File input = opts.getInputFile();
+        int[] dim = Header.getPostScriptSection(input);
+        if (dim != null) {
+            update(digest, input, dim[0], dim[1]);
+        } else {
+            update(digest, input, 0, input.length());
+        }
+        
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16));
+            key.append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+    
+    /**
+     * Adds a string to a hash.
+     * 
+     * @param digest The hash.
+     * @param str The string.
+     */
+    private static void update(final MessageDigest digest, final String str) {
+        byte[] bytes = str.getBytes(UTF8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+    
+    /**
+     * Adds a number to a hash.
+     * 
+     * @param digest The hash.
+     * @param value The number.
+     */
+    private static void update(final MessageDigest digest, final long value) {
+        for (int i = 56; i >= 0; i -= 8) {
+            digest.update((byte) (value >>> i));
+        }
+    }
+    
+    /**
+     * Adds a section of a file to a hash.
+     * 
+     * @param digest The hash.
+     * @param file The file.
+     * @param start Start of the section.
+     * @param length Length of the section.
+     * 
+     * @throws IOException Unable to read the file.
+     */
+    private static void update(final MessageDigest digest, final File file,
+            final long start, final long length) throws IOException {
+        
+        update(digest, length);
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            in.seek(start);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0,
+                        (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new IOException("Unexpected end of file "
+                            + file.getPath() + ".");
+                }
+                digest.update(buffer, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Copies the output of a cached conversion to the output file (and the
+     * side files next to it).
+     * 
+     * @param key The key of the conversion.
+     * @param opts Options describing the conversion.
+     * 
+     * @return True if the conversion was found in the cache, false
+     * otherwise.
+     */
+    public boolean restore(final String key, final Options opts) {
+        File entry = new File(dir, key);
+        File[] files = entry.listFiles();
+        if ((files == null) || !new File(entry, MAIN_FILE).isFile()) {
+            misses.incrementAndGet();
+            return false;
+        }
+        
+        File outputFile = opts.getOutputFile();
+        File outputDir = outputFile.getAbsoluteFile().getParentFile();
+        String basename = getBasename(outputFile);
+        try {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.equals(MAIN_FILE)) {
+                    copyWithNewDates(file, outputFile);
+                } else if (name.startsWith(SIDE_PREFIX)) {
+                    copyWithNewDates(file, new File(outputDir, basename
+                            + name.substring(SIDE_PREFIX.length())));
+                }
+            }
+        } catch (IOException e) {
+            // The entry was probably evicted while it was being copied
+            LOG.fine("Unable to restore cache entry " + key + ".");
+            misses.incrementAndGet();
+            return false;
+        }
+        
+        entry.setLastModified(System.currentTimeMillis());
+        hits.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * Stores the output of a conversion in the cache. Errors are logged,
+     * they do not affect the conversion.
+     * 
+     * @param key The key of the conversion.
+     * @param opts Options describing the conversion.
+     * @param sideFiles Files written next to the output file.
+     */
+    public void store(final String key, final Options opts,
+            final List<File> sideFiles) {
+        
+        String basename = getBasename(opts.getOutputFile());
+        File tmpEntry = new File(dir, TMP_PREFIX + key + "-"
+                + Thread.currentThread().getId() + "-" + System.nanoTime());
+        try {
+            if (!tmpEntry.mkdir()) {
+                throw new IOException("unable to create directory");
+            }
+            copy(opts.getOutputFile(), new File(tmpEntry, MAIN_FILE));
+            for (File sideFile : sideFiles) {
+                String name = sideFile.getName();
+                if (!name.startsWith(basename)) {
+                    throw new IOException("unexpected side file " + name);
+                }
+                copy(sideFile, new File(tmpEntry, SIDE_PREFIX
+                        + name.substring(basename.length())));
+            }
+            if (tmpEntry.renameTo(new File(dir, key))) {
+                stores.incrementAndGet();
+            } else {
+                // Another conversion stored the same entry in the meantime
+                delete(tmpEntry);
+            }
+        } catch (IOException e) {
+            LOG.warning("Unable to store conversion result in cache ("
+                    + e.getMessage() + ").");
+            delete(tmpEntry);
+        }
+        
+        evict();
+    }
+    
+    /**
+     * Removes entries that have not been used for longer than the maximum
+     * age, and then the least recently used entries until the total size is
+     * within the maximum size.
+     */
+    public synchronized void evict() {
+        File[] entries = dir.listFiles();
+        if (entries == null) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        List<File> kept = new ArrayList<File>(entries.length);
+        long totalSize = 0;
+        for (File entry : entries) {
+            if (!entry.isDirectory()) {
+                continue;
+            }
+            if ((maxAge > 0) && (now - entry.lastModified() > maxAge)) {
+                delete(entry);
+                evictions.incrementAndGet();
+            } else if (!entry.getName().startsWith(TMP_PREFIX)) {
+                kept.add(entry);
+                totalSize += getSize(entry);
+            }
+        }
+        
+        if ((maxSize <= 0) || (totalSize <= maxSize)) {
+            return;
+        }
+        Collections.sort(kept, new Comparator<File>() {
+            public int compare(final File a, final File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+            }
+        });
+        for (File entry : kept) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            totalSize -= getSize(entry);
+            delete(entry);
+            evictions.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Returns the base name of the output file, used for the names of the
+     * side files.
+     * 
+     * @param outputFile The output file.
+     * 
+     * @return The name of the file without extension.
+     */
+    private static String getBasename(final File outputFile) {
+        String filename = outputFile.getName();
+        int dot = filename.lastIndexOf('.');
+        if (dot >= 0) {
+            return filename.substring(0, dot);
+        } else {
+            return filename;
+        }
+    }
+    
+    /**
+     * Copies a file.
+     * 
+     * @param src Source file.
+     * @param dest Destination file.
+     * 
+     * @throws IOException Unable to copy the file.
+     */
+    private static void copy(final File src, final File dest)
+            throws IOException {
+        
+        InputStream in = new FileInputStream(src);
+        try {
+            OutputStream out = new FileOutputStream(dest);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Copies a file that was stored in an entry. Comment lines at the start
+     * of the file that contain the time of the conversion are replaced by
+     * ones with the current time, everything else is copied unchanged.
+     * 
+     * @param src Source file.
+     * @param dest Destination file.
+     * 
+     * @throws IOException Unable to copy the file.
+     */
+    private static void copyWithNewDates(final File src, final File dest)
+            throws IOException {
+        
+        InputStream in = new BufferedInputStream(new FileInputStream(src),
+                BUFFER_SIZE);
+        try {
+            OutputStream out = new FileOutputStream(dest);
+            try {
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                int c = in.read();
+                while (c == '%') {
+                    line.reset();
+                    while ((c >= 0) && (c != '\n')) {
+                        line.write(c);
+                        c = in.read();
+                    }
+                    if (c == '\n') {
+                        line.write(c);
+                        c = in.read();
+                    }
+                    String comment = line.toString(LATIN1.name());
+                    if (comment.startsWith(PGFDevice.CREATED_PREFIX)) {
+                        comment = PGFDevice.getCreatedComment();
+                        out.write(comment.getBytes(LATIN1));
+                    } else if (comment.startsWith(
+                            EpsImageCreator.CREATION_DATE_PREFIX)) {
+                        comment = EpsImageCreator.getCreationDateComment();
+                        out.write(comment.getBytes(LATIN1));
+                    } else {
+                        line.writeTo(out);
+                    }
+                }
+                if (c >= 0) {
+                    out.write(c);
+                }
+                
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Returns the total size of all files in an entry.
+     * 
+     * @param entry The entry directory.
+     * 
+     * @return The size in bytes.
+     */
+    private static long getSize(final File entry) {
+        long size = 0;
+        File[] files = entry.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Deletes an entry directory and its files.
+     * 
+     * @param entry The entry directory.
+     */
+    private static void delete(final File entry) {
+        File[] files = entry.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        entry.delete();
+    }
+    
+    /**
+     * @return the number of conversions that were found in the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * @return the number of conversions that were not found in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    /**
+     * @return the number of entries stored
+     */
+    public long getStores() {
+        return stores.get();
+    }
+    
+    /**
+     * @return the number of entries evicted
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    /**
+     * @return the fraction of the conversions that were found in the cache
+     */
+    public double getHitRate() {
+        long nrHits = hits.get();
+        long total = nrHits + misses.get();
+        if (total == 0) {
+            return 0.0;
+        }
+        return (double) nrHits / total;
+    }
+    
+    /**
+     * Creates a human-readable summary of the cache statistics.
+     * 
+     * @return The summary.
+     */
+    public String getStatistics() {
+        return "Conversion cache: " + getHits() + " hits, " + getMisses()
+                + " misses (hit rate " + Math.round(100.0 * getHitRate())
+                + "%), " + getStores() + " stored, " + getEvictions()
+                + " evicted.";
+    }
+    
+}
@@ -20,14 +20,18 @@ package net.sf.eps2pgf;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 
 import net.sf.eps2pgf.io.LimitedSectionInputStream;
+import net.sf.eps2pgf.io.ScannableInputStream;
 import net.sf.eps2pgf.io.TextReplacements;
 import net.sf.eps2pgf.ps.DSCHeader;
 import net.sf.eps2pgf.ps.Header;
@@ -43,9 +47,24 @@ import net.sf.eps2pgf.ps.objects.PSObjectFile;
  */
 public class Converter {
     
+    /**
+     * PostScript sections of at least this size (in bytes) are read through
+     * a file channel instead of a chain of streams.
+     */
+    private static final long CHANNEL_THRESHOLD = 1024 * 1024;
+    
     /** Options describing behavior of program. */
     private Options opts;
     
+    /**
+     * Name of the PostScript error that terminated the last conversion, or
+     * null if no error occurred.
+     */
+    private String errorName = null;
+    
+    /** Cache with results of earlier conversions, or null. */
+    private ConversionCache cache = null;
+    
     /**
      * Creates a new instance of Converter.
      * 
@@ -65,50 +84,175 @@ public class Converter {
      */
     public final void convert() throws IOException, PSError, ProgramError,
             ParseException {
+        errorName = null;
+        
+        // Reuse the output of an earlier conversion of the same input
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = cache.getKey(opts);
+            if (cache.restore(cacheKey, opts)) {
+                return;
+            }
+        }
+        
         // Check for a binary header
         int[] dim = Header.getPostScriptSection(opts.getInputFile());
         
-        // Open the file for reading the postscript code
-        InputStream in = new BufferedInputStream(
-                new FileInputStream(opts.getInputFile()));
+        // Open the file for reading the postscript code. The files are
+        // closed whatever happens, so that nothing stays open in batch and
+        // daemon mode.
+        InputStream in = openPostScriptSection(opts.getInputFile(), dim);
+        Interpreter interp;
+        try {
+            // Read info from the DSC header comments. Only the header is
+            // read, the interpreter continues on the same stream. A bounding
+            // box in the trailer requires a scan of the entire file on a
+            // separate stream.
+            DSCHeader header = DSCHeader.readHeader(in);
+            if (header.isBoundingBoxAtEnd()) {
+                InputStream dscIn = openPostScriptSection(
+                        opts.getInputFile(), dim);
+                try {
+                    header = new DSCHeader(dscIn);
+                } finally {
+                    dscIn.close();
+                }
+            }
+            
+            // Read text replacements file
+            TextReplacements textReplace = null;
+            if (opts.getTextreplacefile() != null) {
+                textReplace = new TextReplacements(opts.getTextreplacefile());
+            }
+            
+            Writer out = new BufferedWriter(
+                    new FileWriter(opts.getOutputFile()));
+            try {
+                // Create PostScript interpreter and add file to execution
+                // stack
+                interp = new Interpreter(out, opts, header, textReplace);
+                interp.getExecStack().push(new PSObjectFile(in, interp));
+                
+                // Run the interpreter
+                interp.start();
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        errorName = interp.getErrorName();
         
-        // If it has a binary header, read only the postscript code and skip
-        // binary data.
+        if ((cache != null) && (errorName == null)) {
+            cache.store(cacheKey, opts, interp.getSideFiles());
+        }
+    }
+
+    /**
+     * Gets the name of the PostScript error that terminated the last
+     * conversion. Such errors are reported by the handleerror procedure of
+     * the document, they are not thrown by {@link #convert()}.
+     * 
+     * @return The name of the error, or null if no error occurred.
+     */
+    public String getErrorName() {
+        return errorName;
+    }
+
+    /**
+     * Opens the PostScript section of a file. Large sections are read with
+     * positional reads from a file channel, so that the scanner fills its
+     * buffer in blocks directly from the file instead of reading through a
+     * chain of streams. Unlike a memory mapping, the channel does not keep
+     * the file open or locked after the stream is closed.
+     * 
+     * @param file The file.
+     * @param dim Start position and length of the PostScript section, or
+     * <code>null</code> if the whole file is PostScript.
+     * 
+     * @return Stream with the PostScript code.
+     * 
+     * @throws IOException Unable to open the file.
+     */
+    static InputStream openPostScriptSection(final File file,
+            final int[] dim) throws IOException {
+        long start = 0;
+        long length = file.length();
         if (dim != null) {
-            in = new LimitedSectionInputStream(in, dim[0], dim[1]);
+            start = dim[0];
+            length = Math.min(dim[1], Math.max(0, length - start));
         }
         
-        // Read info from the DSC header
-        DSCHeader header = new DSCHeader(in);
-        
-        // Read text replacements file
-        TextReplacements textReplace = null;
-        if (opts.getTextreplacefile() != null) {
-            textReplace = new TextReplacements(opts.getTextreplacefile());
+        if (length >= CHANNEL_THRESHOLD) {
+            return new ScannableInputStream(FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ), start, length);
         }
         
-        Writer out = new BufferedWriter(
-                new FileWriter(opts.getOutputFile()));
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
         
-        // Create PostScript interpreter and add file to execution stack
-        Interpreter interp = new Interpreter(out, opts, header, textReplace);
-        interp.getExecStack().push(new PSObjectFile(in, interp));
-        
-        // Run the interpreter
-        try {
-            interp.start();
-        } catch (PSError e) {
-            in.close();
-            out.close();
-            throw e;
-        } catch (ProgramError e) {
-            in.close();
-            out.close();
-            throw e;
+        // If it has a binary header, read only the postscript code and skip
+        // binary data.
+        if (dim != null) {
+            in = new LimitedSectionInputStream(in, dim[0], dim[1]);
+        }
+        return in;
+    }
+    
+    /**
+     * Creates a message describing why a conversion failed.
+     * 
+     * @param e The error that aborted the conversion.
+     * 
+     * @return The message.
+     */
+    public static String getFailureMessage(final Throwable e) {
+        if (e instanceof IOException) {
+            return "Execution failed due to an error while reading "
+                    + "from or writing to a file.";
+        } else if (e instanceof ParseException) {
+            return "Execution failed due to an error while parsing the text"
+                    + " replacements file.";
+        } else if (e instanceof PSError) {
+            return getFailureMessage(((PSError) e).getErrorName().toString());
+        } else if (e instanceof VirtualMachineError) {
+            return "Execution failed because the Java virtual machine ran out"
+                    + " of stack or memory space (" + e + ").";
+        } else {
+            return "Execution failed due to an internal error in the"
+                    + " program. Please report this error to the author.";
         }
+    }
+    
+    /**
+     * Creates a message describing a PostScript error that terminated a
+     * conversion.
+     * 
+     * @param pErrorName Name of the PostScript error.
+     * 
+     * @return The message.
+     */
+    public static String getFailureMessage(final String pErrorName) {
+        return "Execution failed due to a PostScript error (" + pErrorName
+                + ").";
+    }
 
-        in.close();
-        out.close();
+    /**
+     * Sets the cache that is consulted before converting a file, and in
+     * which the results of conversions are stored.
+     * 
+     * @param pCache The cache, or null to disable caching.
+     */
+    public void setCache(final ConversionCache pCache) {
+        cache = pCache;
+    }
+
+    /**
+     * Gets the conversion cache.
+     * 
+     * @return The cache, or null if caching is disabled.
+     */
+    public ConversionCache getCache() {
+        return cache;
     }
 
     /**
@@ -0,0 +1,480 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import net.sf.eps2pgf.Options.OutputType;
+import net.sf.eps2pgf.Options.TextMode;
+import net.sf.eps2pgf.ps.resources.fonts.FontManager;
+
+/**
+ * Conversion daemon. It listens on a local TCP port and converts the files
+ * sent by clients (see {@link DaemonClient}). A running daemon saves the
+ * startup time of the JVM and the loading of the font data for each figure.
+ * 
+ * The protocol is line based (UTF-8). The client sends the line
+ * {@link #PROTOCOL}, a space and the token of the daemon, followed by one
+ * block for each job. A block consists of
+ * <code>key=value</code> lines and ends with an empty line. The line
+ * {@link #END} follows the last block. The daemon replies with one line per
+ * job, in the same order as the jobs: <code>OK &lt;time&gt;</code> or
+ * <code>FAILED &lt;time&gt; &lt;message&gt;</code>, with the time in
+ * milliseconds.
+ * 
+ * At startup the daemon writes a random token to a file in the home directory
+ * of the user (see {@link #getTokenFile(int)}), readable only by the owner.
+ * Connections that do not send this token are closed without reply, so that
+ * other local users can not read and write files with the permissions of the
+ * owner of the daemon.
+ *
+ * @author Paul Wagenaars
+ */
+public class Daemon {
+    
+    /** First line of each request. */
+    public static final String PROTOCOL = "EPS2PGF-DAEMON 1";
+    
+    /** Line that follows the last job of a request. */
+    public static final String END = "END";
+    
+    /** Reply to a successful conversion. */
+    public static final String OK = "OK";
+    
+    /** Reply to a failed conversion. */
+    public static final String FAILED = "FAILED";
+    
+    /** Character set used by the protocol. */
+    static final Charset CHARSET = Charset.forName("UTF-8");
+    
+    /** Key of the input file in a job block. */
+    static final String KEY_INPUT = "input";
+    
+    /** Key of the output file in a job block. */
+    static final String KEY_OUTPUT = "output";
+    
+    /** Key of the text mode in a job block. */
+    static final String KEY_TEXTMODE = "textmode";
+    
+    /** Key of the output type in a job block. */
+    static final String KEY_OUTPUTTYPE = "outputtype";
+    
+    /** Key of the text replacements file in a job block. */
+    static final String KEY_TEXTREPLACE = "textreplace";
+    
+    /** Time (in milliseconds) the daemon waits for a request to arrive. */
+    private static final int READ_TIMEOUT = 60000;
+    
+    /** Number of random bytes in the token. */
+    private static final int TOKEN_LENGTH = 16;
+    
+    /** The log. */
+    private static final Logger LOG
+                                  = Logger.getLogger("net.sourceforge.eps2pgf");
+    
+    /** Requested port. */
+    private final int port;
+    
+    /** Runs the conversions of all requests. */
+    private final ExecutorService executor;
+    
+    /** Converts the jobs of a request. */
+    private final BatchConverter converter;
+    
+    /** Socket on which the daemon listens. */
+    private ServerSocket serverSocket;
+    
+    /** Token that clients must send, or null if the daemon is not started. */
+    private String token = null;
+    
+    /** File in which the token is stored. */
+    private File tokenFile = null;
+    
+    /**
+     * Creates a new conversion daemon.
+     * 
+     * @param pPort Port on which the daemon listens. Zero selects a free
+     * port.
+     * @param pNrThreads Number of files converted in parallel, for all
+     * requests together. Zero means one thread per available processor.
+     */
+    public Daemon(final int pPort, final int pNrThreads) {
+        port = pPort;
+        int threads = pNrThreads;
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        executor = Executors.newFixedThreadPool(threads);
+        converter = new BatchConverter(executor);
+    }
+    
+    /**
+     * Loads the shared font data, starts listening on the port and writes
+     * the token file. The daemon only accepts connections from the local
+     * host.
+     * 
+     * @throws IOException Unable to listen on the port or to write the token
+     * file.
+     * @throws ProgramError This shouldn't happen, it indicates a bug.
+     */
+    public void start() throws IOException, ProgramError {
+        FontManager.initialize();
+        FontManager.loadAllFontMetrics();
+        
+        serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+        try {
+            token = createToken();
+            tokenFile = getTokenFile(getPort());
+            writeTokenFile(tokenFile, token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        LOG.info("Conversion daemon listening on port " + getPort() + ".");
+    }
+    
+    /**
+     * Accepts and handles connections until {@link #stop()} is called. Each
+     * connection is handled in its own thread, the conversions of all
+     * connections share one pool of worker threads. Returns after the
+     * running requests are finished.
+     */
+    public void serve() {
+        ExecutorService connections = Executors.newCachedThreadPool();
+        try {
+            while (true) {
+                final Socket socket = serverSocket.accept();
+                connections.execute(new Runnable() {
+                    public void run() {
+                        handleConnection(socket);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            // The socket was closed by stop()
+        } finally {
+            connections.shutdown();
+            try {
+                connections.awaitTermination(Long.MAX_VALUE,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Stops listening for connections and removes the token file. Running
+     * conversions are finished.
+     * 
+     * @throws IOException Unable to close the socket.
+     */
+    public void stop() throws IOException {
+        serverSocket.close();
+        if (tokenFile != null) {
+            tokenFile.delete();
+        }
+    }
+    
+    /**
+     * Returns the file in which the daemon listening on a port stores its
+     * token.
+     * 
+     * @param pPort The port.
+     * 
+     * @return The token file, in the home directory of the user.
+     */
+    public static File getTokenFile(final int pPort) {
+        return new File(System.getProperty("user.home"),
+                ".eps2pgf-daemon-" + pPort);
+    }
+    
+    /**
+     * Creates a new random token.
+     * 
+     * @return The token, as hexadecimal string.
+     */
+    private static String createToken() {
+        byte[] bytes = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder str = new StringBuilder(2 * TOKEN_LENGTH);
+        for (byte b : bytes) {
+            str.append(String.format("%02x", b & 0xFF));
+        }
+        return str.toString();
+    }
+    
+    /**
+     * Writes the token to a file that only the owner can read. An existing
+     * file, for example from a daemon that was killed, is replaced.
+     * 
+     * @param file The token file.
+     * @param pToken The token.
+     * 
+     * @throws IOException Unable to write the file.
+     */
+    private static void writeTokenFile(final File file, final String pToken)
+            throws IOException {
+        Path path = file.toPath();
+        Files.deleteIfExists(path);
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // No POSIX permissions (e.g. Windows). The home directory is
+            // only accessible by its owner there.
+            Files.createFile(path);
+        }
+        Files.write(path, pToken.getBytes(CHARSET));
+    }
+    
+    /**
+     * Reads the token of the daemon listening on a port.
+     * 
+     * @param pPort The port.
+     * 
+     * @return The token.
+     * 
+     * @throws IOException Unable to read the token file, for example because
+     * no daemon is running.
+     */
+    static String readToken(final int pPort) throws IOException {
+        return new String(Files.readAllBytes(getTokenFile(pPort).toPath()),
+                CHARSET).trim();
+    }
+    
+    /**
+     * Sets the cache that is shared by all conversions of the daemon.
+     * 
+     * @param pCache The cache, or null to disable caching.
+     */
+    public void setCache(final ConversionCache pCache) {
+        converter.setCache(pCache);
+    }
+    
+    /**
+     * Returns the port on which the daemon listens.
+     * 
+     * @return The port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Reads a request from a connection, converts the files and replies
+     * with the results.
+     * 
+     * @param socket The connection.
+     */
+    private void handleConnection(final Socket socket) {
+        try {
+            socket.setSoTimeout(READ_TIMEOUT);
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), CHARSET));
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), CHARSET));
+            
+            if (!checkHeader(in.readLine())) {
+                LOG.warning("Rejected conversion client without valid "
+                        + "token.");
+                return;
+            }
+            
+            List<Options> jobs = readJobs(in);
+            if (jobs == null) {
+                out.write(FAILED + " 0 Invalid request.\n");
+            } else {
+                List<BatchConverter.Result> results = converter.convert(jobs);
+                for (BatchConverter.Result result : results) {
+                    String name = result.getOpts().getInputFile().getPath();
+                    if (result.isSuccess()) {
+                        LOG.info(name + ": converted in " + result.getTime()
+                                + " ms.");
+                        out.write(OK + " " + result.getTime() + "\n");
+                    } else {
+                        LOG.info(name + ": " + result.getFailureMessage());
+                        out.write(FAILED + " " + result.getTime() + " "
+                                + result.getFailureMessage() + "\n");
+                    }
+                }
+                if (converter.getCache() != null) {
+                    LOG.info(converter.getCache().getStatistics());
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            LOG.warning("Connection to conversion client failed.");
+        } catch (ProgramError e) {
+            LOG.severe(Converter.getFailureMessage(e));
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                /* empty block */
+            }
+        }
+    }
+    
+    /**
+     * Writes a job block.
+     * 
+     * @param out Writer to which the block is written.
+     * @param job Options describing the job.
+     * 
+     * @throws IOException Unable to write the block.
+     */
+    static void writeJob(final Writer out, final Options job)
+            throws IOException {
+        
+        writeField(out, KEY_INPUT, job.getInputFile().getAbsolutePath());
+        writeField(out, KEY_OUTPUT, job.getOutputFile().getAbsolutePath());
+        writeField(out, KEY_TEXTMODE, job.getTextmode().name());
+        writeField(out, KEY_OUTPUTTYPE, job.getOutputType().name());
+        if (job.getTextreplacefile() != null) {
+            writeField(out, KEY_TEXTREPLACE,
+                    job.getTextreplacefile().getAbsolutePath());
+        }
+        out.write('\n');
+    }
+    
+    /**
+     * Writes a single <code>key=value</code> line.
+     * 
+     * @param out Writer to which the line is written.
+     * @param key The key.
+     * @param value The value.
+     * 
+     * @throws IOException Unable to write the line, or the value contains a
+     * line break.
+     */
+    private static void writeField(final Writer out, final String key,
+            final String value) throws IOException {
+        
+        if ((value.indexOf('\n') >= 0) || (value.indexOf('\r') >= 0)) {
+            throw new IOException("Value of '" + key + "' contains a line "
+                    + "break.");
+        }
+        out.write(key + "=" + value + "\n");
+    }
+    
+    /**
+     * Checks the first line of a request: the protocol and the token.
+     * 
+     * @param line The line, or null if the connection was closed.
+     * 
+     * @return True if the line contains the token of this daemon.
+     */
+    private boolean checkHeader(final String line) {
+        String prefix = PROTOCOL + " ";
+        if ((line == null) || !line.startsWith(prefix)) {
+            return false;
+        }
+        byte[] received = line.substring(prefix.length()).getBytes(CHARSET);
+        return MessageDigest.isEqual(received, token.getBytes(CHARSET));
+    }
+    
+    /**
+     * Reads all jobs of a request. The first line of the request must
+     * already have been read.
+     * 
+     * @param in Reader from which the request is read.
+     * 
+     * @return The jobs, or null if the request is invalid.
+     * 
+     * @throws IOException Unable to read the request.
+     */
+    static List<Options> readJobs(final BufferedReader in)
+            throws IOException {
+        
+        List<Options> jobs = new ArrayList<Options>();
+        Options job = null;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.length() == 0) {
+                if ((job == null) || (job.getInputFile() == null)
+                        || (job.getOutputFile() == null)) {
+                    return null;
+                }
+                jobs.add(job);
+                job = null;
+                continue;
+            }
+            
+            if (job == null) {
+                if (line.equals(END)) {
+                    return jobs;
+                }
+                job = new Options();
+                job.setTextmode(TextMode.EXACT);
+                job.setOutputType(OutputType.PGF);
+            }
+            
+            int eq = line.indexOf('=');
+            if (eq < 0) {
+                return null;
+            }
+            String key = line.substring(0, eq);
+            String value = line.substring(eq + 1);
+            try {
+                if (key.equals(KEY_INPUT)) {
+                    job.setInputFile(new File(value));
+                } else if (key.equals(KEY_OUTPUT)) {
+                    job.setOutputFile(new File(value));
+                } else if (key.equals(KEY_TEXTMODE)) {
+                    job.setTextmode(TextMode.valueOf(value));
+                } else if (key.equals(KEY_OUTPUTTYPE)) {
+                    job.setOutputType(OutputType.valueOf(value));
+                } else if (key.equals(KEY_TEXTREPLACE)) {
+                    job.setTextreplacefile(new File(value));
+                } else {
+                    return null;
+                }
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        
+        // Connection closed before the end of the request
+        return null;
+    }
+    
+}
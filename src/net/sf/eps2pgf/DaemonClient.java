@@ -0,0 +1,146 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin client that sends conversion jobs to a running {@link Daemon}.
+ *
+ * @author Paul Wagenaars
+ */
+public class DaemonClient {
+    
+    /** Port of the daemon. */
+    private final int port;
+    
+    /**
+     * Creates a new client.
+     * 
+     * @param pPort Port of the daemon.
+     */
+    public DaemonClient(final int pPort) {
+        port = pPort;
+    }
+    
+    /**
+     * Sends jobs to the daemon and waits until all files are converted.
+     * 
+     * @param jobs The jobs. Paths are sent as absolute paths, so that the
+     * daemon does not depend on the working directory of the client.
+     * 
+     * @return The reply of the daemon for each job, in the same order as the
+     * jobs. See {@link Daemon} for the format and {@link #isSuccess(String)}.
+     * 
+     * @throws IOException Unable to read the token of the daemon or to
+     * connect to the daemon, or the connection failed.
+     */
+    public List<String> convert(final List<Options> jobs) throws IOException {
+        String token = Daemon.readToken(port);
+        Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), Daemon.CHARSET));
+            out.write(Daemon.PROTOCOL + " " + token + "\n");
+            for (Options job : jobs) {
+                Daemon.writeJob(out, job);
+            }
+            out.write(Daemon.END + "\n");
+            out.flush();
+            
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), Daemon.CHARSET));
+            List<String> replies = new ArrayList<String>(jobs.size());
+            String line;
+            while ((line = in.readLine()) != null) {
+                replies.add(line);
+            }
+            if (replies.size() != jobs.size()) {
+                throw new IOException("Unexpected reply from conversion "
+                        + "daemon" + (replies.isEmpty() ? "" : ": "
+                        + replies.get(0)));
+            }
+            
+            return replies;
+        } finally {
+            socket.close();
+        }
+    }
+    
+    /**
+     * Checks whether a reply of the daemon indicates a successful
+     * conversion.
+     * 
+     * @param reply The reply.
+     * 
+     * @return True if the file was converted successfully.
+     */
+    public static boolean isSuccess(final String reply) {
+        return reply.startsWith(Daemon.OK + " ");
+    }
+    
+    /**
+     * Extracts the message from a reply of the daemon.
+     * 
+     * @param reply The reply.
+     * 
+     * @return Message describing why the conversion failed, or null if it
+     * succeeded.
+     */
+    public static String getFailureMessage(final String reply) {
+        if (isSuccess(reply)) {
+            return null;
+        }
+        // Format: FAILED <time> <message>
+        int start = reply.indexOf(' ', Daemon.FAILED.length() + 1);
+        if (start < 0) {
+            return reply;
+        }
+        return reply.substring(start + 1);
+    }
+    
+    /**
+     * Extracts the conversion time from a reply of the daemon.
+     * 
+     * @param reply The reply.
+     * 
+     * @return Time (in milliseconds) the conversion took, or -1 if unknown.
+     */
+    public static long getTime(final String reply) {
+        String[] parts = reply.split(" ", 3);
+        if (parts.length < 2) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+}
@@ -21,6 +21,7 @@ package net.sf.eps2pgf;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -50,6 +51,9 @@ public final class Main {
     /** Handles program options. */
     private static Options opts = new Options();
     
+    /** Conversion cache, or null if caching is disabled. */
+    private static ConversionCache cache = null;
+    
     /** The log. */
     private static final Logger LOG
                                   = Logger.getLogger("net.sourceforge.eps2pgf");
@@ -118,21 +122,185 @@ public final class Main {
             }
         }
         
-        Converter cnv = new Converter(opts);
+        cache = createCache();
+        
+        if (opts.isDaemonFlagSet()) {
+            runDaemon();
+            return;
+        }
+        
+        if (opts.isClientFlagSet() && convertWithDaemon()) {
+            return;
+        }
+        
+        if (opts.isBatchMode()) {
+            convertBatch();
+        } else {
+            Converter cnv = new Converter(opts);
+            cnv.setCache(cache);
+            try {
+                cnv.convert();
+            } catch (IOException e) {
+                LOG.severe(Converter.getFailureMessage(e));
+            } catch (ParseException e) {
+                LOG.severe(Converter.getFailureMessage(e));
+            } catch (PSError e) {
+                /* empty block */
+            } catch (ProgramError e) {
+                e.printStackTrace();
+                LOG.severe(Converter.getFailureMessage(e));
+            }
+        }
+        
+        if (cache != null) {
+            LOG.info(cache.getStatistics());
+        }
+    }
+    
+    /**
+     * Creates the conversion cache, if a cache directory was specified.
+     * 
+     * @return The cache, or null if caching is disabled or the cache
+     * directory can not be created.
+     */
+    private static ConversionCache createCache() {
+        if (opts.getCacheDir() == null) {
+            return null;
+        }
         try {
-            cnv.convert();
+            return new ConversionCache(opts.getCacheDir(),
+                    opts.getCacheSize() * 1024L * 1024L,
+                    opts.getCacheAge() * 24L * 3600L * 1000L);
         } catch (IOException e) {
-            LOG.severe("Execution failed due to an error while reading "
-                    + "from or writing to a file.");
-        } catch (ParseException e) {
-            LOG.severe("Execution failed due to an error while parsing the text"
-                    + " replacements file.");
-        } catch (PSError e) {
-            /* empty block */
-        } catch (ProgramError e) {
-            e.printStackTrace();
-            LOG.severe("Execution failed due to an internal error in the"
-                    + " program. Please report this error to the author.");
+            LOG.warning(e.getMessage() + " Continuing without cache.");
+            return null;
+        }
+    }
+    
+    /**
+     * Runs the conversion daemon until the program is terminated.
+     */
+    private static void runDaemon() {
+        Daemon daemon = new Daemon(opts.getPort(), opts.getNrThreads());
+        daemon.setCache(cache);
+        try {
+            daemon.start();
+        } catch (IOException e) {
+            LOG.severe("Unable to start the conversion daemon on port "
+                    + opts.getPort() + ".");
+            System.exit(1);
+        } catch (ProgramError e) {
+            e.printStackTrace();
+            LOG.severe(Converter.getFailureMessage(e));
+            System.exit(1);
+        }
+        daemon.serve();
+    }
+    
+    /**
+     * Sends the conversion to a running conversion daemon and reports the
+     * result of each file.
+     * 
+     * @return True if the daemon handled the conversion, false if no daemon
+     * is available.
+     */
+    private static boolean convertWithDaemon() {
+        List<Options> jobs = opts.createJobs();
+        
+        long start = System.nanoTime();
+        List<String> replies;
+        try {
+            replies = new DaemonClient(opts.getPort()).convert(jobs);
+        } catch (IOException e) {
+            LOG.info("No conversion daemon available on port "
+                    + opts.getPort() + ", converting without daemon.");
+            return false;
+        }
+        long time = (System.nanoTime() - start) / 1000000L;
+        
+        int nrFailed = 0;
+        for (int i = 0; i < jobs.size(); i++) {
+            String reply = replies.get(i);
+            if (!reportResult(jobs.get(i), DaemonClient.getTime(reply),
+                    DaemonClient.getFailureMessage(reply))) {
+                nrFailed++;
+            }
+        }
+        reportSummary(jobs.size(), nrFailed, time);
+        
+        return true;
+    }
+    
+    /**
+     * Converts all input files on a pool of worker threads and reports the
+     * result of each file. Failures do not abort the conversion of the other
+     * files.
+     */
+    private static void convertBatch() {
+        List<Options> jobs = opts.createJobs();
+        
+        long start = System.nanoTime();
+        List<BatchConverter.Result> results;
+        try {
+            BatchConverter converter =
+                new BatchConverter(opts.getNrThreads());
+            converter.setCache(cache);
+            results = converter.convert(jobs);
+        } catch (ProgramError e) {
+            e.printStackTrace();
+            LOG.severe(Converter.getFailureMessage(e));
+            return;
+        }
+        long time = (System.nanoTime() - start) / 1000000L;
+        
+        int nrFailed = 0;
+        for (BatchConverter.Result result : results) {
+            if (!reportResult(result.getOpts(), result.getTime(),
+                    result.getFailureMessage())) {
+                nrFailed++;
+            }
+        }
+        reportSummary(results.size(), nrFailed, time);
+    }
+    
+    /**
+     * Reports the result of the conversion of a single file.
+     * 
+     * @param job Options describing the conversion.
+     * @param time Time (in milliseconds) the conversion took.
+     * @param failureMessage Message describing why the conversion failed, or
+     * null if it succeeded.
+     * 
+     * @return True if the conversion succeeded.
+     */
+    private static boolean reportResult(final Options job, final long time,
+            final String failureMessage) {
+        
+        String name = job.getInputFile().getPath();
+        if (failureMessage == null) {
+            LOG.info(name + ": converted in " + time + " ms.");
+            return true;
+        } else {
+            LOG.severe(name + ": " + failureMessage);
+            return false;
+        }
+    }
+    
+    /**
+     * Reports the totals of a conversion of multiple files.
+     * 
+     * @param nrFiles Number of files.
+     * @param nrFailed Number of files that failed.
+     * @param time Total time (in milliseconds).
+     */
+    private static void reportSummary(final int nrFiles, final int nrFailed,
+            final long time) {
+        
+        LOG.info("Converted " + (nrFiles - nrFailed) + " of " + nrFiles
+                + " files in " + time + " ms.");
+        if (nrFailed > 0) {
+            LOG.warning("Conversion of " + nrFailed + " of " + nrFiles
+                    + " files failed.");
         }
     }
     
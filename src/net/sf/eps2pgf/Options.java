@@ -19,6 +19,13 @@
 package net.sf.eps2pgf;
 
 import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import com.martiansoftware.jsap.FlaggedOption;
 import com.martiansoftware.jsap.JSAP;
@@ -41,6 +48,18 @@ public class Options extends JSAP {
     /** The input file. */
     private File inputFile;
     
+    /**
+     * All input files. Contains more than one file (or the files from a
+     * directory or wildcard pattern) in batch mode.
+     */
+    private List<File> inputFiles = new ArrayList<File>();
+    
+    /** Indicates whether multiple files are converted in one run. */
+    private boolean batchMode;
+    
+    /** Number of files converted in parallel in batch mode. */
+    private int nrThreads;
+    
     /** The output file. */
     private File outputFile;
     
@@ -68,6 +87,27 @@ public class Options extends JSAP {
     /** Indicates whether verbose flag is set. */
     private boolean verboseFlagSet;
     
+    /** Indicates whether this program should run as conversion daemon. */
+    private boolean daemonFlagSet;
+    
+    /** Indicates whether conversions should be sent to a daemon. */
+    private boolean clientFlagSet;
+    
+    /** Port of the conversion daemon. */
+    private int port;
+    
+    /** Default port of the conversion daemon. */
+    public static final int DEFAULT_PORT = 47830;
+    
+    /** Directory of the conversion cache, or null if caching is disabled. */
+    private File cacheDir;
+    
+    /** Maximum size of the conversion cache, in megabytes. */
+    private int cacheSize;
+    
+    /** Maximum age of unused entries in the conversion cache, in days. */
+    private int cacheAge;
+    
     /**
      * Creates a new instance of Options.
      */
@@ -79,10 +119,13 @@ public class Options extends JSAP {
                                             .setMustExist(true)
                                             .setMustBeFile(true);
             UnflaggedOption optInput = new UnflaggedOption("inputfile")
-                                          .setStringParser(fileParser)
-                                          .setRequired(true);
+                                          .setStringParser(JSAP.STRING_PARSER)
+                                          .setRequired(false)
+                                          .setGreedy(true);
             optInput.setHelp("(Encapsulated) PostScript (EPS or PS) input "
-                    + "file.");
+                    + "file. Multiple files, directories (all .eps and .ps "
+                    + "files in it) or patterns with wildcards ('*' and '?') "
+                    + "start a batch conversion.");
             registerParameter(optInput);
             
             FlaggedOption optOutput = new FlaggedOption("outputfilename")
@@ -92,9 +135,20 @@ public class Options extends JSAP {
                                        .setDefault("<input file with .pgf"
                                                + " extension>")
                                        .setRequired(true);
-            optOutput.setHelp("Write output to this file.");
+            optOutput.setHelp("Write output to this file. In batch mode "
+                    + "this must be an existing directory.");
             registerParameter(optOutput);
             
+            FlaggedOption optJobs = new FlaggedOption("jobs")
+                                       .setShortFlag('j')
+                                       .setLongFlag("jobs")
+                                       .setStringParser(JSAP.INTEGER_PARSER)
+                                       .setDefault("0");
+            optJobs.setHelp("Number of files converted in parallel in batch "
+                    + "mode, or by all clients together in daemon mode. The "
+                    + "default (0) uses one thread per available processor.");
+            registerParameter(optJobs);
+            
             StringParser textmodeParser = EnumeratedStringParser
                     .getParser("exact; directcopy", false, false);
             FlaggedOption optTextmode = new FlaggedOption("textmode")
@@ -131,6 +185,55 @@ public class Options extends JSAP {
             sw.setHelp("Display more information during the conversion.");
             registerParameter(sw);
             
+            sw = new Switch("daemon").setLongFlag("daemon");
+            sw.setHelp("Run as conversion daemon. The daemon listens on a "
+                    + "local port and converts the files sent by clients "
+                    + "(see --client), which saves the startup time of the "
+                    + "program for each figure. Clients authenticate with a "
+                    + "token that the daemon writes to a file in the home "
+                    + "directory.");
+            registerParameter(sw);
+            
+            sw = new Switch("client").setLongFlag("client");
+            sw.setHelp("Send the conversion to a running daemon (see "
+                    + "--daemon). If no daemon is running, the files are "
+                    + "converted by this program itself.");
+            registerParameter(sw);
+            
+            FlaggedOption optPort = new FlaggedOption("port")
+                                       .setLongFlag("port")
+                                       .setStringParser(JSAP.INTEGER_PARSER)
+                                       .setDefault(Integer.toString(
+                                               DEFAULT_PORT));
+            optPort.setHelp("Local port used by the conversion daemon.");
+            registerParameter(optPort);
+            
+            FlaggedOption optCache = new FlaggedOption("cache")
+                                       .setLongFlag("cache")
+                                       .setStringParser(JSAP.STRING_PARSER)
+                                       .setRequired(false);
+            optCache.setHelp("Directory of the conversion cache. Files that "
+                    + "have been converted before with the same options are "
+                    + "copied from the cache instead of converted again.");
+            registerParameter(optCache);
+            
+            FlaggedOption optCacheSize = new FlaggedOption("cachesize")
+                                       .setLongFlag("cache-size")
+                                       .setStringParser(JSAP.INTEGER_PARSER)
+                                       .setDefault("256");
+            optCacheSize.setHelp("Maximum size of the conversion cache in "
+                    + "megabytes (0 means no limit).");
+            registerParameter(optCacheSize);
+            
+            FlaggedOption optCacheAge = new FlaggedOption("cacheage")
+                                       .setLongFlag("cache-age")
+                                       .setStringParser(JSAP.INTEGER_PARSER)
+                                       .setDefault("30");
+            optCacheAge.setHelp("Number of days after which unused entries "
+                    + "are removed from the conversion cache (0 means no "
+                    + "limit).");
+            registerParameter(optCacheAge);
+            
             sw = new Switch("version").setLongFlag("version");
             sw.setHelp("Display version information.");
             registerParameter(sw);
@@ -168,7 +271,48 @@ public class Options extends JSAP {
      * @param args Parsed command line arguments.
      */
     private void postParse(final JSAPResult args) {
-        setInputFile(args.getFile("inputfile"));
+        String[] inputArgs = args.getStringArray("inputfile");
+        List<File> files = new ArrayList<File>();
+        boolean expanded = false;
+        for (String inputArg : inputArgs) {
+            expanded |= expandInputArgument(inputArg, files, args);
+        }
+        setInputFiles(files);
+        setBatchMode(expanded || (inputArgs.length > 1));
+        
+        setDaemonFlag(args.getBoolean("daemon", false));
+        setClientFlag(args.getBoolean("client", false));
+        if ((inputArgs.length == 0) && !isDaemonFlagSet()) {
+            args.addException("inputfile", new JSAPException("Parameter "
+                    + "'inputfile' is required."));
+        }
+        
+        int pPort = args.getInt("port", DEFAULT_PORT);
+        if ((pPort < 0) || (pPort > 65535)) {
+            args.addException("port", new JSAPException("Port must be in the"
+                    + " range 0-65535."));
+        }
+        setPort(pPort);
+        
+        String cache = args.getString("cache");
+        if (cache != null) {
+            setCacheDir(new File(cache));
+        } else {
+            setCacheDir(null);
+        }
+        setCacheSize(args.getInt("cachesize", 0));
+        setCacheAge(args.getInt("cacheage", 0));
+        if ((getCacheSize() < 0) || (getCacheAge() < 0)) {
+            args.addException("cache", new JSAPException("Cache size and age"
+                    + " must not be negative."));
+        }
+        
+        int jobs = args.getInt("jobs", 0);
+        if (jobs < 0) {
+            args.addException("jobs", new JSAPException("Number of jobs must"
+                    + " not be negative."));
+        }
+        setNrThreads(jobs);
         
         if (args.getString("outputtype").equals("pgf")) {
             setOutputType(OutputType.PGF);
@@ -184,20 +328,15 @@ public class Options extends JSAP {
         
         String outputPath;
         if (args.getString("outputfilename").startsWith("<")) {
-            String inputPath = getInputFile().getPath();
-            if (inputPath.toLowerCase().endsWith(".eps")) {
-                outputPath = inputPath.substring(0, inputPath.length() - 4)
-                               + "." + getOutputType().toString().toLowerCase();
-            } else if (inputPath.toLowerCase().endsWith(".ps")) {
-                outputPath = inputPath.substring(0, inputPath.length() - 3)
-                               + "." + getOutputType().toString().toLowerCase();
-            } else {
-                outputPath = inputPath + "."
-                        + getOutputType().toString().toLowerCase();
-            }
+            outputPath = getDefaultOutputPath(getInputFile().getPath());
         } else {
             // An output filename was specified on the command-line
             outputPath = args.getString("outputfilename");
+            if (isBatchMode() && !new File(outputPath).isDirectory()) {
+                args.addException("outputfilename", new JSAPException("In "
+                        + "batch mode the output must be an existing "
+                        + "directory."));
+            }
         }
         setOutputFile(new File(outputPath));
         
@@ -210,6 +349,133 @@ public class Options extends JSAP {
         setVerboseFlag(args.getBoolean("verbose"));
     }
 
+    /**
+     * Adds the input file(s) described by a command line argument to a list.
+     * The argument can be a file, a directory or a filename pattern with
+     * wildcards. Errors are added to the parse results.
+     * 
+     * @param arg The command line argument.
+     * @param files The list to which the input files are added.
+     * @param args Parsed command line arguments.
+     * 
+     * @return True if the argument was a directory or a pattern, false if it
+     * was a single file.
+     */
+    private static boolean expandInputArgument(final String arg,
+            final List<File> files, final JSAPResult args) {
+        
+        File file = new File(arg);
+        if (file.isFile()) {
+            files.add(file);
+            return false;
+        }
+        
+        File dir;
+        String pattern;
+        if (file.isDirectory()) {
+            dir = file;
+            pattern = "*.{eps,ps,EPS,PS}";
+        } else if ((arg.indexOf('*') >= 0) || (arg.indexOf('?') >= 0)) {
+            dir = file.getParentFile();
+            if (dir == null) {
+                dir = new File(".");
+            }
+            pattern = file.getName();
+        } else {
+            args.addException("inputfile", new JSAPException("File '" + arg
+                    + "' does not exist."));
+            return false;
+        }
+        
+        File[] dirFiles = dir.listFiles();
+        if (dirFiles == null) {
+            args.addException("inputfile", new JSAPException("Unable to "
+                    + "read directory '" + dir.getPath() + "'."));
+            return true;
+        }
+        Arrays.sort(dirFiles);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:"
+                + pattern);
+        int nrMatches = 0;
+        for (File dirFile : dirFiles) {
+            Path name = dirFile.toPath().getFileName();
+            if (dirFile.isFile() && matcher.matches(name)) {
+                files.add(dirFile);
+                nrMatches++;
+            }
+        }
+        if (nrMatches == 0) {
+            args.addException("inputfile", new JSAPException("No input files"
+                    + " found for '" + arg + "'."));
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Determines the default output path of an input file: the input path
+     * with the extension replaced by the extension of the output type.
+     * 
+     * @param inputPath Path of the input file.
+     * 
+     * @return The default output path.
+     */
+    public String getDefaultOutputPath(final String inputPath) {
+        String extension = "." + getOutputType().toString().toLowerCase();
+        if (inputPath.toLowerCase().endsWith(".eps")) {
+            return inputPath.substring(0, inputPath.length() - 4) + extension;
+        } else if (inputPath.toLowerCase().endsWith(".ps")) {
+            return inputPath.substring(0, inputPath.length() - 3) + extension;
+        } else {
+            return inputPath + extension;
+        }
+    }
+    
+    /**
+     * Creates the options for converting a single file of a batch. All
+     * settings are copied from this object, except the input and output
+     * files.
+     * 
+     * @param pInput The input file.
+     * 
+     * @return The options of the job.
+     */
+    public Options createJob(final File pInput) {
+        Options job = new Options();
+        job.setInputFile(pInput);
+        job.setOutputType(getOutputType());
+        job.setTextmode(getTextmode());
+        job.setTextreplacefile(getTextreplacefile());
+        job.setVerboseFlag(isVerboseFlagSet());
+        job.setNrThreads(getNrThreads());
+        
+        File output = new File(getDefaultOutputPath(pInput.getPath()));
+        if (getOutputFile().isDirectory()) {
+            output = new File(getOutputFile(), output.getName());
+        }
+        job.setOutputFile(output);
+        
+        return job;
+    }
+    
+    /**
+     * Creates the options for each file that must be converted. In batch
+     * mode there is one job per input file, otherwise this object is the
+     * only job.
+     * 
+     * @return The jobs.
+     */
+    public List<Options> createJobs() {
+        if (!isBatchMode()) {
+            return Collections.singletonList(this);
+        }
+        List<Options> jobs = new ArrayList<Options>(inputFiles.size());
+        for (File file : inputFiles) {
+            jobs.add(createJob(file));
+        }
+        return jobs;
+    }
+    
     /**
      * @param pTextreplacefile the textreplacefile to set
      */
@@ -274,6 +540,57 @@ public class Options extends JSAP {
         return inputFile;
     }
 
+    /**
+     * Sets all input files. The first file is also set as input file.
+     * 
+     * @param pInputFiles the input files to set
+     */
+    public void setInputFiles(final List<File> pInputFiles) {
+        inputFiles = new ArrayList<File>(pInputFiles);
+        if (inputFiles.isEmpty()) {
+            setInputFile(null);
+        } else {
+            setInputFile(inputFiles.get(0));
+        }
+    }
+
+    /**
+     * @return all input files
+     */
+    public List<File> getInputFiles() {
+        return Collections.unmodifiableList(inputFiles);
+    }
+
+    /**
+     * @param pBatchMode the batchMode to set
+     */
+    public void setBatchMode(final boolean pBatchMode) {
+        batchMode = pBatchMode;
+    }
+
+    /**
+     * @return the batchMode
+     */
+    public boolean isBatchMode() {
+        return batchMode;
+    }
+
+    /**
+     * @param pNrThreads the number of threads to set (0 means one thread per
+     * available processor)
+     */
+    public void setNrThreads(final int pNrThreads) {
+        nrThreads = pNrThreads;
+    }
+
+    /**
+     * @return the number of threads (0 means one thread per available
+     * processor)
+     */
+    public int getNrThreads() {
+        return nrThreads;
+    }
+
     /**
      * @param pTextmode the textmode to set
      */
@@ -329,5 +646,93 @@ public class Options extends JSAP {
     public boolean isVerboseFlagSet() {
         return verboseFlagSet;
     }
+
+    /**
+     * @param pDaemonFlagSet the daemonFlagSet to set
+     */
+    public void setDaemonFlag(final boolean pDaemonFlagSet) {
+        daemonFlagSet = pDaemonFlagSet;
+    }
+
+    /**
+     * @return the daemonFlagSet
+     */
+    public boolean isDaemonFlagSet() {
+        return daemonFlagSet;
+    }
+
+    /**
+     * @param pClientFlagSet the clientFlagSet to set
+     */
+    public void setClientFlag(final boolean pClientFlagSet) {
+        clientFlagSet = pClientFlagSet;
+    }
+
+    /**
+     * @return the clientFlagSet
+     */
+    public boolean isClientFlagSet() {
+        return clientFlagSet;
+    }
+
+    /**
+     * @param pPort the port of the conversion daemon to set
+     */
+    public void setPort(final int pPort) {
+        port = pPort;
+    }
+
+    /**
+     * @return the port of the conversion daemon
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @param pCacheDir the directory of the conversion cache to set, or null
+     * to disable caching
+     */
+    public void setCacheDir(final File pCacheDir) {
+        cacheDir = pCacheDir;
+    }
+
+    /**
+     * @return the directory of the conversion cache, or null if caching is
+     * disabled
+     */
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * @param pCacheSize the maximum size of the conversion cache (in MB) to
+     * set
+     */
+    public void setCacheSize(final int pCacheSize) {
+        cacheSize = pCacheSize;
+    }
+
+    /**
+     * @return the maximum size of the conversion cache (in MB)
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param pCacheAge the maximum age of unused cache entries (in days) to
+     * set
+     */
+    public void setCacheAge(final int pCacheAge) {
+        cacheAge = pCacheAge;
+    }
+
+    /**
+     * @return the maximum age of unused cache entries (in days)
+     */
+    public int getCacheAge() {
+        return cacheAge;
+    }
     
 }
@@ -163,7 +163,7 @@ public class LimitedSectionInputStream extends InputStream {
     public int read(final byte[] cbuf, final int off, final int len)
             throws IOException {
         int maxLength = Math.min(length - charsRead, len);
-        int n = rdr.read(cbuf, 0, maxLength);
+        int n = rdr.read(cbuf, off, maxLength);
         if (n > 0) {
             charsRead += n;
         } else {
@@ -100,6 +100,17 @@ public class PSStringInputStream extends InputStream {
         }
     }
     
+    /**
+     * Gets the number of characters that have been consumed from the
+     * PostScript string, taking into account characters that have been
+     * unread with reset().
+     * 
+     * @return Index of the next character to be read.
+     */
+    public int getPosition() {
+        return ptr;
+    }
+    
     /**
      * Repositions this stream to the position at the time the mark method was
      * last called on this input stream.
@@ -0,0 +1,521 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered input stream used by the PostScript scanner. In addition to the
+ * normal buffered reading it gives direct access to its buffer, so that the
+ * scanner can examine bytes without copying them, and it can keep all bytes
+ * of the token that is being scanned in the buffer.
+ * 
+ * The stream can read ahead of the data that is actually consumed. That is not
+ * allowed when other parts of the program need to continue reading from the
+ * source stream at the exact position where this stream stopped, for example
+ * a decoding filter without end-of-data marker. In that case create the
+ * stream without read-ahead. Such a stream reads no more from the source than
+ * was requested, and large reads and skips are passed on directly to the
+ * source when nothing is buffered.
+ * 
+ * Instead of a source stream, the data can also come from a section of a
+ * file that is read through a file channel. The buffer is then filled block
+ * by block with positional reads, and large bulk reads are read directly
+ * into the array of the caller. Nothing remains allocated or locked after the
+ * stream is closed.
+ *
+ * @author Paul Wagenaars
+ */
+public class ScannableInputStream extends InputStream {
+    
+    /** Size of the buffer of streams that read ahead. */
+    private static final int BUFFER_SIZE = 8192;
+    
+    /** Initial size of the buffer of streams that don't read ahead. */
+    private static final int SMALL_BUFFER_SIZE = 64;
+    
+    /** Source stream, <code>null</code> for in-memory data. */
+    private InputStream in;
+    
+    /** Source file channel, <code>null</code> if not used. */
+    private FileChannel channel;
+    
+    /** Position in the file of the next byte to read from the channel. */
+    private long channelPos;
+    
+    /** Position in the file after the last byte of the section. */
+    private long channelEnd;
+    
+    /** Indicates whether this stream reads ahead of the consumed data. */
+    private final boolean readAhead;
+    
+    /** Buffer with data read from the source stream. */
+    private byte[] buf;
+    
+    /** Index in the buffer of the next byte to be read. */
+    private int pos;
+    
+    /** Index in the buffer after the last valid byte. */
+    private int count;
+    
+    /** Index in the buffer of the position set by mark(), or -1. */
+    private int markPos = -1;
+    
+    /** Number of bytes that may be read before the mark becomes invalid. */
+    private int markLimit = 0;
+    
+    /** Index in the buffer of the start of the current token, or -1. */
+    private int tokenStart = -1;
+    
+    /** Position in the stream of the first byte in the buffer. */
+    private long bufOffset = 0;
+    
+    /**
+     * Creates a new stream that reads ahead from a source stream.
+     * 
+     * @param source The source stream.
+     */
+    public ScannableInputStream(final InputStream source) {
+        this(source, true);
+    }
+    
+    /**
+     * Creates a new stream that reads from a source stream.
+     * 
+     * @param source The source stream.
+     * @param pReadAhead Indicates whether this stream is allowed to read more
+     * data from the source than is actually consumed.
+     */
+    public ScannableInputStream(final InputStream source,
+            final boolean pReadAhead) {
+        in = source;
+        readAhead = pReadAhead;
+        if (readAhead) {
+            buf = new byte[BUFFER_SIZE];
+        } else {
+            buf = new byte[SMALL_BUFFER_SIZE];
+        }
+    }
+    
+    /**
+     * Creates a new stream that reads a section of a file through a file
+     * channel.
+     * 
+     * @param source The channel. It is closed when this stream is closed.
+     * @param start Position in the file of the first byte of the section.
+     * @param length Number of bytes in the section.
+     */
+    public ScannableInputStream(final FileChannel source, final long start,
+            final long length) {
+        in = null;
+        channel = source;
+        channelPos = start;
+        channelEnd = start + length;
+        readAhead = true;
+        buf = new byte[BUFFER_SIZE];
+    }
+    
+    /**
+     * Creates a new stream that reads a part of a byte array. The array is
+     * used directly as buffer, it is not copied.
+     * 
+     * @param data The data.
+     * @param off Index of the first byte in the data.
+     * @param len Number of bytes.
+     */
+    public ScannableInputStream(final byte[] data, final int off,
+            final int len) {
+        in = null;
+        readAhead = false;
+        buf = data;
+        pos = off;
+        count = off + len;
+        bufOffset = -off;
+    }
+    
+    /**
+     * Returns a scannable stream for a stream. If the stream is already a
+     * scannable stream it is returned as is, otherwise it is wrapped in a new
+     * scannable stream that reads ahead.
+     * 
+     * @param source The stream.
+     * 
+     * @return The scannable stream.
+     */
+    public static ScannableInputStream wrap(final InputStream source) {
+        if (source instanceof ScannableInputStream) {
+            return (ScannableInputStream) source;
+        } else {
+            return new ScannableInputStream(source);
+        }
+    }
+    
+    /**
+     * Returns the number of bytes that can be read without blocking.
+     * 
+     * @return Number of bytes.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    @Override
+    public int available() throws IOException {
+        int n = count - pos;
+        if (in != null) {
+            n += in.available();
+        } else if (channel != null) {
+            n += (int) Math.min(Integer.MAX_VALUE - n,
+                    channelEnd - channelPos);
+        }
+        return n;
+    }
+    
+    /**
+     * Closes this stream and the source stream. Data that was already
+     * buffered is discarded.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        pos = count;
+        markPos = -1;
+        tokenStart = -1;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (in != null) {
+            in.close();
+        }
+    }
+    
+    /**
+     * Marks the current position in this stream.
+     * 
+     * @param readlimit Number of bytes that may be read before the mark
+     * becomes invalid.
+     */
+    @Override
+    public void mark(final int readlimit) {
+        markPos = pos;
+        markLimit = readlimit;
+    }
+    
+    /**
+     * Tests if this stream supports mark and reset, which it does.
+     * 
+     * @return Always returns <code>true</code>.
+     */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+    
+    /**
+     * Reads the next byte.
+     * 
+     * @return The next byte (0-255) or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    @Override
+    public int read() throws IOException {
+        if ((pos < count) || (fill(1) > 0)) {
+            return buf[pos++] & 0xFF;
+        }
+        return -1;
+    }
+    
+    /**
+     * Reads up to <code>len</code> bytes into an array.
+     * 
+     * @param b The array.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to read.
+     * 
+     * @return Number of bytes read, or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if ((pos >= count) && (channel != null) && (len >= buf.length)
+                && (markPos < 0) && (tokenStart < 0)) {
+            // Large read with an empty buffer: read directly from the
+            // channel.
+            int n = readChannel(b, off, len);
+            if (n > 0) {
+                bufOffset += n;
+            }
+            return n;
+        }
+        if ((pos >= count) && !readAhead && (in != null) && (markPos < 0)
+                && (tokenStart < 0)) {
+            // Empty buffer and no read-ahead: read directly from the source.
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                bufOffset += n;
+            }
+            return n;
+        }
+        if ((pos >= count) && (fill(len) <= 0)) {
+            return -1;
+        }
+        int n = Math.min(len, count - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+    
+    /**
+     * Repositions this stream to the position of the last mark.
+     * 
+     * @throws IOException The stream was not marked.
+     */
+    @Override
+    public void reset() throws IOException {
+        if (markPos < 0) {
+            throw new IOException("Stream not marked.");
+        }
+        pos = markPos;
+    }
+    
+    /**
+     * Skips over bytes.
+     * 
+     * @param n Number of bytes to skip.
+     * 
+     * @return Number of bytes skipped.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+        if ((channel != null) && (markPos < 0) && (tokenStart < 0)) {
+            // Skip the buffered bytes, and then the bytes in the file
+            // without reading them.
+            int m = (int) Math.min(n, count - pos);
+            pos += m;
+            skipped = m;
+            long k = Math.min(n - skipped, channelEnd - channelPos);
+            channelPos += k;
+            bufOffset += k;
+            return skipped + k;
+        }
+        if (!readAhead && (in != null) && (markPos < 0) && (tokenStart < 0)) {
+            // Skip the buffered bytes, and then let the source skip the rest.
+            int m = (int) Math.min(n, count - pos);
+            pos += m;
+            skipped = m;
+            if (skipped < n) {
+                long k = in.skip(n - skipped);
+                bufOffset += k;
+                skipped += k;
+            }
+            return skipped;
+        }
+        while (skipped < n) {
+            if ((pos >= count)
+                    && (fill((int) Math.min(n - skipped, buf.length)) <= 0)) {
+                break;
+            }
+            int m = (int) Math.min(n - skipped, count - pos);
+            pos += m;
+            skipped += m;
+        }
+        return skipped;
+    }
+    
+    /**
+     * Returns the next byte without consuming it.
+     * 
+     * @return The next byte (0-255) or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    public int peek() throws IOException {
+        if ((pos < count) || (fill(1) > 0)) {
+            return buf[pos] & 0xFF;
+        }
+        return -1;
+    }
+    
+    /**
+     * Unreads the last byte. May only be called directly after a successful
+     * <code>read()</code>.
+     */
+    public void unread() {
+        pos--;
+    }
+    
+    /**
+     * Starts a token at the current position. All bytes read from here on
+     * remain in the buffer until <code>endToken()</code> is called.
+     */
+    public void startToken() {
+        tokenStart = pos;
+    }
+    
+    /**
+     * Ends the current token.
+     */
+    public void endToken() {
+        tokenStart = -1;
+    }
+    
+    /**
+     * Gets the index in the buffer of the start of the current token.
+     * 
+     * @return Index in the buffer returned by <code>getBuffer()</code>.
+     */
+    public int getTokenStart() {
+        return tokenStart;
+    }
+    
+    /**
+     * Gets the buffer of this stream. The buffer may be replaced when more
+     * data is read.
+     * 
+     * @return The buffer.
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+    
+    /**
+     * Gets the index in the buffer of the next byte to be read.
+     * 
+     * @return Index in the buffer returned by <code>getBuffer()</code>.
+     */
+    public int getBufferPosition() {
+        return pos;
+    }
+    
+    /**
+     * Gets the number of bytes that have been consumed from this stream.
+     * 
+     * @return Number of bytes.
+     */
+    public long getPosition() {
+        return bufOffset + pos;
+    }
+    
+    /**
+     * Gets the stream from which this stream reads.
+     * 
+     * @return The source stream, or <code>null</code> if this stream reads
+     * from a byte array or file channel.
+     */
+    public InputStream getSource() {
+        return in;
+    }
+    
+    /**
+     * Reads more data from the source stream into the buffer. The bytes
+     * from the mark or the start of the current token are kept.
+     * 
+     * @param want Number of bytes requested by the caller. A stream without
+     * read-ahead reads at most this many bytes from the source.
+     * 
+     * @return Number of bytes read, or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private int fill(final int want) throws IOException {
+        if ((in == null) && (channel == null)) {
+            return -1;
+        }
+        if ((markPos >= 0) && (pos - markPos > markLimit)) {
+            markPos = -1;
+        }
+        if (count == buf.length) {
+            int keep = pos;
+            if ((markPos >= 0) && (markPos < keep)) {
+                keep = markPos;
+            }
+            if ((tokenStart >= 0) && (tokenStart < keep)) {
+                keep = tokenStart;
+            }
+            if (keep > 0) {
+                System.arraycopy(buf, keep, buf, 0, count - keep);
+                bufOffset += keep;
+                pos -= keep;
+                count -= keep;
+                if (markPos >= 0) {
+                    markPos -= keep;
+                }
+                if (tokenStart >= 0) {
+                    tokenStart -= keep;
+                }
+            } else {
+                byte[] newBuf = new byte[2 * buf.length];
+                System.arraycopy(buf, 0, newBuf, 0, count);
+                buf = newBuf;
+            }
+        }
+        
+        int n;
+        if (channel != null) {
+            n = readChannel(buf, count, buf.length - count);
+        } else if (readAhead) {
+            n = in.read(buf, count, buf.length - count);
+        } else {
+            n = in.read(buf, count, Math.min(want, buf.length - count));
+        }
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+    
+    /**
+     * Reads bytes from the file channel at the current position in the
+     * section.
+     * 
+     * @param b The array.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to read.
+     * 
+     * @return Number of bytes read, or -1 at the end of the section.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private int readChannel(final byte[] b, final int off, final int len)
+            throws IOException {
+        int n = (int) Math.min(len, channelEnd - channelPos);
+        if (n <= 0) {
+            return -1;
+        }
+        n = channel.read(ByteBuffer.wrap(b, off, n), channelPos);
+        if (n <= 0) {
+            // The file is shorter than the section
+            return -1;
+        }
+        channelPos += n;
+        return n;
+    }
+}
@@ -44,6 +44,9 @@ import net.sf.eps2pgf.ps.resources.outputdevices.PGFDevice;
  */
 public final class EpsImageCreator {
     
+    /** Start of the header comment with the creation date. */
+    public static final String CREATION_DATE_PREFIX = "%%CreationDate: ";
+    
     /**
      * "Hidden" constructor.
      */
@@ -103,11 +106,7 @@ public final class EpsImageCreator {
         out.write("%!PS-Adobe-3.0 EPSF-3.0\n");
         out.write("%%Creator: " + Main.getNameVersion() + "\n");
         out.write("%%Title: " + title + "\n");
-        out.write("%%CreationDate: ");
-        Calendar now = Calendar.getInstance();
-        Formatter fmt = new Formatter();
-        fmt.format("%1$tY-%1$tm-%1$td %1$tk:%1$tM:%1$tS\n", now);
-        out.write(fmt.toString());
+        out.write(getCreationDateComment());
         out.write("%%LanguageLevel: 3\n");
         double width = img.getOutputWidthPt();
         double height = img.getOutputHeightPt();
@@ -119,6 +118,18 @@ public final class EpsImageCreator {
         out.write("\n%%EndComments\n\n");
     }
     
+    /**
+     * Returns the header comment with the current date.
+     * 
+     * @return The comment, including the newline.
+     */
+    public static String getCreationDateComment() {
+        Calendar now = Calendar.getInstance();
+        Formatter fmt = new Formatter();
+        fmt.format("%1$tY-%1$tm-%1$td %1$tk:%1$tM:%1$tS\n", now);
+        return CREATION_DATE_PREFIX + fmt.toString();
+    }
+    
     /**
      * Set the scaling of the image so that it is the correct size.
      * 
@@ -20,175 +20,165 @@ package net.sf.eps2pgf.ps;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * Reads DSC header and holds header info.
+ * Reads DSC comments and holds header info and the positions of the
+ * sections of the document.
  * 
  * @author Paul Wagenaars
  */
 public class DSCHeader {
+    /** Size of the blocks in which the document is read. */
+    private static final int BLOCK_SIZE = 8192;
+    
     /** Value of BoundingBox, HiResBoundingBox or ExactBoundingBox. */
     private double[] boundingBox = null;
     
-    /** Pattern describing a DSC comment. */
-    private Pattern dscRegExp = Pattern.compile("%%(\\w+):?\\s*(.*)\\s*");
+    /** Sections of the document, in the order of their begin comments. */
+    private List<DSCSection> sections = Collections.emptyList();
+    
+    /** Indicates whether the header defers the bounding box to the trailer. */
+    private boolean boundingBoxAtEnd = false;
     
     /**
-     * Creates a new instance of DSCHeader. Reads and interprets characters
-     * from file until it encounters a line that does not start with a
-     * '%'-character.
+     * Creates a new instance of DSCHeader. Reads the document until the end
+     * of the stream and scans it for DSC comments. The positions of the
+     * sections are relative to the start of the stream.
      * 
-     * @param in Read header from this reader
+     * @param in Read the document from this stream.
      * 
-     * @throws IOException Unable to read from reader
+     * @throws IOException Unable to read from the stream.
      */
     public DSCHeader(final InputStream in) throws IOException {
-        loadAllDSCComments(in);
+        DSCScanner scanner = new DSCScanner();
+        byte[] buf = new byte[BLOCK_SIZE];
+        int n;
+        while ((n = in.read(buf, 0, buf.length)) >= 0) {
+            scanner.update(buf, 0, n);
+        }
+        scanner.finish();
+        boundingBox = scanner.getBoundingBox();
+        boundingBoxAtEnd = scanner.isBoundingBoxAtEnd();
+        sections = Collections.unmodifiableList(scanner.getSections());
     }
     
     /**
-     * Creates a new instance of DSCHeader. The header is initialized with the
-     * specified bounding box.
+     * Creates a new instance of DSCHeader from the header comments that have
+     * been scanned. No sections are stored.
      * 
-     * @param bbox Use this array of four doubles as bounding box
+     * @param scanner The scanner that read the header comments.
      */
-    public DSCHeader(final double[] bbox) {
-        boundingBox = bbox.clone();
+    private DSCHeader(final DSCScanner scanner) {
+        boundingBox = scanner.getBoundingBox();
+        boundingBoxAtEnd = scanner.isBoundingBoxAtEnd();
     }
     
     /**
-     * Read and interpret all DSC comments from the header.
+     * Reads only the header comments at the start of a stream. Reading stops
+     * after the %%EndComments comment or at the first line that is not a
+     * comment. The stream is left at the first byte after the header, so the
+     * same stream can be used to interpret the document. The sections of the
+     * document are not scanned.
      * 
-     * @param in Read header from this reader
+     * @param in Read the header from this stream. The stream must support
+     * mark and reset.
      * 
-     * @throws IOException Signals that an I/O exception has occurred.
+     * @return The header.
+     * 
+     * @throws IOException Unable to read from the stream.
      */
-    void loadAllDSCComments(final InputStream in) throws IOException {
-        String[] comment;
-        while ((comment = readDSCComment(in)) != null) {
-            String fieldname = comment[0].toLowerCase();
-            if (fieldname.equals("hiresboundingbox")) {
-                boundingBox = parseBoundingBox(comment[1]);
-            } else if (fieldname.equals("exactboundingbox")) {
-                boundingBox = parseBoundingBox(comment[1]);
-            } else if (fieldname.equals("boundingbox")
-                    && (boundingBox == null)) {
-                
-                boundingBox = parseBoundingBox(comment[1]);
+    public static DSCHeader readHeader(final InputStream in)
+            throws IOException {
+        DSCScanner scanner = new DSCScanner();
+        byte[] buf = new byte[BLOCK_SIZE];
+        long consumed = 0;
+        while (scanner.getHeaderEnd() < 0) {
+            in.mark(buf.length);
+            int n = in.read(buf, 0, buf.length);
+            if (n < 0) {
+                scanner.finish();
+                break;
+            }
+            scanner.update(buf, 0, n);
+            
+            long headerEnd = scanner.getHeaderEnd();
+            if (headerEnd >= 0) {
+                // Go back and read only the part of this block that belongs
+                // to the header.
+                in.reset();
+                int remaining = (int) (headerEnd - consumed);
+                while (remaining > 0) {
+                    n = in.read(buf, 0, remaining);
+                    if (n < 0) {
+                        throw new IOException("Unable to reset stream to the"
+                                + " end of the DSC header.");
+                    }
+                    remaining -= n;
+                }
+            } else {
+                consumed += n;
             }
         }
+        return new DSCHeader(scanner);
     }
     
     /**
-     * Parse a string as bounding box.
-     * 
-     * @param bboxString String representation of the bounding box.
+     * Creates a new instance of DSCHeader. The header is initialized with the
+     * specified bounding box.
      * 
-     * @return The bounding box.
+     * @param bbox Use this array of four doubles as bounding box
      */
-    double[] parseBoundingBox(final String bboxString) {
-        Matcher matcher = Pattern.compile(
-                "\\s*(\\S*)\\s+(\\S*)\\s+(\\S*)\\s+(\\S*)\\s*")
-                .matcher(bboxString);
-        if (!matcher.matches()) {
-            return null;
+    public DSCHeader(final double[] bbox) {
+        boundingBox = bbox.clone();
+    }
+    
+    /**
+     * @return the boundingBox
+     */
+    public double[] getBoundingBox() {
+        if (boundingBox != null) {
+            return boundingBox.clone();
         } else {
-            double[] bbox = new double[4];
-            bbox[0] = Double.parseDouble(matcher.group(1));
-            bbox[1] = Double.parseDouble(matcher.group(2));
-            bbox[2] = Double.parseDouble(matcher.group(3));
-            bbox[3] = Double.parseDouble(matcher.group(4));
-            return bbox;
+            return null;
         }
     }
     
     /**
-     * Read the next DSC comment.
-     * 
-     * @param in Read comments from this reader
+     * Checks whether the header defers the bounding box to the trailer with
+     * "%%BoundingBox: (atend)". The trailer is only read when the whole
+     * document is scanned.
      * 
-     * @return the string[]
-     * 
-     * @throws IOException Signals that an I/O exception has occurred.
+     * @return True if the bounding box is in the trailer.
      */
-    String[] readDSCComment(final InputStream in) throws IOException {
-        Matcher matcher;
-                
-        while (true) {
-            String line = readCommentLine(in);
-            if (line.length() == 0) {
-                // we found the end of the header
-                return null;
-            }
-            
-            // Check whether this is a DSC comment
-            matcher = dscRegExp.matcher(line);
-            if (matcher.matches()) {
-                // we found a good DSC comment
-                break;
-            }
-        }
-
-        String[] comment = new String[2];
-        comment[0] = matcher.group(1);
-        comment[1] = matcher.group(2);
-        return comment;
+    public boolean isBoundingBoxAtEnd() {
+        return boundingBoxAtEnd;
     }
     
     /**
-     * Reads characters from 'in' until a full comment line is read. Return
-     * immediately if the current line is not a comment line.
-     * 
-     * @param in Read comments from this stream.
+     * Gets the Prolog, Setup, Document, Binary and Data sections of the
+     * document.
      * 
-     * @return The comment line.
-     * 
-     * @throws IOException Signals that an I/O exception has occurred.
+     * @return The sections, in the order of their begin comments.
      */
-    String readCommentLine(final InputStream in) throws IOException {
-        StringBuilder line = new StringBuilder();
-        int nextChar;
-        boolean lineEnded = false;
-        
-        in.mark(1);
-        while ((nextChar = in.read()) != -1) {
-            // Check for the end of a line
-            if ((nextChar == 10) || (nextChar == 12) || (nextChar == 13)) {
-                if (line.length() > 0) {
-                    lineEnded = true;
-                }
-            } else if (lineEnded) {
-                in.reset();
-                break;
-            } else if (line.length() > 0) {
-                line.append((char) nextChar);
-            } else {
-                // this is the first character of a new line. Check whether it
-                // is a comment line (i.e. starts with %-character).
-                if (nextChar == 37) {
-                    line.append((char) nextChar);
-                } else {
-                    in.reset();
-                    break;
-                }
-            }
-            
-            in.mark(1);
-        }
-        
-        return line.toString();
+    public List<DSCSection> getSections() {
+        return sections;
     }
-
+    
     /**
-     * @return the boundingBox
+     * Gets the first section with a specific name.
+     * 
+     * @param name The name of the section, for example "Prolog".
+     * 
+     * @return The section, or <code>null</code> if there is no such section.
      */
-    public double[] getBoundingBox() {
-        if (boundingBox != null) {
-            return boundingBox.clone();
-        } else {
-            return null;
+    public DSCSection getSection(final String name) {
+        for (DSCSection section : sections) {
+            if (section.getName().equals(name)) {
+                return section;
+            }
         }
+        return null;
     }
 }
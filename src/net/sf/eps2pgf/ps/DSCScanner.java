@@ -0,0 +1,483 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.ps;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scans a document for DSC comments in a single pass, without regular
+ * expressions. The data can be passed to the scanner in blocks of any size,
+ * for example while it is being read.
+ * 
+ * The scanner reads the bounding box from the header comments, or from the
+ * trailer if the header defers it with <code>(atend)</code>. It also records
+ * the positions of the Prolog, Setup, Document, Binary and Data sections. The
+ * contents of Binary and Data sections with a byte or line count are skipped
+ * without looking at them, so that binary data is never mistaken for a
+ * comment.
+ * 
+ * @author Paul Wagenaars
+ */
+final class DSCScanner {
+    
+    /** Maximum length of a DSC comment line. Longer lines are truncated. */
+    private static final int MAX_LINE_LENGTH = 255;
+    
+    /** Names of the sections of which the positions are recorded. */
+    private static final String[] SECTION_NAMES = {"Prolog", "Setup",
+        "Document", "Binary", "Data"};
+    
+    /** Character set used to convert comments to strings. */
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    
+    /** Position of the next byte. */
+    private long offset = 0;
+    
+    /** Indicates whether the next byte is the first byte of a line. */
+    private boolean lineStart = true;
+    
+    /** Indicates whether the last byte was a carriage return. */
+    private boolean afterCR = false;
+    
+    /** Indicates whether the current line is a comment line. */
+    private boolean inComment = false;
+    
+    /** The current comment line. */
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+    
+    /** Number of bytes in the current comment line. */
+    private int lineLength = 0;
+    
+    /** Position of the current comment line. */
+    private long lineOffset = 0;
+    
+    /** Indicates whether the header comments are being read. */
+    private boolean inHeader = true;
+    
+    /** Position of the first byte after the header comments, or -1. */
+    private long headerEnd = -1;
+    
+    /** Indicates whether the header defers the bounding box to the trailer. */
+    private boolean boundingBoxAtEnd = false;
+    
+    /** Indicates whether the trailer comments are being read. */
+    private boolean inTrailer = false;
+    
+    /** Number of bytes of binary data that must be skipped. */
+    private long skipBytes = 0;
+    
+    /** Number of lines of data that must be skipped. */
+    private long skipLines = 0;
+    
+    /** Section of which the data start may move past a line feed. */
+    private DSCSection lastBegin = null;
+    
+    /** Value of BoundingBox, HiResBoundingBox or ExactBoundingBox. */
+    private double[] boundingBox = null;
+    
+    /** All sections, in the order of their begin comments. */
+    private final List<DSCSection> sections = new ArrayList<DSCSection>();
+    
+    /** Sections that are not yet closed, innermost last. */
+    private final List<DSCSection> open = new ArrayList<DSCSection>();
+    
+    /**
+     * Scans the next block of data.
+     * 
+     * @param b The data.
+     * @param off Index of the first byte to scan.
+     * @param len Number of bytes to scan.
+     */
+    void update(final byte[] b, final int off, final int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            byte chr = b[i];
+            
+            // Line feed following a carriage return
+            if (afterCR) {
+                afterCR = false;
+                if (chr == '\n') {
+                    i++;
+                    offset++;
+                    if ((lastBegin != null)
+                            && (lastBegin.getDataStart() == offset - 1)) {
+                        lastBegin.setDataStart(offset);
+                    }
+                    continue;
+                }
+            }
+            lastBegin = null;
+            
+            if (skipBytes > 0) {
+                int m = (int) Math.min(skipBytes, end - i);
+                i += m;
+                offset += m;
+                skipBytes -= m;
+                if (skipBytes == 0) {
+                    lineStart = isEndOfLine(b[i - 1]);
+                    inComment = false;
+                }
+                continue;
+            }
+            
+            i++;
+            offset++;
+            if (isEndOfLine(chr)) {
+                if (skipLines > 0) {
+                    skipLines--;
+                } else {
+                    endLine();
+                }
+                afterCR = (chr == '\r');
+                lineStart = true;
+            } else if (lineStart) {
+                lineStart = false;
+                if (skipLines == 0) {
+                    startLine(chr);
+                }
+            } else if (inComment) {
+                if (lineLength < line.length) {
+                    line[lineLength++] = chr;
+                }
+            } else {
+                // Skip the rest of a line that is not a comment
+                while ((i < end) && !isEndOfLine(b[i])) {
+                    i++;
+                    offset++;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Finishes the scan, after all data has been passed to the scanner.
+     */
+    void finish() {
+        if (skipBytes == 0) {
+            endLine();
+        }
+    }
+    
+    /**
+     * Gets the bounding box.
+     * 
+     * @return The bounding box, or <code>null</code> if none was found.
+     */
+    double[] getBoundingBox() {
+        return boundingBox;
+    }
+    
+    /**
+     * Gets the position of the first byte after the header comments. The
+     * header ends after the <code>%%EndComments</code> comment, or at the
+     * first line that is not a comment.
+     * 
+     * @return The position, or -1 if the end of the header has not been
+     * scanned yet.
+     */
+    long getHeaderEnd() {
+        return headerEnd;
+    }
+    
+    /**
+     * Checks whether the header defers the bounding box to the trailer with
+     * <code>(atend)</code>.
+     * 
+     * @return True if the bounding box is in the trailer.
+     */
+    boolean isBoundingBoxAtEnd() {
+        return boundingBoxAtEnd;
+    }
+    
+    /**
+     * Gets the sections.
+     * 
+     * @return All sections, in the order of their begin comments.
+     */
+    List<DSCSection> getSections() {
+        return sections;
+    }
+    
+    /**
+     * Checks whether a byte ends a line.
+     * 
+     * @param chr The byte.
+     * 
+     * @return True if the byte is a line terminator.
+     */
+    private static boolean isEndOfLine(final byte chr) {
+        return (chr == '\n') || (chr == '\r') || (chr == '\f');
+    }
+    
+    /**
+     * Checks whether a byte is white space (excluding line terminators).
+     * 
+     * @param chr The byte.
+     * 
+     * @return True if the byte is white space.
+     */
+    private static boolean isWhiteSpace(final byte chr) {
+        return (chr == ' ') || (chr == '\t') || (chr == 0);
+    }
+    
+    /**
+     * Handles the first byte of a line.
+     * 
+     * @param chr The byte.
+     */
+    private void startLine(final byte chr) {
+        if (chr == '%') {
+            inComment = true;
+            line[0] = chr;
+            lineLength = 1;
+            lineOffset = offset - 1;
+        } else {
+            inComment = false;
+            if (inHeader) {
+                headerEnd = offset - 1;
+                inHeader = false;
+            }
+        }
+    }
+    
+    /**
+     * Handles the end of a line. If it was a DSC comment, it is processed.
+     */
+    private void endLine() {
+        if (!inComment) {
+            return;
+        }
+        inComment = false;
+        if ((lineLength < 3) || (line[1] != '%')) {
+            return;
+        }
+        
+        // The keyword consists of letters, digits and underscores
+        int k = 2;
+        while ((k < lineLength) && isKeywordChar(line[k])) {
+            k++;
+        }
+        if (k == 2) {
+            return;
+        }
+        String keyword = new String(line, 2, k - 2, LATIN1);
+        
+        if ((k < lineLength) && (line[k] == ':')) {
+            k++;
+        }
+        while ((k < lineLength) && isWhiteSpace(line[k])) {
+            k++;
+        }
+        int e = lineLength;
+        while ((e > k) && isWhiteSpace(line[e - 1])) {
+            e--;
+        }
+        String value = new String(line, k, e - k, LATIN1);
+        
+        processComment(keyword, value);
+    }
+    
+    /**
+     * Checks whether a byte may be part of a DSC keyword.
+     * 
+     * @param chr The byte.
+     * 
+     * @return True if the byte is a letter, digit or underscore.
+     */
+    private static boolean isKeywordChar(final byte chr) {
+        return ((chr >= 'a') && (chr <= 'z')) || ((chr >= 'A') && (chr <= 'Z'))
+                || ((chr >= '0') && (chr <= '9')) || (chr == '_');
+    }
+    
+    /**
+     * Processes a DSC comment.
+     * 
+     * @param keyword The keyword, without the leading "%%".
+     * @param value The value after the keyword.
+     */
+    private void processComment(final String keyword, final String value) {
+        if (keyword.startsWith("Begin")) {
+            beginSection(keyword.substring(5), value);
+        } else if (keyword.startsWith("End")) {
+            endSection(keyword.substring(3));
+        }
+        
+        boolean topLevel = (documentDepth() == 0);
+        if (keyword.equals("EndComments")) {
+            if (inHeader) {
+                headerEnd = offset;
+                inHeader = false;
+            }
+        } else if (keyword.equals("Trailer") && topLevel) {
+            inTrailer = true;
+        } else if (inHeader || (inTrailer && topLevel)) {
+            String fieldname = keyword.toLowerCase();
+            if (inHeader && fieldname.endsWith("boundingbox")
+                    && value.equals("(atend)")) {
+                boundingBoxAtEnd = true;
+            }
+            if (fieldname.equals("hiresboundingbox")) {
+                boundingBox = parseBoundingBox(value);
+            } else if (fieldname.equals("exactboundingbox")) {
+                boundingBox = parseBoundingBox(value);
+            } else if (fieldname.equals("boundingbox")
+                    && (boundingBox == null)) {
+                
+                boundingBox = parseBoundingBox(value);
+            }
+        }
+    }
+    
+    /**
+     * Handles the start of a section.
+     * 
+     * @param name The name of the section.
+     * @param arguments The arguments of the begin comment.
+     */
+    private void beginSection(final String name, final String arguments) {
+        for (int i = 0; i < SECTION_NAMES.length; i++) {
+            if (SECTION_NAMES[i].equals(name)) {
+                DSCSection section = new DSCSection(name, arguments,
+                        lineOffset, offset);
+                sections.add(section);
+                open.add(section);
+                lastBegin = section;
+                
+                if (name.equals("Binary")) {
+                    skipBytes = parseCount(arguments);
+                } else if (name.equals("Data")) {
+                    String[] args = split(arguments);
+                    if ((args.length >= 3) && args[2].equals("Lines")) {
+                        skipLines = parseCount(args[0]);
+                    } else if (args.length >= 1) {
+                        skipBytes = parseCount(args[0]);
+                    }
+                }
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Handles the end of a section. The innermost open section with the same
+     * name is closed. Sections nested in it that are still open remain
+     * unclosed.
+     * 
+     * @param name The name of the section.
+     */
+    private void endSection(final String name) {
+        for (int i = open.size() - 1; i >= 0; i--) {
+            if (open.get(i).getName().equals(name)) {
+                open.get(i).setEnd(lineOffset + lineLength);
+                while (open.size() > i) {
+                    open.remove(open.size() - 1);
+                }
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of open Document sections.
+     * 
+     * @return The nesting depth of embedded documents.
+     */
+    private int documentDepth() {
+        int depth = 0;
+        for (DSCSection section : open) {
+            if (section.getName().equals("Document")) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+    
+    /**
+     * Parses a byte or line count.
+     * 
+     * @param str The count.
+     * 
+     * @return The count, or zero if it is not a valid count.
+     */
+    private static long parseCount(final String str) {
+        String[] args = split(str);
+        if (args.length == 0) {
+            return 0;
+        }
+        try {
+            return Math.max(Long.parseLong(args[0]), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Parse a string as bounding box.
+     * 
+     * @param bboxString String representation of the bounding box.
+     * 
+     * @return The bounding box, or <code>null</code> if the string is not a
+     * valid bounding box.
+     */
+    static double[] parseBoundingBox(final String bboxString) {
+        String[] args = split(bboxString);
+        if (args.length != 4) {
+            return null;
+        }
+        double[] bbox = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                bbox[i] = Double.parseDouble(args[i]);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return bbox;
+    }
+    
+    /**
+     * Splits a string at white space.
+     * 
+     * @param str The string.
+     * 
+     * @return The parts of the string between white space.
+     */
+    private static String[] split(final String str) {
+        List<String> parts = new ArrayList<String>();
+        int n = str.length();
+        int i = 0;
+        while (i < n) {
+            while ((i < n) && (str.charAt(i) <= ' ')) {
+                i++;
+            }
+            int start = i;
+            while ((i < n) && (str.charAt(i) > ' ')) {
+                i++;
+            }
+            if (i > start) {
+                parts.add(str.substring(start, i));
+            }
+        }
+        return parts.toArray(new String[parts.size()]);
+    }
+    
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.ps;
+
+/**
+ * Section of a document that is delimited by a pair of DSC comments, for
+ * example <code>%%BeginProlog</code> and <code>%%EndProlog</code>. Positions
+ * are byte offsets from the start of the PostScript code.
+ * 
+ * @author Paul Wagenaars
+ */
+public final class DSCSection {
+    
+    /** Name of the section, for example "Prolog" or "Document". */
+    private final String name;
+    
+    /** Arguments of the begin comment. */
+    private final String arguments;
+    
+    /** Position of the begin comment. */
+    private final long start;
+    
+    /** Position of the first line after the begin comment. */
+    private long dataStart;
+    
+    /** Position directly after the end comment, or -1. */
+    private long end = -1;
+    
+    /**
+     * Creates a new section.
+     * 
+     * @param pName The name of the section.
+     * @param pArguments The arguments of the begin comment.
+     * @param pStart The position of the begin comment.
+     * @param pDataStart The position of the first line after the begin
+     * comment.
+     */
+    DSCSection(final String pName, final String pArguments, final long pStart,
+            final long pDataStart) {
+        name = pName;
+        arguments = pArguments;
+        start = pStart;
+        dataStart = pDataStart;
+    }
+    
+    /**
+     * Gets the name of this section, the part after "Begin" in the begin
+     * comment.
+     * 
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the arguments of the begin comment, for example the name of the
+     * document in a <code>%%BeginDocument</code> comment.
+     * 
+     * @return The arguments, an empty string if there are none.
+     */
+    public String getArguments() {
+        return arguments;
+    }
+    
+    /**
+     * Gets the position of the begin comment.
+     * 
+     * @return Byte offset.
+     */
+    public long getStart() {
+        return start;
+    }
+    
+    /**
+     * Gets the position of the first line after the begin comment.
+     * 
+     * @return Byte offset.
+     */
+    public long getDataStart() {
+        return dataStart;
+    }
+    
+    /**
+     * Sets the position of the first line after the begin comment.
+     * 
+     * @param pDataStart Byte offset.
+     */
+    void setDataStart(final long pDataStart) {
+        dataStart = pDataStart;
+    }
+    
+    /**
+     * Gets the position directly after the end comment, excluding the line
+     * terminator.
+     * 
+     * @return Byte offset, or -1 if the section is not closed.
+     */
+    public long getEnd() {
+        return end;
+    }
+    
+    /**
+     * Sets the position directly after the end comment.
+     * 
+     * @param pEnd Byte offset.
+     */
+    void setEnd(final long pEnd) {
+        end = pEnd;
+    }
+    
+    /**
+     * Checks whether this section is closed by an end comment.
+     * 
+     * @return True if the section is closed.
+     */
+    public boolean isClosed() {
+        return end >= 0;
+    }
+    
+    /**
+     * Returns a string representation of this section.
+     * 
+     * @return Name and positions of the section.
+     */
+    @Override
+    public String toString() {
+        return name + " [" + start + ", " + end + "]";
+    }
+    
+}
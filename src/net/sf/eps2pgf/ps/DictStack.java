@@ -18,6 +18,8 @@
 
 package net.sf.eps2pgf.ps;
 
+import java.util.HashMap;
+
 import net.sf.eps2pgf.Main;
 import net.sf.eps2pgf.ProgramError;
 import net.sf.eps2pgf.ps.errors.PSError;
@@ -60,6 +62,18 @@ public class DictStack {
     /** Interpreter to which this dictionary stack belongs. */
     private Interpreter interp;
     
+    /**
+     * Cached bindings of names to the dictionary in which they were found.
+     * A binding is only valid as long as the dictionary stack and the keys
+     * of all dictionaries are unchanged, see {@link Binding}.
+     */
+    private final HashMap<PSObject, Binding> bindings =
+        new HashMap<PSObject, Binding>();
+    
+    /** Counter that is increased each time a dictionary is pushed or
+     * popped. */
+    private int stackVersion = 0;
+    
     /**
      * Create a new dictionary stack.
      * 
@@ -121,6 +135,7 @@ public class DictStack {
         try {
             while (dictStack.size() > 3) {
                 dictStack.pop();
+                stackVersion++;
             }
         } catch (PSErrorStackUnderflow e) {
             // this can never happen
@@ -208,15 +223,15 @@ public class DictStack {
         // Add $error dictionary (must be in local VM)
         interp.getVm().setGlobal(false);
         PSObjectDict dollarerror = new PSObjectDict(interp);
-        dollarerror.setKey("newerror", new PSObjectBool(false));
+        dollarerror.setKey("newerror", PSObjectBool.valueOf(false));
         dollarerror.setKey("errorname", emptyProc);
         dollarerror.setKey("command", emptyProc);
         dollarerror.setKey("errorinfo", emptyProc);
         dollarerror.setKey("ostack", emptyProc);
         dollarerror.setKey("estack", emptyProc);
         dollarerror.setKey("dstack", emptyProc);
-        dollarerror.setKey("recordstacks", new PSObjectBool(true));
-        dollarerror.setKey("binary", new PSObjectBool(false));
+        dollarerror.setKey("recordstacks", PSObjectBool.valueOf(true));
+        dollarerror.setKey("binary", PSObjectBool.valueOf(false));
         systemdict.setKey("$error", dollarerror);
         interp.getVm().setGlobal(true);
         
@@ -263,8 +278,8 @@ public class DictStack {
         systemdict.setKey("note", emptyProc);
         
         // add other operators
-        systemdict.setKey("currentpacking", new PSObjectBool(false));
-        systemdict.setKey("languagelevel", new PSObjectInt(3));
+        systemdict.setKey("currentpacking", PSObjectBool.valueOf(false));
+        systemdict.setKey("languagelevel", PSObjectInt.valueOf(3));
         
         String version = Main.APP_VERSION.replace(".", "0");
         int revision;
@@ -275,8 +290,8 @@ public class DictStack {
             revision = 1;
         }
         systemdict.setKey("version", new PSObjectString(version, interp));
-        systemdict.setKey("revision", new PSObjectInt(revision));
-        systemdict.setKey("serialnumber", new PSObjectInt(0));
+        systemdict.setKey("revision", PSObjectInt.valueOf(revision));
+        systemdict.setKey("serialnumber", PSObjectInt.valueOf(0));
         systemdict.setKey("product", Main.APP_NAME);
     }
     
@@ -287,6 +302,7 @@ public class DictStack {
      */
     public void pushDict(final PSObjectDict dict) {
         dictStack.push(dict);
+        stackVersion++;
     }
     
     /**
@@ -312,7 +328,9 @@ public class DictStack {
      */
     public PSObjectDict popDict() throws PSError {
         try {
-            return dictStack.pop();
+            PSObjectDict dict = dictStack.pop();
+            stackVersion++;
+            return dict;
         } catch (PSErrorStackUnderflow e) {
             throw new PSErrorDictStackUnderflow();
         }
@@ -340,7 +358,9 @@ public class DictStack {
     
     
     /**
-     * Lookup a key in the dictionary stack.
+     * Lookup a key in the dictionary stack. Names are first looked up in the
+     * binding cache, other keys are looked up in each dictionary from top to
+     * bottom.
      * 
      * @param key The key.
      * 
@@ -348,12 +368,56 @@ public class DictStack {
      * found.
      */
     public PSObject lookup(final PSObject key) {
-        PSObjectDict dict = where(key);
-        if (dict == null) {
-            return null;
-        } else {
-            return dict.lookup(key);
+        if (!(key instanceof PSObjectName)) {
+            return lookupInStack(key);
+        }
+        
+        int dictVersion = interp.getVm().getDictVersion();
+        Binding binding = bindings.get(key);
+        if ((binding != null) && (binding.stackVersion == stackVersion)
+                && (binding.dictVersion == dictVersion)) {
+            PSObject value = binding.dict.lookup(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        
+        for (int i = dictStack.size() - 1; i >= 0; i--) {
+            PSObjectDict dict = dictStack.get(i);
+            PSObject value = dict.lookup(key);
+            if (value != null) {
+                if (binding == null) {
+                    binding = new Binding();
+                    bindings.put(key, binding);
+                }
+                binding.dict = dict;
+                binding.stackVersion = stackVersion;
+                binding.dictVersion = dictVersion;
+                return value;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Lookup a key in the dictionary stack without using the binding cache.
+     * Each dictionary is probed only once.
+     * 
+     * @param key The key.
+     * 
+     * @return The requested object. Or <code>null</code> if the key is not
+     * found.
+     */
+    private PSObject lookupInStack(final PSObject key) {
+        for (int i = dictStack.size() - 1; i >= 0; i--) {
+            PSObject value = dictStack.get(i).lookup(key);
+            if (value != null) {
+                return value;
+            }
         }
+        
+        return null;
     }
     
     /**
@@ -365,7 +429,7 @@ public class DictStack {
      * found.
      */
     public PSObject lookup(final String key) {
-        return lookup(new PSObjectName(key, true));
+        return lookup(PSObjectName.getLiteral(key));
     }
     
     /**
@@ -406,4 +470,23 @@ public class DictStack {
     public PSObjectDict getSystemDict() {
         return systemdict;
     }
+    
+    /**
+     * Cached binding of a name to the dictionary on the dictionary stack in
+     * which it was found. The binding is valid as long as no dictionary has
+     * been pushed or popped, and no key has been added to or removed from
+     * any dictionary (including by a restore). Changing the value of an
+     * existing key does not invalidate the binding, because the value itself
+     * is always looked up in the cached dictionary.
+     */
+    private static final class Binding {
+        /** Dictionary in which the name was found. */
+        private PSObjectDict dict;
+        
+        /** Version of the dictionary stack when the binding was made. */
+        private int stackVersion;
+        
+        /** Dictionary version of the VM when the binding was made. */
+        private int dictVersion;
+    }
 }
@@ -28,14 +28,37 @@ import net.sf.eps2pgf.ps.objects.PSObject;
 import net.sf.eps2pgf.ps.objects.PSObjectArray;
 import net.sf.eps2pgf.ps.objects.PSObjectFile;
 import net.sf.eps2pgf.ps.objects.PSObjectNull;
+import net.sf.eps2pgf.ps.objects.PSObjectOperator;
 
 /**
  * Execution stack. Stack of objects that await processing by the interpreter.
+ * 
+ * Procedures (arrays) on this stack are not split into a new sub-array each
+ * time a token is taken from them. Instead each entry has a cursor with the
+ * index of the next element to execute, which is advanced in place. The
+ * remaining part of a procedure is only materialized when the stack is
+ * inspected with the <code>execstack</code> operator.
+ * 
  * @author Paul Wagenaars
  */
 public class ExecStack {
-    /** Execution stack (see PostScript manual for more info). */
-    private PSObjectArray stack;
+    /** Initial capacity of the stack. */
+    private static final int INITIAL_CAPACITY = 64;
+    
+    /** Objects on the execution stack. */
+    private PSObject[] objs = new PSObject[INITIAL_CAPACITY];
+    
+    /**
+     * Index of the next element to execute, for each procedure on the stack.
+     * Unused for other objects.
+     */
+    private int[] cursors = new int[INITIAL_CAPACITY];
+    
+    /** Number of objects on the stack. */
+    private int nrObjs = 0;
+    
+    /** Interpreter to which this stack belongs. */
+    private Interpreter interp;
     
     /**
      * Create a new execution stack.
@@ -45,7 +68,7 @@ public class ExecStack {
      * @throws PSErrorVMError Virtual memory error.
      */
     public ExecStack(final Interpreter interpreter) throws PSErrorVMError {
-        stack = new PSObjectArray(interpreter);
+        interp = interpreter;
     }
     
     /**
@@ -57,8 +80,8 @@ public class ExecStack {
      * execution stack.
      */
     public PSObjectFile getTopmostFile() throws PSError {
-        for (int i = size() - 1; i >= 0; i--) {
-            PSObject obj = stack.get(i);
+        for (int i = nrObjs - 1; i >= 0; i--) {
+            PSObject obj = objs[i];
             if (obj instanceof PSObjectFile) {
                 return obj.toFile();
             }
@@ -70,40 +93,48 @@ public class ExecStack {
      * Gets the next PostScript token from the top-most item on this execution
      * stack.
      * 
-     * @param stopAt Stop and return from this function when this item is at the
-     * top of the execution stack. If this is <code>null</code> the entire
-     * execution stack is executed.
+     * @param stopAtSize Stop and return from this function when the number of
+     * items on the execution stack drops to this value. If this is
+     * zero the entire execution stack is executed.
      * 
-     * @return Returns next token. Returns <code>null</code> when there are no
-     * more tokens left on the top item on the stack. This empty top
-     * item is popped and <code>null</code> is returned.
+     * @return Returns next token. Returns an executable null object when
+     * there are no more tokens left above <code>stopAtSize</code>.
      * 
      * @throws PSError There was a PostScript error retrieving the next token.
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
-    public PSObject getNextToken(final PSObject stopAt)
+    public PSObject getNextToken(final int stopAtSize)
             throws PSError, ProgramError {
         
-        // Check for empty stack
-        if (stack.size() == 0) {
-            return PSObjectNull.getExecNull();
-        }
-        
         // Loop through all object on the stack until we find a token
-        PSObject top;
-        while ((top = getTop()) != stopAt) {
-            List<PSObject> list = top.token();
-            if (list.size() == 2) {
-                return list.get(0);
-            } else if (list.size() == 3) {
-                pop();
-                PSObject remaining = list.get(0);
-                if (remaining != null) {
-                    push(remaining);
+        while (nrObjs > stopAtSize) {
+            int i = nrObjs - 1;
+            PSObject top = objs[i];
+            if (top instanceof PSObjectArray) {
+                PSObjectArray proc = (PSObjectArray) top;
+                int cursor = cursors[i];
+                if (cursor < proc.size()) {
+                    cursors[i] = cursor + 1;
+                    return proc.get(cursor);
                 }
-                return list.get(1);
-            } else {
                 pop();
+            } else if (top instanceof PSObjectOperator) {
+                pop();
+                return top;
+            } else {
+                List<PSObject> list = top.token();
+                if (list.size() == 2) {
+                    return list.get(0);
+                } else if (list.size() == 3) {
+                    pop();
+                    PSObject remaining = list.get(0);
+                    if (remaining != null) {
+                        push(remaining);
+                    }
+                    return list.get(1);
+                } else {
+                    pop();
+                }
             }
         }
         
@@ -117,13 +148,13 @@ public class ExecStack {
      * @return Returns popped element. Returns null when no more items are left.
      */
     public PSObject pop() {
-        try {
-            int nr = stack.size();
-            return stack.remove(nr - 1);
-        } catch (PSErrorRangeCheck e) {
-            // Most likely the stack is empty.
+        if (nrObjs == 0) {
+            return null;
         }
-        return null;
+        nrObjs--;
+        PSObject obj = objs[nrObjs];
+        objs[nrObjs] = null;
+        return obj;
     }
 
     /**
@@ -134,12 +165,18 @@ public class ExecStack {
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
     public void push(final PSObject obj) throws ProgramError {
-        try {
-            stack.addToEnd(obj);
-        } catch (PSErrorRangeCheck e) {
-            throw new ProgramError("Rangecheck while pushing item on execution"
-                    + " stack.");
+        if (nrObjs == objs.length) {
+            int newCapacity = 2 * objs.length;
+            PSObject[] newObjs = new PSObject[newCapacity];
+            int[] newCursors = new int[newCapacity];
+            System.arraycopy(objs, 0, newObjs, 0, nrObjs);
+            System.arraycopy(cursors, 0, newCursors, 0, nrObjs);
+            objs = newObjs;
+            cursors = newCursors;
         }
+        objs[nrObjs] = obj;
+        cursors[nrObjs] = 0;
+        nrObjs++;
     }
     
     /**
@@ -148,30 +185,47 @@ public class ExecStack {
      * @return Number of items on the stack
      */
     public int size() {
-        return stack.size();
+        return nrObjs;
     }
 
     /**
-     * Get the top element on the execution stack.
+     * Get the top element on the execution stack. For a procedure that is
+     * partially executed this is the complete procedure.
      * 
-     * @return the top
+     * @return the top, or <code>null</code> if the stack is empty
      */
     public PSObject getTop() {
-        int nrItems = stack.size();
-        try {
-            return stack.get(nrItems - 1);
-        } catch (PSErrorRangeCheck e) {
+        if (nrObjs == 0) {
             return null;
         }
+        return objs[nrObjs - 1];
     }
 
     /**
-     * Returns a reference to the execution stack.
+     * Returns a copy of the execution stack, as an array. Procedures that are
+     * partially executed are replaced by the part that remains to be
+     * executed.
      * 
      * @return the stack
+     * 
+     * @throws PSErrorVMError Virtual memory error.
      */
-    public PSObjectArray getStack() {
-        return stack;
+    public PSObjectArray getStack() throws PSErrorVMError {
+        PSObject[] copy = new PSObject[nrObjs];
+        for (int i = 0; i < nrObjs; i++) {
+            PSObject obj = objs[i];
+            int cursor = cursors[i];
+            if ((obj instanceof PSObjectArray) && (cursor > 0)) {
+                PSObjectArray proc = (PSObjectArray) obj;
+                try {
+                    obj = proc.getinterval(cursor, proc.size() - cursor);
+                } catch (PSErrorRangeCheck e) {
+                    // this can never happen
+                }
+            }
+            copy[i] = obj;
+        }
+        return new PSObjectArray(copy, interp);
     }
     
 }
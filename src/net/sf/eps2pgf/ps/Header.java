@@ -55,9 +55,13 @@ public final class Header {
         RandomAccessFile rFile = new RandomAccessFile(file, "r");
         
         int[] dim;
-        dim = getEpsPreviewInfo(rFile);
-        if (dim == null) {
-            dim = getPfbInfo(rFile);
+        try {
+            dim = getEpsPreviewInfo(rFile);
+            if (dim == null) {
+                dim = getPfbInfo(rFile);
+            }
+        } finally {
+            rFile.close();
         }
         
         return dim;
@@ -389,13 +389,17 @@ public class Image {
         data = new byte[height * bytesPerLine];
         
         int bytesRead = 0;
-        while (bytesRead < height * bytesPerLine) {
+        while (bytesRead < data.length) {
             interp.runObject(proc);
             PSObjectString dataStr = interp.getOpStack().pop().toPSString();
-            for (int i = 0; i < dataStr.length(); i++) {
-                data[bytesRead] = (byte) dataStr.get(i);
-                bytesRead++;
+            
+            // An empty string means that there is no more data
+            int n = Math.min(dataStr.length(), data.length - bytesRead);
+            if (n == 0) {
+                break;
             }
+            dataStr.getBytes(0, data, bytesRead, n);
+            bytesRead += n;
         }
     }
     
@@ -18,7 +18,11 @@
 
 package net.sf.eps2pgf.ps;
 
+import java.io.File;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import net.sf.eps2pgf.Options;
 import net.sf.eps2pgf.ProgramError;
@@ -55,7 +59,7 @@ public class Interpreter {
     private final ResourceManager resourceManager = new ResourceManager(this);
     
     /** Operand stack (see PostScript manual for more info). */
-    private ArrayStack<PSObject> opStack = new ArrayStack<PSObject>();
+    private final OperandStack opStack = new OperandStack();
     
     /** Dictionary stack. */
     private final DictStack dictStack = new DictStack(this);
@@ -131,6 +135,18 @@ public class Interpreter {
      */
     private int interpCounter = 0;
     
+    /**
+     * Name of the PostScript error that terminated the document, or null if
+     * no error occurred.
+     */
+    private String errorName = null;
+    
+    /**
+     * Files written next to the main output file, for example bitmap
+     * images.
+     */
+    private final List<File> sideFiles = new ArrayList<File>();
+    
     /**
      * Creates a new instance of interpreter.
      * 
@@ -373,6 +389,33 @@ public class Interpreter {
         return options;
     }
 
+    /**
+     * Gets the name of the PostScript error that terminated the document.
+     * 
+     * @return The name of the error, or null if no error occurred.
+     */
+    public String getErrorName() {
+        return errorName;
+    }
+    
+    /**
+     * Registers a file that is written next to the main output file.
+     * 
+     * @param file The file.
+     */
+    public void addSideFile(final File file) {
+        sideFiles.add(file);
+    }
+    
+    /**
+     * Gets the files that were written next to the main output file.
+     * 
+     * @return The files.
+     */
+    public List<File> getSideFiles() {
+        return Collections.unmodifiableList(sideFiles);
+    }
+    
     /**
      * Start interpreting PostScript document.
      * 
@@ -390,6 +433,7 @@ public class Interpreter {
             // error occurred.
             PSObjectDict dollarError = dictStack.lookup("$error").toDict();
             if (dollarError.lookup("newerror").toBool()) {
+                errorName = dollarError.lookup("errorname").cvs();
                 PSObjectDict errorDict = dictStack.lookup("errordict").toDict();
                 PSObject handleError = errorDict.get("handleerror");
                 execStack.push(handleError);
@@ -411,43 +455,55 @@ public class Interpreter {
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
     public void run() throws PSError, ProgramError {
-        run(null);
+        run(0);
     }
     
     /**
-     * Execute objects on the execution stack one by one until the specified
-     * item is at the top of the execution stack.
+     * Execute objects on the execution stack one by one until the number of
+     * items on the execution stack drops to the specified value.
      * 
-     * @param stopAt Stop and return from this function when this item is at the
-     * top of the execution stack. If this is <code>null</code> the entire
-     * execution stack is executed.
+     * @param stopAtSize Stop and return from this function when the execution
+     * stack contains this number of items. If this is zero the
+     * entire execution stack is executed.
      * 
      * @throws PSError A PostScript error occurred.
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
-    public void run(final PSObject stopAt) throws PSError, ProgramError {
+    public void run(final int stopAtSize) throws PSError, ProgramError {
         ExecStack es = getExecStack();
-        while (es.getTop() != stopAt) {
-            PSObject obj = es.getNextToken(stopAt);
-            interpCounter++;
-            ArrayStack<PSObject> opStackCopy = getOpStack().clone();
-            try {
-                executeObject(obj, false);
-            } catch (PSError e) {
-                opStack = opStackCopy;
-                opStack.push(obj);
-                PSObjectDict errordict = 
-                    dictStack.lookup("errordict").toDict();
-                PSObject errorproc = errordict.get(e.getErrorName());
-                execStack.push(errorproc);
+        opStack.beginFrame();
+        try {
+            while (es.size() > stopAtSize) {
+                opStack.checkpoint();
+                PSObject obj = null;
+                try {
+                    obj = es.getNextToken(stopAtSize);
+                    interpCounter++;
+                    executeObject(obj, false);
+                } catch (PSError e) {
+                    opStack.rollback();
+                    if (obj == null) {
+                        // The scanner failed while reading a token from the
+                        // file or string at the top of the execution stack.
+                        // That object is abandoned and reported instead.
+                        obj = es.pop();
+                    }
+                    opStack.push(obj);
+                    PSObjectDict errordict = 
+                        dictStack.lookup("errordict").toDict();
+                    PSObject errorproc = errordict.get(e.getErrorName());
+                    execStack.push(errorproc);
+                }
             }
+        } finally {
+            opStack.endFrame();
         }
     }
     
     /**
-     * Look at the current element at the top of the execution stack, then
-     * execute the supplied object and start running until the same object is
-     * again on top of the execution stack.
+     * Look at the current size of the execution stack, then execute the
+     * supplied object and start running until the execution stack is back at
+     * the same size.
      * 
      * @param objectToRun The object to run.
      * 
@@ -457,9 +513,9 @@ public class Interpreter {
     public void runObject(final PSObject objectToRun)
             throws PSError, ProgramError {
         
-        PSObject topAtStart = execStack.getTop();
+        int sizeAtStart = execStack.size();
         getExecStack().push(objectToRun);
-        run(topAtStart);
+        run(sizeAtStart);
     }
     
     /**
@@ -498,8 +554,11 @@ public class Interpreter {
             // Object is literal
             getOpStack().push(obj);
         } else {
-            // Object is executable
-            if (obj instanceof PSObjectArray) {
+            // Object is executable. Operators are checked first, because in
+            // bound procedures most executed objects are operators.
+            if (obj instanceof PSObjectOperator) {
+                ((PSObjectOperator) obj).invoke();
+            } else if (obj instanceof PSObjectArray) {
                 if (indirect) {
                     getExecStack().push(obj);
                 } else {
@@ -516,10 +575,11 @@ public class Interpreter {
                 if (value == null) {
                     throw new PSErrorUndefined(key.toString());
                 } else {
-                    executeObject(value.dup());
+                    // No copy is needed: simple objects are immutable, and
+                    // operators that change the attributes of an object
+                    // (cvx, readonly, ...) work on a copy.
+                    executeObject(value);
                 }
-            } else if (obj instanceof PSObjectOperator) {
-                ((PSObjectOperator) obj).invoke();
             } else if (obj instanceof PSObjectNull) {
                 // don't do anything with an executable null
             } 
@@ -563,6 +623,15 @@ public class Interpreter {
         return gstate;
     }
     
+    /**
+     * Gets the DSC header information of the file being interpreted.
+     * 
+     * @return The header.
+     */
+    public DSCHeader getHeader() {
+        return header;
+    }
+    
     /**
      * Gets the interpreter parameters.
      * 
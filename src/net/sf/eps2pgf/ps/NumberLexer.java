@@ -0,0 +1,289 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.ps;
+
+import java.nio.charset.Charset;
+
+import net.sf.eps2pgf.ps.objects.PSObject;
+import net.sf.eps2pgf.ps.objects.PSObjectInt;
+import net.sf.eps2pgf.ps.objects.PSObjectReal;
+
+/**
+ * Recognizes and converts PostScript numbers: integers, reals (with or
+ * without exponent) and radix numbers (<code>base#digits</code>).
+ * 
+ * A token is classified and converted in a single scan over its characters.
+ * Tokens that are not a number are rejected without throwing an exception.
+ *
+ * @author Paul Wagenaars
+ */
+public final class NumberLexer {
+    
+    /**
+     * Maximum number of significant digits that are accumulated in a long.
+     */
+    private static final int MAX_DIGITS = 18;
+    
+    /**
+     * Maximum number of significant digits for which the value of a real can
+     * be computed exactly with a single multiplication or division.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+    
+    /** Exact powers of ten that can be represented by a double. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    /** Largest value of a radix number (32-bit unsigned). */
+    private static final long MAX_RADIX_VALUE = 0xFFFFFFFFL;
+    
+    /** Character set used to convert tokens to strings. */
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    
+    /**
+     * "Hidden" constructor.
+     */
+    private NumberLexer() {
+        /* empty block */
+    }
+    
+    /**
+     * Converts a token to a number.
+     * 
+     * @param str The token.
+     * 
+     * @return The integer or real object, or <code>null</code> if the token
+     * is not a number.
+     */
+    public static PSObject parse(final String str) {
+        int len = str.length();
+        byte[] buf = new byte[len];
+        for (int i = 0; i < len; i++) {
+            char chr = str.charAt(i);
+            if (chr > 255) {
+                return null;
+            }
+            buf[i] = (byte) chr;
+        }
+        return parse(buf, 0, len);
+    }
+    
+    /**
+     * Converts a token, given as ISO-8859-1 bytes, to a number.
+     * 
+     * @param buf Buffer with the token.
+     * @param off Index of the first byte of the token.
+     * @param len Length of the token.
+     * 
+     * @return The integer or real object, or <code>null</code> if the token
+     * is not a number.
+     */
+    public static PSObject parse(final byte[] buf, final int off,
+            final int len) {
+        int end = off + len;
+        int i = off;
+        if (i == end) {
+            return null;
+        }
+        
+        boolean hasSign = false;
+        boolean negative = false;
+        if ((buf[i] == '+') || (buf[i] == '-')) {
+            hasSign = true;
+            negative = (buf[i] == '-');
+            i++;
+        }
+        
+        // Significant digits are accumulated in 'mantissa', the value of the
+        // number is mantissa * 10^exp10.
+        long mantissa = 0;
+        int nrSignificant = 0;
+        int exp10 = 0;
+        boolean inexact = false;
+        
+        // Integer part
+        int intStart = i;
+        for (; (i < end) && isDigit(buf[i]); i++) {
+            if (nrSignificant < MAX_DIGITS) {
+                mantissa = 10 * mantissa + (buf[i] - '0');
+                if (mantissa != 0) {
+                    nrSignificant++;
+                }
+            } else {
+                inexact = true;
+                exp10++;
+            }
+        }
+        int nrIntDigits = i - intStart;
+        
+        if (i == end) {
+            if (nrIntDigits == 0) {
+                return null;
+            } else if (!inexact) {
+                long value = negative ? -mantissa : mantissa;
+                if ((value >= Integer.MIN_VALUE)
+                        && (value <= Integer.MAX_VALUE)) {
+                    return PSObjectInt.valueOf((int) value);
+                }
+                // Integers that are too large are converted to reals
+                return PSObjectReal.valueOf((double) value);
+            } else {
+                return PSObjectReal.valueOf(parseDouble(buf, off, len));
+            }
+        } else if (buf[i] == '#') {
+            if (hasSign || (nrIntDigits == 0) || inexact) {
+                return null;
+            }
+            return parseRadix(mantissa, buf, i + 1, end);
+        }
+        
+        // Fraction
+        int nrFracDigits = 0;
+        if (buf[i] == '.') {
+            i++;
+            int fracStart = i;
+            for (; (i < end) && isDigit(buf[i]); i++) {
+                if (nrSignificant < MAX_DIGITS) {
+                    mantissa = 10 * mantissa + (buf[i] - '0');
+                    exp10--;
+                    if (mantissa != 0) {
+                        nrSignificant++;
+                    }
+                } else {
+                    inexact = true;
+                }
+            }
+            nrFracDigits = i - fracStart;
+        }
+        if (nrIntDigits + nrFracDigits == 0) {
+            return null;
+        }
+        
+        // Exponent
+        if ((i < end) && ((buf[i] == 'e') || (buf[i] == 'E'))) {
+            i++;
+            boolean negativeExp = false;
+            if ((i < end) && ((buf[i] == '+') || (buf[i] == '-'))) {
+                negativeExp = (buf[i] == '-');
+                i++;
+            }
+            int expStart = i;
+            int exp = 0;
+            for (; (i < end) && isDigit(buf[i]); i++) {
+                if (exp < 100000) {
+                    exp = 10 * exp + (buf[i] - '0');
+                }
+            }
+            if (i == expStart) {
+                return null;
+            }
+            exp10 += negativeExp ? -exp : exp;
+        }
+        if (i != end) {
+            return null;
+        }
+        
+        if (inexact || (nrSignificant > MAX_EXACT_DIGITS)
+                || (exp10 < -(POWERS_OF_TEN.length - 1))
+                || (exp10 > (POWERS_OF_TEN.length - 1))) {
+            return PSObjectReal.valueOf(parseDouble(buf, off, len));
+        }
+        double value;
+        if (exp10 >= 0) {
+            value = mantissa * POWERS_OF_TEN[exp10];
+        } else {
+            value = mantissa / POWERS_OF_TEN[-exp10];
+        }
+        if (negative) {
+            value = -value;
+        }
+        return PSObjectReal.valueOf(value);
+    }
+    
+    /**
+     * Converts the digits of a radix number.
+     * 
+     * @param base The base.
+     * @param buf Buffer with the digits.
+     * @param start Index of the first digit.
+     * @param end Index after the last digit.
+     * 
+     * @return The integer, or <code>null</code> if the digits are not a valid
+     * number.
+     */
+    private static PSObject parseRadix(final long base, final byte[] buf,
+            final int start, final int end) {
+        if ((base < 2) || (base > 36) || (start == end)) {
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int chr = buf[i];
+            int digit;
+            if (isDigit(chr)) {
+                digit = chr - '0';
+            } else if ((chr >= 'A') && (chr <= 'Z')) {
+                digit = chr - 'A' + 10;
+            } else if ((chr >= 'a') && (chr <= 'z')) {
+                digit = chr - 'a' + 10;
+            } else {
+                return null;
+            }
+            if (digit >= base) {
+                return null;
+            }
+            value = base * value + digit;
+            if (value > MAX_RADIX_VALUE) {
+                return null;
+            }
+        }
+        // Radix numbers are unsigned, values above the largest integer wrap
+        // around to negative values.
+        return PSObjectInt.valueOf((int) value);
+    }
+    
+    /**
+     * Converts a token that is known to be a valid real number using the
+     * (slower) general algorithm. Used when the fast path can not guarantee
+     * a correctly rounded result.
+     * 
+     * @param buf Buffer with the token.
+     * @param off Index of the first byte of the token.
+     * @param len Length of the token.
+     * 
+     * @return The value.
+     */
+    private static double parseDouble(final byte[] buf, final int off,
+            final int len) {
+        return Double.parseDouble(new String(buf, off, len, LATIN1));
+    }
+    
+    /**
+     * Checks whether a character is a decimal digit.
+     * 
+     * @param chr The character.
+     * 
+     * @return True, if it is a digit.
+     */
+    private static boolean isDigit(final int chr) {
+        return (chr >= '0') && (chr <= '9');
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.ps;
+
+import java.util.Collection;
+
+import net.sf.eps2pgf.ps.objects.PSObject;
+import net.sf.eps2pgf.util.ArrayStack;
+
+/**
+ * Operand stack that can be rolled back to a checkpoint without copying the
+ * entire stack.
+ *
+ * The interpreter sets a checkpoint before executing each token. Instead of
+ * taking a snapshot, the stack keeps a low-water mark: the lowest index that
+ * has been modified since the checkpoint. Objects at or above the low-water
+ * mark that were on the stack at the checkpoint are saved the first time they
+ * are about to be modified. Operators normally touch only their operands, so
+ * the work per token is proportional to the number of operands instead of
+ * the stack depth. Checkpoints are kept in frames, one for each (nested)
+ * invocation of {@link Interpreter#run(PSObject)}.
+ *
+ * @author Paul Wagenaars
+ */
+public class OperandStack extends ArrayStack<PSObject> {
+
+    /** Serial version UID field. */
+    private static final long serialVersionUID = 1L;
+
+    /** Initial number of frames for which space is reserved. */
+    private static final int INITIAL_FRAMES = 8;
+
+    /** Number of active frames. */
+    private int nrFrames = 0;
+
+    /** Per frame: lowest index modified since the last checkpoint. */
+    private int[] lowWater = new int[INITIAL_FRAMES];
+
+    /** Per frame: size of the stack at the last checkpoint. */
+    private int[] savedSize = new int[INITIAL_FRAMES];
+
+    /**
+     * Per frame: original objects, indexed by their position on the stack.
+     * Only the entries from <code>lowWater</code> up to
+     * <code>savedSize</code> are valid.
+     */
+    private PSObject[][] saved = new PSObject[INITIAL_FRAMES][];
+
+    /**
+     * Creates a new, empty operand stack.
+     */
+    public OperandStack() {
+        super();
+    }
+
+    /**
+     * Starts a new checkpoint frame. Each call must be matched by a call to
+     * {@link #endFrame()}.
+     */
+    public void beginFrame() {
+        if (nrFrames == lowWater.length) {
+            int newLength = 2 * nrFrames;
+            int[] newLowWater = new int[newLength];
+            int[] newSavedSize = new int[newLength];
+            PSObject[][] newSaved = new PSObject[newLength][];
+            System.arraycopy(lowWater, 0, newLowWater, 0, nrFrames);
+            System.arraycopy(savedSize, 0, newSavedSize, 0, nrFrames);
+            System.arraycopy(saved, 0, newSaved, 0, nrFrames);
+            lowWater = newLowWater;
+            savedSize = newSavedSize;
+            saved = newSaved;
+        }
+        nrFrames++;
+        checkpoint();
+    }
+
+    /**
+     * Ends the innermost checkpoint frame.
+     */
+    public void endFrame() {
+        if (nrFrames > 0) {
+            nrFrames--;
+        }
+    }
+
+    /**
+     * Sets the checkpoint of the innermost frame to the current state of the
+     * stack.
+     */
+    public void checkpoint() {
+        if (nrFrames > 0) {
+            int f = nrFrames - 1;
+            int sz = size();
+            lowWater[f] = sz;
+            savedSize[f] = sz;
+        }
+    }
+
+    /**
+     * Restores the stack to the state it had at the checkpoint of the
+     * innermost frame.
+     */
+    public void rollback() {
+        if (nrFrames == 0) {
+            return;
+        }
+        int f = nrFrames - 1;
+        int low = lowWater[f];
+        int high = savedSize[f];
+
+        // Remove everything above the low-water mark directly from the
+        // backing list, bypassing the journal. Outer frames already saved
+        // these positions when they were modified.
+        for (int i = super.size() - 1; i >= low; i--) {
+            super.remove(i);
+        }
+        PSObject[] buf = saved[f];
+        for (int i = low; i < high; i++) {
+            super.add(buf[i]);
+        }
+        lowWater[f] = high;
+    }
+
+    /**
+     * Records that the objects at index <code>index</code> and above are
+     * about to be modified, saving the original objects where needed.
+     *
+     * @param index Lowest index that will be modified.
+     */
+    private void touch(final int index) {
+        for (int f = nrFrames - 1; f >= 0; f--) {
+            int low = lowWater[f];
+            if (index >= low) {
+                // Outer frames have a lower or equal low-water mark
+                break;
+            }
+            int high = savedSize[f];
+            PSObject[] buf = saved[f];
+            if ((buf == null) || (buf.length < high)) {
+                PSObject[] newBuf = new PSObject[Math.max(high, 16) * 2];
+                if (low < high) {
+                    System.arraycopy(buf, low, newBuf, low, high - low);
+                }
+                buf = newBuf;
+                saved[f] = buf;
+            }
+            for (int i = index; i < low; i++) {
+                buf[i] = get(i);
+            }
+            lowWater[f] = index;
+        }
+    }
+
+    /**
+     * Adds an object at the specified position.
+     *
+     * @param index The position.
+     * @param element The object to add.
+     */
+    @Override
+    public void add(final int index, final PSObject element) {
+        touch(index);
+        super.add(index, element);
+    }
+
+    /**
+     * Adds objects at the specified position.
+     *
+     * @param index The position.
+     * @param c The objects to add.
+     *
+     * @return True if the stack changed.
+     */
+    @Override
+    public boolean addAll(final int index,
+            final Collection< ? extends PSObject> c) {
+        touch(index);
+        return super.addAll(index, c);
+    }
+
+    /**
+     * Removes all objects from this stack.
+     */
+    @Override
+    public void clear() {
+        touch(0);
+        super.clear();
+    }
+
+    /**
+     * Removes the object at the specified position.
+     *
+     * @param index The position.
+     *
+     * @return The removed object.
+     */
+    @Override
+    public PSObject remove(final int index) {
+        touch(index);
+        return super.remove(index);
+    }
+
+    /**
+     * Removes the first occurrence of an object.
+     *
+     * @param o The object to remove.
+     *
+     * @return True if the object was found.
+     */
+    @Override
+    public boolean remove(final Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Removes all objects that are contained in a collection.
+     *
+     * @param c The collection.
+     *
+     * @return True if the stack changed.
+     */
+    @Override
+    public boolean removeAll(final Collection< ? > c) {
+        touch(0);
+        return super.removeAll(c);
+    }
+
+    /**
+     * Removes a range of objects.
+     *
+     * @param fromIndex First index to remove.
+     * @param toIndex Index after the last index to remove.
+     */
+    @Override
+    protected void removeRange(final int fromIndex, final int toIndex) {
+        touch(fromIndex);
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    /**
+     * Retains only the objects that are contained in a collection.
+     *
+     * @param c The collection.
+     *
+     * @return True if the stack changed.
+     */
+    @Override
+    public boolean retainAll(final Collection< ? > c) {
+        touch(0);
+        return super.retainAll(c);
+    }
+
+    /**
+     * Replaces the object at the specified position.
+     *
+     * @param index The position.
+     * @param element The new object.
+     *
+     * @return The replaced object.
+     */
+    @Override
+    public PSObject set(final int index, final PSObject element) {
+        touch(index);
+        return super.set(index, element);
+    }
+
+}
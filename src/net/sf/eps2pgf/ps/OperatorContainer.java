@@ -18,9 +18,6 @@
 
 package net.sf.eps2pgf.ps;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-
 import net.sf.eps2pgf.ProgramError;
 import net.sf.eps2pgf.io.TextHandler;
 import net.sf.eps2pgf.ps.errors.PSError;
@@ -40,8 +37,13 @@ public class OperatorContainer {
     /** The interpreter. */
     private Interpreter interp;
     
+    /** The system dictionary, to which the operators are added. */
+    private PSObjectDict systemdict;
+    
     /**
-     * Instantiates a new OperatorsAtoC.
+     * Instantiates a new operator container. The operators are added to the
+     * system dictionary by the constructor of the subclass, see
+     * {@link #register(PSObjectOperator...)}.
      * 
      * @param interpreter The interpreter.
      * 
@@ -52,51 +54,34 @@ public class OperatorContainer {
         
         interp = interpreter;
         
-        PSObjectDict systemdict;
         try {
             systemdict = getDictStack().lookup("systemdict").toDict();
         } catch (PSError e) {
             throw new ProgramError("Unable to find the system dictionary.");
         }
+    }
+    
+    /**
+     * Adds operators to the system dictionary. Each container lists all its
+     * operators in a single call from its constructor, so that no reflection
+     * is needed to find and instantiate them when an interpreter is created.
+     * 
+     * @param ops The operators.
+     * 
+     * @throws ProgramError An operator is already defined in the system
+     * dictionary.
+     */
+    protected final void register(final PSObjectOperator... ops)
+            throws ProgramError {
         
-        @SuppressWarnings("unchecked")
-        Class<PSObjectOperator>[] cls =
-            (Class<PSObjectOperator>[]) getClass().getClasses();
-        for (int i = 0; i < cls.length; i++) {
-            try {
-                // Create a new instance of the PostScript operator object.
-                Constructor<PSObjectOperator> cons =
-                    cls[i].getConstructor(getClass());
-                PSObjectOperator op = cons.newInstance(this);
-                String name = op.getName();
-                
-                if (systemdict.known(name)) {
-                    throw new ProgramError("Trying to add " + name
-                            + " to systemdict, but it is already defined in"
-                            + " systemdict.");
-                }
-                systemdict.setKey(name, op);
-                
-            } catch (InstantiationException e) {
-                throw new ProgramError("Error initiating/registering operator"
-                        + " instance: " + e.getMessage());
-            } catch (IllegalAccessException e) {
-                throw new ProgramError("Error initiating/registering operator"
-                        + " instance: " + e.getMessage());
-            } catch (NoSuchMethodException e) {
-                throw new ProgramError("Error initiating/registering operator"
-                        + " instance: " + e.getMessage());
-            } catch (InvocationTargetException e) {
-                throw new ProgramError("Error initiating/registering operator"
-                        + " instance: " + e.getMessage());
-            } catch (ClassCastException e) {
-                throw new ProgramError("Operator container class ("
-                        + getClass().getSimpleName()
-                        + ") contains inner class ("
-                        + cls[i].getSimpleName()
-                        + ") that is not a PSObjectOperator.");
+        for (PSObjectOperator op : ops) {
+            String name = op.getName();
+            if (systemdict.known(name)) {
+                throw new ProgramError("Trying to add " + name
+                        + " to systemdict, but it is already defined in"
+                        + " systemdict.");
             }
-            
+            systemdict.setKey(name, op);
         }
     }
     
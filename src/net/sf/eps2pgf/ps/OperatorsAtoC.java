@@ -58,6 +58,32 @@ public final class OperatorsAtoC extends OperatorContainer {
      */
     public OperatorsAtoC(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Oabs(), new Oadd(), new Oaload(), new Oanchorsearch(),
+            new Oand(), new Oarc(), new Oarcn(), new Oarct(), new Oarcto(),
+            new Oarray(), new Oashow(), new Oastore(), new Oatan(),
+            new Oawidthshow(), new Obegin(), new Obind(), new Obitshift(),
+            new Oceiling(), new Ocharpath(), new Oclear(),
+            new Ocleardictstack(), new Ocleartomark(), new Oclip(),
+            new Oclippath(), new Ocliprestore(), new Oclipsave(),
+            new Oclosefile(), new Oclosepath(), new Ocolorimage(),
+            new Oconcat(), new Oconcatmatrix(), new Ocopy(), new Ocos(),
+            new Ocount(), new Ocountdictstack(), new Ocountexecstack(),
+            new Ocounttomark(), new Ocurrentblackgeneration(),
+            new Ocurrentcmykcolor(), new Ocurrentcolor(),
+            new Ocurrentcolorrendering(), new Ocurrentcolorspace(),
+            new Ocurrentcolortransfer(), new Ocurrendevparams(),
+            new Ocurrentdict(), new Ocurrentdash(), new Ocurrentfile(),
+            new Ocurrentflat(), new Ocurrentglobal(), new Ocurrentgray(),
+            new Ocurrenthalftone(), new Ocurrenthsbcolor(),
+            new Ocurrentlinewidth(), new Ocurrentmatrix(),
+            new Ocurrentoverprint(), new Ocurrentpagedevice(),
+            new Ocurrentpoint(), new Ocurrentrgbcolor(), new Ocurrentscreen(),
+            new Ocurrentsmoothness(), new Ocurrentstrokeadjust(),
+            new Ocurrentsystemparams(), new Ocurrenttransfer(),
+            new Ocurrentundercolorremoval(), new Ocurrentuserparams(),
+            new Ocurveto(), new Ocvi(), new Ocvlit(), new Ocvn(), new Ocvr(),
+            new Ocvrs(), new Ocvs(), new Ocvx(), new Ocshow());
     }
     
     /**
@@ -133,8 +159,7 @@ public final class OperatorsAtoC extends OperatorContainer {
             PSObjectString string = osPop().toPSString();
             seekObj.checkAccess(false, true, false);
             
-            String seek = seekObj.toString();
-            List<PSObject> result = string.anchorsearch(seek);
+            List<PSObject> result = string.anchorsearch(seekObj);
             while (!result.isEmpty()) {
                 osPush(result.remove(0));
             }
@@ -241,7 +266,7 @@ public final class OperatorsAtoC extends OperatorContainer {
             double x1 = osPop().toReal();
             double[] t1t2 = gsCurrent().arcto(x1, y1, x2, y2, r);
             for (int i = 0; i < t1t2.length; i++) {
-                osPush(new PSObjectReal(t1t2[i]));
+                osPush(PSObjectReal.valueOf(t1t2[i]));
             }
         }
     }
@@ -333,7 +358,7 @@ public final class OperatorsAtoC extends OperatorContainer {
             // Java atan method returns in range -180 to 180, while the
             // PostScript function should return in range 0-360
             result = (result + 360.0) % 360.0;
-            osPush(new PSObjectReal(result));
+            osPush(PSObjectReal.valueOf(result));
         }
     }
 
@@ -406,7 +431,7 @@ public final class OperatorsAtoC extends OperatorContainer {
             } else {
                 int1 >>>= -shift;
             }
-            osPush(new PSObjectInt(int1));
+            osPush(PSObjectInt.valueOf(int1));
         }
     }
 
@@ -653,13 +678,13 @@ public final class OperatorsAtoC extends OperatorContainer {
             
             // Construct an image dictionary
             PSObjectDict dict = new PSObjectDict(getInterp());
-            dict.setKey(Image.IMAGE_TYPE, new PSObjectInt(1));
-            dict.setKey(Image.WIDTH, new PSObjectInt(width));
-            dict.setKey(Image.HEIGHT, new PSObjectInt(height));
+            dict.setKey(Image.IMAGE_TYPE, PSObjectInt.valueOf(1));
+            dict.setKey(Image.WIDTH, PSObjectInt.valueOf(width));
+            dict.setKey(Image.HEIGHT, PSObjectInt.valueOf(height));
             dict.setKey(Image.IMAGE_MATRIX, matrix);
             dict.setKey(Image.DATA_SOURCE, dataSource);
             dict.setKey(Image.BITS_PER_COMPONENT,
-                    new PSObjectInt(bitsPerComponent));        
+                    PSObjectInt.valueOf(bitsPerComponent));        
             double[] decode = new double[2 * ncomp];
             for (int i = 0; i < ncomp; i++) {
                 decode[2 * i] = 0.0;
@@ -755,7 +780,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             double angle = osPop().toReal();
-            osPush(new PSObjectReal(Math.cos(angle * Math.PI / 180.0)));
+            osPush(PSObjectReal.valueOf(Math.cos(angle * Math.PI / 180.0)));
         }
     }
 
@@ -772,7 +797,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             int count = getOpStack().size();
-            PSObjectInt n = new PSObjectInt(count);
+            PSObjectInt n = PSObjectInt.valueOf(count);
             osPush(n);
         }
     }
@@ -789,7 +814,7 @@ public final class OperatorsAtoC extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            osPush(new PSObjectInt(getDictStack().countdictstack()));
+            osPush(PSObjectInt.valueOf(getDictStack().countdictstack()));
         }
     }
 
@@ -805,7 +830,7 @@ public final class OperatorsAtoC extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            osPush(new PSObjectInt(getExecStack().size()));
+            osPush(PSObjectInt.valueOf(getExecStack().size()));
         }
     }
 
@@ -824,7 +849,7 @@ public final class OperatorsAtoC extends OperatorContainer {
             int n = getOpStack().size();
             for (int i = n - 1; i >= 0; i--) {
                 if (getOpStack().get(i) instanceof PSObjectMark) {
-                    osPush(new PSObjectInt(n - 1 - i));
+                    osPush(PSObjectInt.valueOf(n - 1 - i));
                     return;
                 }
             }
@@ -862,7 +887,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double[] cmyk = gsCurrent().currentcmykcolor();
             for (int i = 0; i < cmyk.length; i++) {
-                osPush(new PSObjectReal(cmyk[i]));
+                osPush(PSObjectReal.valueOf(cmyk[i]));
             }
         }
     }
@@ -881,7 +906,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSColor color = gsCurrent().getColor();
             for (int i = 0; i < color.getNrComponents(); i++) {
-                osPush(new PSObjectReal(color.getLevel(i)));
+                osPush(PSObjectReal.valueOf(color.getLevel(i)));
             }
         }
     }
@@ -989,10 +1014,10 @@ public final class OperatorsAtoC extends OperatorContainer {
             List<Double> pattern = gsCurrent().getDashPattern();
             PSObjectArray arr = new PSObjectArray(pattern.size(), getInterp());
             for (int i = 0; i < pattern.size(); i++) {
-                arr.put(i, new PSObjectReal(pattern.get(i)));
+                arr.put(i, PSObjectReal.valueOf(pattern.get(i)));
             }
             osPush(arr);
-            osPush(new PSObjectReal(gsCurrent().getDashOffset()));
+            osPush(PSObjectReal.valueOf(gsCurrent().getDashOffset()));
         }
     }
 
@@ -1032,7 +1057,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             double flat = gsCurrent().currentFlatness();
-            osPush(new PSObjectReal(flat));
+            osPush(PSObjectReal.valueOf(flat));
         }
     }
 
@@ -1048,7 +1073,7 @@ public final class OperatorsAtoC extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            PSObjectBool bool = new PSObjectBool(getVm().currentGlobal());
+            PSObjectBool bool = PSObjectBool.valueOf(getVm().currentGlobal());
             osPush(bool);
         }
     }
@@ -1066,7 +1091,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             double gray = gsCurrent().currentgray();
-            osPush(new PSObjectReal(gray));
+            osPush(PSObjectReal.valueOf(gray));
         }
     }
 
@@ -1100,7 +1125,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double[] hsb = gsCurrent().currenthsbcolor();
             for (int i = 0; i < hsb.length; i++) {
-                osPush(new PSObjectReal(hsb[i]));
+                osPush(PSObjectReal.valueOf(hsb[i]));
             }
         }
     }
@@ -1117,7 +1142,7 @@ public final class OperatorsAtoC extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            osPush(new PSObjectReal(gsCurrent().getLineWidth()));
+            osPush(PSObjectReal.valueOf(gsCurrent().getLineWidth()));
         }
     }
 
@@ -1152,7 +1177,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             boolean overprint = gsCurrent().currentOverprint();
-            osPush(new PSObjectBool(overprint));
+            osPush(PSObjectBool.valueOf(overprint));
         }
     }
 
@@ -1189,8 +1214,8 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double[] curDevice = gsCurrent().getCurrentPosInDeviceSpace();
             double[] curUser = gsCurrent().getCtm().itransform(curDevice);
-            osPush(new PSObjectReal(curUser[0]));
-            osPush(new PSObjectReal(curUser[1]));
+            osPush(PSObjectReal.valueOf(curUser[0]));
+            osPush(PSObjectReal.valueOf(curUser[1]));
         }
     }
 
@@ -1208,7 +1233,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double[] rgb = gsCurrent().currentrgbcolor();
             for (int i = 0; i < rgb.length; i++) {
-                osPush(new PSObjectReal(rgb[i]));
+                osPush(PSObjectReal.valueOf(rgb[i]));
             }
         }
     }
@@ -1227,8 +1252,8 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             // This is not really meaningfull for Eps2pgf. Therefore it
             // just returns some values.
-            osPush(new PSObjectReal(150.0));
-            osPush(new PSObjectReal(45.0));
+            osPush(PSObjectReal.valueOf(150.0));
+            osPush(PSObjectReal.valueOf(45.0));
             try {
                 // Spot function from PostScript Reference Manual p.486 
                 // { 180 mul cos
@@ -1257,7 +1282,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             double smoothness = gsCurrent().currentSmoothness();
-            osPush(new PSObjectReal(smoothness));
+            osPush(PSObjectReal.valueOf(smoothness));
         }
     }
 
@@ -1273,7 +1298,7 @@ public final class OperatorsAtoC extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            osPush(new PSObjectBool(gsCurrent().getStrokeAdjust()));
+            osPush(PSObjectBool.valueOf(gsCurrent().getStrokeAdjust()));
         }
     }
 
@@ -1377,7 +1402,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSObject obj = osPop();
             obj.checkAccess(false, true, false);
-            osPush(new PSObjectInt(obj.cvi()));
+            osPush(PSObjectInt.valueOf(obj.cvi()));
         }
     }
 
@@ -1430,7 +1455,7 @@ public final class OperatorsAtoC extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSObject any = osPop();
             any.checkAccess(false, true, false);
-            osPush(new PSObjectReal(any.cvr()));
+            osPush(PSObjectReal.valueOf(any.cvr()));
         }
     }
 
@@ -1470,8 +1495,7 @@ public final class OperatorsAtoC extends OperatorContainer {
             PSObject any = osPop();
             string.checkAccess(false, false, true);
             any.checkAccess(false, true, false);
-            string.overwrite(any.cvs());
-            osPush(string);
+            osPush(string.overwrite(any.cvs()));
         }
     }
 
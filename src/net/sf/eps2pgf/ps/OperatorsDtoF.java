@@ -23,6 +23,7 @@ import java.util.List;
 
 import net.sf.eps2pgf.ProgramError;
 import net.sf.eps2pgf.io.PSStringInputStream;
+import net.sf.eps2pgf.io.ScannableInputStream;
 import net.sf.eps2pgf.ps.errors.PSError;
 import net.sf.eps2pgf.ps.errors.PSErrorInvalidExit;
 import net.sf.eps2pgf.ps.errors.PSErrorStackUnderflow;
@@ -62,6 +63,16 @@ public final class OperatorsDtoF extends OperatorContainer {
      */
     public OperatorsDtoF(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Odef(), new Odefaultmatrix(), new Odefinefont(),
+            new Odefineresource(), new Odict(), new Odictstack(), new Odiv(),
+            new Odtransform(), new Odup(), new Oeexec(), new Oend(),
+            new Oeoclip(), new Oeofill(), new Oeq(), new Oexch(), new Oexec(),
+            new Oexecstack(), new Oexecuteonly(), new Oexit(), new Oexp(),
+            new Ofalse(), new Ofilenameforall(), new Ofill(), new Ofilter(),
+            new Ofindencoding(), new Ofindfont(), new Ofindresource(),
+            new Oflattenpath(), new Ofloor(), new Oflushfile(), new Ofor(),
+            new Oforall());
     }
     
     /**
@@ -211,7 +222,7 @@ public final class OperatorsDtoF extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double num2 = getOpStack().pop().toReal();
             double num1 = getOpStack().pop().toReal();
-            getOpStack().push(new PSObjectReal(num1 / num2));
+            getOpStack().push(PSObjectReal.valueOf(num1 / num2));
         }
     }
     
@@ -245,8 +256,8 @@ public final class OperatorsDtoF extends OperatorContainer {
             }
             double dx = getOpStack().pop().toReal();
             double[] transformed = matrix.dtransform(dx, dy);
-            getOpStack().push(new PSObjectReal(transformed[0]));
-            getOpStack().push(new PSObjectReal(transformed[1]));
+            getOpStack().push(PSObjectReal.valueOf(transformed[0]));
+            getOpStack().push(PSObjectReal.valueOf(transformed[1]));
         }
     }
     
@@ -296,8 +307,13 @@ public final class OperatorsDtoF extends OperatorContainer {
             }
             InputStream eexecInStream =
                 new EexecDecode(rawInStream, getInterp());
-            PSObjectFile eexecFile =
-                new PSObjectFile(eexecInStream, getInterp());
+            
+            // The encrypted section has no end-of-data marker, it ends when
+            // the file is closed. Reading ahead would consume data beyond the
+            // encrypted section.
+            PSObjectFile eexecFile = new PSObjectFile(
+                    new ScannableInputStream(eexecInStream, false),
+                    getInterp());
             
             getDictStack().pushDict(
                     getDictStack().lookup("systemdict").toDict());
@@ -387,7 +403,7 @@ public final class OperatorsDtoF extends OperatorContainer {
             any2.checkAccess(false, true, false);
             PSObject any1 = getOpStack().pop();
             any1.checkAccess(false, true, false);
-            getOpStack().push(new PSObjectBool(any1.eq(any2)));
+            getOpStack().push(PSObjectBool.valueOf(any1.eq(any2)));
         }
     }
     
@@ -469,6 +485,8 @@ public final class OperatorsDtoF extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSObject obj = getOpStack().pop();
             obj.checkAccess(true, false, false);
+            // Change a copy, see 'readonly'
+            obj = obj.dup();
             obj.executeonly();
             getOpStack().push(obj);
         }
@@ -494,16 +512,19 @@ public final class OperatorsDtoF extends OperatorContainer {
             OperatorsEps2pgf opse = getOpsEps2pgf();
             while ((obj = es.pop()) != null) {
                 if (opse.isLoopingContext(obj)) {
-                    // Also pop down the continuation stack
-                    try {
-                        ArrayStack<PSObject> cs = getContStack();
-                        while (cs.size() > 0) {
-                            if (cs.pop() instanceof PSObjectNull) {
-                                break;
+                    // Also pop down the continuation stack, loop frames keep
+                    // their arguments in the frame itself.
+                    if (!opse.isLoopFrame(obj)) {
+                        try {
+                            ArrayStack<PSObject> cs = getContStack();
+                            while (cs.size() > 0) {
+                                if (cs.pop() instanceof PSObjectNull) {
+                                    break;
+                                }
                             }
+                        } catch (PSErrorStackUnderflow e) {
+                            /* empty block */
                         }
-                    } catch (PSErrorStackUnderflow e) {
-                        /* empty block */
                     }
                     
                     return;
@@ -538,7 +559,7 @@ public final class OperatorsDtoF extends OperatorContainer {
             double exponent = getOpStack().pop().toReal();
             double base = getOpStack().pop().toReal();
             double result = Math.pow(base, exponent);
-            getOpStack().push(new PSObjectReal(result));
+            getOpStack().push(PSObjectReal.valueOf(result));
         }
     }
     
@@ -554,7 +575,7 @@ public final class OperatorsDtoF extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            getOpStack().push(new PSObjectBool(false));
+            getOpStack().push(PSObjectBool.valueOf(false));
         }
     }
     
@@ -778,16 +799,9 @@ public final class OperatorsDtoF extends OperatorContainer {
                 return;
             }
             
-            // Push continuation function to execution stack
-            getExecStack().push(getOpsEps2pgf().eps2pgfFor);
-            
-            // Push arguments to continuation stack
-            ArrayStack<PSObject> cs = getContStack();
-            cs.push(new PSObjectNull());
-            cs.push(objInitial);
-            cs.push(objInc);
-            cs.push(objLimit);
-            cs.push(proc);
+            // Push loop frame to execution stack
+            getExecStack().push(getOpsEps2pgf().newForFrame(initial, inc,
+                    limit, proc));
         }
     }
     
@@ -815,13 +829,25 @@ public final class OperatorsDtoF extends OperatorContainer {
             PSObject obj = os.pop();
             obj.checkAccess(false, true, false);
             
-            List<PSObject> items = obj.getItemList();
-            int nr = items.remove(0).toNonNegInt();
-            PSObjectArray itemListArray = new PSObjectArray(items, getInterp());
+            // Arrays and strings are walked by index. Dictionaries are
+            // walked over a snapshot of their key-value pairs, because the
+            // procedure may modify the dictionary.
+            PSObject source;
+            int nr;
+            if ((obj instanceof PSObjectArray)
+                    || (obj instanceof PSObjectString)) {
+                source = obj;
+                nr = 1;
+            } else {
+                List<PSObject> items = obj.getItemList();
+                nr = items.remove(0).toNonNegInt();
+                source = new PSObjectArray(items, getInterp());
+            }
             
             cs.push(new PSObjectNull());
-            cs.push(new PSObjectInt(nr));
-            cs.push(itemListArray);
+            cs.push(PSObjectInt.valueOf(nr));
+            cs.push(source);
+            cs.push(PSObjectInt.valueOf(0));
             cs.push(proc);
     
             es.push(getOpsEps2pgf().eps2pgfForall);
@@ -32,6 +32,7 @@ import net.sf.eps2pgf.ps.objects.PSObjectName;
 import net.sf.eps2pgf.ps.objects.PSObjectNull;
 import net.sf.eps2pgf.ps.objects.PSObjectOperator;
 import net.sf.eps2pgf.ps.objects.PSObjectReal;
+import net.sf.eps2pgf.ps.objects.PSObjectString;
 import net.sf.eps2pgf.util.ArrayStack;
 
 /**
@@ -45,12 +46,9 @@ public final class OperatorsEps2pgf extends OperatorContainer {
     // CHECKSTYLE:OFF
     public PSObjectOperator eps2pgfCshow;
     public PSObjectOperator eps2pgfFilenameforall;
-    public PSObjectOperator eps2pgfFor;
     public PSObjectOperator eps2pgfForall;
     public PSObjectOperator eps2pgfKshow;
-    public PSObjectOperator eps2pgfLoop;
     public PSObjectOperator eps2pgfPathforall;
-    public PSObjectOperator eps2pgfRepeat;
     public PSObjectOperator eps2pgfResourceforall;
     public PSObjectOperator eps2pgfStopped;
     public PSObjectOperator eps2pgfEexec;
@@ -72,6 +70,12 @@ public final class OperatorsEps2pgf extends OperatorContainer {
             throws ProgramError {
         
         super(interpreter);
+        register(
+            new Oeps2pgfforall(), new Oeps2pgfstopped(),
+            new Oeps2pgfgetmetrics(), new Oeps2pgfcshow(), new Oeps2pgfeexec(),
+            new Oeps2pgferrorproc(), new Oeps2pgffilenameforall(),
+            new Oeps2pgfhandleerror(), new Oeps2pgfkshow(),
+            new Oeps2pgfpathforall(), new Oeps2pgfresourceforall());
         
         try {
             DictStack dictStack = getDictStack();
@@ -79,13 +83,10 @@ public final class OperatorsEps2pgf extends OperatorContainer {
             eps2pgfCshow = dictStack.lookup("eps2pgfcshow").toOperator();
             eps2pgfFilenameforall =
                 dictStack.lookup("eps2pgffilenameforall").toOperator();
-            eps2pgfFor = dictStack.lookup("eps2pgffor").toOperator();
             eps2pgfForall = dictStack.lookup("eps2pgfforall").toOperator();
             eps2pgfKshow = dictStack.lookup("eps2pgfkshow").toOperator();
-            eps2pgfLoop = dictStack.lookup("eps2pgfloop").toOperator();
             eps2pgfPathforall =
                 dictStack.lookup("eps2pgfpathforall").toOperator();
-            eps2pgfRepeat = dictStack.lookup("eps2pgfrepeat").toOperator();
             eps2pgfResourceforall =
                 dictStack.lookup("eps2pgfresourceforall").toOperator();
             
@@ -113,11 +114,10 @@ public final class OperatorsEps2pgf extends OperatorContainer {
      * @return True when object defines looping context, false otherwise.
      */
     public boolean isLoopingContext(final PSObject obj) {
-        if (obj instanceof PSObjectOperator) {
-            if ((obj == eps2pgfFor)
-                    || (obj == eps2pgfForall)
-                    || (obj == eps2pgfLoop)
-                    || (obj == eps2pgfRepeat)
+        if (obj instanceof LoopFrame) {
+            return true;
+        } else if (obj instanceof PSObjectOperator) {
+            if ((obj == eps2pgfForall)
                     || (obj == eps2pgfCshow)
                     || (obj == eps2pgfFilenameforall)
                     || (obj == eps2pgfKshow)
@@ -130,7 +130,21 @@ public final class OperatorsEps2pgf extends OperatorContainer {
     }
     
     /**
-     * Checks whether an object is an continuation function.
+     * Checks whether an object is a loop frame. A loop frame keeps its state
+     * in the object itself instead of on the continuation stack.
+     * 
+     * @param obj The object to check.
+     * 
+     * @return True when object is a loop frame, false otherwise.
+     */
+    public boolean isLoopFrame(final PSObject obj) {
+        return (obj instanceof LoopFrame);
+    }
+    
+    /**
+     * Checks whether an object is an continuation function. The arguments of
+     * a continuation function are on the continuation stack, on top of a
+     * null object.
      * 
      * @param obj The object to check.
      * 
@@ -138,10 +152,7 @@ public final class OperatorsEps2pgf extends OperatorContainer {
      */
     public boolean isContinuationFunction(final PSObject obj) {
         if (obj instanceof PSObjectOperator) {
-            if ((obj == eps2pgfFor)
-                    || (obj == eps2pgfForall)
-                    || (obj == eps2pgfLoop)
-                    || (obj == eps2pgfRepeat)
+            if ((obj == eps2pgfForall)
                     || (obj == eps2pgfCshow)
                     || (obj == eps2pgfFilenameforall)
                     || (obj == eps2pgfKshow)
@@ -154,77 +165,71 @@ public final class OperatorsEps2pgf extends OperatorContainer {
         }
         return false;
     }
-
     
     /**
-     * Internal Eps2pgf operator. Continuation function for 'for' operator.
-     * Input arguments: null current increment limit proc
-     * Note: right is top of stack
+     * Creates the loop frame for the 'for' operator. When the initial value,
+     * the increment and the limit are all three integers the control variable
+     * is an integer, otherwise it is a real.
      * 
-     * @throws ProgramError This shouldn't happen, it indicates a bug.
+     * @param initial The initial value of the control variable.
+     * @param inc The increment.
+     * @param limit The limit.
+     * @param proc The procedure that is executed in each iteration.
+     * 
+     * @return The loop frame, which must be pushed on the execution stack.
      */
-    public class Oeps2pgffor extends PSObjectOperator {
-        /**
-         * Invokes this operator.
-         *
-         * @throws PSError A PostScript error occurred.
-         * @throws ProgramError This shouldn't happen, it indicates a bug.
-         */
-        @Override
-        public void invoke() throws PSError, ProgramError {
-            ArrayStack<PSObject> cs = getContStack();
-            ArrayStack<PSObject> os = getOpStack();
-            ExecStack es = getExecStack();
-            try {
-                // Pop input arguments from continuation stack
-                PSObject proc = cs.pop();
-                PSObject objLimit = cs.pop();
-                double limit = objLimit.toReal();
-                PSObject objIncr = cs.pop();
-                double incr = objIncr.toReal();
-                double current = cs.pop().toReal();
-                cs.pop().toNull();
-                
-                // Check whether limit, incr and current are all three integers
-                boolean allIntegers = false;
-                if ((limit == Math.round(limit)) && (incr == Math.round(incr))
-                        && (current == Math.round(current))) {
-                    allIntegers = true;
-                }
-    
-                // Execute one iteration of the loop, and prepare next
-                if (((incr > 0) && (current <= limit))
-                    || ((incr < 0) && (current >= limit))) {
-                    
-                    // Push value to op stack
-                    if (allIntegers) {
-                        os.push(new PSObjectInt(current));
-                    } else {
-                        os.push(new PSObjectReal(current));
-                    }
-                    
-                    // Push objects to execution stack
-                    es.push(eps2pgfFor);
-                    es.push(proc);
-                    
-                    // Push arguments to continuation stack
-                    cs.push(new PSObjectNull());
-                    cs.push(new PSObjectReal(current + incr));
-                    cs.push(objIncr);
-                    cs.push(objLimit);
-                    cs.push(proc);
-                }
-            } catch (PSError e) {
-                throw new ProgramError(e.getErrorName().isis()
-                        + " in continuation function");
-            }
+    public PSObjectOperator newForFrame(final double initial, final double inc,
+            final double limit, final PSObject proc) {
+        if (isInt(initial) && isInt(inc) && isInt(limit)) {
+            return new IntegerForFrame((int) initial, (int) inc, (int) limit,
+                    proc);
+        } else {
+            return new RealForFrame(initial, inc, limit, proc);
         }
     }
     
+    /**
+     * Creates the loop frame for the 'repeat' operator.
+     * 
+     * @param count The number of times the procedure is executed.
+     * @param proc The procedure.
+     * 
+     * @return The loop frame, which must be pushed on the execution stack.
+     */
+    public PSObjectOperator newRepeatFrame(final int count,
+            final PSObject proc) {
+        return new RepeatFrame(count, proc);
+    }
+    
+    /**
+     * Creates the loop frame for the 'loop' operator.
+     * 
+     * @param proc The procedure that is executed until 'exit' is called.
+     * 
+     * @return The loop frame, which must be pushed on the execution stack.
+     */
+    public PSObjectOperator newLoopFrame(final PSObject proc) {
+        return new InfiniteLoopFrame(proc);
+    }
+    
+    /**
+     * Checks whether a value is an integer that fits in an int.
+     * 
+     * @param value The value to check.
+     * 
+     * @return True if the value is an integer, false otherwise.
+     */
+    private static boolean isInt(final double value) {
+        return (value == Math.rint(value)) && (value >= Integer.MIN_VALUE)
+            && (value <= Integer.MAX_VALUE);
+    }
+
+    
     /**
      * Internal Eps2pgf operator. Continuation function for 'forall' operator.
-     * Input arguments: null nrItemsPerLoop itemList proc
-     * Note: right is top of stack
+     * Input arguments: null nrItemsPerLoop source index proc
+     * Note: right is top of stack. The source is an array or a string, the
+     * index is the index in the source of the next item.
      * 
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
@@ -241,28 +246,44 @@ public final class OperatorsEps2pgf extends OperatorContainer {
             ArrayStack<PSObject> os = getOpStack();
             ExecStack es = getExecStack();
             try {
-                // Get arguments from continuation stack.
+                // Get arguments from continuation stack. The other arguments
+                // stay on the stack while the loop continues.
                 PSObject proc = cs.pop();
-                PSObjectArray itemList = cs.pop().toArray();
-                PSObject objNrItemsPerLoop = cs.pop();
-                int nrItemsPerLoop = objNrItemsPerLoop.toInt();
-                cs.pop().toNull();
+                int index = cs.pop().toInt();
+                PSObject source = cs.peek();
+                int nrItemsPerLoop = cs.peek(1).toInt();
                 
-                if (itemList.size() > 0) {
-                    // Push object on operand stack
-                    for (int i = 0; i < nrItemsPerLoop; i++) {
-                        os.push(itemList.remove(0));
+                if (source instanceof PSObjectString) {
+                    PSObjectString string = (PSObjectString) source;
+                    if (index < string.length()) {
+                        os.push(PSObjectInt.valueOf(string.get(index)));
+                        index++;
+                    } else {
+                        index = -1;
                     }
-                    
+                } else {
+                    PSObjectArray array = (PSObjectArray) source;
+                    if (index < array.size()) {
+                        for (int i = 0; i < nrItemsPerLoop; i++) {
+                            os.push(array.get(index++));
+                        }
+                    } else {
+                        index = -1;
+                    }
+                }
+                
+                if (index >= 0) {
                     // Push objects on execution stack
                     es.push(eps2pgfForall);
                     es.push(proc);
                     
                     // Push arguments on continuation stack
-                    cs.push(new PSObjectNull());
-                    cs.push(objNrItemsPerLoop);
-                    cs.push(itemList);
+                    cs.push(PSObjectInt.valueOf(index));
                     cs.push(proc);
+                } else {
+                    cs.pop();
+                    cs.pop();
+                    cs.pop().toNull();
                 }
             } catch (PSError e) {
                 throw new ProgramError(e.getErrorName().isis()
@@ -296,7 +317,7 @@ public final class OperatorsEps2pgf extends OperatorContainer {
                 dollarError.setKey("newerror", false);
                 
                 // Push results on operand stack
-                getOpStack().push(new PSObjectBool(newError));
+                getOpStack().push(PSObjectBool.valueOf(newError));
             } catch (PSError e) {
                 throw new ProgramError("An PS error: " + e.getMessage());
             }
@@ -485,41 +506,6 @@ public final class OperatorsEps2pgf extends OperatorContainer {
         }
     }
     
-    /**
-     * Internal Eps2pgf operator. Continuation function for 'loop' operator.
-     * Input arguments: null proc
-     * Note: right is top of stack
-     * 
-     * @throws ProgramError This shouldn't happen, it indicates a bug.
-     */
-    public class Oeps2pgfloop extends PSObjectOperator {
-        /**
-         * Invokes this operator.
-         *
-         * @throws PSError A PostScript error occurred.
-         * @throws ProgramError This shouldn't happen, it indicates a bug.
-         */
-        @Override
-        public void invoke() throws PSError, ProgramError {
-            ArrayStack<PSObject> cs = getContStack();
-            ExecStack es = getExecStack();
-            try {
-                // Get arguments from continuation stack.
-                PSObject proc = cs.pop();
-                cs.pop().toNull();
-                
-                es.push(eps2pgfLoop);
-                es.push(proc);
-                
-                cs.push(new PSObjectNull());
-                cs.push(proc);
-            } catch (PSError e) {
-                throw new ProgramError(e.getErrorName().isis()
-                        + " in continuation function");
-            }
-        }
-    }
-    
     /**
      * Internal Eps2pgf operator: continuation function for looping context
      * operator.
@@ -571,8 +557,8 @@ public final class OperatorsEps2pgf extends OperatorContainer {
                         double x = section.getParam(2 * j);
                         double y = section.getParam(2 * j + 1);
                         double[] coor = ctm.itransform(x, y);
-                        os.push(new PSObjectReal(coor[0]));
-                        os.push(new PSObjectReal(coor[1]));
+                        os.push(PSObjectReal.valueOf(coor[0]));
+                        os.push(PSObjectReal.valueOf(coor[1]));
                     }
                     
                     // Push objects on execution stack
@@ -596,13 +582,12 @@ public final class OperatorsEps2pgf extends OperatorContainer {
     }
     
     /**
-     * Internal Eps2pgf operator. Continuation function for 'repeat' operator.
-     * Input arguments: null repeatcount proc
-     * Note: right is top of stack
+     * Internal Eps2pgf operator: continuation function for looping context
+     * operator.
      * 
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
-    public class Oeps2pgfrepeat extends PSObjectOperator {
+    public class Oeps2pgfresourceforall extends PSObjectOperator {
         /**
          * Invokes this operator.
          *
@@ -611,47 +596,205 @@ public final class OperatorsEps2pgf extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            ArrayStack<PSObject> cs = getContStack();
-            ExecStack es = getExecStack();
-            try {
-                // Get arguments from continuation stack.
-                PSObject proc = cs.pop();
-                int repeatCount = cs.pop().toNonNegInt();
-                cs.pop().toNull();
-                
-                if (repeatCount > 0) {
-                    // Push objects on execution stack
-                    es.push(eps2pgfRepeat);
-                    es.push(proc);
-                
-                    // Push objects on continuation stack
-                    cs.push(new PSObjectNull());
-                    cs.push(new PSObjectInt(repeatCount - 1));
-                    cs.push(proc);
-                }
-            } catch (PSError e) {
-                throw new ProgramError(e.getErrorName().isis()
-                        + " in continuation function");
-            }
+            throw new ProgramError("Continuation function not yet implemented");
         }
     }
     
     /**
-     * Internal Eps2pgf operator: continuation function for looping context
-     * operator.
-     * 
-     * @throws ProgramError This shouldn't happen, it indicates a bug.
+     * Loop frame of the 'for', 'repeat' and 'loop' operators. The frame is
+     * pushed on the execution stack below the procedure of the loop, and it
+     * keeps the state of the loop in its own fields. An iteration only pushes
+     * the control variable (if any), instead of popping and pushing all
+     * arguments of the loop on the continuation stack. Loop frames are not
+     * public, so they are not registered in the system dictionary.
      */
-    public class Oeps2pgfresourceforall extends PSObjectOperator {
+    private abstract class LoopFrame extends PSObjectOperator {
+        /** Procedure that is executed in each iteration. */
+        private final PSObject proc;
+        
+        /**
+         * Creates a new loop frame.
+         * 
+         * @param name Name of the frame, as it shows up on the execution
+         * stack.
+         * @param loopProc The procedure that is executed in each iteration.
+         */
+        LoopFrame(final String name, final PSObject loopProc) {
+            setName(name);
+            proc = loopProc;
+        }
+        
+        /**
+         * Prepares the next iteration of the loop and pushes the control
+         * variable (if any) on the operand stack.
+         * 
+         * @return False when the loop is finished, true otherwise.
+         */
+        abstract boolean next();
+        
         /**
          * Invokes this operator.
          *
-         * @throws PSError A PostScript error occurred.
          * @throws ProgramError This shouldn't happen, it indicates a bug.
          */
         @Override
-        public void invoke() throws PSError, ProgramError {
-            throw new ProgramError("Continuation function not yet implemented");
+        public void invoke() throws ProgramError {
+            if (next()) {
+                ExecStack es = getExecStack();
+                es.push(this);
+                es.push(proc);
+            }
+        }
+    }
+    
+    /**
+     * Loop frame of the 'for' operator with an integer control variable.
+     */
+    private final class IntegerForFrame extends LoopFrame {
+        /** Value of the control variable in the next iteration. */
+        private long current;
+        
+        /** Increment. */
+        private final long inc;
+        
+        /** Limit. */
+        private final long limit;
+        
+        /**
+         * Creates a new loop frame.
+         * 
+         * @param initial The initial value.
+         * @param increment The increment.
+         * @param lim The limit.
+         * @param loopProc The procedure.
+         */
+        IntegerForFrame(final int initial, final int increment,
+                final int lim, final PSObject loopProc) {
+            super("eps2pgffor", loopProc);
+            current = initial;
+            inc = increment;
+            limit = lim;
+        }
+        
+        /**
+         * Prepares the next iteration of the loop and pushes the control
+         * variable on the operand stack.
+         * 
+         * @return False when the loop is finished, true otherwise.
+         */
+        @Override
+        boolean next() {
+            if (((inc > 0) && (current <= limit))
+                    || ((inc < 0) && (current >= limit))) {
+                getOpStack().push(PSObjectInt.valueOf((int) current));
+                current += inc;
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Loop frame of the 'for' operator with a real control variable.
+     */
+    private final class RealForFrame extends LoopFrame {
+        /** Value of the control variable in the next iteration. */
+        private double current;
+        
+        /** Increment. */
+        private final double inc;
+        
+        /** Limit. */
+        private final double limit;
+        
+        /**
+         * Creates a new loop frame.
+         * 
+         * @param initial The initial value.
+         * @param increment The increment.
+         * @param lim The limit.
+         * @param loopProc The procedure.
+         */
+        RealForFrame(final double initial, final double increment,
+                final double lim, final PSObject loopProc) {
+            super("eps2pgffor", loopProc);
+            current = initial;
+            inc = increment;
+            limit = lim;
+        }
+        
+        /**
+         * Prepares the next iteration of the loop and pushes the control
+         * variable on the operand stack.
+         * 
+         * @return False when the loop is finished, true otherwise.
+         */
+        @Override
+        boolean next() {
+            if (((inc > 0) && (current <= limit))
+                    || ((inc < 0) && (current >= limit))) {
+                getOpStack().push(PSObjectReal.valueOf(current));
+                current += inc;
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Loop frame of the 'repeat' operator.
+     */
+    private final class RepeatFrame extends LoopFrame {
+        /** Number of iterations left. */
+        private int count;
+        
+        /**
+         * Creates a new loop frame.
+         * 
+         * @param repeatCount The number of iterations.
+         * @param loopProc The procedure.
+         */
+        RepeatFrame(final int repeatCount, final PSObject loopProc) {
+            super("eps2pgfrepeat", loopProc);
+            count = repeatCount;
+        }
+        
+        /**
+         * Prepares the next iteration of the loop.
+         * 
+         * @return False when the loop is finished, true otherwise.
+         */
+        @Override
+        boolean next() {
+            if (count > 0) {
+                count--;
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Loop frame of the 'loop' operator.
+     */
+    private final class InfiniteLoopFrame extends LoopFrame {
+        /**
+         * Creates a new loop frame.
+         * 
+         * @param loopProc The procedure.
+         */
+        InfiniteLoopFrame(final PSObject loopProc) {
+            super("eps2pgfloop", loopProc);
+        }
+        
+        /**
+         * Prepares the next iteration of the loop.
+         * 
+         * @return Always true, the loop only ends with 'exit' or 'stop'.
+         */
+        @Override
+        boolean next() {
+            return true;
         }
     }
 }
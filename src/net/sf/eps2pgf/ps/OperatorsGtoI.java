@@ -59,6 +59,14 @@ public final class OperatorsGtoI extends OperatorContainer {
      */
     public OperatorsGtoI(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Ogcheck(), new Oge(), new Oget(), new Ogetinterval(),
+            new Oglyphshow(), new Ogrestore(), new Ogrestoreall(),
+            new Ogsave(), new Ogt(), new Oidentmatrix(), new Oidiv(),
+            new Oidtransform(), new Oif(), new Oifelse(), new Oimage(),
+            new Oimagemask(), new Oindex(), new Oinvertmatrix(),
+            new Oinitclip(), new Oinitmatrix(), new Ointernaldict(),
+            new Oitransform());
         try {
             DictStack dictStack = getDictStack();
             gsave = dictStack.lookup("gsave").toOperator();
@@ -85,7 +93,7 @@ public final class OperatorsGtoI extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSObject any = getOpStack().pop();
             boolean inGlobal = any.gcheck();
-            getOpStack().push(new PSObjectBool(inGlobal));
+            getOpStack().push(PSObjectBool.valueOf(inGlobal));
         }
     }
     
@@ -108,7 +116,7 @@ public final class OperatorsGtoI extends OperatorContainer {
             
             boolean gt = obj1.gt(obj2);
             boolean eq = obj1.eq(obj2);
-            getOpStack().push(new PSObjectBool(gt || eq));
+            getOpStack().push(PSObjectBool.valueOf(gt || eq));
         }
     }
     
@@ -245,7 +253,7 @@ public final class OperatorsGtoI extends OperatorContainer {
             obj1.checkAccess(false, true, false);
             
             boolean chk = obj1.gt(obj2);
-            getOpStack().push(new PSObjectBool(chk));
+            getOpStack().push(PSObjectBool.valueOf(chk));
         }
     }
     
@@ -282,7 +290,7 @@ public final class OperatorsGtoI extends OperatorContainer {
             int int2 = getOpStack().pop().toInt();
             int int1 = getOpStack().pop().toInt();
             int quotient = int1 / int2;
-            getOpStack().push(new PSObjectInt(quotient));
+            getOpStack().push(PSObjectInt.valueOf(quotient));
         }
     }
     
@@ -314,8 +322,8 @@ public final class OperatorsGtoI extends OperatorContainer {
             }
             double dx = getOpStack().pop().toReal();
             double[] transformed = matrix.idtransform(dx, dy);
-            getOpStack().push(new PSObjectReal(transformed[0]));
-            getOpStack().push(new PSObjectReal(transformed[1]));
+            getOpStack().push(PSObjectReal.valueOf(transformed[0]));
+            getOpStack().push(PSObjectReal.valueOf(transformed[1]));
         }
     }
     
@@ -394,13 +402,13 @@ public final class OperatorsGtoI extends OperatorContainer {
                 int width = getOpStack().pop().toInt();
                 
                 dict = new PSObjectDict(getInterp());
-                dict.setKey(Image.IMAGE_TYPE, new PSObjectInt(1));
-                dict.setKey(Image.WIDTH, new PSObjectInt(width));
-                dict.setKey(Image.HEIGHT, new PSObjectInt(height));
+                dict.setKey(Image.IMAGE_TYPE, PSObjectInt.valueOf(1));
+                dict.setKey(Image.WIDTH, PSObjectInt.valueOf(width));
+                dict.setKey(Image.HEIGHT, PSObjectInt.valueOf(height));
                 dict.setKey(Image.IMAGE_MATRIX, matrix);
                 dict.setKey(Image.DATA_SOURCE, dictOrDataSrc);
                 dict.setKey(Image.BITS_PER_COMPONENT,
-                        new PSObjectInt(bitsPerSample));
+                        PSObjectInt.valueOf(bitsPerSample));
                 double[] decode = {0.0, 1.0};
                 dict.setKey(Image.DECODE,
                         new PSObjectArray(decode, getInterp()));
@@ -553,8 +561,8 @@ public final class OperatorsGtoI extends OperatorContainer {
             double x = getOpStack().pop().toReal();
             
             double[] itransformed = matrix.itransform(x, y);
-            getOpStack().push(new PSObjectReal(itransformed[0]));
-            getOpStack().push(new PSObjectReal(itransformed[1]));
+            getOpStack().push(PSObjectReal.valueOf(itransformed[0]));
+            getOpStack().push(PSObjectReal.valueOf(itransformed[1]));
         }
     }
     
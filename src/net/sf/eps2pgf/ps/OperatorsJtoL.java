@@ -27,10 +27,8 @@ import net.sf.eps2pgf.ps.objects.PSObjectBool;
 import net.sf.eps2pgf.ps.objects.PSObjectDict;
 import net.sf.eps2pgf.ps.objects.PSObjectInt;
 import net.sf.eps2pgf.ps.objects.PSObjectName;
-import net.sf.eps2pgf.ps.objects.PSObjectNull;
 import net.sf.eps2pgf.ps.objects.PSObjectOperator;
 import net.sf.eps2pgf.ps.objects.PSObjectReal;
-import net.sf.eps2pgf.util.ArrayStack;
 
 
 /**
@@ -48,6 +46,10 @@ public final class OperatorsJtoL extends OperatorContainer {
      */
     public OperatorsJtoL(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Oknown(), new Okshow(), new Ole(), new Olength(),
+            new Olineto(), new Oln(), new Oload(), new Olog(), new Oloop(),
+            new Olt());
     }
     
     /**
@@ -66,7 +68,7 @@ public final class OperatorsJtoL extends OperatorContainer {
             PSObjectDict dict = getOpStack().pop().toDict();
             dict.checkAccess(false, true, false);
             
-            getOpStack().push(new PSObjectBool(dict.known(key)));
+            getOpStack().push(PSObjectBool.valueOf(dict.known(key)));
         }
     }
     
@@ -118,7 +120,7 @@ public final class OperatorsJtoL extends OperatorContainer {
             PSObject obj = getOpStack().pop();
             obj.checkAccess(false, true, false);
             
-            getOpStack().push(new PSObjectInt(obj.length()));
+            getOpStack().push(PSObjectInt.valueOf(obj.length()));
         }
     }
     
@@ -154,7 +156,7 @@ public final class OperatorsJtoL extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double num = getOpStack().pop().toReal();
             double result = Math.log(num);
-            getOpStack().push(new PSObjectReal(result));
+            getOpStack().push(PSObjectReal.valueOf(result));
         }
     }
     
@@ -200,7 +202,7 @@ public final class OperatorsJtoL extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double num = getOpStack().pop().toReal();
             double result = Math.log10(num);
-            getOpStack().push(new PSObjectReal(result));
+            getOpStack().push(PSObjectReal.valueOf(result));
         }
     }
     
@@ -216,13 +218,8 @@ public final class OperatorsJtoL extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            ExecStack es = getExecStack();
-            ArrayStack<PSObject> cs = getContStack();
-            
-            es.push(getOpsEps2pgf().eps2pgfLoop);
-            
-            cs.push(new PSObjectNull());
-            cs.push(getOpStack().pop());
+            PSObject proc = getOpStack().pop();
+            getExecStack().push(getOpsEps2pgf().newLoopFrame(proc));
         }
     }
     
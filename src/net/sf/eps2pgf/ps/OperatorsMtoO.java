@@ -48,6 +48,11 @@ public final class OperatorsMtoO extends OperatorContainer {
      */
     public OperatorsMtoO(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Omakefont(), new Omakepattern(), new Omark(), new Omatrix(),
+            new Omaxlength(), new Omod(), new Omoveto(), new Omul(), new One(),
+            new Oneg(), new Onewpath(), new Onoaccess(), new Onot(),
+            new Onull(), new Onulldevice(), new Oor());
     }
     
     /**
@@ -77,7 +82,7 @@ public final class OperatorsMtoO extends OperatorContainer {
             Matrix ctm = getGstate().current().getCtm().clone();
             ctm.concat(fontMatrix);
             double fontSize = ctm.getMeanScaling() / 2.54 * 72.27;
-            font.setKey("FontSize", new PSObjectReal(fontSize));
+            font.setKey("FontSize", PSObjectReal.valueOf(fontSize));
             
             getOpStack().push(font);
         }
@@ -148,7 +153,7 @@ public final class OperatorsMtoO extends OperatorContainer {
             PSObjectDict dict = getOpStack().pop().toDict();
             dict.checkAccess(false, true, false);
             
-            getOpStack().push(new PSObjectInt(dict.maxlength()));
+            getOpStack().push(PSObjectInt.valueOf(dict.maxlength()));
         }
     }
     
@@ -166,7 +171,7 @@ public final class OperatorsMtoO extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             int int2 = getOpStack().pop().toInt();
             int int1 = getOpStack().pop().toInt();
-            getOpStack().push(new PSObjectInt(int1 % int2));
+            getOpStack().push(PSObjectInt.valueOf(int1 % int2));
         }
     }
     
@@ -273,6 +278,8 @@ public final class OperatorsMtoO extends OperatorContainer {
             if (obj instanceof PSObjectDict) {
                 obj.checkAccess(false, false, true);
             }
+            // Change a copy, see 'readonly'
+            obj = obj.dup();
             obj.noaccess();
             getOpStack().push(obj);
         }
@@ -60,6 +60,15 @@ public final class OperatorsPtoR extends OperatorContainer {
      */
     public OperatorsPtoR(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Opathbbox(), new Opathforall(), new Opicstr(), new Opop(),
+            new Opstack(), new Oput(), new Oputinterval(), new Oquit(),
+            new Orcheck(), new Orcurveto(), new Oreadhexstring(),
+            new Oreadline(), new Oreadonly(), new Oreadstring(),
+            new Orealtime(), new Orectclip(), new Orectfill(),
+            new Orectstroke(), new Orepeat(), new Oresourceforall(),
+            new Oresourcestatus(), new Orestore(), new Orlineto(),
+            new Ormoveto(), new Oroll(), new Orotate(), new Oround());
     }
     
     /**
@@ -76,7 +85,7 @@ public final class OperatorsPtoR extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double[] bbox = gsCurrent().pathbbox();
             for (int i = 0; i < 4; i++) {
-                getOpStack().push(new PSObjectReal(bbox[i]));
+                getOpStack().push(PSObjectReal.valueOf(bbox[i]));
             }
         }
     }
@@ -245,7 +254,7 @@ public final class OperatorsPtoR extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSObject obj = getOpStack().pop();
             boolean chk = obj.rcheck();
-            getOpStack().push(new PSObjectBool(chk));
+            getOpStack().push(PSObjectBool.valueOf(chk));
         }
     }
 
@@ -302,7 +311,7 @@ public final class OperatorsPtoR extends OperatorContainer {
             boolean bool = (string.length() == substring.length());
             
             getOpStack().push(substring);
-            getOpStack().push(new PSObjectBool(bool));
+            getOpStack().push(PSObjectBool.valueOf(bool));
         }
     }
 
@@ -340,6 +349,12 @@ public final class OperatorsPtoR extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSObject obj = getOpStack().pop();
             obj.checkAccess(false, true, false);
+            // The access attribute of an array, file or string belongs to the
+            // object, and the object on the stack may be shared with a
+            // dictionary entry or a procedure. Therefore, change a copy. For
+            // dictionaries dup() returns the same object, their access
+            // attribute belongs to the value.
+            obj = obj.dup();
             obj.readonly();
             getOpStack().push(obj);
         }
@@ -369,7 +384,7 @@ public final class OperatorsPtoR extends OperatorContainer {
             boolean bool = (string.length() == substring.length());
             
             getOpStack().push(substring);
-            getOpStack().push(new PSObjectBool(bool));
+            getOpStack().push(PSObjectBool.valueOf(bool));
         }
     }
 
@@ -391,7 +406,7 @@ public final class OperatorsPtoR extends OperatorContainer {
             realtime = 60 * realtime + now.get(Calendar.MINUTE);
             realtime = 60 * realtime + now.get(Calendar.SECOND);
             realtime = 1000 * realtime + now.get(Calendar.MILLISECOND);
-            getOpStack().push(new PSObjectInt(realtime));
+            getOpStack().push(PSObjectInt.valueOf(realtime));
         }
     }
 
@@ -482,16 +497,9 @@ public final class OperatorsPtoR extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             PSObjectArray proc = getOpStack().pop().toProc();
-            PSObject objN = getOpStack().pop();
-            objN.toNonNegInt();
-            
-            ArrayStack<PSObject> cs = getContStack();
-            
-            cs.push(new PSObjectNull());
-            cs.push(objN);
-            cs.push(proc);
+            int n = getOpStack().pop().toNonNegInt();
             
-            getExecStack().push(getOpsEps2pgf().eps2pgfRepeat);
+            getExecStack().push(getOpsEps2pgf().newRepeatFrame(n, proc));
         }
     }
 
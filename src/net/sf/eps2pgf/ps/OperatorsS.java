@@ -63,6 +63,23 @@ public final class OperatorsS extends OperatorContainer {
      */
     public OperatorsS(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Osave(), new Oscale(), new Oscalefont(), new Osearch(),
+            new Oselectfont(), new Osetblackgeneration(),
+            new Osetcachedevice(), new Osetcachedevice2(), new Osetcmykcolor(),
+            new Osetcolor(), new Osetcolorrendering(), new Osetcolorspace(),
+            new Osetcolortransfer(), new Osetdash(), new Osetdevparams(),
+            new Osetflat(), new Osetfont(), new Osetglobal(), new Osetgray(),
+            new Osethalftone(), new Osethsbcolor(), new Osetlinecap(),
+            new Osetlinejoin(), new Osetlinewidth(), new Osetmatrix(),
+            new Osetmiterlimit(), new Osetoverprint(), new Osetpacking(),
+            new Osetpagedevice(), new Osetrgbcolor(), new Osetscreen(),
+            new Osetsmoothness(), new Osetstrokeadjust(),
+            new Osetsystemparams(), new Osettransfer(),
+            new Osetundercolorremoval(), new Osetuserparams(), new Oshfill(),
+            new Oshow(), new Oshowpage(), new Osin(), new Osqrt(),
+            new Ostatus(), new Ostop(), new Ostopped(), new Ostring(),
+            new Ostringwidth(), new Ostroke(), new Ostore(), new Osub());
     }
     
     /**
@@ -131,12 +148,12 @@ public final class OperatorsS extends OperatorContainer {
             // "font scale scalefont" is equivalent to 
             // "font [scale 0 0 scale 0 0] makefont""
             executeOperator("[");
-            getOpStack().push(new PSObjectReal(scale));
-            getOpStack().push(new PSObjectReal(0));
-            getOpStack().push(new PSObjectReal(0));
-            getOpStack().push(new PSObjectReal(scale));
-            getOpStack().push(new PSObjectReal(0));
-            getOpStack().push(new PSObjectReal(0));
+            getOpStack().push(PSObjectReal.valueOf(scale));
+            getOpStack().push(PSObjectReal.valueOf(0));
+            getOpStack().push(PSObjectReal.valueOf(0));
+            getOpStack().push(PSObjectReal.valueOf(scale));
+            getOpStack().push(PSObjectReal.valueOf(0));
+            getOpStack().push(PSObjectReal.valueOf(0));
             executeOperator("]");
             executeOperator("makefont");
         }
@@ -159,8 +176,7 @@ public final class OperatorsS extends OperatorContainer {
             PSObjectString string = getOpStack().pop().toPSString();
             string.checkAccess(false, true, false);
             
-            String seek = seekObj.toString();
-            List<PSObject> result = string.search(seek);
+            List<PSObject> result = string.search(seekObj);
             while (!result.isEmpty()) {
                 getOpStack().push(result.remove(0));
             }
@@ -631,7 +647,7 @@ public final class OperatorsS extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             boolean bool = getOpStack().pop().toBool();
             PSObjectDict dict = getDictStack().lookup("userdict").toDict();
-            dict.setKey("currentpacking", new PSObjectBool(bool));
+            dict.setKey("currentpacking", PSObjectBool.valueOf(bool));
         }
     }
     
@@ -863,7 +879,7 @@ public final class OperatorsS extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             double angle = getOpStack().pop().toReal();
-            getOpStack().push(new PSObjectReal(
+            getOpStack().push(PSObjectReal.valueOf(
                     Math.sin(angle * Math.PI / 180.0)));
         }
     }
@@ -882,7 +898,7 @@ public final class OperatorsS extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             double x = getOpStack().pop().toNonNegReal();
             x = Math.sqrt(x);
-            getOpStack().push(new PSObjectReal(x));
+            getOpStack().push(PSObjectReal.valueOf(x));
         }
     }
     
@@ -901,7 +917,7 @@ public final class OperatorsS extends OperatorContainer {
             PSObject obj = getOpStack().pop();
             if (obj instanceof PSObjectFile) {
                 boolean status = ((PSObjectFile) obj).status();
-                getOpStack().push(new PSObjectBool(status));
+                getOpStack().push(PSObjectBool.valueOf(status));
             } else {
                 throw new PSErrorUnregistered("'status' operator of non-file"
                         + " object.");
@@ -1015,8 +1031,8 @@ public final class OperatorsS extends OperatorContainer {
             
             double[] dpos = getTextHandler().showText(
                     getGstate().current().getDevice(), string, true);
-            getOpStack().push(new PSObjectReal(dpos[0]));
-            getOpStack().push(new PSObjectReal(dpos[1]));
+            getOpStack().push(PSObjectReal.valueOf(dpos[0]));
+            getOpStack().push(PSObjectReal.valueOf(dpos[1]));
         }
     }
 
@@ -46,6 +46,9 @@ public final class OperatorsSpecialChar extends OperatorContainer {
             throws ProgramError {
         
         super(interpreter);
+        register(
+            new OdblGreaterBrackets(), new OdblLessBrackets(), new Oisis(),
+            new OsqBrackLeft(), new OsqBrackRight());
     }
     
     /**
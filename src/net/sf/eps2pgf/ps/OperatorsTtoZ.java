@@ -54,6 +54,12 @@ public final class OperatorsTtoZ extends OperatorContainer {
      */
     public OperatorsTtoZ(final Interpreter interpreter) throws ProgramError {
         super(interpreter);
+        register(
+            new Otoken(), new Otransform(), new Otranslate(), new Otrue(),
+            new Otruncate(), new Otype(), new Oundef(),
+            new Oundefineresource(), new Ousertime(), new Owcheck(),
+            new Owhere(), new Owidthshow(), new Oxcheck(), new Oxor(),
+            new Oxshow(), new Oxyshow(), new Oyshow());
     }
     
     /**
@@ -109,8 +115,8 @@ public final class OperatorsTtoZ extends OperatorContainer {
             }
             double x = getOpStack().pop().toReal();
             double[] transformed = matrix.transform(x, y);
-            getOpStack().push(new PSObjectReal(transformed[0]));
-            getOpStack().push(new PSObjectReal(transformed[1]));
+            getOpStack().push(PSObjectReal.valueOf(transformed[0]));
+            getOpStack().push(PSObjectReal.valueOf(transformed[1]));
         }
     }
     
@@ -157,7 +163,7 @@ public final class OperatorsTtoZ extends OperatorContainer {
          */
         @Override
         public void invoke() throws PSError, ProgramError {
-            getOpStack().push(new PSObjectBool(true));
+            getOpStack().push(PSObjectBool.valueOf(true));
         }
     }
     
@@ -191,7 +197,7 @@ public final class OperatorsTtoZ extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             PSObject any = getOpStack().pop();
-            getOpStack().push(new PSObjectName(any.type(), false));
+            getOpStack().push(PSObjectName.getExecutable(any.type()));
         }
     }
     
@@ -247,7 +253,7 @@ public final class OperatorsTtoZ extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             long currentTime = System.currentTimeMillis();
             int userTime = (int) (currentTime - getInterp().getInitTime());
-            getOpStack().push(new PSObjectInt(userTime));
+            getOpStack().push(PSObjectInt.valueOf(userTime));
         }
     }
     
@@ -265,7 +271,7 @@ public final class OperatorsTtoZ extends OperatorContainer {
         public void invoke() throws PSError, ProgramError {
             PSObject obj = getOpStack().pop();
             boolean chk = obj.wcheck();
-            getOpStack().push(new PSObjectBool(chk));
+            getOpStack().push(PSObjectBool.valueOf(chk));
         }
     }
     
@@ -284,10 +290,10 @@ public final class OperatorsTtoZ extends OperatorContainer {
             PSObject key = getOpStack().pop();
             PSObjectDict dict = getDictStack().where(key);
             if (dict == null) {
-                getOpStack().push(new PSObjectBool(false));
+                getOpStack().push(PSObjectBool.valueOf(false));
             } else {
                 getOpStack().push(dict);
-                getOpStack().push(new PSObjectBool(true));
+                getOpStack().push(PSObjectBool.valueOf(true));
             }
         }
     }
@@ -321,7 +327,7 @@ public final class OperatorsTtoZ extends OperatorContainer {
         @Override
         public void invoke() throws PSError, ProgramError {
             PSObject any = getOpStack().pop();
-            PSObjectBool check = new PSObjectBool(any.xcheck());
+            PSObjectBool check = PSObjectBool.valueOf(any.xcheck());
             getOpStack().push(check);
         }
     }
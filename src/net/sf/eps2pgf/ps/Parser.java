@@ -21,27 +21,72 @@ package net.sf.eps2pgf.ps;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import net.sf.eps2pgf.ProgramError;
+import net.sf.eps2pgf.io.ScannableInputStream;
 import net.sf.eps2pgf.ps.errors.PSError;
 import net.sf.eps2pgf.ps.errors.PSErrorIOError;
+import net.sf.eps2pgf.ps.errors.PSErrorSyntaxError;
 import net.sf.eps2pgf.ps.errors.PSErrorUndefined;
 import net.sf.eps2pgf.ps.objects.PSObject;
 import net.sf.eps2pgf.ps.objects.PSObjectArray;
-import net.sf.eps2pgf.ps.objects.PSObjectInt;
 import net.sf.eps2pgf.ps.objects.PSObjectName;
-import net.sf.eps2pgf.ps.objects.PSObjectReal;
 import net.sf.eps2pgf.ps.objects.PSObjectString;
 
 /**
  * Reads PostScript code and converts it to a queue of PostScript objects.
+ * 
+ * The scanner works directly on the buffer of a
+ * {@link ScannableInputStream}. Characters are classified using a lookup
+ * table, and strings and hexadecimal strings are decoded while they are
+ * scanned.
  *
  * @author Paul Wagenaars
  */
 public final class Parser {
-    /** Numbers of characters consumed in the last convertSingle call. */
-    private static int charsLastConvert = -1;
+    
+    /** Character class: regular character. */
+    private static final byte REGULAR = 0;
+    
+    /** Character class: white-space character. */
+    private static final byte WHITESPACE = 1;
+    
+    /** Character class: delimiter character. */
+    private static final byte DELIMITER = 2;
+    
+    /** Class of each character. */
+    private static final byte[] CHAR_CLASS = new byte[256];
+    
+    /** Value of each hexadecimal digit, -1 for other characters. */
+    private static final byte[] HEX_VALUE = new byte[256];
+    
+    /** Initial size of the buffer in which strings are decoded. */
+    private static final int STRING_BUFFER_SIZE = 64;
+    
+    static {
+        byte[] whitespace = {0, 9, 10, 12, 13, 32};
+        for (byte chr : whitespace) {
+            CHAR_CLASS[chr] = WHITESPACE;
+        }
+        String delimiters = "()<>[]{}/%";
+        for (int i = 0; i < delimiters.length(); i++) {
+            CHAR_CLASS[delimiters.charAt(i)] = DELIMITER;
+        }
+        
+        for (int i = 0; i < 256; i++) {
+            if ((i >= '0') && (i <= '9')) {
+                HEX_VALUE[i] = (byte) (i - '0');
+            } else if ((i >= 'A') && (i <= 'F')) {
+                HEX_VALUE[i] = (byte) (i - 'A' + 10);
+            } else if ((i >= 'a') && (i <= 'f')) {
+                HEX_VALUE[i] = (byte) (i - 'a' + 10);
+            } else {
+                HEX_VALUE[i] = -1;
+            }
+        }
+    }
     
     /**
      * "Hidden" constructor.
@@ -64,9 +109,10 @@ public final class Parser {
     public static List<PSObject> convertAll(final InputStream in,
             final Interpreter interp) throws PSError, ProgramError {
         
+        ScannableInputStream scanIn = ScannableInputStream.wrap(in);
         List<PSObject> seq = new ArrayList<PSObject>();
         PSObject obj;
-        while ((obj = convertSingle(in, interp)) != null) {
+        while ((obj = convertSingle(scanIn, interp)) != null) {
             seq.add(obj);
         }
         
@@ -74,9 +120,12 @@ public final class Parser {
     }
     
     /**
-     * Read PostScript code until a single object is encountered.
+     * Read PostScript code until a single object is encountered. A regular
+     * token (name or number) that is terminated by a white-space character
+     * consumes that character, all other terminating characters are left in
+     * the stream.
      * 
-     * @param in Read characters (PostScript code) from this reader.
+     * @param in Read characters (PostScript code) from this stream.
      * @param interp The interpreter.
      * 
      * @return Object read from in reader or 'null' if there were no more
@@ -85,215 +134,481 @@ public final class Parser {
      * @throws PSError A PostScript error occurred.
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
-    public static PSObject convertSingle(final InputStream in, 
+    public static PSObject convertSingle(final ScannableInputStream in, 
             final Interpreter interp) throws PSError, ProgramError {
         
-        StringBuilder strSoFar = new StringBuilder();
-        boolean inComment = false;
-        boolean inString = false;
-        boolean inProc = false;
-        boolean inHexString = false;
-        boolean inB85String = false;
-        int procDepth = 0;
-        int stringDepth = 0;
-        int readChar;
-        char chr = '\000';
-        char prevChr = '\000';
-        String lastTwo;
-        
-        int charsThisConvert = 0;
         try {
-            while ((readChar = in.read()) != -1) {
-                charsThisConvert++;
-                
-                // Escaped backslashes should not be treated as special
-                // characters. Therefore, we replace escaped backslashes in
-                // 'prevChr' with \000
-                // Note: \134 (octal) is the code of the backslash in ASCII.
-                if ((chr == '\134') && (prevChr == '\134')) {
-                    prevChr = '\000';
+            int chr = skipWhitespace(in);
+            if (chr < 0) {
+                return null;
+            } else if (chr == '{') {
+                return scanProcedure(in, interp);
+            } else {
+                return scanObject(chr, in, interp);
+            }
+        } catch (IOException e) {
+            throw new PSErrorIOError();
+        }
+    }
+    
+    /**
+     * Skips white-space and comments and reads the first character after
+     * them.
+     * 
+     * @param in The stream.
+     * 
+     * @return The first character that is not white-space or part of a
+     * comment, or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private static int skipWhitespace(final ScannableInputStream in)
+            throws IOException {
+        while (true) {
+            int chr = in.read();
+            if (chr < 0) {
+                return -1;
+            } else if (chr == '%') {
+                skipComment(in);
+            } else if (CHAR_CLASS[chr] != WHITESPACE) {
+                return chr;
+            }
+        }
+    }
+    
+    /**
+     * Scans a single object, other than a procedure.
+     * 
+     * @param chr First character of the object, which has already been read.
+     * @param in The stream.
+     * @param interp The interpreter.
+     * 
+     * @return The object.
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static PSObject scanObject(final int chr,
+            final ScannableInputStream in, final Interpreter interp)
+            throws IOException, PSError {
+        switch (chr) {
+            case '(':
+                return scanString(in, interp);
+            case '<':
+                if (in.peek() == '<') {
+                    in.read();
+                    return PSObjectName.getExecutable("<<");
+                } else if (in.peek() == '~') {
+                    in.read();
+                    return scanBase85String(in, interp);
                 } else {
-                    prevChr = chr;
+                    return scanHexString(in, interp);
                 }
-                chr = (char) readChar;
-                
-                if (charsThisConvert > 1) {
-                    lastTwo = Character.toString(prevChr)
-                                + Character.toString(chr);
-                } else {
-                    lastTwo = Character.toString(chr);
+            case '>':
+                if (in.read() != '>') {
+                    throw new PSErrorSyntaxError();
                 }
-                boolean tokenBefore = false;
-                boolean appendCurrentChar = true;
-                boolean tokenAfter = false;
-                
-                // If we are in a comment, we only need to stop for a new line
-                // or form feed.
-                if (inComment) {
-                    appendCurrentChar = false;
-                    if ((chr == 10) || (chr == 12) || (chr == 13)) {
-                        inComment = false;
-                    }
-                } else if (inString) {
-                    //
-                    // In a string
-                    //
-                    if ((chr == ')') && !lastTwo.equals("\\)")) {
-                        stringDepth--;
-                        if (stringDepth == 0) {
-                            inString = false;
-                            if (!inProc) {
-                                tokenAfter = true;
-                            }
-                        }
-                    } else if ((chr == '(') && !lastTwo.equals("\\(")) {
-                        stringDepth++;
-                    }
-                } else if (inHexString) {
-                    //
-                    // End of the hex string
-                    //
-                    if (chr == '>') {
-                        inHexString = false;
-                        tokenAfter = true;
-                    }
-                } else if (inB85String) {
-                    //
-                    // End of base-85 string
-                    //
-                    if (lastTwo.equals("~>")) {
-                        inB85String = false;
-                        tokenAfter = true;
-                    }
-                } else if (chr == '%') {
-                    //
-                    // start of comment
-                    //
-                    appendCurrentChar = false;
-                    inComment = true;
-                } else if (inProc) {
-                    //
-                    // In a procedure
-                    //
-                    
-                    // End of the procedure
-                    if (chr == '}') {
-                        procDepth--;
-                        if (procDepth == 0) {
-                            tokenAfter = true;
-                            inProc = false;
+                return PSObjectName.getExecutable(">>");
+            case '[':
+                return PSObjectName.getExecutable("[");
+            case ']':
+                return PSObjectName.getExecutable("]");
+            case ')':
+            case '{':
+            case '}':
+                throw new PSErrorSyntaxError();
+            case '/':
+                return scanLiteralName(in, interp);
+            default:
+                in.unread();
+                return scanRegular(in);
+        }
+    }
+    
+    /**
+     * Skips the rest of a comment, including the end-of-line character.
+     * 
+     * @param in The stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private static void skipComment(final ScannableInputStream in)
+            throws IOException {
+        int chr;
+        do {
+            chr = in.read();
+        } while ((chr >= 0) && (chr != 10) && (chr != 12) && (chr != 13));
+    }
+    
+    /**
+     * Reads the regular characters of a token. The token starts at the
+     * current position, which is marked as token start in the stream. A
+     * white-space character terminating the token is consumed, a delimiter
+     * is not.
+     * 
+     * @param in The stream.
+     * 
+     * @return Index in the buffer of the stream directly after the last
+     * character of the token.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private static int readRegularChars(final ScannableInputStream in)
+            throws IOException {
+        in.startToken();
+        int chr;
+        while ((chr = in.read()) >= 0) {
+            byte charClass = CHAR_CLASS[chr];
+            if (charClass != REGULAR) {
+                if (charClass == DELIMITER) {
+                    in.unread();
+                    return in.getBufferPosition();
+                }
+                return in.getBufferPosition() - 1;
+            }
+        }
+        return in.getBufferPosition();
+    }
+    
+    /**
+     * Scans a regular token: a number or an executable name.
+     * 
+     * @param in The stream.
+     * 
+     * @return The number or name.
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static PSObject scanRegular(final ScannableInputStream in)
+            throws IOException, PSError {
+        int end = readRegularChars(in);
+        byte[] buf = in.getBuffer();
+        int start = in.getTokenStart();
+        in.endToken();
+        
+        int first = buf[start];
+        if (((first >= '0') && (first <= '9')) || (first == '-')
+                || (first == '+') || (first == '.')) {
+            PSObject number = NumberLexer.parse(buf, start, end - start);
+            if (number != null) {
+                return number;
+            }
+        }
+        return PSObjectName.getExecutable(buf, start, end - start);
+    }
+    
+    /**
+     * Scans a literal name or an immediately evaluated name. The leading
+     * slash has already been read.
+     * 
+     * @param in The stream.
+     * @param interp The interpreter (required for immediately evaluated
+     * names).
+     * 
+     * @return The literal name, or the object associated with an immediately
+     * evaluated name.
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static PSObject scanLiteralName(final ScannableInputStream in,
+            final Interpreter interp) throws IOException, PSError {
+        boolean immediate = (in.peek() == '/');
+        if (immediate) {
+            in.read();
+        }
+        int end = readRegularChars(in);
+        int start = in.getTokenStart();
+        PSObjectName name = PSObjectName.getLiteral(in.getBuffer(), start,
+                end - start);
+        in.endToken();
+        
+        if (immediate) {
+            PSObject obj = interp.getDictStack().lookup(name);
+            if (obj == null) {
+                throw new PSErrorUndefined();
+            }
+            return obj;
+        }
+        return name;
+    }
+    
+    /**
+     * Scans a string. The opening parenthesis has already been read. Escape
+     * sequences are decoded while scanning.
+     * 
+     * @param in The stream.
+     * @param interp The interpreter.
+     * 
+     * @return The string.
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static PSObjectString scanString(final ScannableInputStream in,
+            final Interpreter interp) throws IOException, PSError {
+        byte[] str = new byte[STRING_BUFFER_SIZE];
+        int len = 0;
+        int depth = 1;
+        while (true) {
+            int chr = in.read();
+            if (chr == ')') {
+                depth--;
+                if (depth == 0) {
+                    break;
+                }
+            } else if (chr == '(') {
+                depth++;
+            } else if (chr == '\\') {
+                chr = readEscape(in);
+                if (chr < 0) {
+                    continue;
+                }
+            } else if (chr < 0) {
+                throw new PSErrorSyntaxError();
+            }
+            if (len == str.length) {
+                str = Arrays.copyOf(str, 2 * len);
+            }
+            str[len++] = (byte) chr;
+        }
+        return new PSObjectString(str, 0, len, interp);
+    }
+    
+    /**
+     * Reads the escape sequence in a string. The backslash has already been
+     * read.
+     * 
+     * @param in The stream.
+     * 
+     * @return The character represented by the escape sequence, or -1 if
+     * the sequence does not represent a character (backslash followed by an
+     * end-of-line).
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static int readEscape(final ScannableInputStream in)
+            throws IOException, PSError {
+        int chr = in.read();
+        switch (chr) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case '\r':
+                if (in.peek() == '\n') {
+                    in.read();
+                }
+                return -1;
+            case '\n':
+                return -1;
+            case -1:
+                throw new PSErrorSyntaxError();
+            default:
+                if ((chr >= '0') && (chr <= '7')) {
+                    int value = chr - '0';
+                    for (int i = 0; i < 2; i++) {
+                        int next = in.peek();
+                        if ((next < '0') || (next > '7')) {
+                            break;
                         }
-                    } else if (chr == '(') {
-                        //
-                        // A string in a procedure
-                        //
-                        stringDepth++;
-                        inString = true;
-                    } else if (chr == '{') {
-                        //
-                        // a procedure in a procedure
-                        //
-                        procDepth++;
+                        value = 8 * value + in.read() - '0';
                     }
-                } else if (chr == '(') {
-                    //
-                    // start of string
-                    //
-                    stringDepth++;
-                    inString = true;
-                    tokenBefore = true;
-                } else if ((chr == '[') || (chr == ']')) {
-                    //
-                    // start or end of array
-                    //
-                    tokenBefore = true;
-                    tokenAfter = true;
-                } else if ((chr == '/') && (prevChr != '/')) {
-                    //
-                    // Start of literal
-                    //
-                    tokenBefore = true;
-                } else if ((chr == '{') && !inString) {
-                    //
-                    // Start of procedure .. {
-                    //
-                    tokenBefore = true;
-                    inProc = true;
-                    procDepth++;
-                } else if (chr == '<') {
-                    //
-                    // start of hex string, base-85 string or dictionary
-                    //
-                    if (prevChr == '<') {
-                        tokenAfter = true;
-                    } else {
-                        tokenBefore = true;
-                    }
-                } else if ((prevChr == '<') && (chr == '~')) {
-                    //
-                    // second char of base-85 string
-                    //
-                    inB85String = true;
-                } else if (prevChr == '<') {
-                    //
-                    // second char of hex string
-                    //
-                    inHexString = true;
-                } else if (chr == '>') {
-                    //
-                    // end of dictionary >>
-                    //
-                    if (prevChr == '>') {
-                        tokenAfter = true;
-                    } else {
-                        tokenBefore = true;
-                    }
-                } else if (Character.isWhitespace(chr)) {
-                    //
-                    // object ended by whitespace
-                    //
-                    appendCurrentChar = false;
-                    tokenBefore = true;
+                    return value & 0xFF;
                 }
-                
-                //
-                // Create token, append current character
-                //
-                if (tokenBefore && (strSoFar.length() > 0)) {
-                    if (!Character.isWhitespace(chr)) {
-                        in.reset();
-                        charsThisConvert--;
-                    }
-                    PSObject newObj = convertToPSObject(strSoFar.toString(),
-                            interp);
-                    charsLastConvert = charsThisConvert;
-                    return newObj;
+                // Unknown escape sequences, and the escaped backslash and
+                // parentheses, simply represent the character itself.
+                return chr;
+        }
+    }
+    
+    /**
+     * Scans a hexadecimal string. The opening angle bracket has already been
+     * read. Characters that are not hexadecimal digits are ignored, and a
+     * missing final digit is assumed to be zero.
+     * 
+     * @param in The stream.
+     * @param interp The interpreter.
+     * 
+     * @return The string.
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static PSObjectString scanHexString(final ScannableInputStream in,
+            final Interpreter interp) throws IOException, PSError {
+        byte[] str = new byte[STRING_BUFFER_SIZE];
+        int len = 0;
+        int high = -1;
+        while (true) {
+            int chr = in.read();
+            if (chr == '>') {
+                break;
+            } else if (chr < 0) {
+                throw new PSErrorSyntaxError();
+            }
+            int value = HEX_VALUE[chr];
+            if (value < 0) {
+                continue;
+            } else if (high < 0) {
+                high = value;
+            } else {
+                if (len == str.length) {
+                    str = Arrays.copyOf(str, 2 * len);
                 }
-                if (appendCurrentChar) {
-                    strSoFar.append(chr);
+                str[len++] = (byte) (16 * high + value);
+                high = -1;
+            }
+        }
+        if (high >= 0) {
+            if (len == str.length) {
+                str = Arrays.copyOf(str, len + 1);
+            }
+            str[len++] = (byte) (16 * high);
+        }
+        return new PSObjectString(str, 0, len, interp);
+    }
+    
+    /**
+     * Scans an ASCII base-85 string. The opening &lt;~ has already been read.
+     * Each group of five characters is decoded into four bytes while it is
+     * scanned. White-space is ignored, a 'z' at the start of a group
+     * represents four zero bytes and a final partial group of n characters
+     * decodes to n - 1 bytes.
+     * 
+     * @param in The stream.
+     * @param interp The interpreter.
+     * 
+     * @return The string.
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static PSObjectString scanBase85String(
+            final ScannableInputStream in, final Interpreter interp)
+            throws IOException, PSError {
+        byte[] str = new byte[STRING_BUFFER_SIZE];
+        int len = 0;
+        long group = 0;
+        int n = 0;
+        while (true) {
+            int chr = in.read();
+            if ((chr >= '!') && (chr <= 'u')) {
+                group = 85L * group + (chr - '!');
+                n++;
+                if (n < 5) {
+                    continue;
                 }
-                if (tokenAfter && (strSoFar.length() > 0)) {
-                    PSObject newObj = convertToPSObject(strSoFar.toString(),
-                            interp);
-                    charsLastConvert = charsThisConvert;
-                    return newObj;
+            } else if ((chr == 'z') && (n == 0)) {
+                n = 5;
+            } else if (chr == '~') {
+                if (in.read() != '>') {
+                    throw new PSErrorSyntaxError();
                 }
-                
-                in.mark(1);
-            } // end of loop through all characters
-        } catch (IOException e) {
-            throw new PSErrorIOError();
+                break;
+            } else if ((chr < 0) || (CHAR_CLASS[chr] != WHITESPACE)) {
+                throw new PSErrorSyntaxError();
+            } else {
+                continue;
+            }
+            
+            if (len + 4 > str.length) {
+                str = Arrays.copyOf(str, 2 * str.length);
+            }
+            len = storeBase85Group(group, 4, str, len);
+            group = 0;
+            n = 0;
         }
         
-        if (strSoFar.length() > 0) {
-                PSObject newObj = convertToPSObject(strSoFar.toString(),
-                        interp);
-                charsLastConvert = charsThisConvert;
-                return newObj;
+        // A final partial group is padded with 'u'
+        if (n >= 2) {
+            for (int i = n; i < 5; i++) {
+                group = 85L * group + ('u' - '!');
+            }
+            if (len + n - 1 > str.length) {
+                str = Arrays.copyOf(str, len + n - 1);
+            }
+            len = storeBase85Group(group, n - 1, str, len);
+        }
+        return new PSObjectString(str, 0, len, interp);
+    }
+    
+    /**
+     * Stores the bytes of a decoded base-85 group.
+     * 
+     * @param group The value of the group.
+     * @param nrBytes Number of bytes to store, starting with the most
+     * significant byte.
+     * @param str Array in which the bytes are stored.
+     * @param len Index in the array of the first byte.
+     * 
+     * @return Index in the array after the last stored byte.
+     * 
+     * @throws PSError The value of the group does not fit in four bytes.
+     */
+    private static int storeBase85Group(final long group, final int nrBytes,
+            final byte[] str, final int len) throws PSError {
+        if (group > 0xFFFFFFFFL) {
+            throw new PSErrorSyntaxError();
+        }
+        for (int i = 0; i < nrBytes; i++) {
+            str[len + i] = (byte) (group >> (24 - 8 * i));
+        }
+        return len + nrBytes;
+    }
+    
+    /**
+     * Scans a procedure. The opening brace has already been read. Nested
+     * procedures are built in the same pass using an explicit stack of
+     * procedure bodies, so each character is scanned only once.
+     * 
+     * @param in The stream.
+     * @param interp The interpreter.
+     * 
+     * @return The procedure.
+     * 
+     * @throws IOException An I/O error occurred.
+     * @throws PSError A PostScript error occurred.
+     */
+    private static PSObjectArray scanProcedure(final ScannableInputStream in,
+            final Interpreter interp) throws IOException, PSError {
+        // Bodies of the procedures that are being scanned, the outermost
+        // procedure first. The lists are reused for procedures at the same
+        // nesting depth.
+        List<List<PSObject>> bodies = new ArrayList<List<PSObject>>();
+        bodies.add(new ArrayList<PSObject>());
+        int depth = 0;
+        while (true) {
+            int chr = skipWhitespace(in);
+            if (chr == '{') {
+                depth++;
+                if (depth == bodies.size()) {
+                    bodies.add(new ArrayList<PSObject>());
+                }
+            } else if (chr == '}') {
+                List<PSObject> body = bodies.get(depth);
+                PSObjectArray proc = new PSObjectArray(body, interp);
+                proc.setLiteral(false);
+                body.clear();
+                if (depth == 0) {
+                    return proc;
+                }
+                depth--;
+                bodies.get(depth).add(proc);
+            } else if (chr < 0) {
+                throw new PSErrorSyntaxError();
+            } else {
+                bodies.get(depth).add(scanObject(chr, in, interp));
+            }
         }
-        
-        charsLastConvert = charsThisConvert;
-        return null;
     }
     
     /**
@@ -310,10 +625,9 @@ public final class Parser {
     static PSObject convertToPSObject(final String str,
             final Interpreter interp) throws PSError, ProgramError {
         
-        if (PSObjectInt.isType(str)) {
-            return new PSObjectInt(str);
-        } else if (PSObjectReal.isType(str)) {
-            return new PSObjectReal(str);
+        PSObject number = NumberLexer.parse(str);
+        if (number != null) {
+            return number;
         } else if (PSObjectArray.isType(str)) {
             return new PSObjectArray(str, interp);
         } else if (PSObjectString.isType(str)) {
@@ -332,16 +646,13 @@ public final class Parser {
                 }
             } else {
                 // This is a literal or executable name.
-                return new PSObjectName(str);
+                if (str.charAt(0) == '/') {
+                    return PSObjectName.getLiteral(str.substring(1));
+                } else {
+                    return PSObjectName.getExecutable(str);
+                }
             }
         }
     }
-
-    /**
-     * @return the charsLastConvert
-     */
-    public static int getCharsLastConvert() {
-        return charsLastConvert;
-    }
     
 }
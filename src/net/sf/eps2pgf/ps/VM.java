@@ -22,7 +22,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 
 import net.sf.eps2pgf.ProgramError;
 import net.sf.eps2pgf.ps.errors.PSErrorVMError;
@@ -31,12 +30,28 @@ import net.sf.eps2pgf.ps.objects.PSObject;
 /**
  * Virtual Memory (VM) manager.
  * 
+ * The shared values of composite objects are stored directly in their
+ * {@link ObjectId}, so accessing a value doesn't require a map lookup.
+ * 
+ * Save and restore use an undo log. A save only records the current
+ * position in the log. The first time a local array or dictionary is
+ * modified after a save, a copy of its value is added to the log (see
+ * {@link #prepareWrite(ObjectId)}). A restore puts the copies back, newest
+ * first. So both save and restore only cost time for the values that were
+ * actually modified.
+ * 
  * @author Paul Wagenaars
  *
  */
-public class VM implements Cloneable {
+public class VM {
     /** Ever increasing counter for assigning object ID counts. */
-    private static int idCounter = 1;
+    private int idCounter = 1;
+    
+    /**
+     * Serial number that is used for values that are never saved and
+     * restored (global values and strings).
+     */
+    private static final int NEVER_SAVED = -1;
     
     /**
      * Current VM allocation mode. When is global mode (=true) objects are
@@ -45,34 +60,24 @@ public class VM implements Cloneable {
      */
     private boolean isGlobal = true;
     
-    /** Map that holds all composite values of local array objects. */
-    private WeakHashMap<ObjectId, List<PSObject>> arraysLocal =
-        new WeakHashMap<ObjectId, List<PSObject>>();
-    
-    /** Map that holds all composite values of global array objects. */
-    private final WeakHashMap<ObjectId, List<PSObject>> arraysGlobal =
-        new WeakHashMap<ObjectId, List<PSObject>>();
+    /**
+     * Counter that is increased each time the set of keys of a dictionary
+     * changes, or when dictionaries are restored. It is used to validate the
+     * cached name bindings of the dictionary stack.
+     */
+    private int dictVersion = 0;
     
-    /** Map that holds all composite values of local dictionary objects. */
-    private WeakHashMap<ObjectId, Map<PSObject, PSObject>> dictsLocal =
-        new WeakHashMap<ObjectId, Map<PSObject, PSObject>>();
+    /** Serial number of the innermost active save, 0 if there is none. */
+    private int currentSave = 0;
     
-    /** Map that holds all composite values of global dictionary objects. */
-    private final WeakHashMap<ObjectId, Map<PSObject, PSObject>> dictsGlobal =
-        new WeakHashMap<ObjectId, Map<PSObject, PSObject>>();
+    /** Last assigned save serial number. */
+    private int lastSave = 0;
     
-    /** Map that holds all composite values of local string objects. */
-    private final WeakHashMap<ObjectId, StringBuilder> stringsLocal =
-        new WeakHashMap<ObjectId, StringBuilder>();
-
-    /** Map that holds all composite values of global string objects. */
-    private final WeakHashMap<ObjectId, StringBuilder> stringsGlobal =
-        new WeakHashMap<ObjectId, StringBuilder>();
+    /** Undo log with the original values of modified local values. */
+    private List<UndoEntry> undoLog = new ArrayList<UndoEntry>();
     
-    /** Map that holds all composite values of save objects. Note: all save
-     * objects are added to the local VM. */
-    private WeakHashMap<ObjectId, VM> savesLocal =
-        new WeakHashMap<ObjectId, VM>();
+    /** Snapshots of all active saves, the innermost save last. */
+    private List<Snapshot> activeSaves = new ArrayList<Snapshot>();
     
     /**
      * Construct a new virtual memory manager.
@@ -93,13 +98,7 @@ public class VM implements Cloneable {
     public ObjectId addArrayObj(final List<PSObject> obj)
             throws PSErrorVMError {
         
-        ObjectId id = new ObjectId();
-        if (id.isInGlobalVm()) {
-            arraysGlobal.put(id, obj);
-        } else {
-            arraysLocal.put(id, obj);
-        }
-        return id;
+        return new ObjectId(obj);
     }
     
     /**
@@ -114,13 +113,7 @@ public class VM implements Cloneable {
     public ObjectId addDictObj(final Map<PSObject, PSObject> obj)
             throws PSErrorVMError {
         
-        ObjectId id = new ObjectId();
-        if (id.isInGlobalVm()) {
-            dictsGlobal.put(id, obj);
-        } else {
-            dictsLocal.put(id, obj);
-        }
-        return id;
+        return new ObjectId(obj);
     }
     
     /**
@@ -132,11 +125,11 @@ public class VM implements Cloneable {
      * 
      * @throws PSErrorVMError PostScript error: VMerror.
      */
-    public ObjectId addSaveObj(final VM saveObj) throws PSErrorVMError {
-        ObjectId id = new ObjectId();
+    public ObjectId addSaveObj(final Snapshot saveObj) throws PSErrorVMError {
+        ObjectId id = new ObjectId(saveObj);
         // save object are always stored in local VM
         id.setInGlobalVM(false);
-        savesLocal.put(id, saveObj);
+        id.savedIn = NEVER_SAVED;
         return id;
     }
     
@@ -149,52 +142,15 @@ public class VM implements Cloneable {
      * 
      * @throws PSErrorVMError PostScript error: VMerror.
      */
-    public ObjectId addStringObj(final StringBuilder obj)
+    public ObjectId addStringObj(final byte[] obj)
             throws PSErrorVMError {
         
-        ObjectId id = new ObjectId();
-        if (id.isInGlobalVm()) {
-            stringsGlobal.put(id, obj);
-        } else {
-            stringsLocal.put(id, obj);
-        }
+        ObjectId id = new ObjectId(obj);
+        // The strings are not saved and restored (see PostScript manual)
+        id.savedIn = NEVER_SAVED;
         return id;
     }
     
-    /**
-     * Creates a snapshot of this VM.
-     * 
-     * @return The created snapshot of this VM.
-     */
-    @Override
-    public VM clone() {
-        VM copy;
-        try {
-            copy = (VM) super.clone();
-        } catch (CloneNotSupportedException e) {
-            copy = null;
-        }
-        
-        copy.arraysLocal = new WeakHashMap<ObjectId, List<PSObject>>();
-        for (Map.Entry<ObjectId, List<PSObject>> e : arraysLocal.entrySet()) {
-            List<PSObject> copyValue = new ArrayList<PSObject>(e.getValue());
-            copy.arraysLocal.put(e.getKey(), copyValue);
-        }
-        
-        copy.dictsLocal = new WeakHashMap<ObjectId, Map<PSObject, PSObject>>();
-        for (Map.Entry<ObjectId, Map<PSObject, PSObject>> e
-                : dictsLocal.entrySet()) {
-            
-            Map<PSObject, PSObject> copyValue =
-                new HashMap<PSObject, PSObject>(e.getValue());
-            copy.dictsLocal.put(e.getKey(), copyValue);
-        }
-        
-        // The strings are not copied (see PostScript manual)
-        
-        return copy;
-    }
-    
     /**
      * Gets the current VM allocation mode.
      * 
@@ -204,13 +160,20 @@ public class VM implements Cloneable {
         return isGlobal;
     }
     
+    /**
+     * Indicates that the set of keys of a dictionary has changed.
+     */
+    public void dictKeysChanged() {
+        dictVersion++;
+    }
+    
     /**
      * Gets the current value of the object ID counter. The counter is not
      * increased by calling this method.
      * 
      * @return The current value of the ID counter.
      */
-    public static int currentIdCounter() {
+    public int currentIdCounter() {
         return idCounter;
     }
     
@@ -221,12 +184,9 @@ public class VM implements Cloneable {
      * 
      * @return The requested array object.
      */
+    @SuppressWarnings("unchecked")
     public List<PSObject> getArrayObj(final ObjectId id) {
-        if (id.isInGlobalVm()) {
-            return arraysGlobal.get(id);
-        } else {
-            return arraysLocal.get(id);
-        }
+        return (List<PSObject>) id.value;
     }
     
     /**
@@ -236,12 +196,19 @@ public class VM implements Cloneable {
      * 
      * @return The requested dictionary object.
      */
+    @SuppressWarnings("unchecked")
     public Map<PSObject, PSObject> getDictObj(final ObjectId id) {
-        if (id.isInGlobalVm()) {
-            return dictsGlobal.get(id);
-        } else {
-            return dictsLocal.get(id);
-        }
+        return (Map<PSObject, PSObject>) id.value;
+    }
+    
+    /**
+     * Gets the current dictionary version. This version changes each time
+     * the set of keys of any dictionary changes.
+     * 
+     * @return The current dictionary version.
+     */
+    public int getDictVersion() {
+        return dictVersion;
     }
     
     /**
@@ -253,11 +220,11 @@ public class VM implements Cloneable {
      * 
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
-    public VM getSaveObj(final ObjectId id) throws ProgramError {
+    public Snapshot getSaveObj(final ObjectId id) throws ProgramError {
         if (id.isInGlobalVm()) {
             throw new ProgramError("Save object with global object ID.");
         } else {
-            return savesLocal.get(id);
+            return (Snapshot) id.value;
         }
     }
     
@@ -268,26 +235,77 @@ public class VM implements Cloneable {
      * 
      * @return The requested string object.
      */
-    public StringBuilder getStringObj(final ObjectId id) {
-        if (id.isInGlobalVm()) {
-            return stringsGlobal.get(id);
+    public byte[] getStringObj(final ObjectId id) {
+        return (byte[]) id.value;
+    }
+    
+    /**
+     * Must be called before the value of an array or dictionary is modified.
+     * If the value was not yet modified since the innermost active save, a
+     * copy of it is added to the undo log. Without an active save nothing
+     * can be restored, so nothing is logged.
+     * 
+     * @param id The ID of the value that is about to be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public void prepareWrite(final ObjectId id) {
+        int savedIn = id.savedIn;
+        if ((currentSave == 0) || (savedIn == currentSave)
+                || (savedIn == NEVER_SAVED)) {
+            return;
+        }
+        
+        Object copy;
+        if (id.value instanceof List< ? >) {
+            copy = new ArrayList<PSObject>((List<PSObject>) id.value);
         } else {
-            return stringsLocal.get(id);
+            copy = new HashMap<PSObject, PSObject>(
+                    (Map<PSObject, PSObject>) id.value);
         }
+        undoLog.add(new UndoEntry(id, copy, savedIn));
+        id.savedIn = currentSave;
     }
     
     /**
-     * Restore this VM to the state of a previously made snapshot.
+     * Restore this VM to the state of a previously made snapshot. The
+     * snapshot and all snapshots that were created after it become invalid.
      * 
-     * @param snapshot The snapshot.
+     * @param snapshot The snapshot. It must be valid.
      */
-    public void restoreFromSnapshot(final VM snapshot) {
+    public void restoreFromSnapshot(final Snapshot snapshot) {
         isGlobal = snapshot.isGlobal;
         
-        arraysLocal = snapshot.arraysLocal;
-        dictsLocal = snapshot.dictsLocal;
-        savesLocal = snapshot.savesLocal;
-        //stringsLocal doesn't need to be restored
+        for (int i = activeSaves.size() - 1; i >= 0; i--) {
+            Snapshot active = activeSaves.remove(i);
+            active.valid = false;
+            if (active == snapshot) {
+                break;
+            }
+        }
+        
+        for (int i = undoLog.size() - 1; i >= snapshot.undoLogSize; i--) {
+            UndoEntry entry = undoLog.remove(i);
+            entry.id.value = entry.value;
+            entry.id.savedIn = entry.savedIn;
+        }
+        currentSave = snapshot.parentSave;
+        //strings don't need to be restored
+        
+        dictKeysChanged();
+    }
+    
+    /**
+     * Creates a snapshot of this VM. Values that are modified after this
+     * call are saved in the undo log.
+     * 
+     * @return The created snapshot.
+     */
+    public Snapshot save() {
+        Snapshot snapshot = new Snapshot(isGlobal, currentSave,
+                undoLog.size());
+        activeSaves.add(snapshot);
+        currentSave = ++lastSave;
+        return snapshot;
     }
     
     /**
@@ -300,67 +318,72 @@ public class VM implements Cloneable {
     }
     
     /**
-     * Checks whether this VM contains a reference to a given object ID.
-     * 
-     * @param id The object ID for which to look.
-     * 
-     * @return True, if this VM has a reference to the object ID.
-     * 
-     * @throws ProgramError This shouldn't happen, it indicates a bug.
+     * State of the VM at the time of a save.
      */
-    public boolean hasReference(final ObjectId id) throws ProgramError {
-        Object obj = getArrayObj(id);
-        if (obj != null) {
-            return true;
-        }
-        obj = getDictObj(id);
-        if (obj != null) {
-            return true;
-        }
-        obj = getSaveObj(id);
-        if (obj != null) {
-            return true;
+    public static final class Snapshot {
+        /** VM allocation mode at the time of the save. */
+        private final boolean isGlobal;
+        
+        /** Serial number of the save that was active before this save. */
+        private final int parentSave;
+        
+        /** Size of the undo log at the time of the save. */
+        private final int undoLogSize;
+        
+        /** Indicates whether this snapshot can still be restored. */
+        private boolean valid = true;
+        
+        /**
+         * Creates a new snapshot.
+         * 
+         * @param global VM allocation mode.
+         * @param parent Serial number of the enclosing save.
+         * @param logSize Size of the undo log.
+         */
+        private Snapshot(final boolean global, final int parent,
+                final int logSize) {
+            isGlobal = global;
+            parentSave = parent;
+            undoLogSize = logSize;
         }
-        obj = getStringObj(id);
-        if (obj != null) {
-            return true;
+        
+        /**
+         * Checks whether this snapshot can still be restored. It can't after
+         * it, or an older snapshot, has been restored.
+         * 
+         * @return True if this snapshot is valid.
+         */
+        public boolean isValid() {
+            return valid;
         }
-        return false;
     }
     
     /**
-     * Prints all object IDs that are managed by this VM.
+     * Original value of a local array or dictionary, as it was before it was
+     * modified for the first time after a save.
      */
-    public void printAllObjectIDs() {
-        System.out.println("VM DUMP:");
+    private static final class UndoEntry {
+        /** ID of the modified value. */
+        private final ObjectId id;
         
-        System.out.println("  arrays:");
-        for (ObjectId id : arraysGlobal.keySet()) {
-            System.out.println("    " + id);
-        }
-        for (ObjectId id : arraysLocal.keySet()) {
-            System.out.println("    " + id);
-        }
-        
-        System.out.println("  dictionaries:");
-        for (ObjectId id : dictsGlobal.keySet()) {
-            System.out.println("    " + id);
-        }
-        for (ObjectId id : dictsLocal.keySet()) {
-            System.out.println("    " + id);
-        }
+        /** Copy of the original value. */
+        private final Object value;
         
-        System.out.println("  saves:");
-        for (ObjectId id : savesLocal.keySet()) {
-            System.out.println("    " + id);
-        }
+        /** Original save serial number of the value. */
+        private final int savedIn;
         
-        System.out.println("  strings:");
-        for (ObjectId id : stringsGlobal.keySet()) {
-            System.out.println("    " + id);
-        }
-        for (ObjectId id : stringsLocal.keySet()) {
-            System.out.println("    " + id);
+        /**
+         * Creates a new undo log entry.
+         * 
+         * @param pId ID of the modified value.
+         * @param pValue Copy of the original value.
+         * @param pSavedIn Original save serial number.
+         */
+        private UndoEntry(final ObjectId pId, final Object pValue,
+                final int pSavedIn) {
+            id = pId;
+            value = pValue;
+            savedIn = pSavedIn;
         }
     }
     
@@ -380,11 +403,23 @@ public class VM implements Cloneable {
          * VM. */
         private boolean inGlobalVM;
         
+        /** Shared value of the composite object(s) with this ID. */
+        private Object value;
+        
+        /**
+         * Serial number of the save in which the value was created or last
+         * added to the undo log.
+         */
+        private int savedIn;
+        
         /**
          * Construct a new unique object ID.
+         * 
+         * @param pValue The shared value associated with this ID.
+         * 
          * @throws PSErrorVMError PostScript error: VM error.
          */
-        private ObjectId() throws PSErrorVMError {
+        private ObjectId(final Object pValue) throws PSErrorVMError {
             // If we've used all we simply throw a VMerror. This is not really
             // required because most likely the objects previously used IDs no
             // longer exist and their IDs could be reused. But because it is
@@ -395,6 +430,12 @@ public class VM implements Cloneable {
             }
             idNumber = idCounter++;
             setInGlobalVM(isGlobal);
+            value = pValue;
+            if (isGlobal) {
+                savedIn = NEVER_SAVED;
+            } else {
+                savedIn = currentSave;
+            }
         }
         
         /**
@@ -821,7 +821,7 @@ public abstract class PSObject implements Cloneable, Iterable<PSObject> {
         List<PSObject> list = new ArrayList<PSObject>(3);
         list.add(0, null);
         list.add(1, this);
-        list.add(2, new PSObjectBool(true));
+        list.add(2, PSObjectBool.valueOf(true));
         return list;
     }
     
@@ -24,7 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.sf.eps2pgf.ProgramError;
-import net.sf.eps2pgf.io.PSStringInputStream;
+import net.sf.eps2pgf.io.StringInputStream;
 import net.sf.eps2pgf.ps.Interpreter;
 import net.sf.eps2pgf.ps.Matrix;
 import net.sf.eps2pgf.ps.Parser;
@@ -118,7 +118,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
         count = dblArray.length;
         List<PSObject> list = new ArrayList<PSObject>(dblArray.length);
         for (int i = 0; i < dblArray.length; i++) {
-            list.add(new PSObjectReal(dblArray[i]));
+            list.add(PSObjectReal.valueOf(dblArray[i]));
         }
         setArray(list);
     }
@@ -180,8 +180,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
             setLiteral(true);
             str = str.substring(1, str.length() - 1);
         }
-        InputStream inStream =
-            new PSStringInputStream(new PSObjectString(str, getInterp()));
+        InputStream inStream = new StringInputStream(str);
         setArray(Parser.convertAll(inStream, interpreter));
         count = getArray().size();
         offset = 0;
@@ -242,7 +241,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
         if (count != -1) {
             throw new PSErrorRangeCheck();
         }
-        getArray().add(value);
+        getArrayForWrite().add(value);
     }
     
     /**
@@ -258,7 +257,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
     public final PSObjectArray bind(final Interpreter interp)
             throws PSErrorTypeCheck {
         
-        List<PSObject> list = getArray();
+        List<PSObject> list = getArrayForWrite();
         int startIndex = offset;
         int endIndex = startIndex + count;
         for (int i = startIndex; i < endIndex; i++) {
@@ -311,7 +310,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
         // Copy the values.
         try {
             for (int i = 0; i < 6; i++) {
-                put(i, new PSObjectReal(matrix.get(i)));
+                put(i, PSObjectReal.valueOf(matrix.get(i)));
             }
         } catch (PSErrorInvalidAccess e) {
             // this can never happen
@@ -434,7 +433,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
     @Override
     public List<PSObject> getItemList() {
         List<PSObject> items = new LinkedList<PSObject>();
-        items.add(new PSObjectInt(1));
+        items.add(PSObjectInt.valueOf(1));
         for (PSObject obj : this) {
             items.add(obj);
         }
@@ -568,7 +567,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
                 throw new PSErrorInvalidAccess();
             }
         }
-        getArray().set(index + offset, value);
+        getArrayForWrite().set(index + offset, value);
     }
     
     /**
@@ -585,7 +584,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
             throws PSErrorTypeCheck, PSErrorRangeCheck {
         
         PSObjectArray array3 = obj.toArray();
-        List<PSObject> list = getArray();
+        List<PSObject> list = getArrayForWrite();
         int nr = array3.length();
         for (int i = 0; i < nr; i++) {
             list.set(offset + index + i, array3.get(i));
@@ -606,7 +605,7 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
             throw new PSErrorRangeCheck();
         }
         
-        PSObject element = getArray().remove(index + offset);
+        PSObject element = getArrayForWrite().remove(index + offset);
         
         if (count != -1) {
             count--;
@@ -725,12 +724,12 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
         int nr = size();
         if (nr == 0) {
             list = new ArrayList<PSObject>(1);
-            list.add(0, new PSObjectBool(false));
+            list.add(0, PSObjectBool.valueOf(false));
         } else {
             list = new ArrayList<PSObject>(3);
             list.add(0, new PSObjectArray(this, 1, nr - 1));
             list.add(1, get(0));
-            list.add(2, new PSObjectBool(true));
+            list.add(2, PSObjectBool.valueOf(true));
         }
         return list;
     }
@@ -762,4 +761,15 @@ public class PSObjectArray extends PSObjectComposite implements Cloneable {
     List<PSObject> getArray() {
         return getVm().getArrayObj(getId());
     }
+    
+    /**
+     * Gets the array in order to modify it. The current value is added to
+     * the undo log of the VM first, if required.
+     * 
+     * @return the array
+     */
+    private List<PSObject> getArrayForWrite() {
+        getVm().prepareWrite(getId());
+        return getVm().getArrayObj(getId());
+    }
 }
@@ -27,6 +27,12 @@ import net.sf.eps2pgf.ps.errors.PSErrorTypeCheck;
  */
 public class PSObjectBool extends PSObject implements Cloneable {
     
+    /** Shared object with the value true, see {@link #valueOf(boolean)}. */
+    private static final PSObjectBool TRUE = new PSObjectBool(true);
+    
+    /** Shared object with the value false, see {@link #valueOf(boolean)}. */
+    private static final PSObjectBool FALSE = new PSObjectBool(false);
+    
     /** Value of this boolean. */
     private boolean value = false;
     
@@ -49,6 +55,23 @@ public class PSObjectBool extends PSObject implements Cloneable {
         copyCommonAttributes(obj);
     }
     
+    /**
+     * Returns a literal boolean object with the specified value. The returned
+     * object is shared, so its attributes must not be changed. Operators that
+     * change attributes, such as 'cvx', work on a copy made by dup().
+     * 
+     * @param bool The value.
+     * 
+     * @return Boolean object with the specified value.
+     */
+    public static PSObjectBool valueOf(final boolean bool) {
+        if (bool) {
+            return TRUE;
+        } else {
+            return FALSE;
+        }
+    }
+    
     /**
      * PostScript operator 'and'.
      * 
@@ -60,7 +83,7 @@ public class PSObjectBool extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectBool and(final PSObject obj2) throws PSErrorTypeCheck {
-        return new PSObjectBool((value && obj2.toBool()));
+        return PSObjectBool.valueOf((value && obj2.toBool()));
     }
     
     /**
@@ -141,7 +164,7 @@ public class PSObjectBool extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectBool not() {
-        return new PSObjectBool(!value);
+        return PSObjectBool.valueOf(!value);
     }
     
     /**
@@ -156,7 +179,7 @@ public class PSObjectBool extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectBool or(final PSObject obj2) throws PSErrorTypeCheck {
-        return new PSObjectBool((value || obj2.toBool()));
+        return PSObjectBool.valueOf((value || obj2.toBool()));
     }
     
     /**
@@ -208,7 +231,7 @@ public class PSObjectBool extends PSObject implements Cloneable {
     public PSObjectBool xor(final PSObject obj2) throws PSErrorTypeCheck {
         boolean bool2 = obj2.toBool();
         boolean tot = ((value && !bool2) || (!value && bool2));
-        return new PSObjectBool(tot);
+        return PSObjectBool.valueOf(tot);
     }
     
 }
@@ -93,10 +93,11 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
     @Override
     public PSObject copy(final PSObject obj1) throws PSErrorTypeCheck {
         PSObjectDict dict1 = obj1.toDict();
-        Map<PSObject, PSObject> map = getMap();
+        Map<PSObject, PSObject> map = getMapForWrite();
         for (Map.Entry<PSObject, PSObject> entry : dict1.getMap().entrySet()) {
             map.put(entry.getKey(), entry.getValue());
         }
+        getVm().dictKeysChanged();
         
         return this;
     }
@@ -189,7 +190,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @throws PSErrorUndefined The PostScript error "undefined".
      */
     public PSObject get(final String key) throws PSErrorUndefined {
-        return get(new PSObjectName(key, true));
+        return get(PSObjectName.getLiteral(key));
     }
     
     /**
@@ -203,7 +204,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
     @Override
     public List<PSObject> getItemList() {
         List<PSObject> lst = new ArrayList<PSObject>();
-        lst.add(new PSObjectInt(2));
+        lst.add(PSObjectInt.valueOf(2));
         for (Map.Entry<PSObject, PSObject> entry : getMap().entrySet()) {
             lst.add(entry.getKey());
             lst.add(entry.getValue());
@@ -240,7 +241,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @return Returns true when the key is known, returns false otherwise
      */
     public boolean known(final String key) {
-        return known(new PSObjectName(key, true));
+        return known(PSObjectName.getLiteral(key));
     }
     
     /**
@@ -274,7 +275,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @param key Key of the entry to look up.
      */
     public PSObject lookup(final String key) {
-        return lookup(new PSObjectName(key, true));
+        return lookup(PSObjectName.getLiteral(key));
     }
     
     /**
@@ -321,11 +322,16 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @param value Value of the new dictionary entry.
      */
     public void setKey(final PSObject key, final PSObject value) {
+        PSObject previous;
         if (key instanceof PSObjectString) {
             PSObjectString keyStr = (PSObjectString) key;
-            getMap().put(new PSObjectName(keyStr.toString(), true), value);
+            previous = getMapForWrite().put(
+                    PSObjectName.getLiteral(keyStr.toString()), value);
         } else {
-            getMap().put(key, value);
+            previous = getMapForWrite().put(key, value);
+        }
+        if (previous == null) {
+            getVm().dictKeysChanged();
         }
     }
     
@@ -336,7 +342,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @param value Value of the new dictionary entry.
      */
     public void setKey(final String key, final PSObject value) {
-        setKey(new PSObjectName(key, true), value);
+        setKey(PSObjectName.getLiteral(key), value);
     }
     
     /**
@@ -350,7 +356,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
     public void setKey(final String key, final String value)
             throws PSErrorVMError {
         
-        setKey(new PSObjectName(key, true),
+        setKey(PSObjectName.getLiteral(key),
                 new PSObjectString(value, getInterp()));
     }
     
@@ -361,7 +367,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @param value Value of the new dictionary entry.
      */
     public void setKey(final String key, final int value) {
-        setKey(new PSObjectName(key, true), new PSObjectInt(value));
+        setKey(PSObjectName.getLiteral(key), PSObjectInt.valueOf(value));
     }
     
     /**
@@ -371,7 +377,7 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @param value Value of the new dictionary entry.
      */
     public void setKey(final String key, final boolean value) {
-        setKey(new PSObjectName(key, true), new PSObjectBool(value));
+        setKey(PSObjectName.getLiteral(key), PSObjectBool.valueOf(value));
     }
     
     /**
@@ -420,7 +426,9 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
      * @throws PSErrorTypeCheck A PostScript typecheck error occurred.
      */
     public void undef(final PSObject key) throws PSErrorTypeCheck {
-        getMap().remove(key);
+        if (getMapForWrite().remove(key) != null) {
+            getVm().dictKeysChanged();
+        }
     }
     
     /**
@@ -445,4 +453,15 @@ public class PSObjectDict extends PSObjectComposite implements Cloneable {
         return getVm().getDictObj(getId());
     }
     
+    /**
+     * Gets the map from the VM manager in order to modify it. The current
+     * value is added to the undo log of the VM first, if required.
+     * 
+     * @return map The map.
+     */
+    private Map<PSObject, PSObject> getMapForWrite() {
+        getVm().prepareWrite(getId());
+        return getVm().getDictObj(getId());
+    }
+    
 }
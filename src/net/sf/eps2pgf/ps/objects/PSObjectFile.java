@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.eps2pgf.ProgramError;
+import net.sf.eps2pgf.io.ScannableInputStream;
 import net.sf.eps2pgf.io.StringInputStream;
 import net.sf.eps2pgf.ps.Interpreter;
 import net.sf.eps2pgf.ps.Parser;
@@ -38,8 +39,14 @@ import net.sf.eps2pgf.ps.errors.PSErrorRangeCheck;
  */
 public class PSObjectFile extends PSObject implements Cloneable {
     
-    /** Input stream from which data is read. */
-    private InputStream inStr;
+    /** Initial size of the buffer used by readLine. */
+    private static final int LINE_BUFFER_SIZE = 256;
+    
+    /**
+     * Input stream from which data is read. The scanner and all other users
+     * of this file share this stream, so they see the same position.
+     */
+    private ScannableInputStream inStr;
     
     /** Interpreter to which this object belongs. */
     private Interpreter interp;
@@ -116,17 +123,17 @@ public class PSObjectFile extends PSObject implements Cloneable {
      */
     public void flushFile() throws PSError {
         try {
-            while (true) {
-                int value = inStr.read();
-                if (value < 0) {
-                    break;
-                }
-            }
+            // Skip until the end of the file. Skip may stop early, so
+            // continue until a read hits the end of the file.
+            long skipped;
+            do {
+                skipped = inStr.skip(Long.MAX_VALUE);
+            } while ((skipped > 0) || (inStr.read() >= 0));
         } catch (IOException e) {
             throw new PSErrorIOError();
         }
         
-        String name = inStr.toString();
+        String name = String.valueOf(inStr.getSource());
         if (name.contains("eps2pgf") && name.contains("Decode")) {
             closeFile();
         }
@@ -168,37 +175,45 @@ public class PSObjectFile extends PSObject implements Cloneable {
             throws PSError {
         
         boolean eofNotReached = false;
-        int charsRead = -1;
+        int n = string.length();
+        byte[] line = new byte[Math.min(n, LINE_BUFFER_SIZE)];
+        int charsRead = 0;
         try {
-            for (int i = 0; true; i++) {
+            while (true) {
                 int chr = inStr.read();
                 if (chr == 10) {         // line feed (LF)
                     eofNotReached = true;
-                    charsRead = i;
                     break;
                 } else if (chr == 13) {  // carriage return (CR)
                     // if the next character is a (LF) we need to consume it too
-                    inStr.mark(1);
-                    chr = inStr.read();
-                    if (chr != 10) {
-                        inStr.reset();
+                    if (inStr.peek() == 10) {
+                        inStr.read();
                     }
                     eofNotReached = true;
-                    charsRead = i;
                     break;
                 } else if (chr == -1) {  // end-of-file (EOF)
-                    charsRead = i;
-                } else {
-                    string.set(i, (char) chr);
+                    break;
                 }
+                
+                if (charsRead == n) {
+                    string.setBytes(0, line, 0, charsRead);
+                    throw new PSErrorRangeCheck();
+                }
+                if (charsRead == line.length) {
+                    byte[] newLine = new byte[Math.min(n, 2 * line.length)];
+                    System.arraycopy(line, 0, newLine, 0, charsRead);
+                    line = newLine;
+                }
+                line[charsRead++] = (byte) chr;
             }
         } catch (IOException e) {
             throw new PSErrorIOError();
         }
+        string.setBytes(0, line, 0, charsRead);
         
         PSObjectArray ret = new PSObjectArray(interp);
         ret.addToEnd(string.getinterval(0, charsRead));
-        ret.addToEnd(new PSObjectBool(eofNotReached));
+        ret.addToEnd(PSObjectBool.valueOf(eofNotReached));
         
         return ret;
     }
@@ -218,16 +233,17 @@ public class PSObjectFile extends PSObject implements Cloneable {
     public PSObjectString readstring(final PSObjectString string)
             throws PSErrorIOError {
         int n = string.length();
-        int length = n;
+        byte[] data = new byte[n];
+        int length = 0;
         try {
-            for (int i = 0; i < n; i++) {
-                int chr = inStr.read();
-                if (chr == -1) {
-                    length = i;
+            while (length < n) {
+                int nrRead = inStr.read(data, length, n - length);
+                if (nrRead == -1) {
                     break;
                 }
-                string.set(i, (char) chr);
+                length += nrRead;
             }
+            string.setBytes(0, data, 0, length);
             return string.getinterval(0, length);
         } catch (IOException e) {
             throw new PSErrorIOError();
@@ -279,9 +295,9 @@ public class PSObjectFile extends PSObject implements Cloneable {
         List<PSObject> retList = new ArrayList<PSObject>();
         if (any != null) {
             retList.add(any);
-            retList.add(new PSObjectBool(true));
+            retList.add(PSObjectBool.valueOf(true));
         } else {
-            retList.add(new PSObjectBool(false));
+            retList.add(PSObjectBool.valueOf(false));
         }
         return retList;
     }
@@ -297,12 +313,13 @@ public class PSObjectFile extends PSObject implements Cloneable {
     }
 
     /**
-     * Sets the stream.
+     * Sets the stream. Streams that are not yet a
+     * <code>ScannableInputStream</code> are wrapped in one that reads ahead.
      * 
      * @param inputStream The input stream.
      */
     void setStream(final InputStream inputStream) {
-        inStr = inputStream;
+        inStr = ScannableInputStream.wrap(inputStream);
     }
 
     /**
@@ -26,7 +26,6 @@ import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
-import org.fontbox.afm.AFMParser;
 import org.fontbox.afm.CharMetric;
 import org.fontbox.afm.FontMetric;
 import org.fontbox.util.BoundingBox;
@@ -53,9 +52,6 @@ import net.sf.eps2pgf.ps.resources.fonts.PSObjectFontMetrics;
  * @author Paul Wagenaars
  */
 public class PSObjectFont extends PSObjectDict implements Cloneable {
-    
-    /** The next font id. */
-    private static int nextFID = 0;
     
     /** The log. */
     private static final Logger LOG =
@@ -177,7 +173,7 @@ public class PSObjectFont extends PSObjectDict implements Cloneable {
         super(interpreter);
         
         setFID();
-        setKey(KEY_FONTTYPE, new PSObjectInt(1));
+        setKey(KEY_FONTTYPE, PSObjectInt.valueOf(1));
         setKey(KEY_FONTMATRIX,
                 (new Matrix(0.001, 0, 0, 0.001, 0, 0)).toArray(getInterp()));
     }
@@ -215,7 +211,7 @@ public class PSObjectFont extends PSObjectDict implements Cloneable {
         }
         
         // Setting the dictionary keys with font info
-        setKey(KEY_FONTTYPE, new PSObjectInt(1));
+        setKey(KEY_FONTTYPE, PSObjectInt.valueOf(1));
         setKey(KEY_FONTMATRIX,
                 (new Matrix(0.001, 0, 0, 0.001, 0, 0)).toArray(interpreter));
         setKey(KEY_FONTNAME, new PSObjectName(fontName, true));
@@ -234,7 +230,7 @@ public class PSObjectFont extends PSObjectDict implements Cloneable {
             LOG.severe("Unknown encoding: " + encoding);
             throw new PSErrorInvalidFont();
         }
-        setKey(KEY_PAINTTYPE, new PSObjectInt(2));
+        setKey(KEY_PAINTTYPE, PSObjectInt.valueOf(2));
         
         setKey(KEY_LATEXPRECODE,
                 new PSObjectString(props.getProperty("latexprecode", ""),
@@ -687,11 +683,7 @@ public class PSObjectFont extends PSObjectDict implements Cloneable {
         
         FontMetric fontMetric;
         try {
-            FileInputStream in = new FileInputStream(afmFile);
-            AFMParser afm = new AFMParser(in);
-            afm.parse();
-            fontMetric = afm.getResult();
-            in.close();
+            fontMetric = FontManager.loadFontMetric(afmFile);
         } catch (FileNotFoundException e) {
             throw new PSErrorInvalidFont();
         } catch (IOException e) {
@@ -735,8 +727,9 @@ public class PSObjectFont extends PSObjectDict implements Cloneable {
     public int setFID() {
         int fid = getFID();
         if (fid < 0) {
-            fid = nextFID++;
-            setKey(KEY_FID, new PSObjectInt(fid));
+            fid = getInterp().getResourceManager().getFontManager()
+                    .nextFontId();
+            setKey(KEY_FID, PSObjectInt.valueOf(fid));
         }
         return fid;
     }
@@ -18,6 +18,7 @@
 
 package net.sf.eps2pgf.ps.objects;
 
+import net.sf.eps2pgf.ps.NumberLexer;
 import net.sf.eps2pgf.ps.errors.PSErrorRangeCheck;
 import net.sf.eps2pgf.ps.errors.PSErrorTypeCheck;
 
@@ -28,6 +29,22 @@ import net.sf.eps2pgf.ps.errors.PSErrorTypeCheck;
  */
 public class PSObjectInt extends PSObject implements Cloneable {
     
+    /** Lowest value in the cache of shared objects. */
+    private static final int CACHE_LOW = -128;
+    
+    /** Highest value in the cache of shared objects. */
+    private static final int CACHE_HIGH = 1024;
+    
+    /** Shared objects for small integers, see {@link #valueOf(int)}. */
+    private static final PSObjectInt[] CACHE =
+        new PSObjectInt[CACHE_HIGH - CACHE_LOW + 1];
+    
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new PSObjectInt(CACHE_LOW + i);
+        }
+    }
+    
     /** Value of this integer object. */
     private int value;
     
@@ -82,6 +99,35 @@ public class PSObjectInt extends PSObject implements Cloneable {
         copyCommonAttributes(obj);
     }
     
+    /**
+     * Returns a literal integer object with the specified value. Objects for
+     * small integers are shared, so the attributes of the returned object
+     * must not be changed. Operators that change attributes, such as 'cvx',
+     * work on a copy made by dup().
+     * 
+     * @param i The value.
+     * 
+     * @return Integer object with the specified value.
+     */
+    public static PSObjectInt valueOf(final int i) {
+        if ((i >= CACHE_LOW) && (i <= CACHE_HIGH)) {
+            return CACHE[i - CACHE_LOW];
+        }
+        return new PSObjectInt(i);
+    }
+    
+    /**
+     * Returns a literal integer object with the value nearest to the
+     * specified value (i.e. round(r)). See {@link #valueOf(int)}.
+     * 
+     * @param r The value.
+     * 
+     * @return Integer object with the specified value.
+     */
+    public static PSObjectInt valueOf(final double r) {
+        return valueOf((int) Math.round(r));
+    }
+    
     /**
      * Return PostScript text representation of this object. See the
      * PostScript manual under the == operator
@@ -101,9 +147,9 @@ public class PSObjectInt extends PSObject implements Cloneable {
     public PSObject abs() {
         if (this.value == Integer.MIN_VALUE) {
             double dbl = (double) this.value;
-            return new PSObjectReal(Math.abs(dbl));
+            return PSObjectReal.valueOf(Math.abs(dbl));
         } else {
-            return new PSObjectInt(Math.abs(this.value));
+            return PSObjectInt.valueOf(Math.abs(this.value));
         }
     }
     
@@ -130,9 +176,9 @@ public class PSObjectInt extends PSObject implements Cloneable {
                     || (num2 <= Integer.MIN_VALUE / 2)) {
                 double valuedbl = this.toReal();
                 double num2dbl = obj.toReal();
-                return new PSObjectReal(valuedbl + num2dbl);
+                return PSObjectReal.valueOf(valuedbl + num2dbl);
             } else {
-                return new PSObjectInt(this.value + num2);
+                return PSObjectInt.valueOf(this.value + num2);
             }
         }
     }
@@ -146,7 +192,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
     @Override
     public PSObjectInt and(final PSObject obj2) throws PSErrorTypeCheck {
         int obj2Int = obj2.toInt();
-        return new PSObjectInt(this.value & obj2Int);
+        return PSObjectInt.valueOf(this.value & obj2Int);
     }
     
     /**
@@ -155,7 +201,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectInt ceiling() {
-        return new PSObjectInt(this.value);
+        return PSObjectInt.valueOf(this.value);
     }
     
     /**
@@ -270,7 +316,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectInt floor() {
-        return new PSObjectInt(this.value);
+        return PSObjectInt.valueOf(this.value);
     }
     
     /**
@@ -306,12 +352,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
      *         otherwise.
      */
     public static boolean isType(final String str) {
-        try {
-            new PSObjectInt(str);
-        } catch (PSErrorTypeCheck e) {
-            return false;
-        }
-        return true;
+        return (NumberLexer.parse(str) instanceof PSObjectInt);
     }
     
     /**
@@ -325,7 +366,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
         if (obj instanceof PSObjectReal) {
             double num2 = obj.toReal();
             double valuedbl = this.toReal();
-            return new PSObjectReal(valuedbl * num2);
+            return PSObjectReal.valueOf(valuedbl * num2);
         } else {
             int num2 = obj.toInt();
             
@@ -335,10 +376,10 @@ public class PSObjectInt extends PSObject implements Cloneable {
             if ((minNum != 0) && (maxNum >= (Integer.MAX_VALUE / minNum))) {
                 double num2dbl = obj.toReal();
                 double valuedbl = this.toReal();
-                return new PSObjectReal(valuedbl * num2dbl);
+                return PSObjectReal.valueOf(valuedbl * num2dbl);
             } else {
                 // We can safely do an integer multiplication
-                return new PSObjectInt(this.value * num2);
+                return PSObjectInt.valueOf(this.value * num2);
             }
         }
     }
@@ -352,9 +393,9 @@ public class PSObjectInt extends PSObject implements Cloneable {
     public PSObject neg() {
         if (this.value == Integer.MIN_VALUE) {
             double dbl = (double) this.value;
-            return new PSObjectReal(-dbl);
+            return PSObjectReal.valueOf(-dbl);
         } else {
-            return new PSObjectInt(-this.value);
+            return PSObjectInt.valueOf(-this.value);
         }
     }
     
@@ -365,7 +406,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectInt not() {
-        return new PSObjectInt(~this.value);
+        return PSObjectInt.valueOf(~this.value);
     }
     
     /**
@@ -380,7 +421,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
     @Override
     public PSObjectInt or(final PSObject obj2) throws PSErrorTypeCheck {
         int obj2Int = obj2.toInt();
-        return new PSObjectInt(this.value | obj2Int);
+        return PSObjectInt.valueOf(this.value | obj2Int);
     }
     
     /**
@@ -390,7 +431,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectInt round() {
-        return new PSObjectInt(this.value);
+        return PSObjectInt.valueOf(this.value);
     }
 
     /**
@@ -407,7 +448,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
         if (obj instanceof PSObjectReal) {
                 double valuedbl = this.toReal();
                 double num2dbl = obj.toReal();
-                return new PSObjectReal(valuedbl - num2dbl);
+                return PSObjectReal.valueOf(valuedbl - num2dbl);
         } else {
             int num2 = obj.toInt();
             // Do some simplistic overflow detection
@@ -417,9 +458,9 @@ public class PSObjectInt extends PSObject implements Cloneable {
                     || (num2 <= Integer.MIN_VALUE / 2)) {
                 double valuedbl = this.toReal();
                 double num2dbl = obj.toReal();
-                return new PSObjectReal(valuedbl - num2dbl);
+                return PSObjectReal.valueOf(valuedbl - num2dbl);
             } else {
-                return new PSObjectInt(this.value - num2);
+                return PSObjectInt.valueOf(this.value - num2);
             }
         }
     }
@@ -470,7 +511,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
      */
     @Override
     public PSObjectInt truncate() {
-        return new PSObjectInt(this.value);
+        return PSObjectInt.valueOf(this.value);
     }
 
     /**
@@ -492,7 +533,7 @@ public class PSObjectInt extends PSObject implements Cloneable {
     @Override
     public PSObjectInt xor(final PSObject obj2) throws PSErrorTypeCheck {
         int obj2Int = obj2.toInt();
-        return new PSObjectInt(this.value ^ obj2Int);
+        return PSObjectInt.valueOf(this.value ^ obj2Int);
     }
     
 }
@@ -69,7 +69,7 @@ public class PSObjectIterator implements Iterator<PSObject> {
      */
     public PSObject next() {
         try {
-            PSObject retObj = obj.get(new PSObjectInt(nextIndex));
+            PSObject retObj = obj.get(PSObjectInt.valueOf(nextIndex));
             nextIndex++;
             return retObj;
         } catch (PSError e) {
@@ -18,17 +18,55 @@
 
 package net.sf.eps2pgf.ps.objects;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import net.sf.eps2pgf.ps.Interpreter;
 
 /**
  * PostScript object: name.
+ * 
+ * All names are interned in a global name table. Each distinct spelling has
+ * exactly one table entry, with a precomputed hash code and a shared literal
+ * and executable name object. Comparing two names is therefore a pointer
+ * comparison of their entries.
+ *
+ * The table only holds weak references to its entries, so it is shared by
+ * all interpreters without growing for the lifetime of the JVM. An entry
+ * stays in the table as long as a name object that refers to it is
+ * reachable; once it is collected, the next use of that spelling creates a
+ * new entry. Since no object refers to the old entry anymore, names still
+ * compare correctly.
  *
  * @author Paul Wagenaars
  */
 public class PSObjectName extends PSObject implements Cloneable {
     
-    /** The value of this name. */
-    private String name;
+    /** Global table with all interned names, indexed by their spelling. */
+    private static final ConcurrentMap<String, NameRef> NAME_TABLE =
+        new ConcurrentHashMap<String, NameRef>(1024);
+    
+    /** Queue with references to entries that have been collected. */
+    private static final ReferenceQueue<NameEntry> STALE_ENTRIES =
+        new ReferenceQueue<NameEntry>();
+    
+    /** Number of slots in the cache for lookups of raw bytes. */
+    private static final int BYTE_CACHE_SIZE = 4096;
+    
+    /**
+     * Direct-mapped cache used by the scanner to look up names from raw bytes
+     * without creating a string. Entries are immutable, so the cache can be
+     * read and written without locking; a lost update only costs a table
+     * lookup. The cache keeps at most BYTE_CACHE_SIZE entries alive.
+     */
+    private static final NameEntry[] BYTE_CACHE =
+        new NameEntry[BYTE_CACHE_SIZE];
+    
+    /** The interned entry of this name. */
+    private final NameEntry entry;
     
     /**
      * Creates a new instance of PSObjectName.
@@ -37,10 +75,10 @@ public class PSObjectName extends PSObject implements Cloneable {
      */
     public PSObjectName(final String str) {
         if (str.charAt(0) == '/') {
-            name = str.substring(1);
+            entry = intern(str.substring(1));
             setLiteral(true);
         } else {
-            name = str;
+            entry = intern(str);
             setLiteral(false);
         }
     }
@@ -52,7 +90,7 @@ public class PSObjectName extends PSObject implements Cloneable {
      * @param pIsLiteral Indicates whether this object is a literal name
      */
     public PSObjectName(final String str, final boolean pIsLiteral) {
-        name = str;
+        entry = intern(str);
         setLiteral(pIsLiteral);
     }
     
@@ -62,10 +100,150 @@ public class PSObjectName extends PSObject implements Cloneable {
      * @param obj The obj.
      */
     public PSObjectName(final PSObjectName obj) {
-        name = obj.name;
+        entry = obj.entry;
         copyCommonAttributes(obj);
     }
     
+    /**
+     * Creates one of the shared name objects of a name table entry.
+     * 
+     * @param pEntry The name table entry.
+     * @param pIsLiteral Indicates whether this object is a literal name
+     */
+    private PSObjectName(final NameEntry pEntry, final boolean pIsLiteral) {
+        entry = pEntry;
+        setLiteral(pIsLiteral);
+    }
+    
+    /**
+     * Gets the shared literal name object for a name. The returned object
+     * must not be modified.
+     * 
+     * @param str The name (without leading slash).
+     * 
+     * @return The shared literal name object.
+     */
+    public static PSObjectName getLiteral(final String str) {
+        return intern(str).literal;
+    }
+    
+    /**
+     * Gets the shared executable name object for a name. The returned object
+     * must not be modified.
+     * 
+     * @param str The name.
+     * 
+     * @return The shared executable name object.
+     */
+    public static PSObjectName getExecutable(final String str) {
+        return intern(str).executable;
+    }
+    
+    /**
+     * Gets the shared literal name object for a name given as bytes. The
+     * returned object must not be modified.
+     * 
+     * @param buf Buffer with the name (without leading slash).
+     * @param off Index of the first byte of the name.
+     * @param len Length of the name.
+     * 
+     * @return The shared literal name object.
+     */
+    public static PSObjectName getLiteral(final byte[] buf, final int off,
+            final int len) {
+        return intern(buf, off, len).literal;
+    }
+    
+    /**
+     * Gets the shared executable name object for a name given as bytes. The
+     * returned object must not be modified.
+     * 
+     * @param buf Buffer with the name.
+     * @param off Index of the first byte of the name.
+     * @param len Length of the name.
+     * 
+     * @return The shared executable name object.
+     */
+    public static PSObjectName getExecutable(final byte[] buf, final int off,
+            final int len) {
+        return intern(buf, off, len).executable;
+    }
+    
+    /**
+     * Looks up a name given as bytes (ISO-8859-1) in the name table, adding
+     * it when it is not yet present.
+     * 
+     * @param buf Buffer with the name.
+     * @param off Index of the first byte of the name.
+     * @param len Length of the name.
+     * 
+     * @return The name table entry.
+     */
+    private static NameEntry intern(final byte[] buf, final int off,
+            final int len) {
+        // Same hash code as String.hashCode() of the decoded name
+        int hash = 0;
+        for (int i = off; i < off + len; i++) {
+            hash = 31 * hash + (buf[i] & 0xFF);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (BYTE_CACHE_SIZE - 1);
+        NameEntry nameEntry = BYTE_CACHE[slot];
+        if ((nameEntry != null) && (nameEntry.hash == hash)
+                && nameEntry.matches(buf, off, len)) {
+            return nameEntry;
+        }
+        
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char) (buf[off + i] & 0xFF);
+        }
+        nameEntry = intern(new String(chars));
+        BYTE_CACHE[slot] = nameEntry;
+        return nameEntry;
+    }
+    
+    /**
+     * Looks up a name in the name table, adding it when it is not yet
+     * present.
+     * 
+     * @param str The name.
+     * 
+     * @return The name table entry.
+     */
+    private static NameEntry intern(final String str) {
+        expungeStaleEntries();
+        
+        NameRef ref = NAME_TABLE.get(str);
+        NameEntry nameEntry = (ref == null) ? null : ref.get();
+        while (nameEntry == null) {
+            NameEntry newEntry = new NameEntry(str);
+            NameRef newRef = new NameRef(newEntry);
+            if (ref == null) {
+                ref = NAME_TABLE.putIfAbsent(str, newRef);
+                if (ref == null) {
+                    return newEntry;
+                }
+            } else if (NAME_TABLE.replace(str, ref, newRef)) {
+                return newEntry;
+            } else {
+                ref = NAME_TABLE.get(str);
+            }
+            nameEntry = (ref == null) ? null : ref.get();
+        }
+        return nameEntry;
+    }
+    
+    /**
+     * Removes the table slots of entries that have been collected.
+     */
+    private static void expungeStaleEntries() {
+        Reference< ? extends NameEntry> stale;
+        while ((stale = STALE_ENTRIES.poll()) != null) {
+            NameRef ref = (NameRef) stale;
+            NAME_TABLE.remove(ref.name, ref);
+        }
+    }
+    
     /**
      * PostScript operator 'dup'. Create a copy of this object. The values
      * of composite object is not copied, but shared.
@@ -87,6 +265,26 @@ public class PSObjectName extends PSObject implements Cloneable {
         return true;
     }
     
+    /**
+     * Returns an executable version of this name.
+     * 
+     * @return The shared executable name object.
+     */
+    @Override
+    public PSObjectName cvx() {
+        return entry.executable;
+    }
+    
+    /**
+     * Returns a literal version of this name.
+     * 
+     * @return The shared literal name object.
+     */
+    @Override
+    public PSObjectName cvlit() {
+        return entry.literal;
+    }
+    
     /**
      * Return PostScript text representation of this object. See the
      * PostScript manual under the == operator
@@ -96,9 +294,9 @@ public class PSObjectName extends PSObject implements Cloneable {
     @Override
     public String isis() {
         if (isLiteral()) {
-            return "/" + name;
+            return "/" + entry.name;
         } else {
-            return name;
+            return entry.name;
         }
     }
     
@@ -120,7 +318,7 @@ public class PSObjectName extends PSObject implements Cloneable {
      */
     @Override
     public String cvs() {
-        return name;
+        return entry.name;
     }
     
     /**
@@ -134,11 +332,10 @@ public class PSObjectName extends PSObject implements Cloneable {
     @Override
     public boolean eq(final PSObject obj) {
         if (obj instanceof PSObjectName) {
-            PSObjectName objName = (PSObjectName) obj;
-            return (name.equals(objName.name));
+            return (entry == ((PSObjectName) obj).entry);
         } else if (obj instanceof PSObjectString) {
             PSObjectString objStr = (PSObjectString) obj;
-            return (name.equals(objStr.toString()));
+            return (entry.name.equals(objStr.toString()));
         } else {
             return false;
         }
@@ -168,7 +365,7 @@ public class PSObjectName extends PSObject implements Cloneable {
      */
     @Override
     public int hashCode() {
-        return name.hashCode();
+        return entry.hash;
     }
 
     /**
@@ -200,7 +397,7 @@ public class PSObjectName extends PSObject implements Cloneable {
      */
     @Override
     public int length() {
-        return name.length();
+        return entry.name.length();
     }
     
     /**
@@ -210,7 +407,7 @@ public class PSObjectName extends PSObject implements Cloneable {
      */
     @Override
     public String toString() {
-        return name;
+        return entry.name;
     }
 
     /**
@@ -222,4 +419,74 @@ public class PSObjectName extends PSObject implements Cloneable {
     public String type() {
         return "nametype";
     }
+    
+    /**
+     * Entry in the global name table.
+     */
+    private static final class NameEntry {
+        /** Spelling of the name. */
+        private final String name;
+        
+        /** Precomputed hash code of the name. */
+        private final int hash;
+        
+        /** Shared literal name object. */
+        private final PSObjectName literal;
+        
+        /** Shared executable name object. */
+        private final PSObjectName executable;
+        
+        /**
+         * Creates a new name table entry.
+         * 
+         * @param str Spelling of the name.
+         */
+        private NameEntry(final String str) {
+            name = str;
+            hash = str.hashCode();
+            literal = new PSObjectName(this, true);
+            executable = new PSObjectName(this, false);
+        }
+        
+        /**
+         * Checks whether the spelling of this name equals a name given as
+         * bytes.
+         * 
+         * @param buf Buffer with the name.
+         * @param off Index of the first byte of the name.
+         * @param len Length of the name.
+         * 
+         * @return True, if the spelling is equal.
+         */
+        private boolean matches(final byte[] buf, final int off,
+                final int len) {
+            if (name.length() != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (name.charAt(i) != (buf[off + i] & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Weak reference to an entry in the global name table.
+     */
+    private static final class NameRef extends WeakReference<NameEntry> {
+        /** Spelling of the name, used to remove the slot from the table. */
+        private final String name;
+        
+        /**
+         * Creates a new reference to a name table entry.
+         * 
+         * @param pEntry The name table entry.
+         */
+        private NameRef(final NameEntry pEntry) {
+            super(pEntry, STALE_ENTRIES);
+            name = pEntry.name;
+        }
+    }
 }
@@ -25,7 +25,7 @@ package net.sf.eps2pgf.ps.objects;
 public class PSObjectNull extends PSObject implements Cloneable {
     
     /** Executable null object. Used internally by Eps2pgf. **/
-    private static PSObjectNull execNull = null;
+    private static final PSObjectNull EXEC_NULL = new PSObjectNull(false);
     
     /**
      * Create a new null object.
@@ -34,6 +34,15 @@ public class PSObjectNull extends PSObject implements Cloneable {
         /* empty block */
     }
     
+    /**
+     * Create a new null object.
+     * 
+     * @param pIsLiteral Indicates whether the new object is literal.
+     */
+    private PSObjectNull(final boolean pIsLiteral) {
+        setLiteral(pIsLiteral);
+    }
+    
     /**
      * Create a new null object.
      * 
@@ -92,12 +101,7 @@ public class PSObjectNull extends PSObject implements Cloneable {
      * @return An executable null object.
      */
     public static PSObjectNull getExecNull() {
-        if (execNull == null) {
-            execNull = new PSObjectNull();
-            execNull.setLiteral(false);
-        }
-        
-        return execNull;
+        return EXEC_NULL;
     }
     
     /**
@@ -18,6 +18,7 @@
 
 package net.sf.eps2pgf.ps.objects;
 
+import net.sf.eps2pgf.ps.NumberLexer;
 import net.sf.eps2pgf.ps.errors.PSError;
 import net.sf.eps2pgf.ps.errors.PSErrorRangeCheck;
 import net.sf.eps2pgf.ps.errors.PSErrorTypeCheck;
@@ -28,6 +29,25 @@ import net.sf.eps2pgf.ps.errors.PSErrorTypeCheck;
  */
 public class PSObjectReal extends PSObject implements Cloneable {
     
+    /** Lowest value in the cache of shared objects. */
+    private static final int CACHE_LOW = -128;
+    
+    /** Highest value in the cache of shared objects. */
+    private static final int CACHE_HIGH = 1024;
+    
+    /**
+     * Shared objects for reals with a small integer value, see
+     * {@link #valueOf(double)}.
+     */
+    private static final PSObjectReal[] CACHE =
+        new PSObjectReal[CACHE_HIGH - CACHE_LOW + 1];
+    
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new PSObjectReal(CACHE_LOW + i);
+        }
+    }
+    
     /** Value of this real object. */
     private double value;
     
@@ -65,20 +85,38 @@ public class PSObjectReal extends PSObject implements Cloneable {
         copyCommonAttributes(obj);
     }
     
+    /**
+     * Returns a literal real object with the specified value. Objects for
+     * reals with a small integer value (0.0, 1.0, -1.0, ...) are shared, so
+     * the attributes of the returned object must not be changed. Operators
+     * that change attributes, such as 'cvx', work on a copy made by dup().
+     * 
+     * @param dbl The value.
+     * 
+     * @return Real object with the specified value.
+     */
+    public static PSObjectReal valueOf(final double dbl) {
+        if ((dbl >= CACHE_LOW) && (dbl <= CACHE_HIGH)) {
+            int i = (int) dbl;
+            // Negative zero is not cached, it has its own string
+            // representation.
+            if ((i == dbl) && ((i != 0) || (1.0 / dbl > 0.0))) {
+                return CACHE[i - CACHE_LOW];
+            }
+        }
+        return new PSObjectReal(dbl);
+    }
+    
     /**
      * Check whether a string is a real.
      * 
      * @param str String to check.
      * 
-     * @return Returns true when str is a valid real. Returns false otherwise.
+     * @return Returns true when str is a valid real or integer. Returns false
+     * otherwise.
      */
     public static boolean isType(final String str) {
-        try {
-            Double.parseDouble(str);            
-        } catch (NumberFormatException e) {
-            return false;
-        }
-        return true;
+        return (NumberLexer.parse(str) != null);
     }
     
     /**
@@ -98,7 +136,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
      */
     @Override
     public final PSObjectReal abs() {
-        return new PSObjectReal(Math.abs(this.value));
+        return PSObjectReal.valueOf(Math.abs(this.value));
     }
 
     /**
@@ -114,7 +152,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
     @Override
     public final PSObject add(final PSObject obj) throws PSErrorTypeCheck {
         double num2 = obj.toReal();
-        return new PSObjectReal(this.value + num2);
+        return PSObjectReal.valueOf(this.value + num2);
     }
 
     /**
@@ -124,7 +162,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
      */
     @Override
     public final PSObject ceiling() {
-        return new PSObjectReal(Math.ceil(this.value));
+        return PSObjectReal.valueOf(Math.ceil(this.value));
     }
     
     /**
@@ -171,7 +209,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
         if (radix == 10) {
             return Double.toString(this.value);
         } else {
-            PSObjectInt valueInt = new PSObjectInt(cvi());
+            PSObjectInt valueInt = PSObjectInt.valueOf(cvi());
             return valueInt.cvrs(radix);
         }
     }
@@ -242,7 +280,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
      */
     @Override
     public final PSObject floor() {
-        return new PSObjectReal(Math.floor(this.value));
+        return PSObjectReal.valueOf(Math.floor(this.value));
     }
 
     /**
@@ -284,7 +322,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
     @Override
     public final PSObject mul(final PSObject obj) throws PSErrorTypeCheck {
         double num2 = obj.toReal();
-        return new PSObjectReal(this.value * num2);
+        return PSObjectReal.valueOf(this.value * num2);
     }
 
     /**
@@ -294,7 +332,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
      */
     @Override
     public final PSObjectReal neg() {
-        return new PSObjectReal(-this.value);
+        return PSObjectReal.valueOf(-this.value);
     }
 
     /**
@@ -304,7 +342,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
      */
     @Override
     public final PSObject round() {
-        return new PSObjectReal(Math.round(this.value));
+        return PSObjectReal.valueOf(Math.round(this.value));
     }
 
     /**
@@ -316,7 +354,7 @@ public class PSObjectReal extends PSObject implements Cloneable {
     @Override
     public final PSObject sub(final PSObject obj) throws PSErrorTypeCheck {
         double num2 = obj.toReal();
-        return new PSObjectReal(this.value - num2);
+        return PSObjectReal.valueOf(this.value - num2);
     }
 
     /**
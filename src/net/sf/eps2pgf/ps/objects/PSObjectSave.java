@@ -18,9 +18,6 @@
 
 package net.sf.eps2pgf.ps.objects;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 import net.sf.eps2pgf.ProgramError;
 import net.sf.eps2pgf.ps.Interpreter;
 import net.sf.eps2pgf.ps.VM;
@@ -35,19 +32,6 @@ import net.sf.eps2pgf.ps.errors.PSErrorVMError;
  */
 public class PSObjectSave extends PSObjectComposite implements Cloneable {
     
-    /** InterpCounter at time of save.*/
-    private int interpCount;
-    
-    /** Indicate whether this save object is valid. */
-    private boolean valid = true;
-    
-    /**
-     * Dictionary to keep track of the latest (i.e. highest interpCount)
-     * restore operations.
-     */
-    private static HashMap<Integer, ArrayList<PSObjectSave>> allSaveObjs =
-                                new HashMap<Integer, ArrayList<PSObjectSave>>();
-    
     /**
      * Create a new save object from the current state of the interpreter.
      * 
@@ -61,18 +45,7 @@ public class PSObjectSave extends PSObjectComposite implements Cloneable {
         
         super(interpreter);
         
-        interpCount = interpreter.getInterpCounter();
-        setId(getVm().addSaveObj(interpreter.getVm().clone()));
-        
-        int interpId = interpreter.hashCode();
-        ArrayList<PSObjectSave> saveObjs;
-        if (!allSaveObjs.containsKey(interpId)) {
-            saveObjs = new ArrayList<PSObjectSave>();
-            allSaveObjs.put(interpId, saveObjs);
-        } else {
-            saveObjs = allSaveObjs.get(interpId);
-        }
-        saveObjs.add(this);
+        setId(getVm().addSaveObj(interpreter.getVm().save()));
     }
     
     /**
@@ -83,9 +56,6 @@ public class PSObjectSave extends PSObjectComposite implements Cloneable {
      */
     public PSObjectSave(final PSObjectSave saveObj) {
         super(saveObj.getInterp(), saveObj.getId());
-        
-        interpCount = saveObj.interpCount;
-        valid = saveObj.valid;
     }
     
     /**
@@ -116,9 +86,7 @@ public class PSObjectSave extends PSObjectComposite implements Cloneable {
         }
         PSObjectSave objSave = (PSObjectSave) obj;
         
-        return (interpCount == objSave.interpCount)
-                && (valid == objSave.valid)
-                && getId().equals(objSave.getId())
+        return getId().equals(objSave.getId())
                 && getVm().equals(objSave.getVm());
     }
     
@@ -130,7 +98,7 @@ public class PSObjectSave extends PSObjectComposite implements Cloneable {
      */
     @Override
     public int hashCode() {
-        return interpCount;
+        return getId().hashCode();
     }
     
     /**
@@ -140,7 +108,7 @@ public class PSObjectSave extends PSObjectComposite implements Cloneable {
      */
     @Override
     public String isis() {
-        return "-save(" + interpCount + ")-";
+        return "-save-";
     }
     
     /**
@@ -154,29 +122,16 @@ public class PSObjectSave extends PSObjectComposite implements Cloneable {
     public void restore(final Interpreter interp)
             throws PSErrorInvalidRestore, ProgramError {
         
-        if (!valid) {
+        // A snapshot becomes invalid once it, or a save that was made before
+        // it, has been restored.
+        VM.Snapshot snapshot = getVm().getSaveObj(getId());
+        if (!snapshot.isValid()) {
             throw new PSErrorInvalidRestore();
         }
         
-        VM savedVm = getVm().getSaveObj(getId());
-        
-        // Before we do the actual restore we look through the operand,
-        // execution and dictionary stack to see if they contain a reference
-        // to a composite object to would be discarded by this restore.
-        // Do the actual restore
-        interp.getVm().restoreFromSnapshot(savedVm);
-        
-        // Invalidate this object and all newer save objects
-        valid = false;
-        int interpId = interp.hashCode();
-        ArrayList<PSObjectSave> saveObjs = allSaveObjs.get(interpId);
-        for (int i = saveObjs.size() - 1; i >= 0; i--) {
-            PSObjectSave currentObj = saveObjs.get(i);
-            if (currentObj.interpCount > interpCount) {
-                currentObj.valid = false;
-                saveObjs.remove(i);
-            }
-        }
+        // Put the original values from the undo log back. This also
+        // invalidates this object and all newer save objects.
+        interp.getVm().restoreFromSnapshot(snapshot);
     }
     
     /**
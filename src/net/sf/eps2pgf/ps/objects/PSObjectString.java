@@ -20,6 +20,7 @@ package net.sf.eps2pgf.ps.objects;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,7 +28,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.sf.eps2pgf.ProgramError;
-import net.sf.eps2pgf.io.PSStringInputStream;
+import net.sf.eps2pgf.io.ScannableInputStream;
 import net.sf.eps2pgf.io.StringInputStream;
 import net.sf.eps2pgf.ps.Interpreter;
 import net.sf.eps2pgf.ps.Parser;
@@ -41,10 +42,18 @@ import net.sf.eps2pgf.ps.resources.filters.ASCIIHexDecode;
 
 /**
  * String PostScript object.
+ * 
+ * PostScript strings are byte strings. The characters are stored in a shared
+ * byte array. A string object is a view on a part of that array, so
+ * getinterval doesn't copy any characters.
+ * 
  * @author Wagenaars
  */
 public class PSObjectString extends PSObjectComposite implements Cloneable {
     
+    /** Character set in which strings are passed to the scanner. */
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    
     /**
      * Offset, skip this number of characters at the start of
      * <code>value</code>.
@@ -68,7 +77,28 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
         super(interpreter);
         offset = 0;
         count = str.length();
-        setSharedString(new StringBuilder(str));
+        setSharedString(str.getBytes(LATIN1));
+    }
+    
+    /**
+     * Creates a new instance of PSObjectString.
+     * 
+     * @param data This object is initialized with a copy of these bytes.
+     * @param off Offset of the first byte in <code>data</code>.
+     * @param len Number of bytes.
+     * @param interpreter The interpreter.
+     * 
+     * @throws PSErrorVMError Virtual memory error.
+     */
+    public PSObjectString(final byte[] data, final int off, final int len,
+            final Interpreter interpreter) throws PSErrorVMError {
+        
+        super(interpreter);
+        byte[] value = new byte[len];
+        System.arraycopy(data, off, value, 0, len);
+        offset = 0;
+        count = len;
+        setSharedString(value);
     }
     
     /**
@@ -87,13 +117,9 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
         if (n < 0) {
             throw new PSErrorRangeCheck();
         }
-        StringBuilder str = new StringBuilder(n);
-        for (int i = 0; i < n; i++) {
-            str.append("\u0000");
-        }
         offset = 0;
         count = n;
-        setSharedString(str);
+        setSharedString(new byte[n]);
     }
     
     /**
@@ -131,7 +157,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
         }
         offset = 0;
         count = str.length();
-        setSharedString(new StringBuilder(str));
+        setSharedString(str.getBytes(LATIN1));
     }
     
     /**
@@ -168,16 +194,15 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      * If found, list with {post, match, true}.
      * If not found, list with {string, false}.
      */
-    public List<PSObject> anchorsearch(final String seek) {
-        String string = toString();
-        int n = string.length();
-        int m = seek.length();
+    public List<PSObject> anchorsearch(final PSObjectString seek) {
+        int n = count;
+        int m = seek.count;
         List<PSObject> result = new LinkedList<PSObject>();
         
-        if (!string.startsWith(seek)) {
+        if ((m > n) || !regionMatches(0, seek)) {
             // seek not found
             result.add(this);
-            result.add(new PSObjectBool(false));
+            result.add(PSObjectBool.valueOf(false));
         } else {
             try {
                 result.add(getinterval(m, n - m));
@@ -185,7 +210,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
             } catch (PSErrorRangeCheck e) {
                 // This can never happen
             }
-            result.add(new PSObjectBool(true));
+            result.add(PSObjectBool.valueOf(true));
         }
         return result;
     }
@@ -204,9 +229,9 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
     public PSObject copy(final PSObject obj1) throws PSErrorRangeCheck,
             PSErrorTypeCheck {
         
-        String obj1Str = obj1.toPSString().toString();
+        PSObjectString obj1Str = obj1.toPSString();
         putinterval(0, obj1Str);
-        return getinterval(0, obj1Str.length());
+        return getinterval(0, obj1Str.count);
     }
 
     /**
@@ -218,7 +243,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      */
     @Override
     public int cvi() throws PSError {
-        PSObjectReal ro = new PSObjectReal(getSharedString().toString());
+        PSObjectReal ro = new PSObjectReal(toString());
         return ro.cvi();
     }
     
@@ -228,7 +253,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      * @return This object converted to name object.
      */
     public PSObjectName cvn() {
-        return new PSObjectName(getSharedString().toString(), isLiteral());
+        return new PSObjectName(toString(), isLiteral());
     }
 
     /**
@@ -240,7 +265,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      */
     @Override
     public double cvr() throws PSError {
-        PSObjectReal ro = new PSObjectReal(getSharedString().toString());
+        PSObjectReal ro = new PSObjectReal(toString());
         return ro.toReal();
     }
     
@@ -307,7 +332,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
             return (toString().equals(objName.toString()));
         } else if (obj instanceof PSObjectString) {
             PSObjectString objStr = (PSObjectString) obj;
-            return (toString().equals(objStr.toString()));
+            return (count == objStr.count) && regionMatches(0, objStr);
         } else {
             return false;
         }
@@ -344,7 +369,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
             throw new PSErrorRangeCheck();
         }
         
-        return getSharedString().charAt(index + offset);
+        return getSharedString()[index + offset] & 0xFF;
     }
     
     /**
@@ -362,7 +387,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
             PSErrorRangeCheck {
         
         int chr = get(index.toInt());
-        return new PSObjectInt(chr);
+        return PSObjectInt.valueOf(chr);
     }
     
     /**
@@ -397,7 +422,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
     @Override
     public List<PSObject> getItemList() throws PSErrorTypeCheck {
         List<PSObject> items = new LinkedList<PSObject>();
-        items.add(new PSObjectInt(1));
+        items.add(PSObjectInt.valueOf(1));
         
         for (PSObject chr : this) {
             items.add(chr);
@@ -418,9 +443,18 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      */
     @Override
     public boolean gt(final PSObject obj2) throws PSErrorTypeCheck {
-        String obj1Str = getSharedString().toString();
-        String obj2Str = obj2.toPSString().toString();
-        return (obj1Str.compareTo(obj2Str) > 0);
+        PSObjectString obj2Str = obj2.toPSString();
+        byte[] str1 = getSharedString();
+        byte[] str2 = obj2Str.getSharedString();
+        int n = Math.min(count, obj2Str.count);
+        for (int i = 0; i < n; i++) {
+            int diff = (str1[offset + i] & 0xFF)
+                    - (str2[obj2Str.offset + i] & 0xFF);
+            if (diff != 0) {
+                return (diff > 0);
+            }
+        }
+        return (count > obj2Str.count);
     }
     
     /**
@@ -430,7 +464,14 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      */
     @Override
     public int hashCode() {
-        return this.toString().hashCode();
+        // Same hash code as String.hashCode() of toString(), so that strings
+        // and names with the same characters have the same hash code.
+        byte[] str = getSharedString();
+        int hash = 0;
+        for (int i = offset; i < offset + count; i++) {
+            hash = 31 * hash + (str[i] & 0xFF);
+        }
+        return hash;
     }
 
     /**
@@ -563,16 +604,20 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
     }
 
     /**
-     * Overwrites this string with a new value.
+     * Overwrites the start of this string with a new value. This object
+     * itself is not changed, so its length stays the same.
      * 
      * @param newStr New value for this object
      * 
+     * @return The substring of this string that holds the new value.
+     * 
      * @throws PSErrorRangeCheck The new string is longer than the current
      * string.
      */
-    public void overwrite(final String newStr) throws PSErrorRangeCheck {
+    public PSObjectString overwrite(final String newStr)
+            throws PSErrorRangeCheck {
         putinterval(0, newStr);
-        count = newStr.length();
+        return getinterval(0, newStr.length());
     }
     
     /**
@@ -709,9 +754,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
         if (chrInt > 255) {
             throw new PSErrorRangeCheck();
         }
-        char chr = (char) chrInt;
-        
-        getSharedString().setCharAt(idx, chr);
+        getSharedString()[offset + idx] = (byte) chrInt;
     }
     
     /**
@@ -725,11 +768,15 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
     public void putinterval(final int index, final String newStr)
             throws PSErrorRangeCheck {
         
-        if ((index < 0) || (newStr.length() > (count - index))) {
+        int len = newStr.length();
+        if ((index < 0) || (len > (count - index))) {
             throw new PSErrorRangeCheck();
         }
-        getSharedString().replace(offset + index, 
-                offset + index + newStr.length(), newStr);
+        byte[] str = getSharedString();
+        int start = offset + index;
+        for (int i = 0; i < len; i++) {
+            str[start + i] = (byte) newStr.charAt(i);
+        }
     }
     
     /**
@@ -745,8 +792,12 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
     public void putinterval(final int index, final PSObject obj)
             throws PSErrorTypeCheck, PSErrorRangeCheck {
         
-        String str = obj.toPSString().toString();
-        putinterval(index, str);
+        PSObjectString str = obj.toPSString();
+        if ((index < 0) || (str.count > (count - index))) {
+            throw new PSErrorRangeCheck();
+        }
+        System.arraycopy(str.getSharedString(), str.offset, getSharedString(),
+                offset + index, str.count);
     }
     
     /**
@@ -758,17 +809,22 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      * If found, list with {post, match, pre, true}.
      * If not found, list with {string, false}.
      */
-    public List<PSObject> search(final String seek) {
-        String string = toString();
-        int n = string.length();
-        int m = seek.length();
+    public List<PSObject> search(final PSObjectString seek) {
+        int n = count;
+        int m = seek.count;
         List<PSObject> result = new LinkedList<PSObject>();
         
-        int k = string.indexOf(seek);
+        int k = -1;
+        for (int i = 0; i <= n - m; i++) {
+            if (regionMatches(i, seek)) {
+                k = i;
+                break;
+            }
+        }
         if (k == -1) {
             // seek not found
             result.add(this);
-            result.add(new PSObjectBool(false));
+            result.add(PSObjectBool.valueOf(false));
         } else {
             try {
                 result.add(getinterval(k + m, n - k - m));
@@ -777,7 +833,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
             } catch (PSErrorRangeCheck e) {
                 // This can never happen
             }
-            result.add(new PSObjectBool(true));
+            result.add(PSObjectBool.valueOf(true));
         }
         return result;
     }
@@ -795,7 +851,69 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
             throw new PSErrorRangeCheck();
         }
         
-        getSharedString().setCharAt(index + offset, chr);
+        getSharedString()[index + offset] = (byte) chr;
+    }
+    
+    /**
+     * Checks whether the characters of this string, starting at a given
+     * index, are equal to the characters of another string.
+     * 
+     * @param index Index in this string. There must be at least as many
+     * characters after this index as there are in <code>other</code>.
+     * @param other The other string.
+     * 
+     * @return True if all characters of <code>other</code> match.
+     */
+    private boolean regionMatches(final int index,
+            final PSObjectString other) {
+        byte[] str1 = getSharedString();
+        byte[] str2 = other.getSharedString();
+        int start1 = offset + index;
+        for (int i = 0; i < other.count; i++) {
+            if (str1[start1 + i] != str2[other.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Copies a range of characters from this string to a byte array.
+     * 
+     * @param index Index of the first character to copy.
+     * @param dst Destination array.
+     * @param dstOff Offset in the destination array.
+     * @param len Number of characters to copy.
+     * 
+     * @throws PSErrorRangeCheck A PostScript rangecheck error occurred.
+     */
+    public void getBytes(final int index, final byte[] dst, final int dstOff,
+            final int len) throws PSErrorRangeCheck {
+        if ((index < 0) || (len < 0) || (len > (count - index))) {
+            throw new PSErrorRangeCheck();
+        }
+        
+        System.arraycopy(getSharedString(), offset + index, dst, dstOff, len);
+    }
+    
+    /**
+     * Replaces a range of characters in this string with bytes from a byte
+     * array.
+     * 
+     * @param index Index of the first character to replace.
+     * @param src Source array.
+     * @param srcOff Offset in the source array.
+     * @param len Number of characters to replace.
+     * 
+     * @throws PSErrorRangeCheck A PostScript rangecheck error occurred.
+     */
+    public void setBytes(final int index, final byte[] src, final int srcOff,
+            final int len) throws PSErrorRangeCheck {
+        if ((index < 0) || (len < 0) || (len > (count - index))) {
+            throw new PSErrorRangeCheck();
+        }
+        
+        System.arraycopy(src, srcOff, getSharedString(), offset + index, len);
     }
 
     /**
@@ -815,7 +933,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      */
     @Override
     public String toString() {
-        return getSharedString().substring(offset, offset + count);
+        return new String(getSharedString(), offset, count, LATIN1);
     }
     
     /**
@@ -830,7 +948,8 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      */
     @Override
     public List<PSObject> token() throws PSError, ProgramError {
-        InputStream inStream = new PSStringInputStream(this);
+        ScannableInputStream inStream =
+            new ScannableInputStream(getSharedString(), offset, count);
         PSObject any;
         try {
             any = Parser.convertSingle(inStream, getInterp());
@@ -840,7 +959,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
         
         List<PSObject> lst = new ArrayList<PSObject>();
         if (any != null) {
-            int chrs = Parser.getCharsLastConvert();
+            int chrs = (int) inStream.getPosition();
             PSObjectString post;
             try {
                 post = getinterval(chrs, count - chrs);
@@ -849,9 +968,9 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
             }
             lst.add(post);
             lst.add(any);
-            lst.add(new PSObjectBool(true));
+            lst.add(PSObjectBool.valueOf(true));
         } else {
-            lst.add(new PSObjectBool(false));
+            lst.add(PSObjectBool.valueOf(false));
         }
         return lst;
     }
@@ -959,7 +1078,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      * 
      * @throws PSErrorVMError Virtual memory error.
      */
-    private void setSharedString(final StringBuilder str)
+    private void setSharedString(final byte[] str)
             throws PSErrorVMError {
         
         setId(getVm().addStringObj(str));
@@ -970,7 +1089,7 @@ public class PSObjectString extends PSObjectComposite implements Cloneable {
      * 
      * @return The shared string object.
      */
-    private StringBuilder getSharedString() {
+    private byte[] getSharedString() {
         return getVm().getStringObj(getId());
     }
 
@@ -477,13 +477,16 @@ public final class ResourceManager {
             instance.toDict().setKey(KEY_CATEGORY, key);
         }
         
-        // Define the new resource in the dictionary.
+        // Define the new resource in the dictionary. The resource is made
+        // read-only, without changing the access of the object that was
+        // passed (dup() returns the same object for dictionaries).
+        PSObject resource = instance.dup();
         PSObjectDict catDict = getResourceDict(category);
-        catDict.setKey(key, instance);
+        catDict.setKey(key, resource);
         
-        instance.readonly();
+        resource.readonly();
        
-        return instance;
+        return resource;
     }
     
     /**
@@ -658,10 +661,10 @@ public final class ResourceManager {
         
         PSObjectArray ret = new PSObjectArray(interp);
         if (supported) {
-            ret.addToEnd(new PSObjectInt(0));
-            ret.addToEnd(new PSObjectInt(0));
+            ret.addToEnd(PSObjectInt.valueOf(0));
+            ret.addToEnd(PSObjectInt.valueOf(0));
         }
-        ret.addToEnd(new PSObjectBool(supported));
+        ret.addToEnd(PSObjectBool.valueOf(supported));
         
         return ret;
     }
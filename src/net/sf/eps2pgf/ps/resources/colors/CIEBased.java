@@ -147,7 +147,7 @@ public abstract class CIEBased extends PSColor {
     protected double decode(final double input, final PSObjectArray proc)
             throws PSError, ProgramError {
         
-        interp.getOpStack().push(new PSObjectReal(input));
+        interp.getOpStack().push(PSObjectReal.valueOf(input));
         interp.runObject(proc);
         return interp.getOpStack().pop().toReal(); 
     }
@@ -156,7 +156,7 @@ public class Indexed extends PSColor implements Cloneable {
         try {
             array.addToEnd(new PSObjectName("Indexed", true));
             array.addToEnd(currentColor.getColorSpace(interp));
-            array.addToEnd(new PSObjectInt(hival));
+            array.addToEnd(PSObjectInt.valueOf(hival));
         } catch (PSErrorRangeCheck e) {
             // this can never happen
         }
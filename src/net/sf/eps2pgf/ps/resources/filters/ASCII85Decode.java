@@ -18,9 +18,9 @@
 
 package net.sf.eps2pgf.ps.resources.filters;
 
-import java.io.InputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.util.Arrays;
 
 import net.sf.eps2pgf.ps.errors.PSError;
 import net.sf.eps2pgf.ps.objects.PSObject;
@@ -29,41 +29,50 @@ import net.sf.eps2pgf.ps.objects.PSObjectDict;
 /**
  * ASCII Base-85 decoding wrapper around an <code>InputStream</code>.
  * 
+ * The encoded characters are read from the source in blocks and decoded
+ * while they are read, so the stream never holds more than one block of
+ * encoded data. The block buffer is taken from the {@link BufferPool}.
+ * Blocks are only read when the source supports mark and reset. The
+ * characters after the EOD (end-of-data) marker that were read as part of a
+ * block are then immediately pushed back into the source, so they stay
+ * available to other readers of the source.
+ * 
  * @author Paul Wagenaars
  */
 public class ASCII85Decode extends InputStream {
+    
     /** InputStream from which raw characters are read. */
     private InputStream in;
     
-    /** This "character" indicates that the EOF (end-of-file) is encountered. */
-    private static final int EOF_CHAR = -1;
+    /** Buffer with raw (encoded) characters, <code>null</code> if none. */
+    private byte[] raw = null;
     
-    /** This "character" indicates that an IOException occurred at this point.
-     */
-    private static final int IOEXCEPTION_CHAR = -2;
+    /** Index of the next raw character to be read. */
+    private int rawPos = 0;
     
-    /** This "character" indicates that the EOD (end-of-data) sequence is
-     * encountered. */
-    private static final int EOD_CHAR = -3;
+    /** Number of valid raw characters in the buffer. */
+    private int rawCount = 0;
     
+    /** Indicates whether the last raw block ended with a '~'. */
+    private boolean rawTilde = false;
     
-    /** Buffer with all raw (encoded) characters. */
-    private ArrayList<Integer> rawChars;
+    /** Indicates that the EOD marker or the end of the source was reached. */
+    private boolean eod = false;
     
-    /** Pointer to next raw character to be read. */
-    private int rawPtr;
+    /** Buffer with decoded bytes, <code>null</code> if none. */
+    private byte[] buf = null;
     
-    /** Pointer in raw character array during last mark(). */
-    private int lastMarkPtr = -1;
+    /** Index of the next decoded byte to be read. */
+    private int pos = 0;
     
-    /** Four byte block of decoded bytes. */
-    private int[] decoded;
+    /** Number of valid decoded bytes in the buffer. */
+    private int count = 0;
     
-    /** Pointer to next decoded char to be read from. */
-    private int decodedPtr;
+    /** Index of the marked position in the buffer, -1 if not marked. */
+    private int markPos = -1;
     
-    /** Number of valid decoded characters. */
-    private int goodChars;
+    /** Maximum number of bytes that can be read before the mark expires. */
+    private int markLimit;
     
     /** CloseSource parameter. */
     private boolean closeSource;
@@ -81,9 +90,6 @@ public class ASCII85Decode extends InputStream {
             throws PSError {
         
         in = pIn;
-        decoded = new int[4];
-        decodedPtr = 5;
-        goodChars = 0;
 
         if (dict != null) {
             PSObject obj = dict.lookup(FilterManager.KEY_CLOSESOURCE);
@@ -107,9 +113,7 @@ public class ASCII85Decode extends InputStream {
     @Override
     public int available() throws IOException {
         if (in != null) {
-            int n = rawChars.size() - rawPtr;
-            n = (n * 4) / 5;
-            return n;
+            return (count - pos) + ((rawCount - rawPos) * 4) / 5;
         } else {
             throw new IOException();
         }
@@ -126,31 +130,152 @@ public class ASCII85Decode extends InputStream {
             in.close();
         }
         in = null;
+        releaseRaw();
+        releaseBuffer();
     }
     
     /**
-     * Decode characters.
+     * Decodes the next group of five characters. White-space is skipped.
      * 
-     * @param rawBytes The raw bytes.
-     * @param decodedBytes The decoded bytes.
+     * @param dst Array in which the decoded bytes are stored. There must be
+     * room for four bytes.
+     * @param off Index in <code>dst</code> of the first decoded byte.
      * 
-     * @throws IOException Signals that an I/O exception has occurred.
+     * @return The number of decoded bytes, 0 if there is no more data.
+     * 
+     * @throws IOException An invalid character was encountered or an I/O
+     * error occurred.
      */
-    private static void decodeChars(final long[] rawBytes,
-            final int[] decodedBytes) throws IOException {
+    private int decodeGroup(final byte[] dst, final int off)
+            throws IOException {
         
         long d = 0;
-        for (int j = 0; j < 5; j++) {
-            d = 85L * d + rawBytes[j] - 33L;
+        int n = 0;
+        while (n < 5) {
+            int chr;
+            if (rawPos < rawCount) {
+                chr = raw[rawPos++] & 0xFF;
+            } else {
+                chr = readRaw();
+            }
+            
+            if ((chr >= '!') && (chr <= 'u')) {
+                d = 85L * d + (chr - '!');
+                n++;
+            } else if ((n == 0) && (chr == 'z')) {
+                dst[off] = 0;
+                dst[off + 1] = 0;
+                dst[off + 2] = 0;
+                dst[off + 3] = 0;
+                skipWhitespace();
+                return 4;
+            } else if (chr == '~') {
+                if (readRaw() != '>') {
+                    throw new IOException();
+                }
+                endOfData();
+                break;
+            } else if (chr == -1) {
+                endOfData();
+                break;
+            } else if (!isWhitespace(chr)) {
+                // Not a valid base-85 character
+                throw new IOException();
+            }
+        }
+        if (n < 2) {
+            return 0;
         }
         
+        // A final partial group of n characters is padded with 'u' and
+        // decodes to n - 1 bytes.
+        for (int i = n; i < 5; i++) {
+            d = 85L * d + ('u' - '!');
+        }
         if (d >= 256L * 256L * 256L * 256L) {
             throw new IOException();
         }
-        decodedBytes[0] = (int) ((d >> 24) & 0x00FF);
-        decodedBytes[1] = (int) ((d >> 16) & 0x00FF);
-        decodedBytes[2] = (int) ((d >> 8) & 0x00FF);
-        decodedBytes[3] = (int) (d & 0x00FF);
+        int nrBytes = n - 1;
+        for (int i = 0; i < nrBytes; i++) {
+            dst[off + i] = (byte) (d >> (24 - 8 * i));
+        }
+        if (n == 5) {
+            skipWhitespace();
+        }
+        return nrBytes;
+    }
+    
+    /**
+     * Handles the end of the encoded data.
+     */
+    private void endOfData() {
+        eod = true;
+        releaseRaw();
+    }
+    
+    /**
+     * Decodes more data into the buffer.
+     * 
+     * @return The number of decoded bytes, or -1 if there is no more data.
+     * 
+     * @throws IOException An invalid character was encountered or an I/O
+     * error occurred.
+     */
+    private int fill() throws IOException {
+        if ((markPos >= 0) && (pos - markPos > markLimit)) {
+            markPos = -1;
+        }
+        if (eod) {
+            if (markPos < 0) {
+                releaseBuffer();
+            }
+            return -1;
+        }
+        
+        if (buf == null) {
+            buf = BufferPool.acquire();
+        }
+        if (markPos < 0) {
+            pos = 0;
+            count = 0;
+        } else if (count + 4 > buf.length) {
+            // Keep the bytes from the marked position onwards
+            if (markPos > 0) {
+                System.arraycopy(buf, markPos, buf, 0, count - markPos);
+                pos -= markPos;
+                count -= markPos;
+                markPos = 0;
+            }
+            if (count + 4 > buf.length) {
+                buf = Arrays.copyOf(buf, 2 * buf.length);
+            }
+        }
+        
+        int start = count;
+        do {
+            int n = decodeGroup(buf, count);
+            if (n == 0) {
+                break;
+            }
+            count += n;
+        } while (!eod && (count + 4 <= buf.length) && (rawPos < rawCount));
+        
+        if (count == start) {
+            return -1;
+        }
+        return count - start;
+    }
+    
+    /**
+     * Checks whether a character is a white-space character.
+     * 
+     * @param chr The character.
+     * 
+     * @return True if the character is white-space.
+     */
+    private static boolean isWhitespace(final int chr) {
+        return (chr == 0) || (chr == 9) || (chr == 10) || (chr == 12)
+                || (chr == 13) || (chr == 32);
     }
     
     /**
@@ -173,7 +298,8 @@ public class ASCII85Decode extends InputStream {
      */
     @Override
     public void mark(final int readlimit) {
-        lastMarkPtr = rawPtr;
+        markPos = pos;
+        markLimit = readlimit;
     }
     
     /**
@@ -206,111 +332,150 @@ public class ASCII85Decode extends InputStream {
         if (in == null) {
             throw new IOException();
         }
-        if (rawChars == null) {
-            rawChars = readAllRawChars(in);
-            rawPtr = 0;
+        if ((pos < count) || (fill() > 0)) {
+            return buf[pos++] & 0xFF;
+        }
+        return -1;
+    }
+    
+    /**
+     * Reads up to <code>len</code> bytes into an array. Complete groups are
+     * decoded directly into the array, unless the stream is marked.
+     * 
+     * @param b The array.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to read.
+     * 
+     * @return Number of bytes read, or -1 if the end of the stream is reached.
+     * 
+     * @throws IOException One or more invalid characters in input stream or an
+     * I/O error occurred.
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (in == null) {
+            throw new IOException();
+        }
+        if (len == 0) {
+            return 0;
         }
         
-        if (decodedPtr >= goodChars) {
-            long[] raw = new long[5];
-            int goodRawChars = getNextFiveChars(raw);            
-            if (goodRawChars < 2) {
-                return -1;
+        int n = 0;
+        while (n < len) {
+            if (pos < count) {
+                int m = Math.min(len - n, count - pos);
+                System.arraycopy(buf, pos, b, off + n, m);
+                pos += m;
+                n += m;
+            } else if ((markPos < 0) && (len - n >= 4) && !eod) {
+                int m = decodeGroup(b, off + n);
+                if (m == 0) {
+                    break;
+                }
+                n += m;
+            } else if (fill() <= 0) {
+                break;
             }
-            
-            decodeChars(raw, decoded);
-            decodedPtr = 0;
-            goodChars = goodRawChars - 1;
         }
         
-        return decoded[decodedPtr++];
+        if (n == 0) {
+            return -1;
+        }
+        return n;
     }
     
-    
     /**
-     * Read all raw/encoded characters from a stream and return a list with all
-     * character codes.
+     * Reads the next raw character from the source. The raw buffer is
+     * refilled when it is empty.
      * 
-     * @param inStream The input stream.
+     * @return The next raw character, or -1 at the end of the source.
      * 
-     * @return List with all character codes.
+     * @throws IOException An I/O error occurred.
      */
-    private static ArrayList<Integer> readAllRawChars(
-            final InputStream inStream) {
-        
-        // Read all encoded characters from the input stream until EOD or EOF
-        // is reached.
-        ArrayList<Integer> rawChars = new ArrayList<Integer>();
-        int c;
-        
-        try {
-            while ((c = inStream.read()) != -1) {
-                // Check for end-of-data (EOD = ~>)
-                if (c == 62) {
-                    int lastChar = rawChars.get(rawChars.size() - 1);
-                    if (lastChar == 126) {
-                        rawChars.set(rawChars.size() - 1, EOD_CHAR);
-                        break;
-                    }
+    private int readRaw() throws IOException {
+        if (rawPos >= rawCount) {
+            if (raw == null) {
+                raw = BufferPool.acquire();
+            }
+            int n;
+            if (in.markSupported()) {
+                in.mark(raw.length);
+                n = in.read(raw, 0, raw.length);
+                if (n > 0) {
+                    n = pushBackAfterEod(n);
                 }
-                rawChars.add(c);
+            } else {
+                // Without mark and reset characters after the EOD can't be
+                // pushed back, so read only one character at a time.
+                n = in.read(raw, 0, 1);
             }
-        } catch (IOException e)  {
-            rawChars.add(IOEXCEPTION_CHAR);
+            if (n <= 0) {
+                return -1;
+            }
+            rawPos = 0;
+            rawCount = n;
         }
-        rawChars.add(EOF_CHAR);
-        
-        return rawChars;
+        return raw[rawPos++] & 0xFF;
     }
     
     /**
-     * Read the next five characters from raw character buffer. This will skip
-     * whitespace.
+     * Looks for the EOD marker in a block that was just read from the
+     * (marked) source. If found, the source is repositioned directly after
+     * it.
      * 
-     * @param c Store characters in this buffer.
+     * @param n Number of characters in the block.
      * 
-     * @return Returns number of characters correctly written. If this is less
-     * than five, the remaining characters are set to '!'. Returns -1 when there
-     * are no new characters.
+     * @return The number of characters up to and including the EOD marker,
+     * or <code>n</code> if the block doesn't contain it.
      * 
-     * @throws IOException An invalid character encountered or and I/O error
-     * occurred.
+     * @throws IOException An I/O error occurred.
      */
-    private int getNextFiveChars(final long[] c)
-            throws IOException {
-        
-        int ptr = 0;
-        int goodCharsRead = 0;
-        
-        while (ptr < 5) {
-            int chr = rawChars.get(rawPtr++);
-            if ((chr >= '!') && (chr <= 'u')) {
-                c[ptr++] = chr;
-                goodCharsRead++;
-            } else if ((ptr == 0) && (chr == 'z')) {
-                c[0] = '!';
-                c[1] = '!';
-                c[2] = '!';
-                c[3] = '!';
-                c[4] = '!';
-                ptr = 5;
-                goodCharsRead = 5;
-            } else if ((chr == EOF_CHAR) || (chr == EOD_CHAR)) {
-                rawPtr--;
-                if (ptr > 0) {
-                    c[ptr++] = '/';
-                } else {
-                    return -1;
+    private int pushBackAfterEod(final int n) throws IOException {
+        int end = -1;
+        if (rawTilde && (raw[0] == '>')) {
+            end = 1;
+        } else {
+            for (int i = 0; i < n - 1; i++) {
+                if ((raw[i] == '~') && (raw[i + 1] == '>')) {
+                    end = i + 2;
+                    break;
                 }
-            } else if ((chr == 0) || (chr == 9) || (chr == 10) || (chr == 12)
-                    || (chr == 13) || (chr == 32)) {
-                // Skip all whitespace characters
-            } else {
-                // Not a valid base-85 character
-                throw new IOException();
             }
         }
-        return goodCharsRead;
+        rawTilde = (raw[n - 1] == '~');
+        if ((end < 0) || (end == n)) {
+            return n;
+        }
+        
+        in.reset();
+        BufferPool.skipFully(in, end);
+        return end;
+    }
+    
+    /**
+     * Returns the buffer with decoded bytes to the pool.
+     */
+    private void releaseBuffer() {
+        if (buf != null) {
+            BufferPool.release(buf);
+            buf = null;
+        }
+        pos = 0;
+        count = 0;
+        markPos = -1;
+    }
+    
+    /**
+     * Returns the raw buffer to the pool.
+     */
+    private void releaseRaw() {
+        if (raw != null) {
+            BufferPool.release(raw);
+            raw = null;
+        }
+        rawPos = 0;
+        rawCount = 0;
     }
     
     /**
@@ -321,10 +486,49 @@ public class ASCII85Decode extends InputStream {
      */
     @Override
     public void reset() throws IOException {
-        if (lastMarkPtr < 0) {
+        if (markPos < 0) {
             throw new IOException();
         }
-        rawPtr = lastMarkPtr;
-        decodedPtr = 5;
+        pos = markPos;
+    }
+    
+    /**
+     * Skips over decoded bytes.
+     * 
+     * @param n Number of bytes to skip.
+     * 
+     * @return Number of bytes skipped.
+     * 
+     * @throws IOException One or more invalid characters in input stream or an
+     * I/O error occurred.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        return BufferPool.skip(this, n);
+    }
+    
+    /**
+     * Skips the white-space after a group. If the EOD marker follows, it is
+     * consumed as well, so that the source is positioned directly after the
+     * encoded data as soon as the last byte has been decoded.
+     * 
+     * @throws IOException An invalid character was encountered or an I/O
+     * error occurred.
+     */
+    private void skipWhitespace() throws IOException {
+        while (!eod) {
+            int chr = readRaw();
+            if (chr == '~') {
+                if (readRaw() != '>') {
+                    throw new IOException();
+                }
+                endOfData();
+            } else if (chr == -1) {
+                endOfData();
+            } else if (!isWhitespace(chr)) {
+                rawPos--;
+                return;
+            }
+        }
     }
 }
@@ -31,6 +31,23 @@ import net.sf.eps2pgf.ps.objects.PSObjectDict;
  */
 public class ASCIIHexDecode extends InputStream {
     
+    /** Value of each hexadecimal digit, -1 for other characters. */
+    static final byte[] HEX_VALUE = new byte[256];
+    
+    static {
+        for (int i = 0; i < 256; i++) {
+            if ((i >= '0') && (i <= '9')) {
+                HEX_VALUE[i] = (byte) (i - '0');
+            } else if ((i >= 'A') && (i <= 'F')) {
+                HEX_VALUE[i] = (byte) (i - 'A' + 10);
+            } else if ((i >= 'a') && (i <= 'f')) {
+                HEX_VALUE[i] = (byte) (i - 'a' + 10);
+            } else {
+                HEX_VALUE[i] = -1;
+            }
+        }
+    }
+    
     /** Encoded characters are read from this stream. */
     private InputStream in;
     
@@ -161,6 +178,72 @@ public class ASCIIHexDecode extends InputStream {
         return (16 * c1 + c2);
     }
     
+    /**
+     * Reads up to <code>len</code> bytes into an array. The hex digits are
+     * read in blocks, but never more digits than are needed for
+     * <code>len</code> bytes.
+     * 
+     * @param b The array.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to read.
+     * 
+     * @return Number of bytes read, or -1 if the end of the stream is reached.
+     * 
+     * @throws IOException An I/O exception occurred.
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (in == null) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        
+        byte[] raw = BufferPool.acquire();
+        int n = 0;
+        int high = -1;
+        try {
+            while (n < len) {
+                long digitsNeeded = 2L * (len - n);
+                if (high >= 0) {
+                    digitsNeeded--;
+                }
+                int m = in.read(raw, 0,
+                        (int) Math.min(digitsNeeded, raw.length));
+                if (m < 0) {
+                    break;
+                }
+                for (int i = 0; i < m; i++) {
+                    int value = HEX_VALUE[raw[i] & 0xFF];
+                    if (value < 0) {
+                        continue;
+                    } else if (high < 0) {
+                        high = value;
+                    } else {
+                        b[off + n] = (byte) (16 * high + value);
+                        n++;
+                        high = -1;
+                    }
+                }
+            }
+        } finally {
+            BufferPool.release(raw);
+        }
+        
+        // An odd number of digits at the end of the data
+        if (high >= 0) {
+            b[off + n] = (byte) (16 * high);
+            n++;
+        }
+        
+        if (n == 0) {
+            return -1;
+        }
+        return n;
+    }
+    
     /**
      * Read the next hex value from the InputStream <code>in</code>. Whitespace
      * charcters are automatically skipped.
@@ -222,6 +305,6 @@ public class ASCIIHexDecode extends InputStream {
      */
     @Override
     public long skip(final long n) throws IOException {
-        return in.skip(2 * n);
+        return BufferPool.skip(this, n);
     }
 }
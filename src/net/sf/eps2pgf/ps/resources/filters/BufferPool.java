@@ -0,0 +1,129 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.ps.resources.filters;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pool of working buffers for the decode filters. Filters are created for
+ * each image and font, so reusing their buffers saves a lot of allocations.
+ * Buffers that are never released are simply garbage collected.
+ * 
+ * @author Paul Wagenaars
+ */
+final class BufferPool {
+    
+    /** Size of the buffers in the pool. */
+    static final int BUFFER_SIZE = 4096;
+    
+    /** Maximum number of buffers kept in the pool. */
+    private static final int MAX_POOLED = 32;
+    
+    /** Buffers that are currently not in use. */
+    private static final byte[][] POOL = new byte[MAX_POOLED][];
+    
+    /** Number of buffers in the pool. */
+    private static int nrPooled = 0;
+    
+    /**
+     * "Hidden" constructor.
+     */
+    private BufferPool() {
+        /* empty block */
+    }
+    
+    /**
+     * Takes a buffer from the pool. A new buffer is created when the pool is
+     * empty.
+     * 
+     * @return A buffer of <code>BUFFER_SIZE</code> bytes.
+     */
+    static synchronized byte[] acquire() {
+        if (nrPooled == 0) {
+            return new byte[BUFFER_SIZE];
+        }
+        byte[] buffer = POOL[--nrPooled];
+        POOL[nrPooled] = null;
+        return buffer;
+    }
+    
+    /**
+     * Returns a buffer to the pool. The buffer may not be used anymore after
+     * this call. Buffers with a different size than <code>BUFFER_SIZE</code>
+     * are ignored.
+     * 
+     * @param buffer The buffer.
+     */
+    static synchronized void release(final byte[] buffer) {
+        if ((buffer.length == BUFFER_SIZE) && (nrPooled < MAX_POOLED)) {
+            POOL[nrPooled++] = buffer;
+        }
+    }
+    
+    /**
+     * Skips over bytes by reading them into a buffer from the pool.
+     * 
+     * @param in The stream.
+     * @param n Number of bytes to skip.
+     * 
+     * @return Number of bytes skipped. Less than <code>n</code> only if the
+     * end of the stream was reached.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    static long skip(final InputStream in, final long n) throws IOException {
+        byte[] buffer = acquire();
+        long skipped = 0;
+        try {
+            while (skipped < n) {
+                int m = in.read(buffer, 0,
+                        (int) Math.min(n - skipped, BUFFER_SIZE));
+                if (m < 0) {
+                    break;
+                }
+                skipped += m;
+            }
+        } finally {
+            release(buffer);
+        }
+        return skipped;
+    }
+    
+    /**
+     * Skips exactly <code>n</code> bytes in a stream.
+     * 
+     * @param in The stream.
+     * @param n Number of bytes to skip.
+     * 
+     * @throws IOException An I/O error occurred, or the end of the stream was
+     * reached.
+     */
+    static void skipFully(final InputStream in, final long n)
+            throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                throw new IOException();
+            }
+            remaining -= skipped;
+        }
+    }
+}
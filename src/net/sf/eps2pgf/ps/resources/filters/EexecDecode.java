@@ -23,35 +23,73 @@ import java.io.InputStream;
 
 import net.sf.eps2pgf.ps.Interpreter;
 import net.sf.eps2pgf.ps.errors.PSError;
-import net.sf.eps2pgf.ps.objects.PSObjectDict;
+import net.sf.eps2pgf.ps.errors.PSErrorIOError;
 
 /**
  * Applies eexec decryption to an InputStream. See "Adobe Type 1 Font Format"
  * for for information on this encryption.
+ * 
+ * The data is decrypted block by block. Hexadecimal encrypted data is decoded
+ * and decrypted in the same pass, without a separate ASCIIHexDecode filter.
+ * This stream never reads more from the source than is needed for the
+ * requested data, because the encrypted section is followed by data that is
+ * not encrypted.
+ * 
  * @author Paul Wagenaars
  */
 public class EexecDecode extends InputStream {
+    
+    /** Initial value of R for the eexec encryption. */
+    private static final int EEXEC_KEY = 55665;
+    
+    /** Constant used for decryption. */
+    private static final int C1 = 52845;
+    
+    /** Constant used for decryption. */
+    private static final int C2 = 22719;
+    
+    /** Number of random bytes at start of encrypted data. */
+    private static final int NR_RANDOM_BYTES = 4;
+    
+    /** Number of characters that are checked to detect hexadecimal data. */
+    private static final int NR_DETECT_CHARS = 4;
+    
     /** <code>InputStream</code> from which encrypted data is read. */
     private InputStream in;
     
-    /** Number of random bytes at start of encrypted data. */
+    /** Indicates whether the encrypted data is hexadecimal encoded. */
+    private boolean hex;
+    
+    /** Number of random bytes at start of encrypted data that are left. */
     private int n;
     
     /** Random variable used for decryption. */
     private int r;
     
-    /** Random variable used for decryption. */
-    private int c1;
+    /** Value of the pending high hexadecimal digit, or -1 if none. */
+    private int high = -1;
     
-    /** Random variable used for decryption. */
-    private int c2;
+    /** Buffer with hexadecimal characters, taken from the pool. */
+    private byte[] raw = null;
     
     /** Value of R at the time of the last <code>mark()</code>. */
     private int markedR;
     
+    /** Value of n at the time of the last <code>mark()</code>. */
+    private int markedN;
     
     /**
-     * Wrap a eexec decryption layer around and input stream.
+     * Pending hexadecimal digit at the time of the last <code>mark()</code>.
+     */
+    private int markedHigh;
+    
+    
+    /**
+     * Wrap a eexec decryption layer around and input stream, as the eexec
+     * operator does. Leading white space is skipped. The data is assumed to be
+     * hexadecimal encoded if the first four characters are hexadecimal digits,
+     * otherwise it is binary. If the stream doesn't support mark and reset the
+     * data is assumed to be hexadecimal.
      * 
      * @param pIn Stream from which encrypted data will be read
      * @param interpreter The interpreter.
@@ -61,12 +99,14 @@ public class EexecDecode extends InputStream {
     public EexecDecode(final InputStream pIn, final Interpreter interpreter)
             throws PSError {
         
-        PSObjectDict dict = new PSObjectDict(interpreter);
-        in = new ASCIIHexDecode(pIn, dict);
-        n = 4;
-        r = 55665;
-        c1 = 52845;
-        c2 = 22719;
+        in = pIn;
+        try {
+            hex = detectHex(pIn);
+        } catch (IOException e) {
+            throw new PSErrorIOError();
+        }
+        n = NR_RANDOM_BYTES;
+        r = EEXEC_KEY;
     }
     
     /**
@@ -83,16 +123,48 @@ public class EexecDecode extends InputStream {
             final boolean binaryInput, final Interpreter interpreter)
             throws PSError {
         
-        if (binaryInput) {
-            this.in = pIn;
-        } else {
-            PSObjectDict dict = new PSObjectDict(interpreter);
-            this.in = new ASCIIHexDecode(pIn, dict);
-        }
-        n = 4;
+        in = pIn;
+        hex = !binaryInput;
+        n = NR_RANDOM_BYTES;
         r = password;
-        c1 = 52845;
-        c2 = 22719;
+    }
+    
+    /**
+     * Skips the leading white space in a stream and checks whether the data
+     * after it is hexadecimal encoded.
+     * 
+     * @param pIn The stream.
+     * 
+     * @return True if the data is hexadecimal encoded.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static boolean detectHex(final InputStream pIn)
+            throws IOException {
+        
+        if (!pIn.markSupported()) {
+            return true;
+        }
+        
+        int chr;
+        do {
+            pIn.mark(1);
+            chr = pIn.read();
+        } while ((chr == ' ') || (chr == '\t') || (chr == '\r')
+                || (chr == '\n') || (chr == '\f') || (chr == 0));
+        pIn.reset();
+        
+        pIn.mark(NR_DETECT_CHARS);
+        boolean isHex = true;
+        for (int i = 0; i < NR_DETECT_CHARS; i++) {
+            chr = pIn.read();
+            if ((chr < 0) || (ASCIIHexDecode.HEX_VALUE[chr] < 0)) {
+                isHex = false;
+                break;
+            }
+        }
+        pIn.reset();
+        return isHex;
     }
     
     /**
@@ -104,7 +176,14 @@ public class EexecDecode extends InputStream {
      */
     @Override
     public int available() throws IOException {
-        return (in.available() - n);
+        if (in == null) {
+            return 0;
+        }
+        int m = in.available();
+        if (hex) {
+            m /= 2;
+        }
+        return Math.max(m - n, 0);
     }
     
     /**
@@ -116,6 +195,25 @@ public class EexecDecode extends InputStream {
     @Override
     public void close() throws IOException {
         in = null;
+        releaseBuffer();
+    }
+    
+    /**
+     * Decrypts a block of data in place.
+     * 
+     * @param b The data.
+     * @param off Index of the first byte to decrypt.
+     * @param len Number of bytes to decrypt.
+     */
+    private void decrypt(final byte[] b, final int off, final int len) {
+        int key = r;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            int c = b[i] & 0xFF;
+            b[i] = (byte) (c ^ (key >>> 8));
+            key = ((c + key) * C1 + C2) & 0xFFFF;
+        }
+        r = key;
     }
     
     /**
@@ -138,8 +236,15 @@ public class EexecDecode extends InputStream {
      */
     @Override
     public void mark(final int readlimit) {
-        in.mark(readlimit + n);
+        if (hex) {
+            // Two digits per byte, plus some room for white space
+            in.mark(3 * (readlimit + n));
+        } else {
+            in.mark(readlimit + n);
+        }
         markedR = r;
+        markedN = n;
+        markedHigh = high;
     }
     
     /**
@@ -162,8 +267,7 @@ public class EexecDecode extends InputStream {
      * method blocks until input data is available, the end of the stream is
      * detected, or an exception is thrown.
      * 
-     * @throws IOException One or more invalid characters in input stream or an
-     * I/O error occurred.
+     * @throws IOException An I/O error occurred.
      * 
      * @return The next byte of data, or -1 if the end of the stream is reached.
      */
@@ -172,24 +276,163 @@ public class EexecDecode extends InputStream {
         if (in == null) {
             return -1;
         }
-
-        int c = in.read();
-        if (c == -1) {
+        
+        while (true) {
+            int c;
+            if (hex) {
+                c = readHexByte();
+            } else {
+                c = in.read();
+            }
+            if (c < 0) {
+                return -1;
+            }
+            
+            int p = c ^ (r >>> 8);
+            r = ((c + r) * C1 + C2) & 0xFFFF;
+            if (n == 0) {
+                return p;
+            }
+            n--;
+        }
+    }
+    
+    /**
+     * Reads up to <code>len</code> bytes of decrypted data into an array.
+     * 
+     * @param b The array.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to read.
+     * 
+     * @return Number of bytes read, or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        
+        if (in == null) {
             return -1;
-        } else if (c > 255) {
-            throw new IOException();
+        }
+        if (len == 0) {
+            return 0;
         }
         
-        int t = r >>> 8;
-        int p = (c ^ t);
-        r = ((c + r) * c1 + c2) & 0x0000FFFF;
+        int k;
+        do {
+            if (hex) {
+                k = readHex(b, off, len);
+            } else {
+                k = in.read(b, off, len);
+            }
+            if (k <= 0) {
+                return -1;
+            }
+            decrypt(b, off, k);
+            
+            // Drop the random bytes at the start
+            if (n > 0) {
+                int d = Math.min(n, k);
+                n -= d;
+                k -= d;
+                System.arraycopy(b, off + d, b, off, k);
+            }
+        } while (k == 0);
         
-        if (n > 0) {
-            n--;
-            p = this.read();
+        return k;
+    }
+    
+    /**
+     * Reads and decodes hexadecimal characters. Characters that are not
+     * hexadecimal digits are ignored. No more characters are read than
+     * needed for <code>len</code> bytes.
+     * 
+     * @param b The array in which the decoded bytes are stored.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to decode.
+     * 
+     * @return Number of bytes decoded, or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private int readHex(final byte[] b, final int off, final int len)
+            throws IOException {
+        
+        if (raw == null) {
+            raw = BufferPool.acquire();
         }
         
-        return p;
+        int k = 0;
+        while (k == 0) {
+            int want = (int) Math.min(2L * len - ((high >= 0) ? 1 : 0),
+                    raw.length);
+            int m = in.read(raw, 0, want);
+            if (m < 0) {
+                // An odd number of digits is padded with a zero
+                if (high >= 0) {
+                    b[off + k++] = (byte) (high << 4);
+                    high = -1;
+                }
+                releaseBuffer();
+                break;
+            }
+            for (int i = 0; i < m; i++) {
+                int value = ASCIIHexDecode.HEX_VALUE[raw[i] & 0xFF];
+                if (value < 0) {
+                    continue;
+                }
+                if (high < 0) {
+                    high = value;
+                } else {
+                    b[off + k++] = (byte) ((high << 4) | value);
+                    high = -1;
+                }
+            }
+        }
+        
+        return (k > 0) ? k : -1;
+    }
+    
+    /**
+     * Reads and decodes a single byte of hexadecimal data.
+     * 
+     * @return The decoded byte, or -1 at the end of the stream.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private int readHexByte() throws IOException {
+        while (true) {
+            int chr = in.read();
+            if (chr < 0) {
+                int value = -1;
+                if (high >= 0) {
+                    value = high << 4;
+                    high = -1;
+                }
+                return value;
+            }
+            int value = ASCIIHexDecode.HEX_VALUE[chr];
+            if (value >= 0) {
+                if (high < 0) {
+                    high = value;
+                } else {
+                    value |= high << 4;
+                    high = -1;
+                    return value;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the hexadecimal buffer to the pool.
+     */
+    private void releaseBuffer() {
+        if (raw != null) {
+            BufferPool.release(raw);
+            raw = null;
+        }
     }
     
     /**
@@ -205,6 +448,22 @@ public class EexecDecode extends InputStream {
         }
         in.reset();
         r = markedR;
+        n = markedN;
+        high = markedHigh;
+    }
+    
+    /**
+     * Skips over and discards <code>n</code> bytes of decrypted data.
+     * 
+     * @param nrBytes The number of bytes to skip.
+     * 
+     * @return The actual number of bytes skipped.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Override
+    public long skip(final long nrBytes) throws IOException {
+        return BufferPool.skip(this, nrBytes);
     }
     
 }
@@ -20,6 +20,7 @@ package net.sf.eps2pgf.ps.resources.filters;
 
 import java.io.InputStream;
 
+import net.sf.eps2pgf.io.ScannableInputStream;
 import net.sf.eps2pgf.ps.Interpreter;
 import net.sf.eps2pgf.ps.errors.PSError;
 import net.sf.eps2pgf.ps.errors.PSErrorTypeCheck;
@@ -147,7 +148,7 @@ public final class FilterManager {
             dict = (PSObjectDict) obj;
         } else {
             PSObjectString eodString = obj.toPSString();
-            PSObjectInt eodCount = new PSObjectInt(stack.pop().toInt());
+            PSObjectInt eodCount = PSObjectInt.valueOf(stack.pop().toInt());
             obj = stack.pop();
             if (obj instanceof PSObjectDict) {
                 dict = (PSObjectDict) obj;
@@ -192,7 +193,7 @@ public final class FilterManager {
             stack.push(obj);
             dict = new PSObjectDict(interpreter);
         }
-        dict.setKey("RecordSize", new PSObjectInt(recordSize));
+        dict.setKey("RecordSize", PSObjectInt.valueOf(recordSize));
 
         return dict;
     }
@@ -270,7 +271,10 @@ public final class FilterManager {
             throw new PSErrorUnregistered("Decode filter or type " + name);
         }
         
-        return new PSObjectFile(filteredStream, interpreter);
+        // A filter may only consume the data that is actually read from it,
+        // the remaining data in the source must stay available.
+        return new PSObjectFile(
+                new ScannableInputStream(filteredStream, false), interpreter);
     }
         
 
@@ -20,6 +20,7 @@ package net.sf.eps2pgf.ps.resources.filters;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import net.sf.eps2pgf.ps.errors.PSError;
@@ -27,7 +28,12 @@ import net.sf.eps2pgf.ps.objects.PSObject;
 import net.sf.eps2pgf.ps.objects.PSObjectDict;
 
 /**
- * FlateEncode filter.
+ * FlateDecode filter.
+ * 
+ * The input buffer is taken from the {@link BufferPool}. When the source
+ * supports mark and reset, the compressed characters after the end of the
+ * deflated data that were read into the buffer are pushed back into the
+ * source once the end of the data is reached.
  * 
  * @author Paul Wagenaars
  */
@@ -39,6 +45,13 @@ public class FlateDecode extends InflaterInputStream {
     /** CloseSource parameter. */
     private boolean closeSource;
     
+    /** Indicates whether the source was marked before the buffer was
+     * filled. */
+    private boolean marked = false;
+    
+    /** Indicates whether unused characters were pushed back already. */
+    private boolean pushedBack = false;
+    
     /**
      * Creates a new FlateDecode filter.
      * 
@@ -50,7 +63,10 @@ public class FlateDecode extends InflaterInputStream {
     public FlateDecode(final InputStream in, final PSObjectDict dict)
             throws PSError {
         
-        super(in);
+        // The buffer allocated by the super class is replaced by a pooled
+        // buffer.
+        super(in, new Inflater(), 1);
+        buf = BufferPool.acquire();
         
         PSObject obj = dict.lookup(FilterManager.KEY_CLOSESOURCE);
         if (obj != null) {
@@ -113,7 +129,58 @@ public class FlateDecode extends InflaterInputStream {
         if (isClosed) {
             throw new IOException();
         }
-        return super.read(b, off, len);
+        int n = super.read(b, off, len);
+        if (!pushedBack && inf.finished()) {
+            pushBack();
+        }
+        return n;
+    }
+    
+    /**
+     * Fills the input buffer with more data to decompress. The source is
+     * marked first if it supports it.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Override
+    protected void fill() throws IOException {
+        marked = in.markSupported();
+        if (marked) {
+            in.mark(buf.length);
+        }
+        super.fill();
+    }
+    
+    /**
+     * Pushes the characters after the end of the deflated data back into the
+     * source, if possible.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void pushBack() throws IOException {
+        pushedBack = true;
+        int remaining = inf.getRemaining();
+        if (marked && (remaining > 0)) {
+            in.reset();
+            BufferPool.skipFully(in, len - remaining);
+        }
+    }
+    
+    /**
+     * Skips over and discards <code>n</code> bytes of uncompressed data.
+     * 
+     * @param n The number of bytes to skip.
+     * 
+     * @return The actual number of bytes skipped.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        if (isClosed) {
+            throw new IOException();
+        }
+        return BufferPool.skip(this, n);
     }
     
     /**
@@ -124,6 +191,10 @@ public class FlateDecode extends InflaterInputStream {
      */
     @Override
     public void close() throws IOException {
+        if (!isClosed) {
+            inf.end();
+            BufferPool.release(buf);
+        }
         if (closeSource) {
             super.close();
         }
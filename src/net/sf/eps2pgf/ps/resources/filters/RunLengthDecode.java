@@ -20,7 +20,7 @@ package net.sf.eps2pgf.ps.resources.filters;
 
 import java.io.InputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import net.sf.eps2pgf.ps.errors.PSError;
 import net.sf.eps2pgf.ps.objects.PSObject;
@@ -29,41 +29,54 @@ import net.sf.eps2pgf.ps.objects.PSObjectDict;
 /**
  * Run-length decoding wrapper around an <code>InputStream</code>.
  * 
+ * Runs are decoded while they are read. The length byte of the next run is
+ * read as soon as a run is complete, so the EOD (end-of-data) byte is
+ * consumed directly after the last byte of data has been decoded.
+ * 
  * @author Paul Wagenaars
  */
 public class RunLengthDecode extends InputStream {
     /** InputStream from which raw characters are read. */
     private InputStream in;
     
-    /** This "character" indicates that the EOF (end-of-file) is encountered. */
-    private static final int EOF_CHAR = -1;
+    /** Length byte that marks the end of the data. */
+    private static final int EOD_LENGTH = 128;
     
-    /** This "character" indicates that an IOException occurred at this point.
-     */
-    private static final int IOEXCEPTION_CHAR = -2;
+    /** Number of bytes left in the current run. */
+    private int remaining = 0;
+    
+    /** Indicates whether the current run is a literal run. */
+    private boolean literal;
+    
+    /** The repeated byte of the current run, if it is not a literal run. */
+    private byte repeatByte;
+    
+    /** Indicates that the EOD byte or the end of the source was reached. */
+    private boolean eod = false;
     
-    /** This "character" indicates that the EOD (end-of-data) sequence is
-     * encountered. */
-    private static final int EOD_CHAR = -3;
+    /** Buffer with decoded bytes, <code>null</code> if none. */
+    private byte[] buf = null;
     
+    /** Index of the next decoded byte to be read. */
+    private int pos = 0;
     
-    /** Buffer with all decoded characters. */
-    private ArrayList<Integer> decodedChars;
+    /** Number of valid decoded bytes in the buffer. */
+    private int count = 0;
     
-    /** Pointer to next decoded character to be read. */
-    private int decodedPtr;
+    /** Index of the marked position in the buffer, -1 if not marked. */
+    private int markPos = -1;
     
-    /** Pointer in decoded character array during last mark(). */
-    private int lastMarkPtr = -1;
+    /** Maximum number of bytes that can be read before the mark expires. */
+    private int markLimit;
     
     /** CloseSource parameter. */
     private boolean closeSource;
     
     /**
-     * Creates a new instance of ASCII85Decode.
+     * Creates a new instance of RunLengthDecode.
      * 
-     * @param pIn <code>InputStream</code> from which base-85 encoded characters
-     * are read.
+     * @param pIn <code>InputStream</code> from which run-length encoded
+     * characters are read.
      * @param dict The parameter dictionary.
      * 
      * @throws PSError A PostScript error occurred.
@@ -82,16 +95,19 @@ public class RunLengthDecode extends InputStream {
     }
     
     /**
-     * Gives an estimation of the number of bytes that can still be read. Due to
-     * the nature of base-85 encoding this is not guaranteed to be correct.
-     * @throws java.io.IOException An I/O error occurred.
+     * Returns the number of bytes that can be read (or skipped over) from this
+     * input stream without blocking by the next caller of a method for this
+     * input stream.
+     * 
      * @return The number of bytes that can be read from this input stream
      * without blocking.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
      */
     @Override
     public int available() throws IOException {
         if (in != null) {
-            return decodedChars.size() - decodedPtr;
+            return (count - pos) + remaining;
         } else {
             throw new IOException();
         }
@@ -108,6 +124,91 @@ public class RunLengthDecode extends InputStream {
             in.close();
         }
         in = null;
+        releaseBuffer();
+    }
+    
+    /**
+     * Decodes data into an array.
+     * 
+     * @param dst The array.
+     * @param off Index in the array of the first decoded byte.
+     * @param len Maximum number of bytes to decode.
+     * 
+     * @return The number of decoded bytes, 0 if there is no more data.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private int decode(final byte[] dst, final int off, final int len)
+            throws IOException {
+        
+        if ((remaining == 0) && !eod) {
+            startRun();
+        }
+        
+        int n = 0;
+        while ((n < len) && !eod) {
+            int m = Math.min(len - n, remaining);
+            if (literal) {
+                m = in.read(dst, off + n, m);
+                if (m < 0) {
+                    eod = true;
+                    break;
+                }
+            } else {
+                Arrays.fill(dst, off + n, off + n + m, repeatByte);
+            }
+            n += m;
+            remaining -= m;
+            if (remaining == 0) {
+                startRun();
+            }
+        }
+        return n;
+    }
+    
+    /**
+     * Decodes more data into the buffer.
+     * 
+     * @return The number of decoded bytes, or -1 if there is no more data.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private int fill() throws IOException {
+        if ((markPos >= 0) && (pos - markPos > markLimit)) {
+            markPos = -1;
+        }
+        if (eod) {
+            if (markPos < 0) {
+                releaseBuffer();
+            }
+            return -1;
+        }
+        
+        if (buf == null) {
+            buf = BufferPool.acquire();
+        }
+        if (markPos < 0) {
+            pos = 0;
+            count = 0;
+        } else if (count == buf.length) {
+            // Keep the bytes from the marked position onwards
+            if (markPos > 0) {
+                System.arraycopy(buf, markPos, buf, 0, count - markPos);
+                pos -= markPos;
+                count -= markPos;
+                markPos = 0;
+            }
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, 2 * buf.length);
+            }
+        }
+        
+        int n = decode(buf, count, buf.length - count);
+        if (n == 0) {
+            return -1;
+        }
+        count += n;
+        return n;
     }
     
     /**
@@ -130,7 +231,8 @@ public class RunLengthDecode extends InputStream {
      */
     @Override
     public void mark(final int readlimit) {
-        lastMarkPtr = decodedPtr;
+        markPos = pos;
+        markLimit = readlimit;
     }
     
     /**
@@ -163,62 +265,70 @@ public class RunLengthDecode extends InputStream {
         if (in == null) {
             throw new IOException();
         }
-        if (decodedChars == null) {
-            decodedChars = readAndDecodeAllChars(in);
-            decodedPtr = 0;
-        }
-        
-        int c = decodedChars.get(decodedPtr);
-        if (c >= 0) {
-            decodedPtr++;
-            return c;
-        } else if ((c == EOD_CHAR) || (c == EOF_CHAR)) {
-            return -1;
-        } else {
-            throw new IOException();
+        if ((pos < count) || (fill() > 0)) {
+            return buf[pos++] & 0xFF;
         }
+        return -1;
     }
     
-    
     /**
-     * Read all raw/encoded characters from a stream, decodes them and returns a
-     * list with all (decoded) character codes.
+     * Reads up to <code>len</code> bytes into an array. Runs are decoded
+     * directly into the array, unless the stream is marked.
+     * 
+     * @param b The array.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to read.
      * 
-     * @param inStream The input stream.
+     * @return Number of bytes read, or -1 if the end of the stream is reached.
      * 
-     * @return List with all character codes.
+     * @throws IOException An I/O error occurred.
      */
-    private static ArrayList<Integer> readAndDecodeAllChars(
-            final InputStream inStream) {
-        
-        // Read all encoded characters from the input stream until EOD or EOF
-        // is reached.
-        ArrayList<Integer> rawChars = new ArrayList<Integer>();
-        int lengthByte;
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (in == null) {
+            throw new IOException();
+        }
+        if (len == 0) {
+            return 0;
+        }
         
-        try {
-            while ((lengthByte = inStream.read()) != -1) {
-                if (lengthByte <= 127) {
-                    for (int i = 0; i < (lengthByte + 1); i++) {
-                        rawChars.add(inStream.read());
-                    }
-                } else if (lengthByte == 128) {
-                    rawChars.add(EOD_CHAR);
-                    break;
-                } else if (lengthByte <= 255) {
-                    int c = inStream.read();
-                    for (int i = 0; i < (257 - lengthByte); i++) {
-                        rawChars.add(c);
-                    }
+        int n = 0;
+        if (pos < count) {
+            n = Math.min(len, count - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+        }
+        if (n < len) {
+            if (markPos < 0) {
+                n += decode(b, off + n, len - n);
+            } else {
+                while ((n < len) && (fill() > 0)) {
+                    int m = Math.min(len - n, count - pos);
+                    System.arraycopy(buf, pos, b, off + n, m);
+                    pos += m;
+                    n += m;
                 }
             }
-        } catch (IOException e)  {
-            rawChars.add(IOEXCEPTION_CHAR);
         }
         
-        rawChars.add(EOF_CHAR);
-        
-        return rawChars;
+        if (n == 0) {
+            return -1;
+        }
+        return n;
+    }
+    
+    /**
+     * Returns the buffer to the pool.
+     */
+    private void releaseBuffer() {
+        if (buf != null) {
+            BufferPool.release(buf);
+            buf = null;
+        }
+        pos = 0;
+        count = 0;
+        markPos = -1;
     }
     
     /**
@@ -229,9 +339,48 @@ public class RunLengthDecode extends InputStream {
      */
     @Override
     public void reset() throws IOException {
-        if (lastMarkPtr < 0) {
+        if (markPos < 0) {
             throw new IOException();
         }
-        decodedPtr = lastMarkPtr;
+        pos = markPos;
+    }
+    
+    /**
+     * Skips over decoded bytes.
+     * 
+     * @param n Number of bytes to skip.
+     * 
+     * @return Number of bytes skipped.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        return BufferPool.skip(this, n);
+    }
+    
+    /**
+     * Reads the length byte of the next run, and the repeated byte if it is
+     * not a literal run.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private void startRun() throws IOException {
+        int length = in.read();
+        if ((length < 0) || (length == EOD_LENGTH)) {
+            eod = true;
+        } else if (length < EOD_LENGTH) {
+            literal = true;
+            remaining = length + 1;
+        } else {
+            int chr = in.read();
+            if (chr < 0) {
+                eod = true;
+            } else {
+                literal = false;
+                repeatByte = (byte) chr;
+                remaining = 257 - length;
+            }
+        }
     }
 }
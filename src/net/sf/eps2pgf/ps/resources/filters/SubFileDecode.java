@@ -31,6 +31,12 @@ import net.sf.eps2pgf.ps.objects.PSObjectName;
  * SubFile decoding wrapper around an <code>InputStream</code>.
  * See PostScript manual for more info on SubFileDecode filter.
  * 
+ * The source is read in blocks and searched for the EOD string with the
+ * Knuth-Morris-Pratt algorithm. Blocks are only read when the source supports
+ * mark and reset. The characters after the end of the data that were read
+ * as part of a block are then immediately pushed back into the source, so
+ * they stay available to other readers of the source.
+ * 
  * @author Paul Wagenaars
  */
 public class SubFileDecode extends InputStream {
@@ -54,7 +60,7 @@ public class SubFileDecode extends InputStream {
     private int eodCount;
     
     /** The end-of-data (EOD) string. */
-    private String eodString;
+    private byte[] eodString;
 
     /** Does closing this filter also close its data source. */
     private boolean closeSource;
@@ -62,25 +68,46 @@ public class SubFileDecode extends InputStream {
     /** The number of EOD occurrences so far. */
     private int eodOccurrences = 0;
     
+    /** Length of the EOD string. */
+    private int n;
+    
+    /**
+     * Failure function of the EOD string: the length of the longest proper
+     * prefix of the first i characters that is also a suffix of them.
+     */
+    private int[] failure;
+    
     /**
-     * Read buffer. If eodCount = 0, this is a buffer that reads ahead of the
-     * characters read by the read() method. If eodCount > 0, this is a buffer
-     * of the last read bytes.
+     * Number of characters of the EOD string that have been matched. If
+     * eodCount = 0 these characters have been read from the source, but are
+     * held back until it is known whether they are part of the EOD string.
      */
-    private int[] readBuffer;
+    private int matched = 0;
     
-    /** Pointer in read-ahead buffer. */
-    private int bufferPtr = 0;
+    /** Indicates that the end of the data was reached. */
+    private boolean atEnd = false;
     
-    /** Length of read buffer. */
-    private int n;
+    /** Buffer with raw characters, <code>null</code> if none. */
+    private byte[] raw = null;
+    
+    /** Index of the next raw character. */
+    private int rawPos = 0;
     
-    /** Buffer with eodString converted to int-values. */
-    private int[] eodStringBuffer;
+    /** Number of valid characters in the raw buffer. */
+    private int rawCount = 0;
+    
+    /** Buffer with decoded bytes, <code>null</code> if none. */
+    private byte[] buf = null;
+    
+    /** Index of the next decoded byte to be read. */
+    private int pos = 0;
+    
+    /** Number of valid decoded bytes in the buffer. */
+    private int count = 0;
     
     
     /**
-     * Creates a new instance of ASCII85Decode.
+     * Creates a new instance of SubFileDecode.
      * 
      * @param pSource <code>InputStream</code> from which data is read.
      * @param dict Dictionary with filter parameters.
@@ -104,16 +131,30 @@ public class SubFileDecode extends InputStream {
         }
         
         // EODString field
+        String str;
         obj = dict.lookup(KEY_EODSTRING);
         if (obj != null) {
-            eodString = obj.toString();
+            str = obj.toString();
         } else {
-            eodString = "%%EndBinary";
+            str = "%%EndBinary";
         }
-        n = eodString.length();
-        eodStringBuffer = new int[n];
+        n = str.length();
+        eodString = new byte[n];
         for (int i = 0; i < n; i++) {
-            eodStringBuffer[i] = eodString.charAt(i);
+            eodString[i] = (byte) str.charAt(i);
+        }
+        
+        // Failure function for the Knuth-Morris-Pratt search
+        failure = new int[n + 1];
+        int k = 0;
+        for (int i = 1; i < n; i++) {
+            while ((k > 0) && (eodString[i] != eodString[k])) {
+                k = failure[k];
+            }
+            if (eodString[i] == eodString[k]) {
+                k++;
+            }
+            failure[i + 1] = k;
         }
         
         // CloseSource field
@@ -124,12 +165,11 @@ public class SubFileDecode extends InputStream {
             closeSource = false;
         }
         
-        // The read buffer has the same length as the eodString.
-        // If EODCount = 0 it's a read-ahead buffer, otherwise it is
-        // initialized with '-99' values to prevent problems when eodString has
-        // '0' values.
-        readBuffer = new int[n];
-        blankBuffer();
+        // Without EOD string the data consists of eodCount bytes. And with
+        // eodCount = 0 there is no data at all.
+        if ((n == 0) && (eodCount == 0)) {
+            atEnd = true;
+        }
     }
     
     
@@ -146,7 +186,7 @@ public class SubFileDecode extends InputStream {
     @Override
     public int available() throws IOException {
         if (source != null) {
-            return source.available();
+            return (count - pos) + (rawCount - rawPos) + source.available();
         } else {
             throw new IOException();
         }
@@ -164,6 +204,190 @@ public class SubFileDecode extends InputStream {
             source.close();
         }
         source = null;
+        releaseBuffers();
+    }
+    
+    
+    /**
+     * Decodes data into an array. If eodCount = 0, there must be room for at
+     * least n + 1 bytes, because a mismatch can release up to n - 1 held back
+     * characters together with the current character.
+     * 
+     * @param dst The array.
+     * @param off Index in the array of the first decoded byte.
+     * @param len Maximum number of bytes to decode.
+     * 
+     * @return The number of decoded bytes.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int decode(final byte[] dst, final int off, final int len)
+            throws IOException {
+        
+        if (n == 0) {
+            // Pass through eodCount bytes
+            int m = source.read(dst, off,
+                    Math.min(len, eodCount - eodOccurrences));
+            if (m < 0) {
+                atEnd = true;
+                return 0;
+            }
+            eodOccurrences += m;
+            if (eodOccurrences >= eodCount) {
+                atEnd = true;
+            }
+            return m;
+        }
+        
+        int end = off + len;
+        int k = off;
+        int minFree = (eodCount == 0) ? n + 1 : 1;
+        while (!atEnd && (end - k >= minFree)) {
+            if ((rawPos >= rawCount) && !fillRaw()) {
+                // End of the source: held back characters are data
+                if (eodCount == 0) {
+                    System.arraycopy(eodString, 0, dst, k, matched);
+                    k += matched;
+                }
+                atEnd = true;
+                break;
+            }
+            
+            byte chr = raw[rawPos++];
+            while ((matched > 0) && (chr != eodString[matched])) {
+                int fallback = failure[matched];
+                if (eodCount == 0) {
+                    // Release the characters that can no longer be part of
+                    // the EOD string.
+                    System.arraycopy(eodString, 0, dst, k,
+                            matched - fallback);
+                    k += matched - fallback;
+                }
+                matched = fallback;
+            }
+            if (chr == eodString[matched]) {
+                matched++;
+            } else if (eodCount == 0) {
+                dst[k++] = chr;
+            }
+            if (eodCount > 0) {
+                dst[k++] = chr;
+            }
+            
+            if (matched == n) {
+                matched = 0;
+                eodOccurrences++;
+                if (eodOccurrences >= eodCount) {
+                    atEnd = true;
+                    rawPos = 0;
+                    rawCount = 0;
+                }
+            }
+        }
+        return k - off;
+    }
+    
+    
+    /**
+     * Decodes more data into the buffer.
+     * 
+     * @return The number of decoded bytes, or -1 if there is no more data.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int fill() throws IOException {
+        pos = 0;
+        count = 0;
+        if (atEnd) {
+            releaseBuffers();
+            return -1;
+        }
+        if (buf == null) {
+            if (n + 1 > BufferPool.BUFFER_SIZE) {
+                buf = new byte[n + 1];
+            } else {
+                buf = BufferPool.acquire();
+            }
+        }
+        
+        while ((count == 0) && !atEnd) {
+            count = decode(buf, 0, buf.length);
+        }
+        if (count == 0) {
+            return -1;
+        }
+        return count;
+    }
+    
+    
+    /**
+     * Looks for the end of the data in the raw buffer, starting from the
+     * current state of the search.
+     * 
+     * @param m Number of characters in the raw buffer.
+     * 
+     * @return Number of characters up to and including the last character of
+     * the data, or <code>m</code> if the data doesn't end in the buffer.
+     */
+    private int findEnd(final int m) {
+        int j = matched;
+        int occurrences = eodOccurrences;
+        for (int i = 0; i < m; i++) {
+            byte chr = raw[i];
+            while ((j > 0) && (chr != eodString[j])) {
+                j = failure[j];
+            }
+            if (chr == eodString[j]) {
+                j++;
+            }
+            if (j == n) {
+                j = 0;
+                occurrences++;
+                if (occurrences >= eodCount) {
+                    return i + 1;
+                }
+            }
+        }
+        return m;
+    }
+    
+    
+    /**
+     * Reads a block of raw characters from the source. If the source supports
+     * mark and reset it is marked first, so that characters after the end of
+     * the data can be pushed back.
+     * 
+     * @return False if the end of the source was reached.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private boolean fillRaw() throws IOException {
+        if (raw == null) {
+            raw = BufferPool.acquire();
+        }
+        int m;
+        if (source.markSupported()) {
+            source.mark(raw.length);
+            m = source.read(raw, 0, raw.length);
+            if (m > 0) {
+                int end = findEnd(m);
+                if (end < m) {
+                    source.reset();
+                    BufferPool.skipFully(source, end);
+                    m = end;
+                }
+            }
+        } else {
+            // Without mark and reset characters after the end of the data
+            // can't be pushed back, so read only one character at a time.
+            m = source.read(raw, 0, 1);
+        }
+        if (m <= 0) {
+            return false;
+        }
+        rawPos = 0;
+        rawCount = m;
+        return true;
     }
     
     
@@ -195,108 +419,89 @@ public class SubFileDecode extends InputStream {
      */
     @Override
     public int read() throws IOException {
-        if (n == 0) {
-            return readNEqualsZero();
-        } else {
-            return readNLargerThanZero();
+        if (source == null) {
+            throw new IOException();
         }
+        if ((pos < count) || (fill() > 0)) {
+            return buf[pos++] & 0xFF;
+        }
+        return -1;
     }
     
     
     /**
-     * Reads the next byte from the data stream. This is a special read function
-     * that is used when n == 0.
-     * 
-     * @return The next byte, or -1 if end-of-data is reached.
+     * Reads up to <code>len</code> bytes into an array. Data is decoded
+     * directly into the array when there is enough room for it.
      * 
-     * @throws IOException Signals that an I/O exception has occurred.
-     */
-    private int readNEqualsZero() throws IOException {
-        if (eodOccurrences >= eodCount) {
-            return -1;
-        } else {
-            eodOccurrences++;
-            return source.read();
-        }
-    }
-    
-
-    /**
-     * Reads the next byte from the data stream. This is a special read function
-     * that is used when n == 0.
+     * @param b The array.
+     * @param off Index in the array of the first byte to store.
+     * @param len Maximum number of bytes to read.
      * 
-     * @return The next byte, or -1 if end-of-data is reached.
+     * @return Number of bytes read, or -1 if the end of the stream is reached.
      * 
      * @throws IOException Signals that an I/O exception has occurred.
      */
-    private int readNLargerThanZero() throws IOException {
-        if ((readBuffer[0] == -99) && (eodCount == 0)) {
-            fillBuffer();
-        }
-        
-        if (buffersEqual()) {
-            eodOccurrences++;
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        if (source == null) {
+            throw new IOException();
         }
-        
-        if (((eodCount == 0) && (eodOccurrences > 0))
-            || ((eodCount > 0) && (eodOccurrences >= eodCount))) {
-            
-            return -1;
+        if (len == 0) {
+            return 0;
         }
         
-        int value;
-        if (eodCount == 0) {
-            value = readBuffer[bufferPtr];
-            readBuffer[bufferPtr] = source.read();
-        } else {
-            value = source.read();
-            readBuffer[bufferPtr] = value;
-        }
-        bufferPtr++;
-        if (bufferPtr >= eodString.length()) {
-            bufferPtr = 0;
+        int k = 0;
+        while (k < len) {
+            if (pos < count) {
+                int m = Math.min(len - k, count - pos);
+                System.arraycopy(buf, pos, b, off + k, m);
+                pos += m;
+                k += m;
+            } else if ((len - k > n) && !atEnd) {
+                k += decode(b, off + k, len - k);
+            } else if (fill() <= 0) {
+                break;
+            }
         }
         
-        return value;
-    }
-    
-
-    /**
-     * Compare the eodStringBuffer with the read buffer.
-     * 
-     * @return True when buffers are equal, false otherwise.
-     */
-    private boolean buffersEqual() {
-        for (int i = 0; i < n; i++) {
-            int index = (i + bufferPtr) % n;
-            if (readBuffer[index] != eodStringBuffer[i]) {
-                return false;
-            }
+        if (k == 0) {
+            return -1;
         }
-        blankBuffer();
-        return true;
+        return k;
     }
     
     
     /**
-     * Fills the buffer with -99 values.
+     * Returns the buffers to the pool.
      */
-    private void blankBuffer() {
-        for (int i = 0; i < n; i++) {
-            readBuffer[i] = -99;
+    private void releaseBuffers() {
+        if (raw != null) {
+            BufferPool.release(raw);
+            raw = null;
+        }
+        rawPos = 0;
+        rawCount = 0;
+        if (buf != null) {
+            BufferPool.release(buf);
+            buf = null;
         }
+        pos = 0;
+        count = 0;
     }
     
+    
     /**
-     * Fills the read buffer with data from the source input stream.
+     * Skips over bytes.
+     * 
+     * @param nrBytes Number of bytes to skip.
+     * 
+     * @return Number of bytes skipped.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
      */
-    private void fillBuffer() {
-        for (int i = 0; i < n; i++) {
-            try {
-                readBuffer[i] = source.read();
-            } catch (IOException e) {
-                readBuffer[i] = -99;
-            }
-        }
+    @Override
+    public long skip(final long nrBytes) throws IOException {
+        return BufferPool.skip(this, nrBytes);
     }
 }
@@ -22,12 +22,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
+import org.fontbox.afm.AFMParser;
+import org.fontbox.afm.FontMetric;
+
 import net.sf.eps2pgf.ProgramError;
 import net.sf.eps2pgf.ps.Interpreter;
 import net.sf.eps2pgf.ps.errors.PSError;
@@ -50,7 +56,10 @@ import net.sf.eps2pgf.ps.resources.Utils;
  */
 public final class FontManager extends PSObjectDict {
     
-    /** All static fields need to be initialized only once. */
+    /**
+     * All static fields need to be initialized only once. They are shared by
+     * all interpreters and are not modified after initialization.
+     */
     private static boolean alreadyInitialized = false;
 
     /** Default font to use when actual font can not be found. */
@@ -66,6 +75,14 @@ public final class FontManager extends PSObjectDict {
      */
     private static Map<String, Properties> allTexStrings;
     
+    /**
+     * Font metrics that have been loaded, indexed by the path of the AFM
+     * file. The metrics are never modified after loading, so they are shared
+     * by all interpreters.
+     */
+    private static final ConcurrentMap<String, FontMetric> ALL_FONT_METRICS =
+        new ConcurrentHashMap<String, FontMetric>();
+    
     /** The logger. */
     private static final Logger LOG =
                                     Logger.getLogger("net.sourceforge.eps2pgf");
@@ -99,6 +116,8 @@ public final class FontManager extends PSObjectDict {
     public static final PSObjectName FONT_DICT_KEY =
                                           new PSObjectName("/FontDirectoryKey");
     
+    /** The next font ID (FID) of this interpreter. */
+    private int nextFID = 0;
     
     /**
      * Create a new FontDirectory and makes sure the FontManager is initialized.
@@ -126,22 +145,85 @@ public final class FontManager extends PSObjectDict {
     }
     
     /**
-     * Initializes all static fields in the FontManager.
+     * Initializes all static fields in the FontManager. This method is
+     * synchronized, so that interpreters running in different threads all
+     * see the fully loaded data.
      * 
      * @throws ProgramError This shouldn't happen, it indicates a bug.
      */
-    public static void initialize() throws ProgramError {
+    public static synchronized void initialize() throws ProgramError {
         if (!alreadyInitialized) {
             
             fontSubstitutions = loadFontSubstitutions(
                     new File(Utils.getResourceDir(), "fontSubstitution.xml"));
-            allTexStrings = loadAllTexstrings();
+            allTexStrings =
+                Collections.unmodifiableMap(loadAllTexstrings());
             
             alreadyInitialized = true;
         }
         
     }
     
+    /**
+     * Loads font metrics from an AFM file. Each file is parsed only once,
+     * subsequent calls return the same metrics.
+     * 
+     * @param afmFile The AFM file.
+     * 
+     * @return The font metrics.
+     * 
+     * @throws IOException Unable to read the file.
+     */
+    public static FontMetric loadFontMetric(final File afmFile)
+            throws IOException {
+        
+        String key = afmFile.getAbsolutePath();
+        FontMetric fontMetric = ALL_FONT_METRICS.get(key);
+        if (fontMetric == null) {
+            FileInputStream in = new FileInputStream(afmFile);
+            try {
+                AFMParser afm = new AFMParser(in);
+                afm.parse();
+                fontMetric = afm.getResult();
+            } finally {
+                in.close();
+            }
+            FontMetric other = ALL_FONT_METRICS.putIfAbsent(key,
+                    fontMetric);
+            if (other != null) {
+                // Another thread loaded the same file in the meantime
+                fontMetric = other;
+            }
+        }
+        
+        return fontMetric;
+    }
+    
+    /**
+     * Loads the metrics of all fonts in the resource directory, so that
+     * later conversions don't have to parse the AFM files. Files that can
+     * not be read are skipped.
+     * 
+     * @throws ProgramError This shouldn't happen, it indicates a bug.
+     */
+    public static void loadAllFontMetrics() throws ProgramError {
+        File afmDir = new File(Utils.getResourceDir(), AFM_DIR_NAME);
+        File[] afmFiles = afmDir.listFiles();
+        if (afmFiles == null) {
+            return;
+        }
+        for (File afmFile : afmFiles) {
+            if (afmFile.getName().toLowerCase().endsWith(".afm")) {
+                try {
+                    loadFontMetric(afmFile);
+                } catch (IOException e) {
+                    LOG.warning("Unable to load font metrics from "
+                            + afmFile.getPath() + ".");
+                }
+            }
+        }
+    }
+    
     /**
      * Define a new font and associate it with a key.
      * 
@@ -169,6 +251,15 @@ public final class FontManager extends PSObjectDict {
         return font;
     }
     
+    /**
+     * Gets the next available font ID (FID).
+     * 
+     * @return The font ID.
+     */
+    public int nextFontId() {
+        return nextFID++;
+    }
+    
     /**
      * Search a font and return it's corresponding font dictionary.
      * 
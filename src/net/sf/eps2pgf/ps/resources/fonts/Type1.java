@@ -258,23 +258,23 @@ final class Type1 {
                     out.add(new PSObjectName(cmd, false));
                 } else if (v <= 246) {
                     // it's a single byte integer
-                    out.add(new PSObjectInt(v - 139));
+                    out.add(PSObjectInt.valueOf(v - 139));
                 } else if (v <= 250) {
                     // it's a two byte positive integer
                     int w = in.read();
-                    out.add(new PSObjectInt(((v - 247) * 256) + w + 108));
+                    out.add(PSObjectInt.valueOf(((v - 247) * 256) + w + 108));
                 } else if (v <= 254) {
                     // it's a two byte negative integer
                     int w = in.read();
-                    out.add(new PSObjectInt(-((v - 251) * 256) - w - 108));
+                    out.add(PSObjectInt.valueOf(-((v - 251) * 256) - w - 108));
                 } else {
                     // it's a 32-bit bit integer (5 bytes in total)
                     int b3 = in.read();
                     int b2 = in.read();
                     int b1 = in.read();
                     int b0 = in.read();
-                    out.add(new PSObjectInt((b3 << 24) | (b2 << 16) | (b1 << 8)
-                            | (b0)));
+                    out.add(PSObjectInt.valueOf((b3 << 24) | (b2 << 16)
+                            | (b1 << 8) | (b0)));
                 }
             }
         } catch (IOException e) {
@@ -411,7 +411,7 @@ final class Type1 {
                     double num1 = opStack.pop().toReal();
                     double num2 = opStack.pop().toReal();
                     double result = num1 / num2;
-                    opStack.push(new PSObjectReal(result));
+                    opStack.push(PSObjectReal.valueOf(result));
                 } else {
                     System.out.println("-=-=- Unknown command: " + cmd);
                 }
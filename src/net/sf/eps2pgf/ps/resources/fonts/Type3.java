@@ -96,7 +96,7 @@ public final class Type3 {
                     proc.addToEnd(obj);
                 }
             } else {
-                proc.addToEnd(new PSObjectInt(charCodes.get(i)));
+                proc.addToEnd(PSObjectInt.valueOf(charCodes.get(i)));
                 for (PSObject obj : buildChar) {
                     proc.addToEnd(obj);
                 }
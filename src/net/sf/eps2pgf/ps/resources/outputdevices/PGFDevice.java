@@ -62,6 +62,9 @@ import net.sf.eps2pgf.ps.resources.shadings.Shading;
  */
 public class PGFDevice implements OutputDevice, Cloneable {
     
+    /** Start of the comment at the top of the output file. */
+    public static final String CREATED_PREFIX = "% Created by ";
+    
     /** Coordinate format (used to format X- and Y-coordinates). */
     public static final DecimalFormat COOR_FORMAT =
         new DecimalFormat("#.###", new DecimalFormatSymbols(Locale.US));
@@ -180,16 +183,24 @@ public class PGFDevice implements OutputDevice, Cloneable {
      */
     public void init() throws PSError {
         try {
-            out.write("% Created by " + net.sf.eps2pgf.Main.getNameVersion()
-                    + " ");
-            Date now = new Date();
-            out.write("on " + now  + "\n");
+            out.write(getCreatedComment());
             out.write("\\begin{pgfpicture}\n");
         } catch (IOException e) {
             throw new PSErrorIOError();
         }
     }
     
+    /**
+     * Returns the comment at the top of the output file. It contains the
+     * program version and the current date.
+     * 
+     * @return The comment, including the newline.
+     */
+    public static String getCreatedComment() {
+        return CREATED_PREFIX + net.sf.eps2pgf.Main.getNameVersion()
+                + " on " + new Date() + "\n";
+    }
+    
     /**
      * Finalize writing. Normally, this method writes a footer.
      * 
@@ -911,6 +922,8 @@ public class PGFDevice implements OutputDevice, Cloneable {
             PdfImageCreator pdfImgCreator = new PdfImageCreator(interp);
             pdfImgCreator.writeImage(pdfOut, img, pdfFile.getName());
             pdfOut.close();
+            interp.addSideFile(epsFile);
+            interp.addSideFile(pdfFile);
             
             double[][] bbox = img.getDeviceBbox();
             int[] cornerMap = img.getCornerMap();
@@ -22,6 +22,12 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import net.sf.eps2pgf.testsuite.figures.AllFigures;
+import net.sf.eps2pgf.testsuite.figures.BatchConversionTest;
+import net.sf.eps2pgf.testsuite.figures.ConversionCacheTest;
+import net.sf.eps2pgf.testsuite.figures.DSCHeaderTest;
+import net.sf.eps2pgf.testsuite.figures.DaemonTest;
+import net.sf.eps2pgf.testsuite.figures.LargeInputTest;
+import net.sf.eps2pgf.testsuite.figures.ParallelConversionTest;
 import net.sf.eps2pgf.testsuite.pstests.AllPSTests;
 
 /**
@@ -30,7 +36,13 @@ import net.sf.eps2pgf.testsuite.pstests.AllPSTests;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     AllPSTests.class,
-    AllFigures.class
+    AllFigures.class,
+    ParallelConversionTest.class,
+    BatchConversionTest.class,
+    DaemonTest.class,
+    ConversionCacheTest.class,
+    LargeInputTest.class,
+    DSCHeaderTest.class
 })
 
 public class AllTests {
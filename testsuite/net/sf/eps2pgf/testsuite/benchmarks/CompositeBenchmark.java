@@ -0,0 +1,91 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.benchmarks;
+
+import net.sf.eps2pgf.io.StringInputStream;
+import net.sf.eps2pgf.ps.Interpreter;
+import net.sf.eps2pgf.ps.objects.PSObjectFile;
+
+/**
+ * Measures the execution time of programs that mostly access arrays and
+ * dictionaries, so the time is dominated by getting at the values of
+ * composite objects. The benchmark only uses classes that have been part of
+ * the interpreter for a long time, so it can also be compiled against older
+ * revisions to compare them.
+ * 
+ * Usage: <code>CompositeBenchmark [program...]</code>. Without arguments a
+ * set of standard programs is used.
+ * 
+ * @author Paul Wagenaars
+ */
+public final class CompositeBenchmark {
+    
+    /** Number of times each measurement is repeated, the best is reported. */
+    private static final int REPETITIONS = 10;
+    
+    /** Programs that are used when no programs are specified. */
+    private static final String[] DEFAULT_PROGRAMS = {
+        "/a [0 1 2 3 4 5 6 7 8 9] def 200000 { a aload clear } repeat",
+        "/a 1000 array def 500 { a { pop } forall } repeat",
+        "/a 100 array def 0 1 199999 { a exch 100 mod 2 copy 7 put get pop }"
+            + " for",
+        "1 dict begin 0 1 199999 { /x exch def x pop } for end"
+    };
+    
+    /**
+     * "Hidden" constructor.
+     */
+    private CompositeBenchmark() {
+        /* empty block */
+    }
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args Optional list of programs.
+     * 
+     * @throws Exception An error occurred.
+     */
+    public static void main(final String[] args) throws Exception {
+        String[] programs = args;
+        if (programs.length == 0) {
+            programs = DEFAULT_PROGRAMS;
+        }
+        
+        for (String program : programs) {
+            long best = Long.MAX_VALUE;
+            for (int r = -1; r < REPETITIONS; r++) {
+                Interpreter interp = new Interpreter();
+                PSObjectFile file = new PSObjectFile(
+                        new StringInputStream(program), interp);
+                long start = System.nanoTime();
+                interp.getExecStack().push(file);
+                interp.start();
+                long end = System.nanoTime();
+                if (r >= 0) {
+                    best = Math.min(best, end - start);
+                }
+            }
+            
+            System.out.println(String.format("%-50s %8.1f ms", program,
+                    best / 1e6));
+        }
+    }
+    
+}
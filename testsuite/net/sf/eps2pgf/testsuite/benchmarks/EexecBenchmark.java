@@ -0,0 +1,209 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.eps2pgf.io.ScannableInputStream;
+import net.sf.eps2pgf.ps.Interpreter;
+import net.sf.eps2pgf.ps.resources.filters.EexecDecode;
+
+/**
+ * Measures the throughput of eexec decryption on the encrypted sections of
+ * Type 1 fonts in PFA format, or PostScript files with embedded Type 1 fonts.
+ * Each section is decrypted as the eexec operator does it, including the
+ * detection of hexadecimal data. The throughput is reported in MB/s of
+ * decrypted data, both for block reads and for single byte reads.
+ * 
+ * Usage: <code>EexecBenchmark [file...]</code>. Without arguments the test
+ * figures with embedded fonts are used.
+ * 
+ * @author Paul Wagenaars
+ */
+public final class EexecBenchmark {
+    
+    /** Number of times each measurement is repeated, the best is reported. */
+    private static final int REPETITIONS = 200;
+    
+    /** Files that are used when no files are specified. */
+    private static final String[] DEFAULT_FILES = {
+        "testsuite/test_figures/mathematica2.eps",
+        "testsuite/test_figures/quartz1.eps",
+        "testsuite/test_figures/showtext_mathematica1.ps"
+    };
+    
+    /** Size of the buffer used to read the decrypted data. */
+    private static final int READ_SIZE = 8192;
+    
+    /** Keyword that starts an encrypted section. */
+    private static final byte[] EEXEC = "eexec".getBytes();
+    
+    /**
+     * Number of consecutive zeros that marks the end of an encrypted section.
+     * In a PFA font the section is followed by 512 zeros.
+     */
+    private static final int NR_TRAILING_ZEROS = 64;
+    
+    /**
+     * "Hidden" constructor.
+     */
+    private EexecBenchmark() {
+        /* empty block */
+    }
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args Optional list of files.
+     * 
+     * @throws Exception An error occurred.
+     */
+    public static void main(final String[] args) throws Exception {
+        String[] files = args;
+        if (files.length == 0) {
+            files = DEFAULT_FILES;
+        }
+        
+        Interpreter interp = new Interpreter();
+        byte[] buf = new byte[READ_SIZE];
+        for (String file : files) {
+            byte[] data = readFile(new File(file));
+            List<int[]> sections = findSections(data);
+            long size = 0;
+            long bestBlock = Long.MAX_VALUE;
+            long bestSingle = Long.MAX_VALUE;
+            for (int r = -1; r < REPETITIONS; r++) {
+                long start = System.nanoTime();
+                size = 0;
+                for (int[] section : sections) {
+                    InputStream in = new EexecDecode(new ScannableInputStream(
+                            data, section[0], section[1]), interp);
+                    int n;
+                    while ((n = in.read(buf, 0, buf.length)) >= 0) {
+                        size += n;
+                    }
+                }
+                long middle = System.nanoTime();
+                for (int[] section : sections) {
+                    InputStream in = new EexecDecode(new ScannableInputStream(
+                            data, section[0], section[1]), interp);
+                    while (in.read() >= 0) {
+                        continue;
+                    }
+                }
+                long end = System.nanoTime();
+                if (r >= 0) {
+                    bestBlock = Math.min(bestBlock, middle - start);
+                    bestSingle = Math.min(bestSingle, end - middle);
+                }
+            }
+            
+            double mb = size / (1024.0 * 1024.0);
+            System.out.println(String.format(
+                    "%-40s %3d sections %7.1f kB %8.1f MB/s %8.1f MB/s",
+                    new File(file).getName(), sections.size(),
+                    size / 1024.0, mb / (bestBlock / 1e9),
+                    mb / (bestSingle / 1e9)));
+        }
+    }
+    
+    /**
+     * Finds the encrypted sections in a file. A section starts after the
+     * <code>eexec</code> keyword, and ends at the trailing zeros or at the end
+     * of the file.
+     * 
+     * @param data The contents of the file.
+     * 
+     * @return List with the offset and length of each section.
+     */
+    private static List<int[]> findSections(final byte[] data) {
+        List<int[]> sections = new ArrayList<int[]>();
+        int i = indexOf(data, EEXEC, 0);
+        while (i >= 0) {
+            int start = i + EEXEC.length;
+            int end = start;
+            int zeros = 0;
+            while ((end < data.length) && (zeros < NR_TRAILING_ZEROS)) {
+                if (data[end] == '0') {
+                    zeros++;
+                } else if ((data[end] != '\r') && (data[end] != '\n')) {
+                    zeros = 0;
+                }
+                end++;
+            }
+            sections.add(new int[] {start, end - start});
+            i = indexOf(data, EEXEC, end);
+        }
+        return sections;
+    }
+    
+    /**
+     * Searches for a sequence of bytes.
+     * 
+     * @param data The data to search.
+     * @param key The sequence to search for.
+     * @param from Index in the data where the search starts.
+     * 
+     * @return The index of the first occurrence, or -1 if not found.
+     */
+    private static int indexOf(final byte[] data, final byte[] key,
+            final int from) {
+        for (int i = from; i <= data.length - key.length; i++) {
+            int j = 0;
+            while ((j < key.length) && (data[i + j] == key[j])) {
+                j++;
+            }
+            if (j == key.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Reads the complete contents of a file.
+     * 
+     * @param file The file.
+     * 
+     * @return The contents.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private static byte[] readFile(final File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int off = 0;
+            int n;
+            while ((off < data.length)
+                    && ((n = in.read(data, off, data.length - off)) >= 0)) {
+                off += n;
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+    
+}
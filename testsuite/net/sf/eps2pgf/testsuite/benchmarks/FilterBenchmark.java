@@ -0,0 +1,327 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+
+import net.sf.eps2pgf.ps.Interpreter;
+import net.sf.eps2pgf.ps.objects.PSObjectDict;
+import net.sf.eps2pgf.ps.objects.PSObjectFile;
+import net.sf.eps2pgf.ps.objects.PSObjectInt;
+import net.sf.eps2pgf.ps.objects.PSObjectName;
+import net.sf.eps2pgf.ps.objects.PSObjectString;
+import net.sf.eps2pgf.ps.resources.filters.FilterManager;
+import net.sf.eps2pgf.ps.resources.filters.SubFileDecode;
+
+/**
+ * Measures the throughput of the decode filters, on their own and in the
+ * chains that are common in PostScript files. The filters are set up in the
+ * same way as the <code>filter</code> operator does, on top of a file object.
+ * The throughput is reported in MB/s of decoded data. Each measurement is
+ * preceded by an extra run to warm up the virtual machine.
+ * 
+ * Usage: <code>FilterBenchmark [repetitions] [size in MB]</code>
+ * 
+ * @author Paul Wagenaars
+ */
+public final class FilterBenchmark {
+    
+    /** Number of times each measurement is repeated, the best is reported. */
+    private static final int DEFAULT_REPETITIONS = 5;
+    
+    /** Default size of the decoded data, in MB. */
+    private static final int DEFAULT_SIZE = 8;
+    
+    /** Size of the buffer used to read the decoded data. */
+    private static final int READ_SIZE = 8192;
+    
+    /** End-of-data string used for the SubFileDecode filter. */
+    private static final String EOD_STRING = "%%EndBinary";
+    
+    /** Hexadecimal digits. */
+    private static final byte[] HEX_DIGITS =
+        "0123456789abcdef".getBytes();
+    
+    /**
+     * "Hidden" constructor.
+     */
+    private FilterBenchmark() {
+        /* empty block */
+    }
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args Optional number of repetitions and data size in MB.
+     * 
+     * @throws Exception An error occurred.
+     */
+    public static void main(final String[] args) throws Exception {
+        int reps = DEFAULT_REPETITIONS;
+        int size = DEFAULT_SIZE;
+        if (args.length > 0) {
+            reps = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            size = Integer.parseInt(args[1]);
+        }
+        
+        byte[] data = createData(size << 20);
+        byte[] runLength = encodeRunLength(data);
+        byte[] flate = encodeFlate(data);
+        byte[] subFile = new byte[data.length + EOD_STRING.length()];
+        System.arraycopy(data, 0, subFile, 0, data.length);
+        System.arraycopy(EOD_STRING.getBytes(), 0, subFile, data.length,
+                EOD_STRING.length());
+        
+        Interpreter interp = new Interpreter();
+        
+        measure("ASCIIHexDecode", data, encodeASCIIHex(data), reps, interp,
+                "/ASCIIHexDecode");
+        measure("ASCII85Decode", data, encodeASCII85(data), reps, interp,
+                "/ASCII85Decode");
+        measure("RunLengthDecode", data, runLength, reps, interp,
+                "/RunLengthDecode");
+        measure("FlateDecode", data, flate, reps, interp, "/FlateDecode");
+        measure("SubFileDecode", data, subFile, reps, interp,
+                "/SubFileDecode");
+        measure("ASCII85Decode RunLengthDecode", data,
+                encodeASCII85(runLength), reps, interp, "/ASCII85Decode",
+                "/RunLengthDecode");
+        measure("ASCII85Decode FlateDecode", data, encodeASCII85(flate),
+                reps, interp, "/ASCII85Decode", "/FlateDecode");
+        measure("ASCIIHexDecode FlateDecode", data, encodeASCIIHex(flate),
+                reps, interp, "/ASCIIHexDecode", "/FlateDecode");
+    }
+    
+    /**
+     * Measures the throughput of a filter chain and prints the result.
+     * 
+     * @param label Label printed with the result.
+     * @param expected The data that the chain must produce.
+     * @param encoded The encoded data.
+     * @param reps Number of repetitions.
+     * @param interp The interpreter.
+     * @param filters Names of the filters, starting with the filter that
+     * reads the encoded data.
+     * 
+     * @throws Exception An error occurred.
+     */
+    private static void measure(final String label, final byte[] expected,
+            final byte[] encoded, final int reps, final Interpreter interp,
+            final String... filters) throws Exception {
+        
+        byte[] buf = new byte[READ_SIZE];
+        long best = Long.MAX_VALUE;
+        for (int r = -1; r < reps; r++) {
+            long start = System.nanoTime();
+            PSObjectFile file = new PSObjectFile(
+                    new ByteArrayInputStream(encoded), interp);
+            for (int i = 0; i < filters.length; i++) {
+                file = FilterManager.filter(new PSObjectName(filters[i]),
+                        getParameters(filters[i], interp), file, interp);
+            }
+            InputStream in = file.getStream();
+            long total = 0;
+            int n;
+            while ((n = in.read(buf, 0, buf.length)) >= 0) {
+                total += n;
+            }
+            in.close();
+            long time = System.nanoTime() - start;
+            
+            if (total != expected.length) {
+                throw new IllegalStateException(label + ": decoded " + total
+                        + " bytes instead of " + expected.length + ".");
+            }
+            if (r >= 0) {
+                best = Math.min(best, time);
+            }
+        }
+        
+        double mbPerSec = expected.length / (1024.0 * 1024.0) / (best / 1e9);
+        System.out.println(String.format("%-32s %8.1f MB/s", label,
+                mbPerSec));
+    }
+    
+    /**
+     * Gets the parameter dictionary for a filter.
+     * 
+     * @param name The name of the filter.
+     * @param interp The interpreter.
+     * 
+     * @return The parameter dictionary.
+     * 
+     * @throws Exception An error occurred.
+     */
+    private static PSObjectDict getParameters(final String name,
+            final Interpreter interp) throws Exception {
+        
+        PSObjectDict dict = new PSObjectDict(interp);
+        if (name.equals("/SubFileDecode")) {
+            dict.setKey(SubFileDecode.KEY_EODCOUNT, new PSObjectInt(0));
+            dict.setKey(SubFileDecode.KEY_EODSTRING,
+                    new PSObjectString(EOD_STRING, interp));
+        }
+        return dict;
+    }
+    
+    /**
+     * Creates test data that resembles image data: rows with runs of equal
+     * bytes, alternated with rows of varying bytes.
+     * 
+     * @param n Number of bytes.
+     * 
+     * @return The data.
+     */
+    private static byte[] createData(final int n) {
+        byte[] data = new byte[n];
+        for (int i = 0; i < n; i++) {
+            int row = i / 256;
+            if ((row % 3) == 0) {
+                data[i] = (byte) (i * 31 + (i >> 7));
+            } else {
+                data[i] = (byte) (row + (i & 0xC0));
+            }
+        }
+        return data;
+    }
+    
+    /**
+     * Encodes data with the ASCIIHex encoding.
+     * 
+     * @param data The data.
+     * 
+     * @return The encoded data.
+     */
+    private static byte[] encodeASCIIHex(final byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < data.length; i++) {
+            out.write(HEX_DIGITS[(data[i] >> 4) & 0xF]);
+            out.write(HEX_DIGITS[data[i] & 0xF]);
+            if ((i % 32) == 31) {
+                out.write('\n');
+            }
+        }
+        out.write('>');
+        return out.toByteArray();
+    }
+    
+    /**
+     * Encodes data with the ASCII base-85 encoding.
+     * 
+     * @param data The data.
+     * 
+     * @return The encoded data.
+     */
+    private static byte[] encodeASCII85(final byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chars = new byte[5];
+        int lineLength = 0;
+        for (int i = 0; i < data.length; i += 4) {
+            int n = Math.min(4, data.length - i);
+            long value = 0;
+            for (int j = 0; j < 4; j++) {
+                value <<= 8;
+                if (j < n) {
+                    value |= data[i + j] & 0xFF;
+                }
+            }
+            if ((value == 0) && (n == 4)) {
+                out.write('z');
+                lineLength++;
+            } else {
+                for (int j = 4; j >= 0; j--) {
+                    chars[j] = (byte) ('!' + (value % 85));
+                    value /= 85;
+                }
+                out.write(chars, 0, n + 1);
+                lineLength += n + 1;
+            }
+            if (lineLength >= 75) {
+                out.write('\n');
+                lineLength = 0;
+            }
+        }
+        out.write('~');
+        out.write('>');
+        return out.toByteArray();
+    }
+    
+    /**
+     * Encodes data with the run-length encoding.
+     * 
+     * @param data The data.
+     * 
+     * @return The encoded data.
+     */
+    private static byte[] encodeRunLength(final byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < data.length) {
+            int run = 1;
+            while ((i + run < data.length) && (run < 128)
+                    && (data[i + run] == data[i])) {
+                run++;
+            }
+            if (run > 1) {
+                out.write(257 - run);
+                out.write(data[i]);
+                i += run;
+            } else {
+                int start = i;
+                i++;
+                while ((i < data.length) && (i - start < 128)
+                        && ((i + 1 >= data.length)
+                                || (data[i] != data[i + 1]))) {
+                    i++;
+                }
+                out.write(i - start - 1);
+                out.write(data, start, i - start);
+            }
+        }
+        out.write(128);
+        return out.toByteArray();
+    }
+    
+    /**
+     * Compresses data with the deflate algorithm, with a zlib header.
+     * 
+     * @param data The data.
+     * 
+     * @return The compressed data.
+     */
+    private static byte[] encodeFlate(final byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[READ_SIZE];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buf);
+            out.write(buf, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+    
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.benchmarks;
+
+import net.sf.eps2pgf.io.StringInputStream;
+import net.sf.eps2pgf.ps.Interpreter;
+import net.sf.eps2pgf.ps.objects.PSObjectFile;
+
+/**
+ * Measures the execution time of the looping operators 'for', 'repeat' and
+ * 'loop'. Each program runs an almost empty procedure a million times, so
+ * the time is dominated by the overhead of the loop itself.
+ * 
+ * Usage: <code>LoopBenchmark [program...]</code>. Without arguments a set of
+ * standard loops is used.
+ * 
+ * @author Paul Wagenaars
+ */
+public final class LoopBenchmark {
+    
+    /** Number of times each measurement is repeated, the best is reported. */
+    private static final int REPETITIONS = 10;
+    
+    /** Programs that are used when no programs are specified. */
+    private static final String[] DEFAULT_PROGRAMS = {
+        "0 1 1000000 { pop } for",
+        "0 0.5 500000 { pop } for",
+        "1000000 { } repeat",
+        "0 { 1 add dup 1000000 ge { exit } if } loop pop"
+    };
+    
+    /**
+     * "Hidden" constructor.
+     */
+    private LoopBenchmark() {
+        /* empty block */
+    }
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args Optional list of programs.
+     * 
+     * @throws Exception An error occurred.
+     */
+    public static void main(final String[] args) throws Exception {
+        String[] programs = args;
+        if (programs.length == 0) {
+            programs = DEFAULT_PROGRAMS;
+        }
+        
+        for (String program : programs) {
+            long best = Long.MAX_VALUE;
+            for (int r = -1; r < REPETITIONS; r++) {
+                Interpreter interp = new Interpreter();
+                PSObjectFile file = new PSObjectFile(
+                        new StringInputStream(program), interp);
+                long start = System.nanoTime();
+                interp.getExecStack().push(file);
+                interp.start();
+                long end = System.nanoTime();
+                if (r >= 0) {
+                    best = Math.min(best, end - start);
+                }
+            }
+            
+            System.out.println(String.format("%-50s %8.1f ms", program,
+                    best / 1e6));
+        }
+    }
+    
+}
@@ -0,0 +1,182 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import net.sf.eps2pgf.io.StringInputStream;
+import net.sf.eps2pgf.ps.ExecStack;
+import net.sf.eps2pgf.ps.Interpreter;
+import net.sf.eps2pgf.ps.objects.PSObject;
+import net.sf.eps2pgf.ps.objects.PSObjectFile;
+
+/**
+ * Compares the cost of protecting the operand stack against errors. The
+ * "journal" column uses the interpreter's own run loop, which records a
+ * checkpoint of the operand stack for each token. The "clone" column drives
+ * the same tokens through a loop that copies the complete operand stack
+ * before each token, as the interpreter used to do. For both the time and
+ * the number of bytes allocated per token are reported.
+ * 
+ * Usage: <code>OperandStackBenchmark [program...]</code>. Without arguments
+ * a set of operator-heavy programs is used, once with an almost empty
+ * operand stack and once with a deep one.
+ * 
+ * @author Paul Wagenaars
+ */
+public final class OperandStackBenchmark {
+    
+    /** Number of times each measurement is repeated, the best is reported. */
+    private static final int REPETITIONS = 10;
+    
+    /** Programs that are used when no programs are specified. */
+    private static final String[] DEFAULT_PROGRAMS = {
+        "0 1 200000 { 1 2 add 3 mul 4 sub exch pop dup pop pop } for",
+        "0 1 200000 { dup 2 copy add mul exch sub abs pop } for",
+        "0 1 99 { } for"
+            + " 0 1 200000 { 1 2 add 3 mul 4 sub exch pop dup pop pop } for",
+    };
+    
+    /** Keeps the copies of the operand stack reachable. */
+    private static Object sink;
+    
+    /**
+     * "Hidden" constructor.
+     */
+    private OperandStackBenchmark() {
+        /* empty block */
+    }
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args Optional list of programs.
+     * 
+     * @throws Exception An error occurred.
+     */
+    public static void main(final String[] args) throws Exception {
+        String[] programs = args;
+        if (programs.length == 0) {
+            programs = DEFAULT_PROGRAMS;
+        }
+        
+        System.out.println(String.format("%-20s %10s %12s %12s %12s %12s",
+                "program", "tokens", "journal ns", "journal B",
+                "clone ns", "clone B"));
+        for (String program : programs) {
+            long tokens = countTokens(program);
+            long[] journal = measure(program, false);
+            long[] clone = measure(program, true);
+            
+            String name = program;
+            if (name.length() > 20) {
+                name = name.substring(0, 17) + "...";
+            }
+            System.out.println(String.format(
+                    "%-20s %10d %12.1f %12.1f %12.1f %12.1f", name, tokens,
+                    (double) journal[0] / tokens, (double) journal[1] / tokens,
+                    (double) clone[0] / tokens, (double) clone[1] / tokens));
+        }
+    }
+    
+    /**
+     * Counts the number of tokens executed by a program.
+     * 
+     * @param program The program.
+     * 
+     * @return The number of tokens.
+     * 
+     * @throws Exception An error occurred.
+     */
+    private static long countTokens(final String program) throws Exception {
+        Interpreter interp = new Interpreter();
+        interp.getExecStack().push(
+                new PSObjectFile(new StringInputStream(program), interp));
+        interp.run();
+        return interp.getInterpCounter();
+    }
+    
+    /**
+     * Runs a program a number of times and returns the best result.
+     * 
+     * @param program The program.
+     * @param cloneStack Copy the operand stack before each token instead of
+     * using the interpreter's run loop.
+     * 
+     * @return The shortest time in nanoseconds and the smallest number of
+     * allocated bytes. The number of bytes is -1 if the JVM can not measure
+     * it.
+     * 
+     * @throws Exception An error occurred.
+     */
+    private static long[] measure(final String program,
+            final boolean cloneStack) throws Exception {
+        
+        long bestTime = Long.MAX_VALUE;
+        long bestBytes = Long.MAX_VALUE;
+        boolean measureBytes = (allocatedBytes() >= 0);
+        for (int r = -1; r < REPETITIONS; r++) {
+            Interpreter interp = new Interpreter();
+            ExecStack es = interp.getExecStack();
+            es.push(new PSObjectFile(new StringInputStream(program), interp));
+            
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            if (cloneStack) {
+                while (es.size() > 0) {
+                    PSObject obj = es.getNextToken(0);
+                    sink = interp.getOpStack().clone();
+                    interp.executeObject(obj, false);
+                }
+            } else {
+                interp.run();
+            }
+            long end = System.nanoTime();
+            long endBytes = allocatedBytes();
+            
+            if (r >= 0) {
+                bestTime = Math.min(bestTime, end - start);
+                bestBytes = Math.min(bestBytes, endBytes - startBytes);
+            }
+        }
+        sink = null;
+        
+        if (!measureBytes) {
+            bestBytes = -1;
+        }
+        return new long[] {bestTime, bestBytes};
+    }
+    
+    /**
+     * Returns the number of bytes allocated by the current thread so far.
+     * 
+     * @return The number of bytes, or a negative value if the JVM can not
+     * measure it.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+    
+}
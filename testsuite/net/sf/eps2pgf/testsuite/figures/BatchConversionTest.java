@@ -0,0 +1,168 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.figures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.eps2pgf.BatchConverter;
+import net.sf.eps2pgf.Options;
+
+/**
+ * Tests the conversion of multiple files in a single run.
+ */
+public final class BatchConversionTest {
+    
+    /** Working directory for the output files. */
+    private File workDir;
+    
+    /**
+     * Sets up the class.
+     * 
+     * @throws Exception the exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Logger.getLogger("net.sourceforge.eps2pgf").setLevel(Level.OFF);
+    }
+    
+    /**
+     * Set up a single test.
+     * 
+     * @throws Exception An exception occurred.
+     */
+    @Before
+    public void setUp() throws Exception {
+        workDir = Common.createWorkDir();
+    }
+    
+    /**
+     * Removes the working directory.
+     */
+    @After
+    public void tearDown() {
+        Common.deleteRecursively(workDir);
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void parseBatchArguments() throws Exception {
+        File figureDir = Common.getFigureDir();
+        Options opts = new Options();
+        assertTrue(opts.parse(new String[] {
+                new File(figureDir, "golfer.ps").getPath(),
+                new File(figureDir, "alphabet.p?").getPath(),
+                "-o", workDir.getPath(), "-j", "2"}).success());
+        
+        assertTrue(opts.isBatchMode());
+        assertEquals(2, opts.getNrThreads());
+        assertEquals(2, opts.getInputFiles().size());
+        assertEquals(new File(figureDir, "alphabet.ps"),
+                opts.getInputFiles().get(1));
+        assertEquals(new File(workDir, "alphabet.pgf"),
+                opts.createJob(opts.getInputFiles().get(1)).getOutputFile());
+        
+        opts = new Options();
+        assertFalse(opts.parse(new String[] {
+                new File(figureDir, "golfer.ps").getPath(),
+                new File(figureDir, "alphabet.ps").getPath(),
+                "-o", new File(workDir, "out.pgf").getPath()}).success());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void failureDoesNotAbortBatch() throws Exception {
+        File figureDir = Common.getFigureDir();
+        Options opts = new Options();
+        opts.parse(new String[] {"-o", workDir.getPath(), "dummy.eps"});
+        
+        String[] figures = {"alphabet.ps", "does_not_exist.eps", "golfer.ps",
+                "rproject1.eps"};
+        List<Options> jobs = new ArrayList<Options>();
+        for (String figure : figures) {
+            jobs.add(opts.createJob(new File(figureDir, figure)));
+        }
+        File badFile = new File(workDir, "bad.eps");
+        FileWriter out = new FileWriter(badFile);
+        out.write("%!PS\nnosuchoperator\n");
+        out.close();
+        jobs.add(opts.createJob(badFile));
+        
+        List<BatchConverter.Result> results =
+            new BatchConverter(3).convert(jobs);
+        
+        assertEquals(figures.length + 1, results.size());
+        for (int i = 0; i < figures.length; i++) {
+            BatchConverter.Result result = results.get(i);
+            File outFile = result.getOpts().getOutputFile();
+            if (i == 1) {
+                assertFalse(result.isSuccess());
+                assertTrue(result.getError() instanceof IOException);
+            } else {
+                assertTrue(figures[i], result.isSuccess());
+                assertEquals(workDir, outFile.getParentFile());
+                assertTrue(outFile.length() > 0);
+            }
+        }
+        assertFalse(results.get(figures.length).isSuccess());
+        assertEquals("undefined",
+                results.get(figures.length).getErrorName());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void javaErrorDoesNotAbortBatch() throws Exception {
+        File figureDir = Common.getFigureDir();
+        Options opts = new Options();
+        opts.parse(new String[] {"-o", workDir.getPath(), "dummy.eps"});
+        
+        // Printing a very deeply nested array overflows the Java stack
+        File deepFile = new File(workDir, "deep.eps");
+        FileWriter out = new FileWriter(deepFile);
+        out.write("%!PS\n1 1 200000 { pop [ } for"
+                + " 1 1 200000 { pop ] } for ==\n");
+        out.close();
+        
+        List<Options> jobs = new ArrayList<Options>();
+        jobs.add(opts.createJob(deepFile));
+        jobs.add(opts.createJob(new File(figureDir, "alphabet.ps")));
+        
+        List<BatchConverter.Result> results =
+            new BatchConverter(1).convert(jobs);
+        
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getError() instanceof StackOverflowError);
+        assertTrue(results.get(1).isSuccess());
+    }
+}
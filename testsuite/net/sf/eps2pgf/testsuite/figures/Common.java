@@ -20,10 +20,13 @@ package net.sf.eps2pgf.testsuite.figures;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Writer;
+import java.util.Arrays;
 
 import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
@@ -136,6 +139,95 @@ public final class Common {
         return dir;
     }
     
+    /**
+     * Gets the directory with test figures.
+     * 
+     * @return The directory with test figures.
+     * 
+     * @throws FileNotFoundException Unable to find directory.
+     */
+    public static File getFigureDir() throws FileNotFoundException {
+        if (figureDir == null) {
+            figureDir = findFigureDir();
+        }
+        
+        return figureDir;
+    }
+    
+    /**
+     * Creates a new, empty temporary directory for the output of a test.
+     * 
+     * @return The directory.
+     * 
+     * @throws IOException Unable to create the directory.
+     */
+    public static File createWorkDir() throws IOException {
+        File dir = File.createTempFile("eps2pgf", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Unable to create working directory ("
+                    + dir + ").");
+        }
+        return dir;
+    }
+    
+    /**
+     * Deletes a file or directory, including its contents.
+     * 
+     * @param file The file or directory.
+     */
+    public static void deleteRecursively(final File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+    
+    /**
+     * Reads the contents of a file.
+     * 
+     * @param file The file.
+     * 
+     * @return The contents.
+     * 
+     * @throws IOException Unable to read the file.
+     */
+    public static byte[] readFile(final File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < data.length) {
+                int n = in.read(data, offset, data.length - offset);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of file.");
+                }
+                offset += n;
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+    
+    /**
+     * Removes the first line, which contains the creation date, from the
+     * output of a conversion.
+     * 
+     * @param data The output.
+     * 
+     * @return The output without the first line.
+     */
+    public static byte[] skipFirstLine(final byte[] data) {
+        int start = 0;
+        while ((start < data.length) && (data[start++] != '\n')) {
+            /* empty block */
+        }
+        return Arrays.copyOfRange(data, start, data.length);
+    }
+    
     /**
      * Find Ghostscript executable.
      * 
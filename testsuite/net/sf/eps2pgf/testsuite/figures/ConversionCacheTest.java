@@ -0,0 +1,207 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.figures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.eps2pgf.ConversionCache;
+import net.sf.eps2pgf.Converter;
+import net.sf.eps2pgf.Options;
+import net.sf.eps2pgf.ps.resources.outputdevices.PGFDevice;
+
+/**
+ * Tests the conversion cache.
+ */
+public final class ConversionCacheTest {
+    
+    /** Working directory for the output files. */
+    private File workDir;
+    
+    /** Cache directory. */
+    private File cacheDir;
+    
+    /**
+     * Sets up the class.
+     * 
+     * @throws Exception the exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Logger.getLogger("net.sourceforge.eps2pgf").setLevel(Level.OFF);
+    }
+    
+    /**
+     * Set up a single test.
+     * 
+     * @throws Exception An exception occurred.
+     */
+    @Before
+    public void setUp() throws Exception {
+        workDir = Common.createWorkDir();
+        cacheDir = new File(workDir, "cache");
+    }
+    
+    /**
+     * Removes the working directory.
+     */
+    @After
+    public void tearDown() {
+        Common.deleteRecursively(workDir);
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void hitRestoresAllFiles() throws Exception {
+        ConversionCache cache = new ConversionCache(cacheDir, 0, 0);
+        Options opts = createOptions("matlab_bitmap1.eps", "fig.pgf");
+        File image = new File(workDir, "fig-image1.pdf");
+        
+        convert(opts, cache);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getStores());
+        byte[] output = Common.readFile(opts.getOutputFile());
+        byte[] imageData = Common.readFile(image);
+        
+        assertTrue(opts.getOutputFile().delete());
+        assertTrue(image.delete());
+        convert(opts, cache);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getStores());
+        byte[] restored = Common.readFile(opts.getOutputFile());
+        assertTrue(new String(restored, "ISO-8859-1").startsWith(
+                PGFDevice.CREATED_PREFIX));
+        assertTrue(Arrays.equals(Common.skipFirstLine(output),
+                Common.skipFirstLine(restored)));
+        assertTrue(Arrays.equals(imageData, Common.readFile(image)));
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+        
+        // Different options must not reuse the entry
+        opts.setTextmode(Options.TextMode.DIRECT_COPY);
+        convert(opts, cache);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void inputNameIsPartOfKey() throws Exception {
+        ConversionCache cache = new ConversionCache(cacheDir, 0, 0);
+        byte[] figure = Common.readFile(new File(Common.getFigureDir(),
+                "alphabet.ps"));
+        File first = new File(workDir, "first.ps");
+        File second = new File(workDir, "second.ps");
+        write(first, figure);
+        write(second, figure);
+        
+        Options opts = createOptions("alphabet.ps", "fig.pgf");
+        opts.setInputFile(first);
+        convert(opts, cache);
+        opts.setInputFile(second);
+        convert(opts, cache);
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getStores());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void evictBySize() throws Exception {
+        ConversionCache cache = new ConversionCache(cacheDir, 1, 0);
+        Options opts = createOptions("alphabet.ps", "alphabet.pgf");
+        
+        convert(opts, cache);
+        convert(opts, cache);
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getStores());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(0, cacheDir.listFiles().length);
+    }
+    
+    /**
+     * Creates the options for a conversion.
+     * 
+     * @param figure Filename of the figure.
+     * @param outName Filename of the output file in the working directory.
+     * 
+     * @return The options.
+     * 
+     * @throws Exception the exception
+     */
+    private Options createOptions(final String figure, final String outName)
+            throws Exception {
+        
+        Options opts = new Options();
+        opts.parse(new String[0]);
+        opts.setInputFile(new File(Common.getFigureDir(), figure));
+        opts.setOutputFile(new File(workDir, outName));
+        return opts;
+    }
+    
+    /**
+     * Converts a figure.
+     * 
+     * @param opts Options describing the conversion.
+     * @param cache The conversion cache.
+     * 
+     * @throws Exception the exception
+     */
+    private static void convert(final Options opts,
+            final ConversionCache cache) throws Exception {
+        
+        Converter converter = new Converter(opts);
+        converter.setCache(cache);
+        converter.convert();
+    }
+
+    
+    /**
+     * Writes data to a file.
+     * 
+     * @param file The file.
+     * @param data The data.
+     * 
+     * @throws IOException Unable to write the file.
+     */
+    private static void write(final File file, final byte[] data)
+            throws IOException {
+        
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+}
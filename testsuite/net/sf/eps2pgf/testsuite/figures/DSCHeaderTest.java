@@ -0,0 +1,253 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.figures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.sf.eps2pgf.ps.DSCHeader;
+import net.sf.eps2pgf.ps.DSCSection;
+
+/**
+ * Tests the scanning of DSC comments.
+ */
+public final class DSCHeaderTest {
+    
+    /**
+     * Stream that returns at most one byte per read, to test scanning of data
+     * that arrives in small blocks.
+     */
+    private static class SlowInputStream extends ByteArrayInputStream {
+        /**
+         * Creates a new stream.
+         * 
+         * @param data The data.
+         */
+        public SlowInputStream(final byte[] data) {
+            super(data);
+        }
+        
+        /**
+         * Reads at most one byte.
+         * 
+         * @param b The array.
+         * @param off Index in the array of the first byte to store.
+         * @param len Maximum number of bytes to read.
+         * 
+         * @return Number of bytes read, or -1 at the end of the stream.
+         */
+        @Override
+        public synchronized int read(final byte[] b, final int off,
+                final int len) {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+    
+    /**
+     * Scans a document, both in one block and byte by byte, and checks that
+     * both give the same result.
+     * 
+     * @param doc The document.
+     * 
+     * @return The header.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private static DSCHeader scan(final String doc) throws IOException {
+        byte[] data = doc.getBytes("ISO-8859-1");
+        DSCHeader header = new DSCHeader(new ByteArrayInputStream(data));
+        DSCHeader slowHeader = new DSCHeader(new SlowInputStream(data));
+        assertEquals(header.getSections().toString(),
+                slowHeader.getSections().toString());
+        assertTrue(Arrays.equals(header.getBoundingBox(),
+                slowHeader.getBoundingBox()));
+        return header;
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void boundingBox1() throws Exception {
+        DSCHeader header = scan("%!PS-Adobe-3.0 EPSF-3.0\n"
+                + "%%BoundingBox: 0 0 100 50\n"
+                + "%%HiResBoundingBox: 0.5 0 99.5 50\n"
+                + "%%EndComments\n"
+                + "%%BoundingBox: 1 2 3 4\n");
+        assertTrue(Arrays.equals(new double[] {0.5, 0, 99.5, 50},
+                header.getBoundingBox()));
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void boundingBox2() throws Exception {
+        DSCHeader header = scan("%!PS-Adobe-3.0 EPSF-3.0\r\n"
+                + "%%BoundingBox: (atend)\r\n"
+                + "%%EndComments\r\n"
+                + "%%BeginDocument: inner.eps\r\n"
+                + "%%Trailer\r\n"
+                + "%%BoundingBox: 1 2 3 4\r\n"
+                + "%%EndDocument\r\n"
+                + "%%Trailer\r\n"
+                + "%%BoundingBox: 10 20 30 40\r\n"
+                + "%%EOF\r\n");
+        assertTrue(Arrays.equals(new double[] {10, 20, 30, 40},
+                header.getBoundingBox()));
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void boundingBox3() throws Exception {
+        DSCHeader header = scan("%!PS-Adobe-3.0 EPSF-3.0\n"
+                + "%%BoundingBox: 0 0 x 50\n"
+                + "0 0 moveto\n"
+                + "%%BoundingBox: 0 0 100 50\n");
+        assertNull(header.getBoundingBox());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void sections1() throws Exception {
+        String prolog = "%%BeginProlog\r\n/x 1 def\r\n%%EndProlog";
+        String setup = "%%BeginSetup\n%%EndSetup";
+        String doc = "%!PS-Adobe-3.0\n%%EndComments\n" + prolog + "\r\n"
+                + setup + "\n";
+        DSCHeader header = scan(doc);
+        List<DSCSection> sections = header.getSections();
+        assertEquals(2, sections.size());
+        
+        DSCSection section = header.getSection("Prolog");
+        assertEquals(doc.indexOf(prolog), section.getStart());
+        assertEquals(doc.indexOf("/x"), section.getDataStart());
+        assertEquals(doc.indexOf(prolog) + prolog.length(),
+                section.getEnd());
+        assertEquals("", section.getArguments());
+        
+        section = header.getSection("Setup");
+        assertEquals(doc.indexOf(setup) + setup.length(), section.getEnd());
+        assertNull(header.getSection("Document"));
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void sections2() throws Exception {
+        String doc = "%!PS-Adobe-3.0\n"
+            + "%%BeginDocument: a.eps\n"
+            + "%%BeginBinary: 15\n"
+            + "\n%%EndDocument\n\n"
+            + "%%EndBinary\n"
+            + "%%BeginData: 2 Hex Lines\n"
+            + "%%EndDocument\n"
+            + "%%EndData\n"
+            + "%%EndData\n"
+            + "%%EndDocument\n"
+            + "%%BeginSetup\n";
+        DSCHeader header = scan(doc);
+        List<DSCSection> sections = header.getSections();
+        assertEquals(4, sections.size());
+        assertEquals("Document", sections.get(0).getName());
+        assertEquals("a.eps", sections.get(0).getArguments());
+        assertEquals(doc.lastIndexOf("%%EndDocument") + 13,
+                sections.get(0).getEnd());
+        assertEquals("Binary", sections.get(1).getName());
+        assertEquals(doc.indexOf("%%EndBinary") + 11,
+                sections.get(1).getEnd());
+        assertEquals("Data", sections.get(2).getName());
+        assertEquals(doc.lastIndexOf("%%EndData") + 9,
+                sections.get(2).getEnd());
+        assertEquals("Setup", sections.get(3).getName());
+        assertFalse(sections.get(3).isClosed());
+    }
+    
+    /**
+     * Reads only the header of a document, both in one block and byte by
+     * byte, and checks that the stream is left at the end of the header.
+     * 
+     * @param doc The document.
+     * @param rest The part of the document after the header.
+     * 
+     * @return The header.
+     * 
+     * @throws IOException An I/O error occurred.
+     */
+    private static DSCHeader readHeader(final String doc, final String rest)
+            throws IOException {
+        byte[] data = doc.getBytes("ISO-8859-1");
+        InputStream in = new ByteArrayInputStream(data);
+        DSCHeader header = DSCHeader.readHeader(in);
+        assertEquals(rest.length(), in.available());
+        InputStream slowIn = new SlowInputStream(data);
+        DSCHeader slowHeader = DSCHeader.readHeader(slowIn);
+        assertEquals(rest.length(), slowIn.available());
+        assertTrue(Arrays.equals(header.getBoundingBox(),
+                slowHeader.getBoundingBox()));
+        assertTrue(header.getSections().isEmpty());
+        return header;
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void readHeader1() throws Exception {
+        String rest = "%%BoundingBox: 1 2 3 4\n0 0 moveto\n";
+        DSCHeader header = readHeader("%!PS-Adobe-3.0 EPSF-3.0\n"
+                + "%%BoundingBox: 0 0 100 50\n"
+                + "%%EndComments\n" + rest, rest);
+        assertTrue(Arrays.equals(new double[] {0, 0, 100, 50},
+                header.getBoundingBox()));
+        assertFalse(header.isBoundingBoxAtEnd());
+        
+        rest = "/x 1 def\r\n%%BoundingBox: 1 2 3 4\r\n";
+        header = readHeader("%!PS-Adobe-3.0 EPSF-3.0\r\n"
+                + "%%BoundingBox: (atend)\r\n" + rest, rest);
+        assertNull(header.getBoundingBox());
+        assertTrue(header.isBoundingBoxAtEnd());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void figure1() throws Exception {
+        File file = new File(Common.getFigureDir(), "maple_cubic.eps");
+        InputStream in = new FileInputStream(file);
+        DSCHeader header;
+        try {
+            header = new DSCHeader(in);
+        } finally {
+            in.close();
+        }
+        assertTrue(Arrays.equals(new double[] {15, 63, 285, 332},
+                header.getBoundingBox()));
+        List<DSCSection> sections = header.getSections();
+        assertEquals(2, sections.size());
+        assertEquals("Prolog", sections.get(0).getName());
+        assertEquals("Setup", sections.get(1).getName());
+        assertTrue(sections.get(0).isClosed());
+        assertTrue(sections.get(0).getEnd() < sections.get(1).getStart());
+    }
+    
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.figures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.eps2pgf.Converter;
+import net.sf.eps2pgf.Daemon;
+import net.sf.eps2pgf.DaemonClient;
+import net.sf.eps2pgf.Options;
+
+/**
+ * Tests conversions by the conversion daemon.
+ */
+public final class DaemonTest {
+    
+    /** Working directory for the output files. */
+    private File workDir;
+    
+    /** The daemon. */
+    private Daemon daemon;
+    
+    /** Thread in which the daemon runs. */
+    private Thread daemonThread;
+    
+    /**
+     * Sets up the class.
+     * 
+     * @throws Exception the exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Logger.getLogger("net.sourceforge.eps2pgf").setLevel(Level.OFF);
+    }
+    
+    /**
+     * Set up a single test.
+     * 
+     * @throws Exception An exception occurred.
+     */
+    @Before
+    public void setUp() throws Exception {
+        workDir = Common.createWorkDir();
+        
+        daemon = new Daemon(0, 2);
+        daemon.start();
+        daemonThread = new Thread(new Runnable() {
+            public void run() {
+                daemon.serve();
+            }
+        });
+        daemonThread.start();
+    }
+    
+    /**
+     * Stops the daemon and removes the working directory.
+     * 
+     * @throws Exception An exception occurred.
+     */
+    @After
+    public void tearDown() throws Exception {
+        daemon.stop();
+        daemonThread.join();
+        
+        Common.deleteRecursively(workDir);
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void convert() throws Exception {
+        File figureDir = Common.getFigureDir();
+        Options opts = new Options();
+        opts.parse(new String[] {"-o", workDir.getPath(),
+                new File(figureDir, "alphabet.ps").getPath(),
+                new File(figureDir, "does_not_exist.eps").getPath()});
+        List<Options> jobs = new ArrayList<Options>();
+        jobs.add(opts.createJob(new File(figureDir, "alphabet.ps")));
+        jobs.add(opts.createJob(new File(figureDir, "does_not_exist.eps")));
+        
+        List<String> replies =
+            new DaemonClient(daemon.getPort()).convert(jobs);
+        
+        assertEquals(2, replies.size());
+        assertTrue(replies.get(0), DaemonClient.isSuccess(replies.get(0)));
+        assertTrue(DaemonClient.getTime(replies.get(0)) >= 0);
+        assertTrue(new File(workDir, "alphabet.pgf").length() > 0);
+        
+        assertFalse(DaemonClient.isSuccess(replies.get(1)));
+        assertEquals(Converter.getFailureMessage(new IOException()),
+                DaemonClient.getFailureMessage(replies.get(1)));
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void tokenFile() throws Exception {
+        File file = Daemon.getTokenFile(daemon.getPort());
+        assertTrue(file.exists());
+        assertEquals("rw-------", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(file.toPath())));
+        
+        daemon.stop();
+        daemonThread.join();
+        assertFalse(file.exists());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void invalidToken() throws Exception {
+        String job = "input=" + new File(Common.getFigureDir(),
+                "alphabet.ps").getAbsolutePath() + "\n"
+            + "output=" + new File(workDir, "alphabet.pgf").getAbsolutePath()
+            + "\n\n" + Daemon.END + "\n";
+        String[] headers = {Daemon.PROTOCOL, Daemon.PROTOCOL + " 0123"};
+        for (String header : headers) {
+            Socket socket = new Socket(InetAddress.getByName(null),
+                    daemon.getPort());
+            try {
+                OutputStream out = socket.getOutputStream();
+                out.write((header + "\n" + job).getBytes("UTF-8"));
+                out.flush();
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), "UTF-8"));
+                assertEquals(null, in.readLine());
+            } finally {
+                socket.close();
+            }
+        }
+        assertFalse(new File(workDir, "alphabet.pgf").exists());
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void noDaemon() throws Exception {
+        int port = daemon.getPort();
+        daemon.stop();
+        daemonThread.join();
+        
+        Options job = new Options();
+        job.parse(new String[] {"dummy.eps"});
+        List<Options> jobs = new ArrayList<Options>();
+        jobs.add(job);
+        
+        boolean failed = false;
+        try {
+            new DaemonClient(port).convert(jobs);
+        } catch (IOException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+    }
+}
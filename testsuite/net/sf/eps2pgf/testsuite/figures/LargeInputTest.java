@@ -0,0 +1,161 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.figures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.eps2pgf.Converter;
+import net.sf.eps2pgf.Options;
+import net.sf.eps2pgf.io.ScannableInputStream;
+
+/**
+ * Tests the conversion of files that are large enough to be read through a
+ * file channel.
+ */
+public final class LargeInputTest {
+    
+    /** Size of the padding added to make a figure large. */
+    private static final int PADDING_SIZE = 2 * 1024 * 1024;
+    
+    /** Working directory for the output files. */
+    private File workDir;
+    
+    /**
+     * Sets up the class.
+     * 
+     * @throws Exception the exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Logger.getLogger("net.sourceforge.eps2pgf").setLevel(Level.OFF);
+    }
+    
+    /**
+     * Set up a single test.
+     * 
+     * @throws Exception An exception occurred.
+     */
+    @Before
+    public void setUp() throws Exception {
+        workDir = Common.createWorkDir();
+    }
+    
+    /**
+     * Removes the working directory.
+     */
+    @After
+    public void tearDown() {
+        Common.deleteRecursively(workDir);
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void paddedFigure() throws Exception {
+        File figure = new File(Common.getFigureDir(), "tiger.eps");
+        File padded = new File(workDir, "tiger.eps");
+        
+        // Append comment lines, they don't change the output
+        byte[] line = "% padding padding padding padding padding padding\n"
+            .getBytes("ISO-8859-1");
+        OutputStream out = new FileOutputStream(padded);
+        try {
+            out.write(Common.readFile(figure));
+            for (int i = 0; i < PADDING_SIZE; i += line.length) {
+                out.write(line);
+            }
+        } finally {
+            out.close();
+        }
+        
+        File expected = new File(workDir, "expected.pgf");
+        File actual = new File(workDir, "actual.pgf");
+        convert(figure, expected);
+        convert(padded, actual);
+        assertTrue(Arrays.equals(
+                Common.skipFirstLine(Common.readFile(expected)),
+                Common.skipFirstLine(Common.readFile(actual))));
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void channelSection() throws Exception {
+        File figure = new File(Common.getFigureDir(), "tiger.eps");
+        byte[] data = Common.readFile(figure);
+        int start = 100;
+        int length = 3 * 8192 + 17;
+        
+        FileChannel channel = FileChannel.open(figure.toPath(),
+                StandardOpenOption.READ);
+        ScannableInputStream in = new ScannableInputStream(channel, start,
+                length);
+        byte[] section = new byte[length];
+        assertEquals(1, in.read(section, 0, 1));
+        assertEquals(8191, in.skip(8191));
+        int offset = 8192;
+        int n;
+        while ((n = in.read(section, offset, length - offset)) > 0) {
+            offset += n;
+        }
+        assertEquals(length, offset);
+        assertEquals(-1, in.read());
+        in.close();
+        assertFalse(channel.isOpen());
+        
+        assertEquals(data[start], section[0]);
+        assertTrue(Arrays.equals(
+                Arrays.copyOfRange(data, start + 8192, start + length),
+                Arrays.copyOfRange(section, 8192, length)));
+    }
+    
+    /**
+     * Converts a figure.
+     * 
+     * @param input The input file.
+     * @param output The output file.
+     * 
+     * @throws Exception the exception
+     */
+    private static void convert(final File input, final File output)
+            throws Exception {
+        
+        Options opts = new Options();
+        opts.parse(new String[0]);
+        opts.setInputFile(input);
+        opts.setOutputFile(output);
+        new Converter(opts).convert();
+    }
+
+
+}
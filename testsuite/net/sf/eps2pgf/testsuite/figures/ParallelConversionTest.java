@@ -0,0 +1,158 @@
+/*
+ * This file is part of Eps2pgf.
+ *
+ * Copyright 2007-2009 Paul Wagenaars
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.eps2pgf.testsuite.figures;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.eps2pgf.Converter;
+import net.sf.eps2pgf.Options;
+
+/**
+ * Stress test that converts figures in parallel in a single JVM and checks
+ * that the output is identical to the output of serial conversions.
+ */
+public final class ParallelConversionTest {
+    
+    /** Figures that are converted. */
+    private static final String[] FIGURES = {"alphabet.ps", "golfer.ps",
+        "rproject1.eps", "showtext_mathematica1.ps", "tiger.eps",
+        "autocad_columbia.ps"};
+    
+    /** Number of times each figure is converted in parallel. */
+    private static final int COPIES = 3;
+    
+    /** Number of threads. */
+    private static final int THREADS = 4;
+    
+    /** Working directory for the output files. */
+    private File workDir;
+    
+    /**
+     * Sets up the class.
+     * 
+     * @throws Exception the exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Logger.getLogger("net.sourceforge.eps2pgf").setLevel(Level.OFF);
+    }
+    
+    /**
+     * Set up a single test.
+     * 
+     * @throws Exception An exception occurred.
+     */
+    @Before
+    public void setUp() throws Exception {
+        workDir = Common.createWorkDir();
+    }
+    
+    /**
+     * Removes the working directory.
+     */
+    @After
+    public void tearDown() {
+        Common.deleteRecursively(workDir);
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void parallelEqualsSerial() throws Exception {
+        List<String> serial = new ArrayList<String>();
+        for (String figure : FIGURES) {
+            serial.add(convert(figure, figure + ".serial.pgf"));
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < COPIES; i++) {
+                for (final String figure : FIGURES) {
+                    final String outName = figure + "." + i + ".pgf";
+                    results.add(executor.submit(new Callable<String>() {
+                        public String call() throws Exception {
+                            return convert(figure, outName);
+                        }
+                    }));
+                }
+            }
+            
+            for (int i = 0; i < results.size(); i++) {
+                String figure = FIGURES[i % FIGURES.length];
+                assertEquals(figure, serial.get(i % FIGURES.length),
+                        results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Converts a test figure and returns the output.
+     * 
+     * @param figure Filename of the figure.
+     * @param outName Filename of the output file in the working directory.
+     * 
+     * @return The output, without the first line (which contains the time of
+     * the conversion).
+     * 
+     * @throws Exception the exception
+     */
+    private String convert(final String figure, final String outName)
+            throws Exception {
+        
+        Options opts = new Options();
+        opts.parse(new String[0]);
+        opts.setInputFile(new File(Common.getFigureDir(), figure));
+        File outFile = new File(workDir, outName);
+        opts.setOutputFile(outFile);
+        new Converter(opts).convert();
+        
+        StringBuilder str = new StringBuilder();
+        BufferedReader in = new BufferedReader(new FileReader(outFile));
+        try {
+            String line = in.readLine();
+            while ((line = in.readLine()) != null) {
+                str.append(line);
+                str.append('\n');
+            }
+        } finally {
+            in.close();
+        }
+        
+        return str.toString();
+    }
+}
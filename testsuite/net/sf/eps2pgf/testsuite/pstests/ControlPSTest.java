@@ -157,6 +157,22 @@ public class ControlPSTest {
         assertTrue(Common.testString(interp, cmd, 3));
     }
 
+    /** Test. @throws Exception the exception */
+    @Test
+    public void forall4() throws Exception {
+        String cmd = "[] {1} forall () {1} forall 0 dict {1} forall"
+            + " 0 [1 2 3 4 5] 1 3 getinterval {add} forall 9 eq";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void forall5() throws Exception {
+        String cmd = "/a 100000 array def 0 1 99999 {a exch dup put} for"
+            + " 0 a {pop 1 add} forall 100000 eq a 99999 get 99999 eq";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+
 
     /** Test. @throws Exception the exception */
     @Test
@@ -223,6 +239,14 @@ public class ControlPSTest {
         String cmd = "[1 2 3 4 5] { pop {exit} stopped } forall";
         assertTrue(Common.testString(interp, cmd, 5));
     }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void exit5() throws Exception {
+        String cmd = "0 [1 2 3] { 0 1 9 {dup 2 eq {pop exit} if pop} for"
+            + " 3 {} repeat add } forall 6 eq";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
     /** Test. @throws Exception the exception */
     @Test
     public void stop1() throws Exception {
@@ -237,6 +261,14 @@ public class ControlPSTest {
         assertTrue(Common.testString(interp, cmd, 2));
     }
     
+    /** Test. @throws Exception the exception */
+    @Test
+    public void stop3() throws Exception {
+        String cmd = "[1 2 3] { {0 1 5 {3 eq {stop} if} for} stopped pop }"
+            + " forall 3 eq 3 1 roll 2 eq 3 1 roll 1 eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+    
     /** Test. @throws Exception the exception */
     @Test
     public void stopped1() throws Exception {
@@ -245,6 +277,21 @@ public class ControlPSTest {
         assertTrue(Common.testString(interp, cmd, 4));
     }
 
+    /** Test. @throws Exception the exception */
+    @Test
+    public void stopped2() throws Exception {
+        String cmd = "{5 (a) add} stopped  exch (a) eq  3 -1 roll 5 eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void stopped3() throws Exception {
+        String cmd = "1 2 3 {5 1 roll} stopped pop  1 eq  exch 5 eq and"
+            + "  exch 3 eq and  exch 2 eq and  exch 1 eq and";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
+
     /** Test. @throws Exception the exception */
     @Test
     public void execstack1() throws Exception {
@@ -315,4 +315,14 @@ public class DictPSTest {
             + " 1 get 666 eq";
         assertTrue(Common.testString(interp, cmd, 2));
     }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void lookup1() throws Exception {
+        String cmd = "/x 1 def /d 5 dict def {x 1 eq} exec"
+            + " d begin x 1 eq /x 2 def x 2 eq end x 1 eq"
+            + " d begin d /x 3 put x 3 eq d /x undef x 1 eq end"
+            + " save /x 4 def x 4 eq exch restore x 1 eq";
+        assertTrue(Common.testString(interp, cmd, 8));
+    }
 }
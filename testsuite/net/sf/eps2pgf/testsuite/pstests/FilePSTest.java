@@ -80,6 +80,85 @@ public class FilePSTest {
         assertTrue(Common.testString(interp, cmd, 1));
     }
 
+    /** Test. @throws Exception the exception */
+    @Test
+    public void decodeFilters2() throws Exception {
+        String cmd = "currentfile /ASCII85Decode filter 10 string readstring\n"
+            + "@:E_W\n@/~>\n"
+            + "false eq exch (abcda) eq"
+            + " <~zG^4T~> (\\000\\000\\000\\000xyz) eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void decodeFilters3() throws Exception {
+        String cmd = "currentfile /ASCII85Decode filter dup 4 string readstring"
+            + " @:E_W@/~> pop (abcd) eq exch 1 string readstring"
+            + " pop (a) eq";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void decodeFilters4() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            data.append("@:E_W");
+        }
+        String cmd = "currentfile /ASCII85Decode filter"
+            + " 4000 string readstring\n"
+            + data + "~>\n"
+            + "true eq exch dup length 4000 eq exch 3996 4 getinterval"
+            + " (abcd) eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void decodeFilters5() throws Exception {
+        String cmd = "currentfile /FlateDecode filter 20 string readstring "
+            + "x\u009cKLJN\u0004#\u0000\u0011=\u0003s"
+            + " false eq exch (abcabcabc) eq 1 2 add 3 eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void eexec1() throws Exception {
+        String cmd = "currentfile eexec\n"
+            + "D8054DA842BFA5AC645376E9995CFAEA\n"
+            + "B964BA8ECCCE881C1CF2AF6832F7F87144D4\n"
+            + "7 eq";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void eexec2() throws Exception {
+        String cmd = "(B8588DA55E9C027B966DADCB) eexec 7 eq"
+            + " <B8588DA55E9C027B966DADCB> eexec 7 eq";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void readline1() throws Exception {
+        String cmd = "currentfile 0 (%%End) /SubFileDecode filter"
+            + " 20 string readline abc%%End\n"
+            + " false eq exch (abc) eq";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void readline2() throws Exception {
+        String cmd = "currentfile 0 (%%End) /SubFileDecode filter"
+            + " 2 string {readline} stopped abc%%End\n"
+            + " 3 1 roll pop pop";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
+
     /** Test. @throws Exception the exception */
     @Test
     public void decodeFilters1() throws Exception {
@@ -20,6 +20,9 @@ package net.sf.eps2pgf.testsuite.pstests;
 
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,6 +31,17 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import net.sf.eps2pgf.ps.Interpreter;
+import net.sf.eps2pgf.ps.OperatorsAtoC;
+import net.sf.eps2pgf.ps.OperatorsDtoF;
+import net.sf.eps2pgf.ps.OperatorsEps2pgf;
+import net.sf.eps2pgf.ps.OperatorsGtoI;
+import net.sf.eps2pgf.ps.OperatorsJtoL;
+import net.sf.eps2pgf.ps.OperatorsMtoO;
+import net.sf.eps2pgf.ps.OperatorsPtoR;
+import net.sf.eps2pgf.ps.OperatorsS;
+import net.sf.eps2pgf.ps.OperatorsSpecialChar;
+import net.sf.eps2pgf.ps.OperatorsTtoZ;
+import net.sf.eps2pgf.ps.objects.PSObject;
 
 /**
  * This class contains some test to test the PostScript handling.
@@ -130,4 +144,31 @@ public class MiscPSTest {
         assertTrue(Common.testString(interp, cmd, 1));
     }
 
+    /**
+     * Checks that all operators of the operator containers are registered in
+     * the system dictionary.
+     * 
+     * @throws Exception the exception
+     */
+    @Test
+    public void operators1() throws Exception {
+        Set<Class< ? >> registered = new HashSet<Class< ? >>();
+        List<PSObject> items =
+            interp.getDictStack().getSystemDict().getItemList();
+        for (int i = 2; i < items.size(); i += 2) {
+            registered.add(items.get(i).getClass());
+        }
+        
+        Class< ? >[] containers = {OperatorsAtoC.class, OperatorsDtoF.class,
+                OperatorsGtoI.class, OperatorsJtoL.class, OperatorsMtoO.class,
+                OperatorsPtoR.class, OperatorsS.class, OperatorsTtoZ.class,
+                OperatorsSpecialChar.class, OperatorsEps2pgf.class};
+        for (Class< ? > container : containers) {
+            for (Class< ? > op : container.getClasses()) {
+                assertTrue(op.getSimpleName() + " is not registered",
+                        registered.contains(op));
+            }
+        }
+    }
+
 }
@@ -131,4 +131,65 @@ public class ParserPSTest {
         assertTrue(Common.testString(interp, cmd, 6));
     }
 
+    /** Parser test. @throws Exception the exception */
+    @Test
+    public void parser11() throws Exception {
+        String cmd = "/a%comment\n 5 def a 5 eq  (a\\101\\0612) (aA12) eq"
+            + " (ab\\\ncd) (abcd) eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
+    /** Parser test. @throws Exception the exception */
+    @Test
+    public void parser12() throws Exception {
+        String cmd = "<> length 0 eq  <4 1> (A) eq  <7> (p) eq"
+            + " ( 12 abc) token pop 12 eq exch (abc) eq";
+        assertTrue(Common.testString(interp, cmd, 5));
+    }
+
+    /** Parser test. @throws Exception the exception */
+    @Test
+    public void parser13() throws Exception {
+        String cmd = "(\\)) {token} stopped exch pop";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
+
+    /** Parser test. @throws Exception the exception */
+    @Test
+    public void parser14() throws Exception {
+        String cmd = "{1 %}\n {(}) {{2}}} } dup length 2 eq"
+            + " exch 1 get 1 get 0 get 0 get 2 eq";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+
+    /** Parser test. @throws Exception the exception */
+    @Test
+    public void parser15() throws Exception {
+        String cmd = "2#1010 10 eq  36#zZ 1295 eq  16#FFFFFFFF -1 eq"
+            + " .5 0.5 eq  -1.e1 -10 eq  -.5E-1 -0.05 eq"
+            + " 2147483648 type /realtype eq  -2147483648 type /integertype eq"
+            + " true {1e 37#1 16#-1 1.2.3 +} {type /nametype eq and} forall";
+        assertTrue(Common.testString(interp, cmd, 9));
+    }
+
+    /** Parser test. @throws Exception the exception */
+    @Test
+    public void parser16() throws Exception {
+        String cmd = "{(}) cvx exec} stopped"
+            + " {(\\(abc) cvx exec} stopped"
+            + " {(<~abc) cvx exec} stopped"
+            + " {(1 2 }) cvx exec} stopped 3 1 roll pop pop";
+        assertTrue(Common.testString(interp, cmd, 4));
+    }
+
+    /** Parser test. @throws Exception the exception */
+    @Test
+    public void parser17() throws Exception {
+        String cmd = "<~ 9jq o^ z\nBl~>(Man \000\000\000\000i) eq"
+            + "  <~~> length 0 eq  <~zz~> length 8 eq"
+            + " {(<~ab{c~>) cvx exec} stopped"
+            + " {(<~abc~ >) cvx exec} stopped";
+        assertTrue(Common.testString(interp, cmd, 5));
+    }
+
 }
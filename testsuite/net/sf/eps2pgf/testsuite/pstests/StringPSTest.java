@@ -92,6 +92,13 @@ public class StringPSTest {
         assertTrue(Common.testString(interp, cmd, 1));
     }
 
+    /** Test. @throws Exception the exception */
+    @Test
+    public void put2() throws Exception {
+        String cmd = "(abcdef) dup 2 3 getinterval 1 48 put (abc0ef) eq";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
+
     /** Test. @throws Exception the exception */
     @Test
     public void getinterval1() throws Exception {
@@ -206,6 +213,22 @@ public class StringPSTest {
         assertTrue(Common.testString(interp, cmd, 2));
     }
 
+    /** Test. @throws Exception the exception */
+    @Test
+    public void search5() throws Exception {
+        String cmd = "(a\\377bc\\377b) 1 5 getinterval (\\377b) search pop"
+            + " () eq 3 1 roll (\\377b) eq 3 1 roll (c\\377b) eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
+    /** Test. @throws Exception the exception */
+    @Test
+    public void compare1() throws Exception {
+        String cmd = "(ab\\377) (abc) gt (ab) (abc) lt"
+            + " (xabcx) 1 3 getinterval (abc) eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
     /** Test. @throws Exception the exception */
     @Test
     public void token1() throws Exception {
@@ -139,6 +139,15 @@ public class TypePSTest {
         assertTrue(Common.testString(interp, cmd, 8));
     }
 
+    /** Type test. @throws Exception the exception */
+    @Test
+    public void cvx5() throws Exception {
+        String cmd = "1 1 add cvx pop  1 1 add xcheck not"
+            + " 1 1 eq cvx pop  2 2 eq xcheck not"
+            + " 0.5 0.5 add cvx pop  2 0.5 mul xcheck not";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
     /** Type test. @throws Exception the exception */
     @Test
     public void xcheck1() throws Exception {
@@ -176,6 +185,29 @@ public class TypePSTest {
         assertTrue(Common.testString(interp, cmd, 2));
     }
 
+    /** Type test. @throws Exception the exception */
+    @Test
+    public void readonly2() throws Exception {
+        String cmd = "/a [1 2 3] def  a readonly wcheck not  a wcheck"
+            + " /s (abc) def  s executeonly pop  s noaccess pop  s rcheck";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
+    /** Type test. @throws Exception the exception */
+    @Test
+    public void readonly3() throws Exception {
+        String cmd = "/p {(abc) readonly} def  p wcheck not"
+            + " /p load 0 get wcheck";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+
+    /** Type test. @throws Exception the exception */
+    @Test
+    public void readonly4() throws Exception {
+        String cmd = "/d 1 dict def  d readonly pop  d wcheck not";
+        assertTrue(Common.testString(interp, cmd, 1));
+    }
+
     /** Type test. @throws Exception the exception */
     @Test
     public void rcheck1() throws Exception {
@@ -214,6 +246,14 @@ public class TypePSTest {
         assertTrue(Common.testString(interp, cmd, 3));
     }
 
+    /** Type test. @throws Exception the exception */
+    @Test
+    public void cvn3() throws Exception {
+        String cmd = "/abc dup cvx dup xcheck exch cvlit xcheck not and"
+            + "  exch xcheck not  (abc) cvn cvx /abc cvx eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+
     /** Type test. @throws Exception the exception */
     @Test
     public void cvr1() throws Exception {
@@ -247,5 +287,12 @@ public class TypePSTest {
         assertTrue(Common.testString(interp, cmd, 3));
     }
 
+    /** Type test. @throws Exception the exception */
+    @Test
+    public void cvs2() throws Exception {
+        String cmd = "/s 10 string def  42 s cvs length 2 eq  s length 10 eq";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+
 
 }
@@ -146,6 +146,24 @@ public class VirtualMemoryPSTest {
         assertTrue(Common.testString(interp, cmd, 1));
     }
 
+    /** Test. @throws Exception the exception */
+    @Test
+    public void saveRestore10() throws Exception {
+        String cmd = "/a [1 2 3] def save a 0 10 put save a 0 20 put"
+            + " a 0 get 20 eq exch restore a 0 get 10 eq"
+            + " 3 -1 roll restore a 0 get 1 eq";
+        assertTrue(Common.testString(interp, cmd, 3));
+    }
+    
+    /** Test. @throws Exception the exception */
+    @Test
+    public void saveRestore11() throws Exception {
+        String cmd = "/d 5 dict def save d /k 1 put save d /k 2 put pop"
+            + " restore d /k known not"
+            + " save d /k 3 put restore d /k known not";
+        assertTrue(Common.testString(interp, cmd, 2));
+    }
+    
     /** Test. @throws Exception the exception */
     @Test
     public void saveGrestoreall() throws Exception {